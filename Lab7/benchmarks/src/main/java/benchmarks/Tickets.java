@@ -0,0 +1,65 @@
+package benchmarks;
+
+import common.data.Coordinates;
+import common.data.Location;
+import common.data.Person;
+import common.data.Ticket;
+import common.data.TicketType;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Билеты для наполнения коллекций и сообщений в бенчмарках.
+ *
+ * <p>Поля билета зависят только от его номера, поэтому одинаковые номера дают одинаковые билеты во
+ * всех бенчмарках и запусках.
+ *
+ * @author Alvas
+ * @since 3.0
+ */
+public final class Tickets {
+  private Tickets() {}
+
+  /**
+   * Создает билет с заданным номером; каждый второй билет с пассажиром, как в заполненной
+   * коллекции.
+   *
+   * @param i номер билета, начиная с 0; id билета - {@code i + 1}.
+   * @param owner имя владельца билета.
+   * @return Билет.
+   */
+  public static Ticket create(int i, String owner) {
+    TicketType[] types = TicketType.values();
+    Person person =
+        i % 2 == 0
+            ? new Person(170f + i % 30, 60 + i % 40, "P" + i, new Location(10L + i, 20L, i % 100))
+            : null;
+    Ticket ticket =
+        new Ticket(
+            i + 1,
+            "ticket" + i,
+            new Coordinates(1.5f * (i % 1000), (long) (i % 300)),
+            LocalDate.of(2025, 1, 1).plusDays(i % 365),
+            100f + i % 10_000,
+            types[i % types.length],
+            person);
+    ticket.setOwnerUsername(owner);
+    return ticket;
+  }
+
+  /**
+   * Создает билеты с номерами от 0 до {@code count - 1}.
+   *
+   * @param count количество билетов.
+   * @param owner имя владельца билетов.
+   * @return Список билетов.
+   */
+  public static List<Ticket> list(int count, String owner) {
+    List<Ticket> tickets = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      tickets.add(create(i, owner));
+    }
+    return tickets;
+  }
+}
@@ -0,0 +1,116 @@
+package benchmarks.network;
+
+import benchmarks.Tickets;
+import common.data.auth.AuthCredentials;
+import common.exceptions.WrongArgumentException;
+import common.network.ObjectDecoder;
+import common.network.ObjectEncoder;
+import common.network.Request;
+import common.network.RequestBody;
+import common.network.RequestBodyWithTicket;
+import common.network.Response;
+import common.network.ResponseWithException;
+import common.network.codec.Codec;
+import common.network.codec.Codecs;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Измеряет кодирование и декодирование сообщений протокола.
+ *
+ * <p>Каждое сообщение кодируется дважды за запрос (клиентом и сервером) и столько же раз
+ * декодируется. Сравниваются кодеки {@code serial} ({@link ObjectEncoder#encodeObject(Object)} и
+ * {@link ObjectDecoder#decodeObject(ByteBuffer)}) и {@code binary} на сообщениях:
+ *
+ * <ul>
+ *   <li>{@code REQUEST} - запрос без тела, как {@code info};
+ *   <li>{@code REQUEST_WITH_TICKET} - запрос {@code add} с билетом и пассажиром;
+ *   <li>{@code RESPONSE_1}, {@code RESPONSE_100}, {@code RESPONSE_10000} - ответ с 1, 100 и 10 000
+ *       билетами;
+ *   <li>{@code RESPONSE_WITH_EXCEPTION} - ответ с ошибкой.
+ * </ul>
+ *
+ * <p>{@code encode} создает новый буфер, как клиент; {@code encodeInto} пишет в заранее выделенный
+ * буфер, как сервер с пулом буферов; {@code decode} разбирает заранее закодированное сообщение.
+ * Размер закодированного сообщения выводится при подготовке, выделение памяти на операцию
+ * показывает профилировщик {@code -prof gc} (строка {@code gc.alloc.rate.norm}).
+ *
+ * <p>Запуск: {@code java -jar benchmarks/target/benchmarks.jar CodecBenchmark -prof gc}
+ *
+ * @author Alvas
+ * @since 3.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class CodecBenchmark {
+  private static final AuthCredentials AUTH = new AuthCredentials("benchmark", "benchmark");
+
+  /** Сообщение, которое кодируется в бенчмарке. */
+  public enum Message {
+    REQUEST,
+    REQUEST_WITH_TICKET,
+    RESPONSE_1,
+    RESPONSE_100,
+    RESPONSE_10000,
+    RESPONSE_WITH_EXCEPTION
+  }
+
+  @Param({"binary", "serial"})
+  public String codecName;
+
+  @Param public Message message;
+
+  private Codec codec;
+  private Object object;
+  private ByteBuffer encoded;
+  private ByteBuffer target;
+
+  @Setup(Level.Trial)
+  public void prepare() throws IOException {
+    codec = Codecs.byName(codecName);
+    object = create(message);
+    encoded = codec.encode(object).asReadOnlyBuffer();
+    target = ByteBuffer.allocate(encoded.remaining() * 2);
+    System.out.println(
+        "Размер сообщения " + message + " (" + codecName + "): " + encoded.remaining() + " байт");
+  }
+
+  @Benchmark
+  public ByteBuffer encode() throws IOException {
+    return codec.encode(object);
+  }
+
+  @Benchmark
+  public ByteBuffer encodeInto() throws IOException {
+    target.clear();
+    return codec.encode(object, target);
+  }
+
+  @Benchmark
+  public Object decode() throws IOException {
+    return codec.decode(encoded.duplicate());
+  }
+
+  private static Object create(Message message) {
+    return switch (message) {
+      case REQUEST -> new Request("info", new RequestBody(new String[0]), AUTH);
+      case REQUEST_WITH_TICKET ->
+          new Request(
+              "add",
+              new RequestBodyWithTicket(new String[0], Tickets.create(0, AUTH.username())),
+              AUTH);
+      case RESPONSE_1 -> new Response("Элементы коллекции:", Tickets.list(1, AUTH.username()));
+      case RESPONSE_100 -> new Response("Элементы коллекции:", Tickets.list(100, AUTH.username()));
+      case RESPONSE_10000 ->
+          new Response("Элементы коллекции:", Tickets.list(10_000, AUTH.username()));
+      case RESPONSE_WITH_EXCEPTION ->
+          new ResponseWithException(new WrongArgumentException("Билет с id 42 не найден."));
+    };
+  }
+}
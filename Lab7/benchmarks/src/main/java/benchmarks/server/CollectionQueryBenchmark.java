@@ -0,0 +1,132 @@
+package benchmarks.server;
+
+import benchmarks.Tickets;
+import common.data.Coordinates;
+import common.data.Ticket;
+import common.data.TicketType;
+import common.exceptions.EmptyCollectionException;
+import common.exceptions.RemoveException;
+import common.exceptions.WrongArgumentException;
+import java.time.LocalDate;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.*;
+import server.managers.InMemoryCollectionManager;
+
+/**
+ * Измеряет запросы к коллекции в зависимости от ее размера.
+ *
+ * <p>Коллекция - {@link InMemoryCollectionManager} с {@code tickets} билетами, база данных не
+ * нужна. Запросы:
+ *
+ * <ul>
+ *   <li>{@code GET_BY_ID} - поиск билета по случайному id;
+ *   <li>{@code FILTERED_BY_TYPE} - билеты одного типа (четверть коллекции);
+ *   <li>{@code MAX_TICKET}, {@code MAX_BY_DATE} - наибольший билет по умолчанию и по дате;
+ *   <li>{@code AVERAGE_PRICE} - средняя стоимость;
+ *   <li>{@code REMOVE_LOWER} - удаление билетов меньше заданного; заданный билет меньше всех,
+ *       поэтому коллекция не меняется и измеряется только проход по ней.
+ * </ul>
+ *
+ * <p>{@code single} выполняет запрос в одном потоке. В группе {@code contended} запрос выполняют
+ * {@value #READERS} потока, пока еще один поток добавляет билет в конец коллекции и удаляет первый,
+ * как команды {@code add} и {@code remove_head}, - размер коллекции при этом не меняется.
+ *
+ * <p>Коллекция из 10<sup>7</sup> билетов занимает несколько гигабайт; размеры можно ограничить
+ * параметром, например {@code -p tickets=1000,100000}.
+ *
+ * <p>Запуск: {@code java -jar benchmarks/target/benchmarks.jar CollectionQueryBenchmark}
+ *
+ * @author Alvas
+ * @since 3.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(
+    value = 1,
+    jvmArgsAppend = {"-Xmx8g", "-Dlog4j.configurationFile=log4j2-benchmark.xml"})
+@State(Scope.Benchmark)
+public class CollectionQueryBenchmark {
+  private static final int READERS = 3;
+  private static final String OWNER = "benchmark";
+
+  /** Запрос к коллекции. */
+  public enum Query {
+    GET_BY_ID,
+    FILTERED_BY_TYPE,
+    MAX_TICKET,
+    MAX_BY_DATE,
+    AVERAGE_PRICE,
+    REMOVE_LOWER
+  }
+
+  @Param({"1000", "10000", "100000", "1000000", "10000000"})
+  public int tickets;
+
+  @Param public Query query;
+
+  private InMemoryCollectionManager collectionManager;
+  private Ticket lowest;
+  // id первого билета коллекции; растет, пока пишущий поток удаляет билеты из начала
+  private final AtomicInteger firstId = new AtomicInteger(1);
+
+  @Setup(Level.Trial)
+  public void fill() throws WrongArgumentException {
+    collectionManager = new InMemoryCollectionManager();
+    for (int i = 0; i < tickets; i++) {
+      collectionManager.addTicket(Tickets.create(i, OWNER));
+    }
+    lowest = new Ticket(0, "", new Coordinates(0f, 0L), LocalDate.MIN, 1f, TicketType.VIP, null);
+  }
+
+  @Benchmark
+  @Threads(1)
+  public Object single() throws EmptyCollectionException, RemoveException {
+    return run();
+  }
+
+  @Benchmark
+  @Group("contended")
+  @GroupThreads(READERS)
+  public Object contendedQuery() throws EmptyCollectionException, RemoveException {
+    return run();
+  }
+
+  @Benchmark
+  @Group("contended")
+  @GroupThreads(1)
+  public Ticket contendedWriter() throws WrongArgumentException, RemoveException {
+    collectionManager.addTicket(
+        Tickets.create(ThreadLocalRandom.current().nextInt(tickets), OWNER));
+    Ticket removed = collectionManager.removeHead(OWNER);
+    if (removed != null) {
+      firstId.set(removed.getId() + 1);
+    }
+    return removed;
+  }
+
+  private Object run() throws EmptyCollectionException, RemoveException {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    return switch (query) {
+      case GET_BY_ID -> {
+        try {
+          yield collectionManager.getById(firstId.get() + random.nextInt(tickets));
+        } catch (WrongArgumentException e) {
+          // билет удален пишущим потоком между чтением firstId и поиском
+          yield e;
+        }
+      }
+      case FILTERED_BY_TYPE -> collectionManager.getFilteredByType(TicketType.VIP);
+      case MAX_TICKET -> collectionManager.getMaxTicket();
+      case MAX_BY_DATE -> collectionManager.getMaxByDate();
+      case AVERAGE_PRICE -> collectionManager.getAveragePrice();
+      case REMOVE_LOWER -> {
+        collectionManager.removeLower(lowest, OWNER);
+        yield lowest;
+      }
+    };
+  }
+}
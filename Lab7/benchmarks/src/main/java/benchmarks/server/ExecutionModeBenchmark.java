@@ -0,0 +1,137 @@
+package benchmarks.server;
+
+import common.data.auth.AuthCredentials;
+import common.managers.CollectionManager;
+import common.network.MessageFragmenter;
+import common.network.Request;
+import common.network.RequestBody;
+import common.network.codec.Codecs;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import server.managers.InMemoryCollectionManager;
+import server.system.ExecutionMode;
+import server.system.ServerConfig;
+
+/**
+ * Сравнивает пропускную способность и задержку сервера в режимах {@link ExecutionMode}.
+ *
+ * <p>Сервер запускается на локальном порту с {@link SlowCollectionManager}, который имитирует
+ * блокирующее обращение к базе данных. Каждый поток JMH - отдельный клиент, отправляющий запрос
+ * {@code average_of_price} и ожидающий ответа. Режим {@link Mode#SampleTime} выводит перцентили
+ * задержки (в том числе p0.99). Параметр {@code responseCacheSize} включает кэш ответов на команды
+ * чтения: коллекция не меняется, поэтому с кэшем почти все запросы обходятся без обращения к базе.
+ *
+ * <p>Запуск: {@code java -jar benchmarks/target/benchmarks.jar ExecutionModeBenchmark}
+ *
+ * @author Alvas
+ * @since 3.0
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(
+    value = 1,
+    jvmArgsAppend = {"-Dlog4j.configurationFile=log4j2-benchmark.xml"})
+@Threads(128)
+public class ExecutionModeBenchmark {
+  private static final int RECEIVE_TIMEOUT_MS = 2000;
+
+  @State(Scope.Benchmark)
+  public static class ServerState extends LocalServerState {
+    private static final int PROBE_TIMEOUT_MS = 200;
+
+    @Param({"PLATFORM", "VIRTUAL", "RING"})
+    public ExecutionMode mode;
+
+    @Param({"2"})
+    public int dbLatencyMillis;
+
+    @Param({"0", "1024"})
+    public int responseCacheSize;
+
+    @Override
+    protected void configure(ServerConfig config) {
+      config.setExecutionMode(mode);
+      config.setResponseCacheSize(responseCacheSize);
+    }
+
+    @Override
+    protected CollectionManager createCollectionManager() {
+      return new SlowCollectionManager(
+          new InMemoryCollectionManager(), Duration.ofMillis(dbLatencyMillis));
+    }
+
+    @Override
+    protected boolean probe() throws IOException {
+      ClientState client = new ClientState();
+      client.open();
+      try {
+        return client.call(udpAddress, PROBE_TIMEOUT_MS);
+      } finally {
+        client.close();
+      }
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class ClientState {
+    DatagramSocket socket;
+    ByteBuffer payload;
+    byte[] datagram = new byte[MessageFragmenter.MAX_DATAGRAM_SIZE];
+    byte[] reply = new byte[MessageFragmenter.MAX_DATAGRAM_SIZE];
+    long nextMessageId;
+
+    @Setup(Level.Trial)
+    public void open() throws IOException {
+      socket = new DatagramSocket();
+      Request request =
+          new Request(
+              "average_of_price",
+              new RequestBody(new String[0]),
+              new AuthCredentials("benchmark", "benchmark"));
+      payload = Codecs.BINARY.encode(request);
+      nextMessageId = System.nanoTime();
+    }
+
+    /** Отправляет запрос и ждет ответ с тем же идентификатором. */
+    boolean call(InetSocketAddress address, int timeoutMillis) throws IOException {
+      long messageId = nextMessageId++;
+      ByteBuffer out = ByteBuffer.wrap(datagram);
+      MessageFragmenter.writeFragment(messageId, payload, 0, 1, out);
+      socket.send(new DatagramPacket(datagram, out.limit(), address));
+
+      socket.setSoTimeout(timeoutMillis);
+      DatagramPacket packet = new DatagramPacket(reply, reply.length);
+      try {
+        while (true) {
+          socket.receive(packet);
+          // ответы на запросы, не дождавшиеся своего времени, пропускаются
+          if (packet.getLength() >= MessageFragmenter.HEADER_SIZE
+              && ByteBuffer.wrap(reply, 1, Long.BYTES).getLong() == messageId) {
+            return true;
+          }
+        }
+      } catch (SocketTimeoutException e) {
+        return false;
+      }
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+      socket.close();
+    }
+  }
+
+  @Benchmark
+  public boolean averageOfPrice(ServerState server, ClientState client) throws IOException {
+    return client.call(server.udpAddress, RECEIVE_TIMEOUT_MS);
+  }
+}
@@ -0,0 +1,124 @@
+package benchmarks.server;
+
+import common.managers.CollectionManager;
+import common.managers.CommandManager;
+import java.io.IOException;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import org.openjdk.jmh.annotations.*;
+import server.UDPServer;
+import server.system.ServerConfig;
+
+/**
+ * Сервер на локальном порту для бенчмарков, которые отправляют ему запросы.
+ *
+ * <p>Сервер запускается в отдельном потоке до измерений и останавливается после них. Ограничение
+ * частоты запросов выключено: все потоки JMH - один пользователь. Подкласс задает коллекцию,
+ * остальные настройки сервера и пробный запрос, которым проверяется, что сервер запущен.
+ *
+ * @author Alvas
+ * @since 3.0
+ */
+@State(Scope.Benchmark)
+public abstract class LocalServerState {
+  private static final int START_ATTEMPTS = 50;
+  private static final long START_RETRY_MS = 100;
+
+  UDPServer server;
+  Thread serverThread;
+  InetSocketAddress udpAddress;
+  // null, если TCP-транспорт не запускается
+  InetSocketAddress tcpAddress;
+
+  @Setup(Level.Trial)
+  public void start() throws Exception {
+    InetAddress loopback = InetAddress.getLoopbackAddress();
+    int udpPort;
+    try (DatagramSocket probe = new DatagramSocket(0)) {
+      udpPort = probe.getLocalPort();
+    }
+    udpAddress = new InetSocketAddress(loopback, udpPort);
+
+    ServerConfig config = new ServerConfig();
+    if (withTcp()) {
+      try (ServerSocket probe = new ServerSocket(0)) {
+        config.setTcpPort(probe.getLocalPort());
+      }
+      tcpAddress = new InetSocketAddress(loopback, config.getTcpPort());
+    }
+    // все потоки JMH - один пользователь, ограничение частоты исказило бы результат
+    config.setClientRate(0);
+    config.setUserRate(0);
+    configure(config);
+    CollectionManager collectionManager = createCollectionManager();
+    CommandManager commandManager = new CommandManager(collectionManager, null, null, null);
+    server = new UDPServer(commandManager, collectionManager, config);
+
+    serverThread =
+        new Thread(
+            () -> {
+              try {
+                server.runServer(udpPort);
+              } catch (IOException e) {
+                throw new IllegalStateException(e);
+              }
+            },
+            "benchmark-server");
+    serverThread.start();
+    awaitStarted();
+  }
+
+  private void awaitStarted() throws InterruptedException {
+    for (int attempt = 0; attempt < START_ATTEMPTS; attempt++) {
+      try {
+        if (probe()) {
+          return;
+        }
+      } catch (Exception e) {
+        // сервер еще не начал принимать запросы
+      }
+      Thread.sleep(START_RETRY_MS);
+    }
+    throw new IllegalStateException("Сервер не ответил на пробный запрос.");
+  }
+
+  @TearDown(Level.Trial)
+  public void stop() throws InterruptedException {
+    server.stop();
+    serverThread.join();
+  }
+
+  /**
+   * Показывает, нужно ли запускать TCP-транспорт.
+   *
+   * @return {@code true} - если сервер должен принимать запросы и по TCP.
+   */
+  protected boolean withTcp() {
+    return false;
+  }
+
+  /**
+   * Дополняет настройки сервера параметрами бенчмарка.
+   *
+   * @param config настройки с выбранными портами и выключенным ограничением частоты.
+   */
+  protected abstract void configure(ServerConfig config);
+
+  /**
+   * Создает коллекцию, с которой работает сервер.
+   *
+   * @return Коллекция.
+   * @throws Exception если коллекцию не удалось заполнить.
+   */
+  protected abstract CollectionManager createCollectionManager() throws Exception;
+
+  /**
+   * Отправляет пробный запрос запущенному серверу.
+   *
+   * @return {@code true} - если сервер ответил.
+   * @throws Exception если запрос не удался.
+   */
+  protected abstract boolean probe() throws Exception;
+}
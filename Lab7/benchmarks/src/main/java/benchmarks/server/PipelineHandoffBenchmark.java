@@ -0,0 +1,164 @@
+package benchmarks.server;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.*;
+import server.network.BoundedStage;
+import server.network.RingPipeline;
+import server.system.OverloadPolicy;
+import server.system.WaitStrategy;
+
+/**
+ * Сравнивает передачу запросов между тремя этапами сервера: пулы потоков с {@link BoundedStage}
+ * (режим {@code PLATFORM}) и {@link RingPipeline} (режим {@code RING}) с разными {@link
+ * WaitStrategy}.
+ *
+ * <p>Работа этапов почти нулевая, поэтому измеряется только стоимость передачи. Один поток JMH -
+ * единственный производитель; операция - передача пачки из {@value #BATCH} элементов и ожидание,
+ * пока все они пройдут последний этап. Выделение памяти на передачу показывает профилировщик {@code
+ * -prof gc}.
+ *
+ * <p>Запуск: {@code java -jar benchmarks/target/benchmarks.jar PipelineHandoffBenchmark -prof gc}
+ *
+ * @author Alvas
+ * @since 3.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(
+    value = 1,
+    jvmArgsAppend = {"-Dlog4j.configurationFile=log4j2-benchmark.xml"})
+@State(Scope.Benchmark)
+public class PipelineHandoffBenchmark {
+  private static final int BATCH = 1024;
+  private static final int WORKERS = 2;
+
+  /** Элемент, проходящий этапы; в кольце используется повторно. */
+  static final class Item {
+    long value;
+    long decoded;
+    long processed;
+  }
+
+  /** Неизменяемые результаты этапов, как записи запроса и ответа в режиме {@code PLATFORM}. */
+  record Decoded(long value) {}
+
+  record Processed(long value) {}
+
+  @Param({"EXECUTORS", "RING_BUSY_SPIN", "RING_YIELD", "RING_PARK"})
+  public String design;
+
+  private final AtomicLong completed = new AtomicLong();
+
+  private ExecutorService readPool;
+  private ForkJoinPool processPool;
+  private ExecutorService sendPool;
+  private BoundedStage decodeStage;
+  private BoundedStage processStage;
+  private BoundedStage sendStage;
+
+  private RingPipeline<Item> ring;
+
+  @Setup(Level.Trial)
+  public void start() {
+    if (design.equals("EXECUTORS")) {
+      readPool = Executors.newCachedThreadPool();
+      processPool = new ForkJoinPool(WORKERS);
+      sendPool = Executors.newCachedThreadPool();
+      int capacity = BATCH * 4;
+      decodeStage = new BoundedStage("decode", readPool, 1, capacity, OverloadPolicy.BLOCK);
+      processStage =
+          new BoundedStage("process", processPool, WORKERS, capacity, OverloadPolicy.BLOCK);
+      sendStage = new BoundedStage("send", sendPool, WORKERS, capacity, OverloadPolicy.BLOCK);
+      return;
+    }
+
+    WaitStrategy waitStrategy = WaitStrategy.valueOf(design.substring("RING_".length()));
+    ring =
+        new RingPipeline<>(
+            "benchmark",
+            BATCH,
+            Item::new,
+            List.of(
+                new RingPipeline.Stage<>(
+                    "decode",
+                    1,
+                    item -> {
+                      item.decoded = item.value * 31;
+                      return true;
+                    }),
+                new RingPipeline.Stage<>(
+                    "process",
+                    WORKERS,
+                    item -> {
+                      item.processed = item.decoded + 7;
+                      return true;
+                    }),
+                new RingPipeline.Stage<>(
+                    "send",
+                    WORKERS,
+                    item -> {
+                      completed.incrementAndGet();
+                      return true;
+                    })),
+            waitStrategy);
+    ring.start();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH)
+  public long handoff() {
+    long target = completed.get() + BATCH;
+    for (int i = 0; i < BATCH; i++) {
+      if (ring != null) {
+        long sequence = ring.claim();
+        ring.get(sequence).value = i;
+        ring.publish(sequence);
+      } else {
+        submit(i);
+      }
+    }
+    while (completed.get() < target) {
+      Thread.onSpinWait();
+    }
+    return target;
+  }
+
+  // та же цепочка передач, что и в UDPServer в режиме PLATFORM
+  private void submit(long value) {
+    Runnable noop = () -> {};
+    decodeStage.submit(
+        new BoundedStage.Task(
+            () -> {
+              Decoded decoded = new Decoded(value * 31);
+              processStage.submit(
+                  new BoundedStage.Task(
+                      () -> {
+                        Processed processed = new Processed(decoded.value() + 7);
+                        sendStage.submit(
+                            new BoundedStage.Task(() -> completed.incrementAndGet(), noop, noop));
+                      },
+                      noop,
+                      noop));
+            },
+            noop,
+            noop));
+  }
+
+  @TearDown(Level.Trial)
+  public void stop() {
+    if (ring != null) {
+      ring.stop();
+      return;
+    }
+    readPool.shutdownNow();
+    processPool.shutdownNow();
+    sendPool.shutdownNow();
+  }
+}
@@ -0,0 +1,112 @@
+package benchmarks.server;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openjdk.jmh.annotations.*;
+import server.network.RequestLog;
+
+/**
+ * Измеряет стоимость журнала запросов на пути обработки запроса.
+ *
+ * <p>Операция - три сообщения, которые сервер пишет о каждом запросе: получен, обрабатывается,
+ * отправлен. Сообщения пишутся в файл с той же разметкой, что у сервера, из {@value #THREADS}
+ * потоков, как из потоков этапов. Варианты {@code mode}:
+ *
+ * <ul>
+ *   <li>{@code SYNC_CONCAT} - прежний журнал: синхронная запись со сбросом на диск после каждого
+ *       сообщения, строки собираются конкатенацией;
+ *   <li>{@code SYNC} - синхронная запись, сообщения с параметрами;
+ *   <li>{@code ASYNC} - асинхронные логгеры, как у сервера сейчас;
+ *   <li>{@code ASYNC_SAMPLED} - асинхронные логгеры и выборка одного запроса из {@value
+ *       #SAMPLE_RATE};
+ *   <li>{@code OFF} - уровень логгера запросов {@code WARN}, как после команды {@code loglevel
+ *       WARN}.
+ * </ul>
+ *
+ * <p>Асинхронные логгеры выбираются при первом обращении к log4j, поэтому каждый вариант
+ * выполняется в своем процессе. Выделение памяти на операцию показывает профилировщик {@code -prof
+ * gc}.
+ *
+ * <p>Запуск: {@code java -jar benchmarks/target/benchmarks.jar RequestLoggingBenchmark -prof gc}
+ *
+ * @author Alvas
+ * @since 3.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(RequestLoggingBenchmark.THREADS)
+@State(Scope.Benchmark)
+public class RequestLoggingBenchmark {
+  static final int THREADS = 4;
+  private static final int SAMPLE_RATE = 100;
+
+  /** Вариант журнала запросов. */
+  public enum LogMode {
+    SYNC_CONCAT,
+    SYNC,
+    ASYNC,
+    ASYNC_SAMPLED,
+    OFF
+  }
+
+  @Param public LogMode mode;
+
+  // не константы, чтобы конкатенация не выполнялась при компиляции
+  private String commandName = "add";
+  private String message = "Билет успешно добавлен в коллекцию.";
+
+  private Path logFile;
+  private RequestLog requestLog;
+  private Logger logger;
+
+  @Setup(org.openjdk.jmh.annotations.Level.Trial)
+  public void configure() throws IOException {
+    boolean async = mode != LogMode.SYNC_CONCAT && mode != LogMode.SYNC;
+    logFile = Files.createTempFile("request-log", ".log");
+    System.setProperty("log4j.configurationFile", "log4j2-logging-benchmark.xml");
+    System.setProperty("benchmark.logFile", logFile.toString());
+    System.setProperty("benchmark.immediateFlush", Boolean.toString(!async));
+    System.setProperty(
+        "Log4jContextSelector",
+        async
+            ? "org.apache.logging.log4j.core.async.AsyncLoggerContextSelector"
+            : "org.apache.logging.log4j.core.selector.ClassLoaderContextSelector");
+
+    requestLog = new RequestLog(mode == LogMode.ASYNC_SAMPLED ? SAMPLE_RATE : 1);
+    if (mode == LogMode.OFF) {
+      requestLog.setLevel(Level.WARN);
+    }
+    logger = requestLog.getLogger();
+  }
+
+  @TearDown(org.openjdk.jmh.annotations.Level.Trial)
+  public void close() throws IOException {
+    // асинхронные логгеры дописывают очередь в файл
+    LogManager.shutdown();
+    System.out.println("Размер журнала: " + Files.size(logFile) + " байт");
+    Files.deleteIfExists(logFile);
+  }
+
+  @Benchmark
+  public void request() {
+    if (mode == LogMode.SYNC_CONCAT) {
+      logger.info("Получен запрос с командой " + commandName);
+      logger.info("Обработка запроса с командой " + commandName);
+      logger.info("Сервер отправил ответ клиенту: " + message);
+      return;
+    }
+    if (requestLog.sample()) {
+      logger.info("Получен запрос с командой {}", commandName);
+      logger.info("Обработка запроса с командой {}", commandName);
+      logger.info("Сервер отправил ответ клиенту: {}", message);
+    }
+  }
+}
@@ -0,0 +1,158 @@
+package benchmarks.server;
+
+import common.data.Ticket;
+import common.data.TicketType;
+import common.exceptions.EmptyCollectionException;
+import common.exceptions.RemoveException;
+import common.exceptions.WrongArgumentException;
+import common.managers.CollectionChanges;
+import common.managers.CollectionManager;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Менеджер коллекции, имитирующий задержку обращения к базе данных.
+ *
+ * <p>Каждый вызов блокирует поток на заданное время и затем делегирует работу другому менеджеру,
+ * как это делает {@code SqlCollectionManager}, ожидая ответа PostgreSQL.
+ *
+ * @author Alvas
+ * @since 3.0
+ */
+public class SlowCollectionManager implements CollectionManager {
+  private final CollectionManager delegate;
+  private final Duration latency;
+
+  public SlowCollectionManager(CollectionManager delegate, Duration latency) {
+    this.delegate = delegate;
+    this.latency = latency;
+  }
+
+  private void block() {
+    try {
+      Thread.sleep(latency);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Override
+  public Deque<Ticket> getCollection() {
+    block();
+    return delegate.getCollection();
+  }
+
+  @Override
+  public LocalDateTime getInitializationTime() {
+    return delegate.getInitializationTime();
+  }
+
+  @Override
+  public LocalDateTime getLastUpdateTime() {
+    return delegate.getLastUpdateTime();
+  }
+
+  @Override
+  public void updateLastModifiedTime() {
+    delegate.updateLastModifiedTime();
+  }
+
+  @Override
+  public long getVersion() {
+    return delegate.getVersion();
+  }
+
+  @Override
+  public CollectionChanges getChangesSince(long epoch, long version) {
+    block();
+    return delegate.getChangesSince(epoch, version);
+  }
+
+  @Override
+  public int getCollectionSize() {
+    block();
+    return delegate.getCollectionSize();
+  }
+
+  @Override
+  public int clearCollection(String username) throws SQLException {
+    block();
+    return delegate.clearCollection(username);
+  }
+
+  @Override
+  public void addTicket(Ticket ticket) throws WrongArgumentException, SQLException {
+    block();
+    delegate.addTicket(ticket);
+  }
+
+  @Override
+  public Ticket getById(int id) throws WrongArgumentException {
+    block();
+    return delegate.getById(id);
+  }
+
+  @Override
+  public boolean updateTicket(int id, Ticket newTicket, String username)
+      throws WrongArgumentException, SQLException {
+    block();
+    return delegate.updateTicket(id, newTicket, username);
+  }
+
+  @Override
+  public boolean removeTicket(Ticket ticket, String username) throws RemoveException, SQLException {
+    block();
+    return delegate.removeTicket(ticket, username);
+  }
+
+  @Override
+  public Ticket removeHead(String username) throws RemoveException, SQLException {
+    block();
+    return delegate.removeHead(username);
+  }
+
+  @Override
+  public float getAveragePrice() {
+    block();
+    return delegate.getAveragePrice();
+  }
+
+  @Override
+  public Ticket getMaxByDate() throws EmptyCollectionException {
+    block();
+    return delegate.getMaxByDate();
+  }
+
+  @Override
+  public List<Ticket> getFilteredByType(TicketType type) {
+    block();
+    return delegate.getFilteredByType(type);
+  }
+
+  @Override
+  public List<Ticket> getPage(int afterId, int limit, TicketType type) {
+    block();
+    return delegate.getPage(afterId, limit, type);
+  }
+
+  @Override
+  public Ticket getMaxTicket() {
+    block();
+    return delegate.getMaxTicket();
+  }
+
+  @Override
+  public void removeLower(Ticket ticket, String username) throws RemoveException, SQLException {
+    block();
+    delegate.removeLower(ticket, username);
+  }
+
+  @Override
+  public List<Ticket> getTicketsList() {
+    block();
+    return delegate.getTicketsList();
+  }
+}
@@ -0,0 +1,151 @@
+package benchmarks.server;
+
+import benchmarks.Tickets;
+import client.network.RequestPipeline;
+import client.network.RequestTransport;
+import client.network.StreamPipeline;
+import client.system.ClientConfig;
+import client.system.Transport;
+import common.data.auth.AuthCredentials;
+import common.exceptions.WrongArgumentException;
+import common.managers.CollectionManager;
+import common.network.Request;
+import common.network.RequestBody;
+import common.network.RequestBodyWithPage;
+import common.network.Response;
+import common.network.ResponseWithCursor;
+import java.io.IOException;
+import java.net.DatagramSocket;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import server.managers.InMemoryCollectionManager;
+import server.system.ServerConfig;
+
+/**
+ * Сравнивает транспорты клиента {@link Transport#UDP} и {@link Transport#TCP}.
+ *
+ * <p>Сервер запускается с обоими транспортами и коллекцией из {@code tickets} билетов. Каждый поток
+ * JMH - отдельный клиент со своим {@link RequestTransport}:
+ *
+ * <ul>
+ *   <li>{@code roundTrip} - короткий запрос {@code average_of_price} и ожидание ответа;
+ *   <li>{@code showAll} - чтение всей коллекции командой {@code show} по страницам; по UDP каждая
+ *       страница запрашивается отдельно, по TCP страницы приходят потоком.
+ * </ul>
+ *
+ * <p>Запуск: {@code java -jar benchmarks/target/benchmarks.jar TransportBenchmark}
+ *
+ * @author Alvas
+ * @since 3.0
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(
+    value = 1,
+    jvmArgsAppend = {"-Dlog4j.configurationFile=log4j2-benchmark.xml"})
+@Threads(16)
+public class TransportBenchmark {
+  private static final int TIMEOUT_MS = 2000;
+  private static final int PAGE_SIZE = 50;
+  private static final AuthCredentials AUTH = new AuthCredentials("benchmark", "benchmark");
+
+  @State(Scope.Benchmark)
+  public static class ServerState extends LocalServerState {
+    @Param({"UDP", "TCP"})
+    public Transport transport;
+
+    @Param({"1000"})
+    public int tickets;
+
+    @Override
+    protected boolean withTcp() {
+      return true;
+    }
+
+    @Override
+    protected void configure(ServerConfig config) {
+      // сравниваются транспорты, а не выполнение команд
+      config.setResponseCacheSize(0);
+    }
+
+    @Override
+    protected CollectionManager createCollectionManager() throws WrongArgumentException {
+      InMemoryCollectionManager collectionManager = new InMemoryCollectionManager();
+      for (int i = 0; i < tickets; i++) {
+        collectionManager.addTicket(Tickets.create(i, AUTH.username()));
+      }
+      return collectionManager;
+    }
+
+    @Override
+    protected boolean probe() throws Exception {
+      ClientState client = new ClientState();
+      try {
+        client.open(this);
+        client.roundTrip();
+        return true;
+      } finally {
+        client.close();
+      }
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class ClientState {
+    RequestTransport transport;
+    Request averageOfPrice;
+    Request show;
+
+    @Setup(Level.Trial)
+    public void open(ServerState server) throws IOException {
+      ClientConfig config = new ClientConfig();
+      if (server.transport == Transport.TCP) {
+        transport = StreamPipeline.connect(server.tcpAddress, config, TIMEOUT_MS);
+      } else {
+        DatagramSocket socket = new DatagramSocket();
+        socket.setReceiveBufferSize(4 * 1024 * 1024);
+        transport = new RequestPipeline(socket, server.udpAddress, config, TIMEOUT_MS);
+      }
+      averageOfPrice = new Request("average_of_price", new RequestBody(new String[0]), AUTH);
+      show =
+          new Request(
+              "show",
+              new RequestBodyWithPage(new String[] {String.valueOf(PAGE_SIZE)}, PAGE_SIZE, null),
+              AUTH);
+    }
+
+    Response roundTrip() throws Exception {
+      return transport.submit(averageOfPrice).get();
+    }
+
+    /** Читает все страницы ответа на {@code show} и возвращает количество элементов. */
+    int showAll() throws Exception {
+      Response response = transport.submit(show).get();
+      int count = response.getTickets().size();
+      while (response instanceof ResponseWithCursor page && page.getNextCursor() != null) {
+        response = transport.nextPage(show, page).get();
+        count += response.getTickets().size();
+      }
+      return count;
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+      if (transport != null) {
+        transport.close();
+      }
+    }
+  }
+
+  @Benchmark
+  public Response roundTrip(ClientState client) throws Exception {
+    return client.roundTrip();
+  }
+
+  @Benchmark
+  public int showAll(ClientState client) throws Exception {
+    return client.showAll();
+  }
+}
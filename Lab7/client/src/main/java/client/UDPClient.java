@@ -1,97 +1,384 @@
 package client;
 
+import client.data.CollectionReplica;
+import client.network.RequestPipeline;
+import client.network.RequestTransport;
+import client.network.StreamPipeline;
+import client.system.ClientConfig;
+import client.system.Transport;
+import common.commands.Command;
 import common.data.auth.AuthCredentials;
 import common.exceptions.CommandExecuteException;
 import common.exceptions.UnknownCommandException;
 import common.managers.*;
 import common.network.*;
 import java.io.*;
-import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetSocketAddress;
 import java.net.SocketTimeoutException;
-import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class UDPClient implements ClientControl {
-  private final int BUFFER_SIZE = 65535;
   private final int TIMEOUT_MS = 10000;
+  private final int RECEIVE_BUFFER_SIZE = 4 * 1024 * 1024;
   private final InetSocketAddress serverAddress;
   private boolean isRunning = true;
   private final CommandManager commandManager;
   private final ScriptManager scriptManager;
-  private AuthCredentials auth = null;
+  private final ClientConfig config;
+  // читается и потоком продления подписки
+  private volatile AuthCredentials auth = null;
+  private volatile RequestTransport pipeline;
+  // копия коллекции, обновляемая командой sync и уведомлениями подписки
+  private final CollectionReplica replica = new CollectionReplica();
+  // продление подписки и досинхронизация после пропущенного уведомления; запросы нельзя
+  // отправлять из потока приема ответов - он освобождает место в окне
+  private final ScheduledExecutorService background =
+      Executors.newSingleThreadScheduledExecutor(
+          task -> {
+            Thread thread = new Thread(task, "subscription-renewal");
+            thread.setDaemon(true);
+            return thread;
+          });
+  private final AtomicBoolean isSyncing = new AtomicBoolean();
+  private ScheduledFuture<?> renewal;
+
+  // ответы на команды скрипта печатаются в порядке отправки команд
+  private final Deque<PendingResponse> pendingResponses = new ArrayDeque<>();
+  private Ordering pendingOrdering = null;
+  // команды скрипта, которые будут отправлены одним пакетом
+  private final List<Request> batch = new ArrayList<>();
+
+  private final Scanner console = new Scanner(System.in);
+
+  private record PendingResponse(Request request, CompletableFuture<Response> future) {}
+
+  /**
+   * Способ отправки команды скрипта относительно команд, ожидающих ответа.
+   *
+   * <p>Команды одной группы {@link #READ} (команды, только читающие данные) или {@link #APPEND} не
+   * зависят друг от друга и отправляются пакетами, не дожидаясь ответов. Остальные команды меняют
+   * коллекцию или данные авторизации, поэтому отправляются только после получения всех ответов, и
+   * следующая команда ждет ответа на них.
+   */
+  private enum Ordering {
+    READ,
+    APPEND,
+    EXCLUSIVE;
+
+    static Ordering of(Command command) {
+      if (command.isReadOnly()) {
+        return READ;
+      }
+      return command.getName().equals("add") ? APPEND : EXCLUSIVE;
+    }
+  }
 
   public UDPClient(
-      String host, int port, CommandManager commandManager, ScriptManager scriptManager)
+      String host,
+      int port,
+      CommandManager commandManager,
+      ScriptManager scriptManager,
+      ClientConfig config)
       throws IOException {
     this.serverAddress = new InetSocketAddress(host, port);
     this.commandManager = commandManager;
     this.scriptManager = scriptManager;
+    this.config = config;
   }
 
   public void runClient() {
-    try (DatagramSocket socket = new DatagramSocket()) {
-      socket.setSoTimeout(TIMEOUT_MS);
-      System.out.println("[CLIENT] Установлено подключение к серверу: " + serverAddress);
+    try (RequestTransport transport = openTransport()) {
+      pipeline = transport;
+      transport.setNotificationListener(this::handleNotification);
+      System.out.println(
+          "[CLIENT] Установлено подключение к серверу: "
+              + serverAddress
+              + " ("
+              + config.getTransport().name().toLowerCase()
+              + ")");
       System.out.println(
           "[CLIENT] Зарегистрируйтесь с помощью команды 'register' или войдите с помощью команды 'login'.");
-      spinLoop(socket);
+      spinLoop();
     } catch (IOException e) {
       System.err.println("[CLIENT] Ошибка при подключении к серверу.");
+    } finally {
+      background.shutdownNow();
     }
   }
 
-  private void sendRequest(Request request, DatagramSocket socket) throws IOException {
+  private RequestTransport openTransport() throws IOException {
+    if (config.getTransport() == Transport.TCP) {
+      return StreamPipeline.connect(serverAddress, config, TIMEOUT_MS);
+    }
+    DatagramSocket socket = new DatagramSocket();
     try {
-      ByteBuffer sendBuffer = ObjectEncoder.encodeObject(request);
-      DatagramPacket sendPacket =
-          new DatagramPacket(sendBuffer.array(), sendBuffer.array().length, serverAddress);
-      socket.send(sendPacket);
-
-      ByteBuffer receiveBuffer = ByteBuffer.allocate(BUFFER_SIZE);
-      DatagramPacket receivePacket =
-          new DatagramPacket(receiveBuffer.array(), receiveBuffer.array().length);
-      try {
-        socket.receive(receivePacket);
-        if (receivePacket.getData() != null) {
-          Response response =
-              (Response) ObjectDecoder.decodeObject(ByteBuffer.wrap(receivePacket.getData()));
-
-          System.out.println("[CLIENT] Ответ: " + response.getMessage());
-
-          if (response instanceof ResponseWithException) {
-            System.out.println(((ResponseWithException) response).getException().getMessage());
-          }
+      socket.setReceiveBufferSize(RECEIVE_BUFFER_SIZE);
+      return new RequestPipeline(socket, serverAddress, config, TIMEOUT_MS);
+    } catch (IOException | RuntimeException e) {
+      socket.close();
+      throw e;
+    }
+  }
 
-          if (response instanceof ResponseWithAuthCredentials) {
-            auth = ((ResponseWithAuthCredentials) response).getAuth();
-          }
+  // команда sync без аргументов запрашивает изменения после версии локальной копии
+  private Request prepareRequest(Request request) {
+    if (request.getCommandName().equals("sync") && request.getRequestBody().getArgsLength() == 0) {
+      return new Request(
+          request.getCommandName(), new RequestBody(replica.getSyncArgs()), request.getAuth());
+    }
+    return request;
+  }
 
-          if (response.getTickets() != null && !response.getTickets().isEmpty()) {
-            response.getTickets().forEach(System.out::println);
-          }
+  private void sendRequest(Request request) {
+    try {
+      awaitResponse(request, pipeline.submit(request));
+    } catch (IOException e) {
+      System.err.println("[CLIENT] Ошибка при передаче команды: " + e.getMessage());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void submitScriptRequest(Request request) throws IOException, InterruptedException {
+    Ordering ordering = Ordering.of(commandManager.getCommandList().get(request.getCommandName()));
+    if (ordering == Ordering.EXCLUSIVE || ordering != pendingOrdering) {
+      awaitPendingResponses();
+    }
+    pendingOrdering = ordering;
+
+    if (ordering == Ordering.EXCLUSIVE) {
+      pendingResponses.addLast(new PendingResponse(request, pipeline.submit(request)));
+      awaitPendingResponses();
+      return;
+    }
+
+    batch.add(request);
+    if (batch.size() >= config.getBatchSize()) {
+      flushBatch();
+    }
+    while (!pendingResponses.isEmpty() && pendingResponses.peekFirst().future().isDone()) {
+      printPendingResponse(pendingResponses.pollFirst());
+    }
+  }
+
+  // отправляет накопленные команды; ответ на пакет разбирается на ответы отдельных команд
+  private void flushBatch() {
+    if (batch.isEmpty()) {
+      return;
+    }
+    List<Request> requests = List.copyOf(batch);
+    batch.clear();
+
+    CompletableFuture<Response> future;
+    try {
+      future =
+          requests.size() == 1
+              ? pipeline.submit(requests.get(0))
+              : pipeline.submit(new BatchRequest(requests, auth));
+    } catch (IOException e) {
+      future = CompletableFuture.failedFuture(e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      future = CompletableFuture.failedFuture(e);
+    }
+
+    for (int i = 0; i < requests.size(); i++) {
+      int index = i;
+      pendingResponses.addLast(
+          new PendingResponse(
+              requests.get(i),
+              future.thenApply(
+                  response ->
+                      response instanceof BatchResponse batchResponse
+                          ? batchResponse.getResponses().get(index)
+                          // ошибка, общая для всего пакета
+                          : response)));
+    }
+  }
+
+  private void awaitPendingResponses() {
+    flushBatch();
+    while (!pendingResponses.isEmpty()) {
+      printPendingResponse(pendingResponses.pollFirst());
+    }
+    pendingOrdering = null;
+  }
+
+  private void printPendingResponse(PendingResponse pending) {
+    System.out.println("[CLIENT] Выполнение команды " + pending.request().getCommandName() + ":");
+    awaitResponse(pending.request(), pending.future());
+  }
+
+  private void awaitResponse(Request request, CompletableFuture<Response> future) {
+    try {
+      Response response = future.get();
+      handleResponse(response);
+
+      // следующие страницы запрашиваются (или читаются из потока) только когда они нужны
+      while (response instanceof ResponseWithCursor page
+          && page.getNextCursor() != null
+          && request.getRequestBody() instanceof RequestBodyWithPage) {
+        if (!isNextPageWanted()) {
+          pipeline.cancelPages(page);
+          break;
         }
-      } catch (SocketTimeoutException e) {
+        response = pipeline.nextPage(request, page).get();
+        handleResponse(response);
+      }
+    } catch (IOException e) {
+      System.err.println("[CLIENT] Ошибка при передаче команды: " + e.getMessage());
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof SocketTimeoutException) {
         System.err.println("[CLIENT] Превышено время ожидания от сервера.");
-      } catch (IOException e) {
-        System.err.println("[CLIENT] Ошибка при передаче команды: " + e.getMessage());
+      } else {
+        System.err.println("[CLIENT] Ошибка при передаче команды: " + e.getCause().getMessage());
       }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
 
-    } catch (Exception e) {
-      System.err.println("[CLIENT] Ошибка при передаче команды: " + e.getMessage());
+  private boolean isNextPageWanted() {
+    if (scriptManager.getFileMode()) {
+      return true;
     }
+    System.out.print("[CLIENT] Показать следующую страницу? (да/нет): ");
+    return console.hasNextLine() && console.nextLine().trim().equalsIgnoreCase("да");
   }
 
-  private void spinLoop(DatagramSocket socket) {
-    Scanner scanner = new Scanner(System.in);
+  private void handleResponse(Response response) {
+    System.out.println("[CLIENT] Ответ: " + response.getMessage());
+
+    if (response instanceof ResponseWithException) {
+      System.out.println(((ResponseWithException) response).getException().getMessage());
+    }
+
+    if (response instanceof ResponseWithAuthCredentials) {
+      auth = ((ResponseWithAuthCredentials) response).getAuth();
+    }
+
+    if (response instanceof ResponseWithChanges changes) {
+      replica.apply(changes);
+      System.out.println(
+          "[CLIENT] Локальная копия коллекции: "
+              + replica.size()
+              + " элементов, версия "
+              + replica.getVersion()
+              + ".");
+    }
 
+    if (response instanceof ResponseWithLease lease) {
+      scheduleRenewal(lease.getLeaseMillis());
+      if (lease.getLeaseMillis() > 0 && replica.getVersion() < 0) {
+        // уведомления содержат только изменения, поэтому сначала нужна вся коллекция
+        background.execute(this::syncReplica);
+      }
+    }
+
+    if (response.getTickets() != null && !response.getTickets().isEmpty()) {
+      response.getTickets().forEach(System.out::println);
+    }
+  }
+
+  // вызывается потоком приема ответов
+  private void handleNotification(Response response) {
+    if (!(response instanceof ResponseWithChanges changes)) {
+      return;
+    }
+    if (!replica.apply(changes)) {
+      // уведомление потеряно или копии еще нет: недостающие изменения запрашиваются командой sync
+      background.execute(this::syncReplica);
+      return;
+    }
+    System.out.println(
+        "[CLIENT] Уведомление: "
+            + changes.getMessage()
+            + ". Локальная копия коллекции: "
+            + replica.size()
+            + " элементов, версия "
+            + replica.getVersion()
+            + ".");
+  }
+
+  private void syncReplica() {
+    if (!isSyncing.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      pipeline
+          .submit(new Request("sync", new RequestBody(replica.getSyncArgs()), auth))
+          .whenComplete(
+              (response, error) -> {
+                if (response instanceof ResponseWithChanges changes) {
+                  replica.apply(changes);
+                }
+                isSyncing.set(false);
+              });
+    } catch (IOException e) {
+      isSyncing.set(false);
+      System.err.println("[CLIENT] Не удалось синхронизировать копию коллекции: " + e.getMessage());
+    } catch (InterruptedException e) {
+      isSyncing.set(false);
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  // подписка продлевается на тот же срок, когда прошла половина текущего
+  private synchronized void scheduleRenewal(long leaseMillis) {
+    if (renewal != null) {
+      renewal.cancel(false);
+      renewal = null;
+    }
+    if (leaseMillis > 0 && !background.isShutdown()) {
+      renewal =
+          background.schedule(
+              () -> renewSubscription(leaseMillis), leaseMillis / 2, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  private void renewSubscription(long leaseMillis) {
+    Request request =
+        new Request(
+            "subscribe", new RequestBody(new String[] {String.valueOf(leaseMillis / 1000)}), auth);
+    try {
+      pipeline
+          .submit(request)
+          .whenComplete(
+              (response, error) -> {
+                if (response instanceof ResponseWithLease lease) {
+                  scheduleRenewal(lease.getLeaseMillis());
+                } else {
+                  System.err.println(
+                      "[CLIENT] Не удалось продлить подписку: "
+                          + (error != null ? error.getMessage() : response.getMessage()));
+                }
+              });
+    } catch (IOException e) {
+      System.err.println("[CLIENT] Не удалось продлить подписку: " + e.getMessage());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void spinLoop() {
     try {
       while (isRunning) {
         String prompt = auth != null ? auth.username() + "> " : "> ";
         System.out.print(prompt);
-        String commandLine = scanner.nextLine().trim();
+        String commandLine = console.nextLine().trim();
         String[] parts = commandLine.split("\\s+");
         try {
           Request request = null;
@@ -99,7 +386,7 @@ public class UDPClient implements ClientControl {
             if (parts.length != 2) {
               System.out.println("[CLIENT] Команда принимает один обязательный аргумент.");
             } else {
-              executeScript(parts[1], socket);
+              executeScript(parts[1]);
             }
           } else if (parts[0].equals("exit")) {
             if (parts.length != 1) {
@@ -108,14 +395,13 @@ public class UDPClient implements ClientControl {
               stopClient();
             }
           } else {
-            request = commandManager.convertInputToCommandRequest(commandLine, auth);
+            request =
+                prepareRequest(commandManager.convertInputToCommandRequest(commandLine, auth));
           }
 
           if (request != null) {
-            sendRequest(request, socket);
+            sendRequest(request);
           }
-        } catch (IOException e) {
-          stopClient();
         } catch (Exception e) {
           System.err.println("[CLIENT] Непредвиденная ошибка: " + e.getMessage());
         }
@@ -126,7 +412,7 @@ public class UDPClient implements ClientControl {
     }
   }
 
-  private void executeScript(String fileName, DatagramSocket socket) {
+  private void executeScript(String fileName) {
     File file = new File(fileName);
     ScannerManager scannerManager = scriptManager.getScannerManager();
     boolean recursionFlag = false;
@@ -161,20 +447,25 @@ public class UDPClient implements ClientControl {
           continue;
         }
 
-        System.out.println("[CLIENT] Выполнение команды " + commandParts[0] + ":");
-
         if (commandParts[0].equalsIgnoreCase("execute_script")) {
-          executeScript(commandParts[1], socket);
+          awaitPendingResponses();
+          System.out.println("[CLIENT] Выполнение команды " + commandParts[0] + ":");
+          executeScript(commandParts[1]);
         } else {
           try {
             Request request = null;
-            request = commandManager.convertInputToCommandRequest(input, auth);
+            request = prepareRequest(commandManager.convertInputToCommandRequest(input, auth));
 
             if (request != null) {
-              sendRequest(request, socket);
+              submitScriptRequest(request);
             }
           } catch (UnknownCommandException | CommandExecuteException | IOException e) {
+            awaitPendingResponses();
+            System.out.println("[CLIENT] Выполнение команды " + commandParts[0] + ":");
             System.out.println("[CLIENT] Непредвиденная ошибка: " + e.getMessage());
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
           } catch (NoSuchElementException e) {
             currentScanner = new Scanner(System.in);
             scannerManager.setScanner(currentScanner);
@@ -185,6 +476,7 @@ public class UDPClient implements ClientControl {
       System.out.println("[CLIENT] Не удалось найти файл: " + e.getMessage());
     } catch (NoSuchElementException ignored) {
     } finally {
+      awaitPendingResponses();
       scriptManager.deactivateFileMode();
       if (!recursionFlag) {
         System.out.println("[CLIENT] Скрипт " + fileName + " выполнен!");
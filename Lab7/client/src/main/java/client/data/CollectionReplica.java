@@ -0,0 +1,78 @@
+package client.data;
+
+import common.data.Ticket;
+import common.network.ResponseWithChanges;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Локальная копия коллекции, обновляемая командой {@code sync}.
+ *
+ * <p>Копия помнит идентификатор журнала изменений и версию коллекции из последнего ответа; при
+ * следующей синхронизации сервер присылает только изменения после этой версии. Изменения
+ * применяются заменой элемента по id, поэтому повторное применение тех же изменений ничего не
+ * меняет. Изменения, начинающиеся после версии копии, не применяются: между ними и копией есть
+ * пропущенные изменения. Копию обновляют и ответы на команды, и уведомления подписки, поэтому
+ * методы синхронизированы.
+ *
+ * @author Alvas
+ * @since 3.0
+ */
+public class CollectionReplica {
+  private final NavigableMap<Integer, Ticket> tickets = new TreeMap<>();
+  private long epoch;
+  // -1 - копия еще не получена
+  private long version = -1;
+
+  /**
+   * Возвращает аргументы команды {@code sync} для получения изменений после версии копии.
+   *
+   * @return Идентификатор журнала и версия или пустой массив, если копии еще нет.
+   */
+  public synchronized String[] getSyncArgs() {
+    if (version < 0) {
+      return new String[0];
+    }
+    return new String[] {String.valueOf(epoch), String.valueOf(version)};
+  }
+
+  /**
+   * Применяет изменения из ответа сервера или уведомления подписки.
+   *
+   * @param changes изменения коллекции.
+   * @return {@code false} - если изменения не продолжают копию и нужна синхронизация.
+   */
+  public synchronized boolean apply(ResponseWithChanges changes) {
+    if (changes.isSnapshot()) {
+      tickets.clear();
+    } else if (version < 0 || changes.getEpoch() != epoch || changes.getSinceVersion() > version) {
+      return false;
+    } else if (changes.getVersion() <= version) {
+      // копия уже новее: например, уведомление пришло позже ответа на sync
+      return true;
+    }
+    for (Ticket ticket : changes.getTickets()) {
+      tickets.put(ticket.getId(), ticket);
+    }
+    for (int id : changes.getRemovedIds()) {
+      tickets.remove(id);
+    }
+    epoch = changes.getEpoch();
+    version = changes.getVersion();
+    return true;
+  }
+
+  public synchronized List<Ticket> getTickets() {
+    return new ArrayList<>(tickets.values());
+  }
+
+  public synchronized int size() {
+    return tickets.size();
+  }
+
+  public synchronized long getVersion() {
+    return version;
+  }
+}
@@ -0,0 +1,325 @@
+package client.network;
+
+import client.system.ClientConfig;
+import common.exceptions.RemoteServerException;
+import common.exceptions.ServerBusyException;
+import common.network.Compression;
+import common.network.MessageAssembler;
+import common.network.MessageFragmenter;
+import common.network.Request;
+import common.network.Response;
+import common.network.ResponseWithException;
+import common.network.codec.Codec;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Класс, отправляющий запросы на сервер без ожидания ответа на предыдущий запрос.
+ *
+ * <p>Каждый запрос отправляется под собственным идентификатором сообщения; сервер отвечает с тем же
+ * идентификатором, поэтому ответы сопоставляются с запросами независимо от порядка их прихода.
+ * Одновременно ожидают ответа не больше {@code window} запросов: {@link #submit(Request)}
+ * блокируется, пока окно заполнено. Ответы принимает отдельный поток.
+ *
+ * <p>Если ответ не пришел или сервер ответил {@link ServerBusyException}, запрос отправляется
+ * повторно с тем же идентификатором через экспоненциально растущие промежутки времени. Сервер
+ * хранит ответы на изменяющие команды по идентификатору запроса, поэтому повтор не выполняет
+ * команду второй раз.
+ *
+ * <p>Уведомления подписки приходят под идентификатором {@link MessageFragmenter#NOTIFICATION_ID} и
+ * передаются получателю, заданному {@link #setNotificationListener(Consumer)}.
+ *
+ * @author Alvas
+ * @since 3.0
+ */
+public class RequestPipeline implements RequestTransport {
+  private static final int BUFFER_SIZE = 65535;
+  private static final int POLL_INTERVAL_MS = 100;
+
+  // поля повтора меняет только поток приема ответов
+  private static final class InFlight {
+    private final CompletableFuture<Response> future = new CompletableFuture<>();
+    private final long deadline;
+    private volatile List<ByteBuffer> datagrams;
+    private int retries;
+    private long nextRetry;
+
+    private InFlight(long deadline, long nextRetry) {
+      this.deadline = deadline;
+      this.nextRetry = nextRetry;
+    }
+  }
+
+  private final DatagramSocket socket;
+  private final InetSocketAddress serverAddress;
+  private final Codec codec;
+  private final boolean compression;
+  private final long timeoutMillis;
+  private final int maxRetries;
+  private final int retryDelayMillis;
+  private final Semaphore window;
+  private final Map<Long, InFlight> inFlight = new ConcurrentHashMap<>();
+  private final MessageAssembler assembler = new MessageAssembler();
+  private final Thread receiver;
+  private volatile boolean isRunning = true;
+  private volatile Consumer<Response> notificationListener;
+  // запросы отправляют и основной поток, и продление подписки
+  private final AtomicLong nextMessageId =
+      new AtomicLong(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE);
+
+  /**
+   * Создает конвейер и запускает поток приема ответов.
+   *
+   * @param socket сокет, через который идет обмен с сервером.
+   * @param serverAddress адрес сервера.
+   * @param config настройки клиента: кодек, размер окна и сжатие.
+   * @param timeoutMillis время ожидания ответа на запрос.
+   * @throws IOException если не удалось настроить сокет.
+   */
+  public RequestPipeline(
+      DatagramSocket socket,
+      InetSocketAddress serverAddress,
+      ClientConfig config,
+      long timeoutMillis)
+      throws IOException {
+    this.socket = socket;
+    this.serverAddress = serverAddress;
+    this.codec = config.getCodec();
+    this.compression = config.isCompression();
+    this.timeoutMillis = timeoutMillis;
+    this.maxRetries = config.getRetries();
+    this.retryDelayMillis = config.getRetryDelayMillis();
+    this.window = new Semaphore(config.getWindow());
+
+    socket.setSoTimeout(POLL_INTERVAL_MS);
+    receiver = new Thread(this::receiveLoop, "response-receiver");
+    receiver.setDaemon(true);
+    receiver.start();
+  }
+
+  /**
+   * Отправляет запрос на сервер.
+   *
+   * <p>Если окно заполнено, метод ждет, пока на один из отправленных запросов придет ответ или
+   * истечет время его ожидания. Повторные отправки запроса место в окне не занимают.
+   *
+   * @param request запрос.
+   * @return Ответ сервера; завершается с {@link SocketTimeoutException}, если ответ не пришел
+   *     вовремя.
+   * @throws IOException если запрос не удалось закодировать или отправить.
+   * @throws InterruptedException если поток был прерван в ожидании места в окне.
+   */
+  @Override
+  public CompletableFuture<Response> submit(Request request)
+      throws IOException, InterruptedException {
+    window.acquire();
+    long messageId = nextMessageId.getAndIncrement();
+    long now = System.currentTimeMillis();
+    InFlight pending = new InFlight(now + timeoutMillis, now + retryDelay(0));
+    inFlight.put(messageId, pending);
+
+    try {
+      ByteBuffer sendBuffer = codec.encode(request);
+      if (compression) {
+        sendBuffer = Compression.wrap(sendBuffer, codec, Compression.DEFAULT_THRESHOLD);
+      }
+      List<ByteBuffer> datagrams = MessageFragmenter.split(messageId, sendBuffer);
+      pending.datagrams = datagrams;
+      send(datagrams);
+    } catch (IOException | RuntimeException e) {
+      complete(messageId);
+      throw e;
+    }
+    return pending.future;
+  }
+
+  private void send(List<ByteBuffer> datagrams) throws IOException {
+    for (ByteBuffer datagram : datagrams) {
+      socket.send(new DatagramPacket(datagram.array(), datagram.limit(), serverAddress));
+    }
+  }
+
+  // задержка перед повтором с номером retry + 1; случайная добавка разводит повторы разных
+  // клиентов, чтобы они не приходили на перегруженный сервер одновременно
+  private long retryDelay(int retry) {
+    long delay = (long) retryDelayMillis << Math.min(retry, 16);
+    return delay + ThreadLocalRandom.current().nextLong(delay / 4 + 1);
+  }
+
+  @Override
+  public void setNotificationListener(Consumer<Response> listener) {
+    this.notificationListener = listener;
+  }
+
+  @Override
+  public int getInFlightCount() {
+    return inFlight.size();
+  }
+
+  private void receiveLoop() {
+    byte[] receiveBuffer = new byte[BUFFER_SIZE];
+    DatagramPacket receivePacket = new DatagramPacket(receiveBuffer, receiveBuffer.length);
+
+    while (isRunning) {
+      try {
+        receivePacket.setLength(receiveBuffer.length);
+        socket.receive(receivePacket);
+        ByteBuffer datagram = ByteBuffer.wrap(receiveBuffer, 0, receivePacket.getLength());
+        if (MessageFragmenter.isFragment(datagram)) {
+          MessageAssembler.Message message = assembler.accept(serverAddress, datagram);
+          if (message != null) {
+            deliver(message);
+          }
+        }
+      } catch (SocketTimeoutException ignored) {
+      } catch (SocketException e) {
+        // сокет закрыт методом close()
+        break;
+      } catch (IOException e) {
+        System.err.println("[CLIENT] Получена некорректная датаграмма: " + e.getMessage());
+      }
+      checkTimeouts();
+    }
+    failAll(new IOException("Соединение с сервером закрыто."));
+  }
+
+  private void deliver(MessageAssembler.Message message) {
+    if (message.messageId() == MessageFragmenter.NOTIFICATION_ID) {
+      deliverNotification(message.payload());
+      return;
+    }
+    InFlight request = inFlight.get(message.messageId());
+    if (request == null) {
+      // ответ на запрос, время ожидания которого уже истекло, или повторный ответ
+      return;
+    }
+
+    Response response;
+    try {
+      response = decode(message.payload());
+    } catch (IOException | RuntimeException e) {
+      if (complete(message.messageId()) != null) {
+        request.future.completeExceptionally(e);
+      }
+      return;
+    }
+
+    if (isServerBusy(response) && request.retries < maxRetries) {
+      // сервер не выполнял запрос, его можно повторить позже
+      request.nextRetry = System.currentTimeMillis() + retryDelay(request.retries + 1);
+      return;
+    }
+    if (complete(message.messageId()) != null) {
+      request.future.complete(response);
+    }
+  }
+
+  private Response decode(ByteBuffer payload) throws IOException {
+    if (Compression.isEnvelope(payload)) {
+      payload = Compression.unwrap(payload).payload();
+    }
+    if (!(codec.decode(payload) instanceof Response decoded)) {
+      throw new IOException("Получен ответ неизвестного типа.");
+    }
+    return decoded;
+  }
+
+  private void deliverNotification(ByteBuffer payload) {
+    Consumer<Response> listener = notificationListener;
+    if (listener == null) {
+      return;
+    }
+    try {
+      listener.accept(decode(payload));
+    } catch (IOException | RuntimeException e) {
+      System.err.println("[CLIENT] Получено некорректное уведомление: " + e.getMessage());
+    }
+  }
+
+  private static boolean isServerBusy(Response response) {
+    if (!(response instanceof ResponseWithException withException)) {
+      return false;
+    }
+    Exception exception = withException.getException();
+    return exception instanceof ServerBusyException
+        || exception instanceof RemoteServerException remote
+            && ServerBusyException.class.getName().equals(remote.getType());
+  }
+
+  private void checkTimeouts() {
+    long now = System.currentTimeMillis();
+    for (Map.Entry<Long, InFlight> entry : inFlight.entrySet()) {
+      InFlight request = entry.getValue();
+      if (request.deadline < now) {
+        if (complete(entry.getKey()) != null) {
+          request.future.completeExceptionally(new SocketTimeoutException());
+        }
+      } else if (request.nextRetry <= now) {
+        retry(request, now);
+      }
+    }
+    assembler.evictExpired(timeoutMillis);
+  }
+
+  private void retry(InFlight request, long now) {
+    List<ByteBuffer> datagrams = request.datagrams;
+    if (datagrams == null) {
+      // запрос еще отправляется методом submit()
+      return;
+    }
+    if (request.retries >= maxRetries) {
+      request.nextRetry = Long.MAX_VALUE;
+      return;
+    }
+    request.retries++;
+    request.nextRetry = now + retryDelay(request.retries);
+    try {
+      send(datagrams);
+    } catch (IOException e) {
+      System.err.println("[CLIENT] Не удалось повторно отправить запрос: " + e.getMessage());
+    }
+  }
+
+  private void failAll(IOException cause) {
+    for (Long messageId : inFlight.keySet()) {
+      InFlight request = complete(messageId);
+      if (request != null) {
+        request.future.completeExceptionally(cause);
+      }
+    }
+  }
+
+  // освобождает место в окне ровно один раз для каждого запроса
+  private InFlight complete(long messageId) {
+    InFlight request = inFlight.remove(messageId);
+    if (request != null) {
+      window.release();
+    }
+    return request;
+  }
+
+  @Override
+  public void close() {
+    isRunning = false;
+    socket.close();
+    try {
+      receiver.join(POLL_INTERVAL_MS * 10L);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    failAll(new IOException("Соединение с сервером закрыто."));
+  }
+}
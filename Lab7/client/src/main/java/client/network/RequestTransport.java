@@ -0,0 +1,72 @@
+package client.network;
+
+import common.network.Request;
+import common.network.RequestBodyWithPage;
+import common.network.Response;
+import common.network.ResponseWithCursor;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Способ доставки запросов на сервер.
+ *
+ * @see RequestPipeline
+ * @see StreamPipeline
+ * @author Alvas
+ * @since 3.0
+ */
+public interface RequestTransport extends Closeable {
+  /**
+   * Отправляет запрос на сервер, не дожидаясь ответа.
+   *
+   * @param request запрос.
+   * @return Ответ сервера.
+   * @throws IOException если запрос не удалось закодировать или отправить.
+   * @throws InterruptedException если поток был прерван в ожидании места в окне.
+   */
+  CompletableFuture<Response> submit(Request request) throws IOException, InterruptedException;
+
+  /**
+   * Запрашивает страницу, следующую за полученной.
+   *
+   * @param request запрос, на который получена страница; его тело - {@link RequestBodyWithPage}.
+   * @param page полученная страница с курсором следующей.
+   * @return Следующая страница.
+   * @throws IOException если запрос не удалось закодировать или отправить.
+   * @throws InterruptedException если поток был прерван в ожидании.
+   */
+  default CompletableFuture<Response> nextPage(Request request, ResponseWithCursor page)
+      throws IOException, InterruptedException {
+    RequestBodyWithPage body = (RequestBodyWithPage) request.getRequestBody();
+    return submit(
+        new Request(
+            request.getCommandName(), body.withCursor(page.getNextCursor()), request.getAuth()));
+  }
+
+  /**
+   * Сообщает, что страницы после полученной не нужны.
+   *
+   * @param page последняя прочитанная страница.
+   */
+  default void cancelPages(ResponseWithCursor page) {}
+
+  /**
+   * Задает получателя сообщений, которые сервер отправляет без запроса, - уведомлений подписки.
+   * Получатель вызывается потоком приема ответов.
+   *
+   * @param listener получатель уведомлений.
+   */
+  default void setNotificationListener(Consumer<Response> listener) {}
+
+  /**
+   * Возвращает количество запросов, ожидающих ответа.
+   *
+   * @return Количество запросов в окне.
+   */
+  int getInFlightCount();
+
+  @Override
+  void close();
+}
@@ -0,0 +1,371 @@
+package client.network;
+
+import client.system.ClientConfig;
+import common.network.Compression;
+import common.network.Request;
+import common.network.RequestBodyWithPage;
+import common.network.Response;
+import common.network.ResponseWithCursor;
+import common.network.ResponseWithException;
+import common.network.StreamFrames;
+import common.network.codec.Codec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Класс, отправляющий запросы на сервер по одному TCP-соединению.
+ *
+ * <p>Запросы и ответы передаются кадрами {@link StreamFrames}; как и в {@link RequestPipeline},
+ * ответы сопоставляются с запросами по идентификатору, а ожидают ответа не больше {@code window}
+ * запросов. Доставку обеспечивает TCP, поэтому повторных отправок нет.
+ *
+ * <p>Запрос страницы ({@link RequestBodyWithPage}) отправляется с флагом {@link
+ * StreamFrames#FLAG_STREAM}, и сервер присылает страницы подряд. Полученные, но еще не прочитанные
+ * страницы хранятся в очереди на {@link StreamFrames#STREAM_CREDIT} страниц - столько сервер
+ * отправляет вперед; за каждую прочитанную страницу клиент возвращает серверу кредит на следующую
+ * ({@link StreamFrames#FLAG_CREDIT}). Поэтому очередь не переполняется, и поток приема не
+ * останавливается, пока пользователь решает, нужна ли следующая страница: ответы на другие запросы
+ * и уведомления продолжают приходить.
+ *
+ * <p>Уведомления подписки приходят кадрами с идентификатором {@link StreamFrames#NOTIFICATION_ID} и
+ * передаются получателю, заданному {@link #setNotificationListener(Consumer)}.
+ *
+ * @author Alvas
+ * @since 3.0
+ */
+public class StreamPipeline implements RequestTransport {
+  private static final int POLL_INTERVAL_MS = 100;
+  private static final int INITIAL_BUFFER_SIZE = 8192;
+
+  private static final class Exchange {
+    private final long messageId;
+    private final long deadline;
+    private final CompletableFuture<Response> first = new CompletableFuture<>();
+    private final BlockingQueue<Response> pages =
+        new ArrayBlockingQueue<>(StreamFrames.STREAM_CREDIT);
+    private final AtomicBoolean windowReleased = new AtomicBoolean();
+    private volatile boolean cancelled;
+
+    private Exchange(long messageId, long deadline) {
+      this.messageId = messageId;
+      this.deadline = deadline;
+    }
+  }
+
+  private final Socket socket;
+  private final InputStream in;
+  private final OutputStream out;
+  private final Codec codec;
+  private final boolean compression;
+  private final long timeoutMillis;
+  private final Semaphore window;
+  private final Map<Long, Exchange> inFlight = new ConcurrentHashMap<>();
+  // страница -> поток, которому принадлежит следующая за ней страница
+  private final Map<Response, Exchange> streamedPages =
+      Collections.synchronizedMap(new IdentityHashMap<>());
+  private final Thread receiver;
+  private volatile boolean isRunning = true;
+  private volatile Consumer<Response> notificationListener;
+  // запросы отправляют и основной поток, и продление подписки
+  private final AtomicLong nextMessageId =
+      new AtomicLong(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE);
+
+  private StreamPipeline(Socket socket, ClientConfig config, long timeoutMillis)
+      throws IOException {
+    this.socket = socket;
+    this.in = socket.getInputStream();
+    this.out = socket.getOutputStream();
+    this.codec = config.getCodec();
+    this.compression = config.isCompression();
+    this.timeoutMillis = timeoutMillis;
+    this.window = new Semaphore(config.getWindow());
+
+    receiver = new Thread(this::receiveLoop, "stream-receiver");
+    receiver.setDaemon(true);
+    receiver.start();
+  }
+
+  /**
+   * Устанавливает соединение с сервером.
+   *
+   * @param serverAddress адрес TCP-транспорта сервера.
+   * @param config настройки клиента: кодек, размер окна и сжатие.
+   * @param timeoutMillis время ожидания соединения и ответа на запрос.
+   * @return Конвейер запросов.
+   * @throws IOException если соединение не удалось установить.
+   */
+  public static StreamPipeline connect(
+      InetSocketAddress serverAddress, ClientConfig config, long timeoutMillis) throws IOException {
+    Socket socket = new Socket();
+    try {
+      socket.setTcpNoDelay(true);
+      socket.connect(serverAddress, (int) timeoutMillis);
+      socket.setSoTimeout(POLL_INTERVAL_MS);
+      return new StreamPipeline(socket, config, timeoutMillis);
+    } catch (IOException e) {
+      socket.close();
+      throw e;
+    }
+  }
+
+  @Override
+  public CompletableFuture<Response> submit(Request request)
+      throws IOException, InterruptedException {
+    window.acquire();
+    long messageId = nextMessageId.getAndIncrement();
+    Exchange exchange = new Exchange(messageId, System.currentTimeMillis() + timeoutMillis);
+    inFlight.put(messageId, exchange);
+
+    try {
+      ByteBuffer payload = codec.encode(request);
+      if (compression) {
+        payload = Compression.wrap(payload, codec, Compression.DEFAULT_THRESHOLD);
+      }
+      int flags =
+          request.getRequestBody() instanceof RequestBodyWithPage ? StreamFrames.FLAG_STREAM : 0;
+      write(StreamFrames.encode(messageId, flags, payload));
+    } catch (IOException | RuntimeException e) {
+      inFlight.remove(messageId);
+      releaseWindow(exchange);
+      throw e;
+    }
+    return exchange.first;
+  }
+
+  /**
+   * Возвращает следующую страницу потокового ответа, ожидая ее не дольше времени ожидания ответа.
+   * Если страница получена не потоком, запрашивает следующую страницу отдельным запросом.
+   */
+  @Override
+  public CompletableFuture<Response> nextPage(Request request, ResponseWithCursor page)
+      throws IOException, InterruptedException {
+    Exchange exchange = streamedPages.remove(page);
+    if (exchange == null) {
+      return RequestTransport.super.nextPage(request, page);
+    }
+    Response next = exchange.pages.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+    if (next == null) {
+      cancel(exchange);
+      return CompletableFuture.failedFuture(new SocketTimeoutException());
+    }
+    // за страницей будут следующие: место в очереди освободилось
+    if (streamedPages.containsKey(next)) {
+      write(StreamFrames.encodeCredit(exchange.messageId, 1));
+    }
+    return CompletableFuture.completedFuture(next);
+  }
+
+  @Override
+  public void cancelPages(ResponseWithCursor page) {
+    Exchange exchange = streamedPages.remove(page);
+    if (exchange != null) {
+      cancel(exchange);
+    }
+  }
+
+  @Override
+  public void setNotificationListener(Consumer<Response> listener) {
+    this.notificationListener = listener;
+  }
+
+  @Override
+  public int getInFlightCount() {
+    return inFlight.size();
+  }
+
+  private void cancel(Exchange exchange) {
+    exchange.cancelled = true;
+    inFlight.remove(exchange.messageId, exchange);
+    exchange.pages.clear();
+    synchronized (streamedPages) {
+      streamedPages.values().removeIf(owner -> owner == exchange);
+    }
+    try {
+      write(
+          StreamFrames.encode(
+              exchange.messageId, StreamFrames.FLAG_CANCEL, ByteBuffer.allocate(0)));
+    } catch (IOException e) {
+      // соединение уже закрыто, отменять нечего
+    }
+  }
+
+  private void write(ByteBuffer frame) throws IOException {
+    synchronized (out) {
+      out.write(frame.array(), frame.arrayOffset() + frame.position(), frame.remaining());
+      out.flush();
+    }
+  }
+
+  private void receiveLoop() {
+    ByteBuffer buffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+
+    while (isRunning) {
+      try {
+        buffer = ensureCapacity(buffer);
+        int read =
+            in.read(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        if (read < 0) {
+          break;
+        }
+        buffer.position(buffer.position() + read);
+
+        buffer.flip();
+        try {
+          StreamFrames.Frame frame;
+          while ((frame = StreamFrames.read(buffer)) != null) {
+            deliver(frame);
+          }
+        } finally {
+          buffer.compact();
+        }
+      } catch (SocketTimeoutException ignored) {
+      } catch (SocketException e) {
+        // сокет закрыт методом close() или сервером
+        break;
+      } catch (IOException e) {
+        System.err.println("[CLIENT] Получены некорректные данные: " + e.getMessage());
+        break;
+      }
+      checkTimeouts();
+    }
+    failAll(new IOException("Соединение с сервером закрыто."));
+  }
+
+  // буфер в режиме записи, в котором помещается уже начатый кадр
+  private static ByteBuffer ensureCapacity(ByteBuffer buffer) {
+    buffer.flip();
+    int needed = StreamFrames.pendingFrameSize(buffer);
+    if (needed > buffer.capacity()) {
+      ByteBuffer larger = ByteBuffer.allocate(needed);
+      larger.put(buffer);
+      return larger;
+    }
+    return buffer.compact();
+  }
+
+  private void deliver(StreamFrames.Frame frame) {
+    if (frame.messageId() == StreamFrames.NOTIFICATION_ID) {
+      deliverNotification(frame.payload());
+      return;
+    }
+    Exchange exchange = inFlight.get(frame.messageId());
+    if (exchange == null || exchange.cancelled) {
+      return;
+    }
+
+    Response response;
+    try {
+      response = decode(frame.payload());
+    } catch (IOException | RuntimeException e) {
+      inFlight.remove(frame.messageId());
+      if (!exchange.first.completeExceptionally(e)) {
+        // место для ошибки есть: страница, на которую не было кредита, не пришла
+        exchange.pages.offer(new ResponseWithException(e));
+      }
+      releaseWindow(exchange);
+      return;
+    }
+
+    boolean more = frame.has(StreamFrames.FLAG_MORE);
+    if (more && response instanceof ResponseWithCursor page) {
+      streamedPages.put(page, exchange);
+    }
+    if (!more) {
+      inFlight.remove(frame.messageId());
+    }
+
+    if (!exchange.first.isDone()) {
+      releaseWindow(exchange);
+      exchange.first.complete(response);
+      return;
+    }
+    if (!exchange.pages.offer(response)) {
+      // сервер прислал больше страниц, чем разрешал кредит
+      streamedPages.remove(response);
+      cancel(exchange);
+    }
+  }
+
+  private void checkTimeouts() {
+    long now = System.currentTimeMillis();
+    for (Exchange exchange : inFlight.values()) {
+      if (!exchange.first.isDone() && exchange.deadline < now) {
+        inFlight.remove(exchange.messageId, exchange);
+        releaseWindow(exchange);
+        exchange.first.completeExceptionally(new SocketTimeoutException());
+      }
+    }
+  }
+
+  private void failAll(IOException cause) {
+    for (Exchange exchange : inFlight.values()) {
+      inFlight.remove(exchange.messageId, exchange);
+      releaseWindow(exchange);
+      exchange.cancelled = true;
+      exchange.first.completeExceptionally(cause);
+    }
+  }
+
+  private Response decode(ByteBuffer payload) throws IOException {
+    if (Compression.isEnvelope(payload)) {
+      payload = Compression.unwrap(payload).payload();
+    }
+    if (!(codec.decode(payload) instanceof Response decoded)) {
+      throw new IOException("Получен ответ неизвестного типа.");
+    }
+    return decoded;
+  }
+
+  private void deliverNotification(ByteBuffer payload) {
+    Consumer<Response> listener = notificationListener;
+    if (listener == null) {
+      return;
+    }
+    try {
+      listener.accept(decode(payload));
+    } catch (IOException | RuntimeException e) {
+      System.err.println("[CLIENT] Получено некорректное уведомление: " + e.getMessage());
+    }
+  }
+
+  // освобождает место в окне ровно один раз для каждого запроса
+  private void releaseWindow(Exchange exchange) {
+    if (exchange.windowReleased.compareAndSet(false, true)) {
+      window.release();
+    }
+  }
+
+  @Override
+  public void close() {
+    isRunning = false;
+    try {
+      socket.close();
+    } catch (IOException ignored) {
+    }
+    try {
+      receiver.join(POLL_INTERVAL_MS * 10L);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    failAll(new IOException("Соединение с сервером закрыто."));
+  }
+}
@@ -10,6 +10,8 @@ public class Client {
     if (args.length != 2) {
       System.err.println("Неверное количество аргументов для запуска клиента.");
       System.err.println("Используйте: java -jar client.jar <host> <port>");
+      System.err.println(
+          "При CLIENT_TRANSPORT=tcp укажите порт TCP-транспорта сервера (SERVER_TCP_PORT).");
       return;
     }
 
@@ -19,12 +21,15 @@ public class Client {
       ScannerManager scannerManager = new ScannerManager(new Scanner(System.in));
       ScriptManager scriptManager = new ScriptManager(scannerManager);
       CommandManager commandManager = new CommandManager(null, scriptManager, scannerManager, null);
-      UDPClient udpClient = new UDPClient(host, port, commandManager, scriptManager);
+      ClientConfig config = ClientConfig.fromEnvironment(System.getenv());
+      UDPClient udpClient = new UDPClient(host, port, commandManager, scriptManager, config);
       udpClient.runClient();
     } catch (IOException e) {
       System.err.println("Ошибка при создании клиента.");
     } catch (NumberFormatException e) {
       System.err.println("Порт должен быть целым числом.");
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
     }
   }
 }
@@ -0,0 +1,207 @@
+package client.system;
+
+import common.network.codec.Codec;
+import common.network.codec.Codecs;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Класс, хранящий настройки клиента.
+ *
+ * <p>Настройки читаются из переменных окружения с префиксом {@code CLIENT_}; для отсутствующих
+ * переменных используются значения по умолчанию.
+ *
+ * @author Alvas
+ * @since 3.0
+ */
+public class ClientConfig {
+  private Codec codec = Codecs.BINARY;
+  private int window = 32;
+  private boolean compression = true;
+  private int retries = 4;
+  private int retryDelayMillis = 500;
+  private int batchSize = 64;
+  private Transport transport = Transport.UDP;
+
+  /**
+   * Создает настройки по переменным окружения.
+   *
+   * @param env переменные окружения.
+   * @return Настройки клиента.
+   * @throws IllegalArgumentException если значение переменной некорректно.
+   * @author Alvas
+   * @since 3.0
+   */
+  public static ClientConfig fromEnvironment(Map<String, String> env) {
+    ClientConfig config = new ClientConfig();
+    String codecName = env.get("CLIENT_CODEC");
+    if (codecName != null && !codecName.isBlank()) {
+      config.codec = Codecs.byName(codecName.trim());
+    }
+    config.window = parsePositiveInt(env, "CLIENT_WINDOW", config.window);
+    config.compression = parseBoolean(env, "CLIENT_COMPRESSION", config.compression);
+    config.retries = parseNonNegativeInt(env, "CLIENT_RETRIES", config.retries);
+    config.retryDelayMillis =
+        parsePositiveInt(env, "CLIENT_RETRY_DELAY_MS", config.retryDelayMillis);
+    config.batchSize = parsePositiveInt(env, "CLIENT_BATCH_SIZE", config.batchSize);
+    config.transport = parseEnum(env, "CLIENT_TRANSPORT", Transport.class, config.transport);
+    return config;
+  }
+
+  private static <E extends Enum<E>> E parseEnum(
+      Map<String, String> env, String name, Class<E> type, E defaultValue) {
+    String value = env.get(name);
+    if (value == null || value.isBlank()) {
+      return defaultValue;
+    }
+    for (E constant : type.getEnumConstants()) {
+      if (constant.name().equalsIgnoreCase(value.trim())) {
+        return constant;
+      }
+    }
+    throw new IllegalArgumentException(
+        "Переменная окружения "
+            + name
+            + " должна принимать одно из значений: "
+            + Arrays.toString(type.getEnumConstants()));
+  }
+
+  private static int parsePositiveInt(Map<String, String> env, String name, int defaultValue) {
+    String value = env.get(name);
+    if (value == null || value.isBlank()) {
+      return defaultValue;
+    }
+    try {
+      int parsed = Integer.parseInt(value.trim());
+      if (parsed > 0) {
+        return parsed;
+      }
+    } catch (NumberFormatException ignored) {
+    }
+    throw new IllegalArgumentException(
+        "Переменная окружения " + name + " должна быть положительным целым числом.");
+  }
+
+  private static int parseNonNegativeInt(Map<String, String> env, String name, int defaultValue) {
+    String value = env.get(name);
+    if (value == null || value.isBlank()) {
+      return defaultValue;
+    }
+    try {
+      int parsed = Integer.parseInt(value.trim());
+      if (parsed >= 0) {
+        return parsed;
+      }
+    } catch (NumberFormatException ignored) {
+    }
+    throw new IllegalArgumentException(
+        "Переменная окружения " + name + " должна быть неотрицательным целым числом.");
+  }
+
+  private static boolean parseBoolean(Map<String, String> env, String name, boolean defaultValue) {
+    String value = env.get(name);
+    if (value == null || value.isBlank()) {
+      return defaultValue;
+    }
+    return switch (value.trim().toLowerCase()) {
+      case "true", "on" -> true;
+      case "false", "off" -> false;
+      default ->
+          throw new IllegalArgumentException(
+              "Переменная окружения " + name + " должна принимать значение on или off.");
+    };
+  }
+
+  /**
+   * Возвращает кодек запросов и ответов.
+   *
+   * @return Кодек.
+   */
+  public Codec getCodec() {
+    return codec;
+  }
+
+  public void setCodec(Codec codec) {
+    this.codec = codec;
+  }
+
+  /**
+   * Возвращает максимальное количество запросов, ожидающих ответа.
+   *
+   * @return Размер окна.
+   */
+  public int getWindow() {
+    return window;
+  }
+
+  public void setWindow(int window) {
+    this.window = window;
+  }
+
+  /**
+   * Показывает, сжимаются ли запросы и принимаются ли сжатые ответы.
+   *
+   * @return {@code true} - если сжатие включено.
+   */
+  public boolean isCompression() {
+    return compression;
+  }
+
+  public void setCompression(boolean compression) {
+    this.compression = compression;
+  }
+
+  /**
+   * Возвращает количество повторных отправок запроса, оставшегося без ответа.
+   *
+   * @return Количество повторов.
+   */
+  public int getRetries() {
+    return retries;
+  }
+
+  public void setRetries(int retries) {
+    this.retries = retries;
+  }
+
+  /**
+   * Возвращает задержку перед первым повтором запроса; перед каждым следующим повтором она
+   * удваивается.
+   *
+   * @return Задержка в миллисекундах.
+   */
+  public int getRetryDelayMillis() {
+    return retryDelayMillis;
+  }
+
+  public void setRetryDelayMillis(int retryDelayMillis) {
+    this.retryDelayMillis = retryDelayMillis;
+  }
+
+  /**
+   * Возвращает наибольшее количество команд скрипта, отправляемых одним пакетом; {@code 1}
+   * отключает пакеты.
+   *
+   * @return Размер пакета.
+   */
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  public void setBatchSize(int batchSize) {
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * Возвращает транспорт, по которому отправляются запросы.
+   *
+   * @return Транспорт.
+   */
+  public Transport getTransport() {
+    return transport;
+  }
+
+  public void setTransport(Transport transport) {
+    this.transport = transport;
+  }
+}
@@ -0,0 +1,17 @@
+package client.system;
+
+/**
+ * Транспорт, по которому клиент отправляет запросы на сервер.
+ *
+ * @author Alvas
+ * @since 3.0
+ */
+public enum Transport {
+  /** Датаграммы UDP с повторной отправкой запросов, оставшихся без ответа. */
+  UDP,
+  /**
+   * Одно TCP-соединение; страницы ответа на {@code show} и {@code filter_by_type} приходят потоком.
+   * Порт клиента должен совпадать с {@code SERVER_TCP_PORT} сервера.
+   */
+  TCP
+}
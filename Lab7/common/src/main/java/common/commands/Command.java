@@ -16,6 +16,18 @@ public interface Command {
 
   RequestBody packageBody(String[] args) throws CommandExecuteException;
 
+  /**
+   * Показывает, что команда только читает данные и ее повторное выполнение ничего не меняет.
+   *
+   * @return {@code true} - если команда не меняет коллекцию и данные пользователей, {@code false} -
+   *     если меняет.
+   * @author Alvas
+   * @since 3.0
+   */
+  default boolean isReadOnly() {
+    return false;
+  }
+
   /**
    * Базовый метод для получения названия команды.
    *
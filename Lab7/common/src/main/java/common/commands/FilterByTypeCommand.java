@@ -7,6 +7,7 @@ import common.exceptions.CommandExecuteException;
 import common.managers.CollectionManager;
 import common.network.Request;
 import common.network.RequestBody;
+import common.network.RequestBodyWithPage;
 import common.network.Response;
 import common.network.ResponseWithException;
 import java.util.List;
@@ -17,7 +18,7 @@ import java.util.List;
  * <p>Описание команды: "Вывести элементы {@link Ticket} с заданным значением {@code type}".
  *
  * <p>Принимает на вход один обязательный аргумент - тип билета (тип {@link TicketType}). Регистр не
- * имеет значения.
+ * имеет значения. Вторым необязательным аргументом можно задать размер страницы (тип {@code int}).
  *
  * @see Command
  * @see Ticket
@@ -54,6 +55,14 @@ public class FilterByTypeCommand implements Command {
 
     try {
       TicketType type = TicketType.valueOf(args[0].toUpperCase());
+      if (request.getRequestBody() instanceof RequestBodyWithPage page) {
+        return Pages.page(
+            collectionManager,
+            page,
+            type,
+            "ЭЛЕМЕНТЫ С ТИПОМ БИЛЕТА " + type.name().toUpperCase() + ":",
+            "Элементов, соответствующих данному типу, не найдено.");
+      }
       List<Ticket> filteredTickets = collectionManager.getFilteredByType(type);
       if (filteredTickets.isEmpty()) {
         return new Response("Элементов, соответствующих данному типу, не найдено.");
@@ -68,8 +77,9 @@ public class FilterByTypeCommand implements Command {
 
   @Override
   public RequestBody packageBody(String[] args) throws CommandExecuteException {
-    if (args.length != 1) {
-      throw new CommandExecuteException("Команда принимает один обязательный аргумент.");
+    if (args.length != 1 && args.length != 2) {
+      throw new CommandExecuteException(
+          "Команда принимает один обязательный аргумент и один необязательный.");
     }
 
     try {
@@ -78,7 +88,19 @@ public class FilterByTypeCommand implements Command {
       throw new CommandExecuteException(e.getMessage());
     }
 
-    return new RequestBody(args);
+    return new RequestBodyWithPage(args, Pages.parsePageSize(args, 1), null);
+  }
+
+  /**
+   * Показывает, что команда только читает данные.
+   *
+   * @return {@code true}.
+   * @author Alvas
+   * @since 3.0
+   */
+  @Override
+  public boolean isReadOnly() {
+    return true;
   }
 
   /**
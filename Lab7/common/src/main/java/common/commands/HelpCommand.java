@@ -67,6 +67,18 @@ public class HelpCommand implements Command {
     return new RequestBody(args);
   }
 
+  /**
+   * Показывает, что команда только читает данные.
+   *
+   * @return {@code true}.
+   * @author Alvas
+   * @since 3.0
+   */
+  @Override
+  public boolean isReadOnly() {
+    return true;
+  }
+
   /**
    * Возвращает название команды.
    *
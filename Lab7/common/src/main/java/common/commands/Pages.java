@@ -0,0 +1,87 @@
+package common.commands;
+
+import common.data.Ticket;
+import common.data.TicketType;
+import common.exceptions.CommandExecuteException;
+import common.exceptions.WrongArgumentException;
+import common.managers.CollectionManager;
+import common.network.RequestBodyWithPage;
+import common.network.Response;
+import common.network.ResponseWithCursor;
+import common.network.ResponseWithException;
+import common.utils.PageCursor;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Вспомогательные методы постраничного вывода для команд "show" и "filter_by_type".
+ *
+ * @see PageCursor
+ * @author Alvas
+ * @since 3.0
+ */
+final class Pages {
+  private Pages() {}
+
+  /**
+   * Разбирает необязательный аргумент с размером страницы.
+   *
+   * @param args аргументы команды.
+   * @param index позиция аргумента.
+   * @return Размер страницы.
+   * @throws CommandExecuteException если размер страницы не является положительным целым числом.
+   */
+  static int parsePageSize(String[] args, int index) throws CommandExecuteException {
+    if (args.length <= index) {
+      return PageCursor.DEFAULT_PAGE_SIZE;
+    }
+    try {
+      int pageSize = Integer.parseInt(args[index]);
+      if (pageSize > 0) {
+        return pageSize;
+      }
+    } catch (NumberFormatException ignored) {
+    }
+    throw new CommandExecuteException("Размер страницы должен быть положительным целым числом.");
+  }
+
+  /**
+   * Формирует ответ с одной страницей элементов.
+   *
+   * <p>Из коллекции запрашивается на один элемент больше размера страницы: так без подсчета всех
+   * элементов становится известно, есть ли следующая страница.
+   *
+   * @param collectionManager менеджер коллекции.
+   * @param body тело запроса страницы.
+   * @param type тип билетов или {@code null}, если выводятся все билеты.
+   * @param header заголовок страницы.
+   * @param emptyMessage сообщение, если подходящих элементов нет.
+   * @return Ответ со страницей и курсором следующей страницы.
+   */
+  static Response page(
+      CollectionManager collectionManager,
+      RequestBodyWithPage body,
+      TicketType type,
+      String header,
+      String emptyMessage) {
+    int afterId;
+    try {
+      afterId = PageCursor.decode(body.getCursor());
+    } catch (IllegalArgumentException e) {
+      return new ResponseWithException(new WrongArgumentException(e.getMessage()));
+    }
+    int pageSize = Math.max(1, Math.min(body.getPageSize(), PageCursor.MAX_PAGE_SIZE));
+
+    List<Ticket> tickets = collectionManager.getPage(afterId, pageSize + 1, type);
+    if (tickets.isEmpty() && body.getCursor() == null) {
+      return new Response(emptyMessage);
+    }
+
+    String nextCursor = null;
+    if (tickets.size() > pageSize) {
+      tickets = new ArrayList<>(tickets.subList(0, pageSize));
+      nextCursor = PageCursor.encode(tickets.get(pageSize - 1).getId());
+    }
+    return new ResponseWithCursor(header, tickets, nextCursor);
+  }
+}
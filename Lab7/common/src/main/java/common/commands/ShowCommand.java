@@ -6,6 +6,7 @@ import common.exceptions.CommandExecuteException;
 import common.managers.CollectionManager;
 import common.network.Request;
 import common.network.RequestBody;
+import common.network.RequestBodyWithPage;
 import common.network.Response;
 import common.network.ResponseWithException;
 
@@ -14,7 +15,9 @@ import common.network.ResponseWithException;
  *
  * <p>Описание команды: "Вывести все элементы {@link Ticket} коллекции".
  *
- * <p>Не принимает входных аргументов.
+ * <p>Принимает на вход один необязательный аргумент - размер страницы (тип {@code int}). Элементы
+ * выводятся постранично в порядке возрастания id; запрос без {@link RequestBodyWithPage} получает
+ * всю коллекцию сразу.
  *
  * @see Command
  * @see Ticket
@@ -46,6 +49,10 @@ public class ShowCommand implements Command {
                   + " доступна только авторизованным пользователям."));
     }
 
+    if (request.getRequestBody() instanceof RequestBodyWithPage page) {
+      return Pages.page(collectionManager, page, null, "ЭЛЕМЕНТЫ КОЛЛЕКЦИИ:", "Коллекция пуста.");
+    }
+
     if (collectionManager.getCollectionSize() == 0) {
       return new Response("Коллекция пуста.");
     } else {
@@ -55,11 +62,23 @@ public class ShowCommand implements Command {
 
   @Override
   public RequestBody packageBody(String[] args) throws CommandExecuteException {
-    if (args.length != 0) {
-      throw new CommandExecuteException("Команда не принимает аргументы.");
+    if (args.length > 1) {
+      throw new CommandExecuteException("Команда принимает один необязательный аргумент.");
     }
 
-    return new RequestBody(args);
+    return new RequestBodyWithPage(args, Pages.parsePageSize(args, 0), null);
+  }
+
+  /**
+   * Показывает, что команда только читает данные.
+   *
+   * @return {@code true}.
+   * @author Alvas
+   * @since 3.0
+   */
+  @Override
+  public boolean isReadOnly() {
+    return true;
   }
 
   /**
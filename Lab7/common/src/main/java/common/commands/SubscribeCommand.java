@@ -0,0 +1,99 @@
+package common.commands;
+
+import common.exceptions.AuthenticationException;
+import common.exceptions.CommandExecuteException;
+import common.network.Request;
+import common.network.RequestBody;
+import common.network.Response;
+import common.network.ResponseWithException;
+import common.network.ResponseWithLease;
+
+/**
+ * Класс, отвечающий за команду "subscribe".
+ *
+ * <p>Описание команды: "Подписаться на уведомления об изменениях коллекции".
+ *
+ * <p>Принимает на вход один необязательный аргумент - срок подписки в секундах (тип {@code int}, по
+ * умолчанию {@value #DEFAULT_LEASE_SECONDS}, не больше {@value #MAX_LEASE_SECONDS}); {@code 0}
+ * отменяет подписку. Пока подписка действует, сервер отправляет клиенту изменения коллекции без
+ * запросов; чтобы подписка не истекла, клиент повторяет команду до окончания срока.
+ *
+ * @see Command
+ * @see ResponseWithLease
+ * @author Alvas
+ * @since 3.0
+ */
+public class SubscribeCommand implements Command {
+  public static final int DEFAULT_LEASE_SECONDS = 30;
+  public static final int MAX_LEASE_SECONDS = 300;
+
+  @Override
+  public Response execute(Request request) {
+    if (request.getAuth() == null) {
+      return new ResponseWithException(
+          new AuthenticationException(
+              "Команда "
+                  + request.getCommandName()
+                  + " доступна только авторизованным пользователям."));
+    }
+
+    int seconds;
+    try {
+      seconds = parseLease(request.getRequestBody().getArgs());
+    } catch (CommandExecuteException e) {
+      return new ResponseWithException(e);
+    }
+    if (seconds == 0) {
+      return new ResponseWithLease("Подписка на изменения коллекции отменена.", 0);
+    }
+    return new ResponseWithLease(
+        "Подписка на изменения коллекции оформлена на " + seconds + " с.", seconds * 1000L);
+  }
+
+  @Override
+  public RequestBody packageBody(String[] args) throws CommandExecuteException {
+    parseLease(args);
+    return new RequestBody(args);
+  }
+
+  private static int parseLease(String[] args) throws CommandExecuteException {
+    if (args.length > 1) {
+      throw new CommandExecuteException("Команда принимает один необязательный аргумент.");
+    }
+    if (args.length == 0) {
+      return DEFAULT_LEASE_SECONDS;
+    }
+    try {
+      int seconds = Integer.parseInt(args[0]);
+      if (seconds >= 0) {
+        return Math.min(seconds, MAX_LEASE_SECONDS);
+      }
+    } catch (NumberFormatException ignored) {
+    }
+    throw new CommandExecuteException("Срок подписки должен быть неотрицательным целым числом.");
+  }
+
+  /**
+   * Возвращает название команды.
+   *
+   * @return Название команды.
+   * @author Alvas
+   * @since 3.0
+   */
+  @Override
+  public String getName() {
+    return "subscribe";
+  }
+
+  /**
+   * Возвращает описание команды.
+   *
+   * @return Описание команды.
+   * @author Alvas
+   * @since 3.0
+   */
+  @Override
+  public String getDescription() {
+    return "подписаться на уведомления об изменениях коллекции";
+  }
+}
@@ -0,0 +1,152 @@
+package common.commands;
+
+import common.exceptions.AuthenticationException;
+import common.exceptions.CommandExecuteException;
+import common.managers.CollectionChanges;
+import common.managers.CollectionManager;
+import common.network.Request;
+import common.network.RequestBody;
+import common.network.Response;
+import common.network.ResponseWithChanges;
+import common.network.ResponseWithException;
+
+/**
+ * Класс, отвечающий за команду "sync".
+ *
+ * <p>Описание команды: "Получить изменения коллекции после версии локальной копии".
+ *
+ * <p>Принимает на вход либо ни одного аргумента, либо два: идентификатор журнала изменений и версию
+ * коллекции (тип {@code long}) из предыдущего ответа на эту команду. Без аргументов, а также если
+ * изменения после указанной версии уже не хранятся сервером, возвращается вся коллекция. Клиент
+ * подставляет аргументы сам по своей локальной копии коллекции.
+ *
+ * @see Command
+ * @see CollectionChanges
+ * @author Alvas
+ * @since 3.0
+ */
+public class SyncCommand implements Command {
+  // версия, заведомо отсутствующая в журнале: ответом будет вся коллекция
+  private static final long NO_VERSION = -1;
+
+  private final CollectionManager collectionManager;
+
+  /**
+   * Конструктор команды.
+   *
+   * @param collectionManager менеджер коллекции.
+   * @see CollectionManager
+   * @author Alvas
+   * @since 3.0
+   */
+  public SyncCommand(CollectionManager collectionManager) {
+    this.collectionManager = collectionManager;
+  }
+
+  @Override
+  public Response execute(Request request) {
+    if (request.getAuth() == null) {
+      return new ResponseWithException(
+          new AuthenticationException(
+              "Команда "
+                  + request.getCommandName()
+                  + " доступна только авторизованным пользователям."));
+    }
+
+    String[] args = request.getRequestBody().getArgs();
+    long epoch = NO_VERSION;
+    long version = NO_VERSION;
+    try {
+      if (args.length == 2) {
+        epoch = Long.parseLong(args[0]);
+        version = Long.parseLong(args[1]);
+      }
+    } catch (NumberFormatException e) {
+      return new ResponseWithException(e);
+    }
+
+    CollectionChanges changes = collectionManager.getChangesSince(epoch, version);
+    String message;
+    if (changes.snapshot()) {
+      message =
+          changes.tickets().isEmpty()
+              ? "Коллекция пуста (версия " + changes.version() + ")."
+              : "ЭЛЕМЕНТЫ КОЛЛЕКЦИИ (версия " + changes.version() + "):";
+    } else if (changes.tickets().isEmpty() && changes.removedIds().isEmpty()) {
+      message = "Изменений нет (версия " + changes.version() + ").";
+    } else {
+      message =
+          "ИЗМЕНЕНИЯ С ВЕРСИИ "
+              + version
+              + " ПО "
+              + changes.version()
+              + ": добавлено или изменено "
+              + changes.tickets().size()
+              + ", удалено "
+              + changes.removedIds().size()
+              + (changes.removedIds().isEmpty() ? "" : " (id: " + changes.removedIds() + ")");
+    }
+    return new ResponseWithChanges(
+        message,
+        changes.tickets(),
+        changes.epoch(),
+        version,
+        changes.version(),
+        changes.snapshot(),
+        changes.removedIds());
+  }
+
+  @Override
+  public RequestBody packageBody(String[] args) throws CommandExecuteException {
+    if (args.length != 0 && args.length != 2) {
+      throw new CommandExecuteException(
+          "Команда принимает либо ноль аргументов, либо два: sync [<эпоха> <версия>].");
+    }
+
+    try {
+      for (String arg : args) {
+        Long.parseLong(arg);
+      }
+    } catch (NumberFormatException e) {
+      throw new CommandExecuteException("Версия коллекции должна быть целым числом.");
+    }
+
+    return new RequestBody(args);
+  }
+
+  /**
+   * Показывает, что команда только читает данные.
+   *
+   * @return {@code true}.
+   * @author Alvas
+   * @since 3.0
+   */
+  @Override
+  public boolean isReadOnly() {
+    return true;
+  }
+
+  /**
+   * Возвращает название команды.
+   *
+   * @return Название команды.
+   * @author Alvas
+   * @since 3.0
+   */
+  @Override
+  public String getName() {
+    return "sync";
+  }
+
+  /**
+   * Возвращает описание команды.
+   *
+   * @return Описание команды.
+   * @author Alvas
+   * @since 3.0
+   */
+  @Override
+  public String getDescription() {
+    return "получить изменения коллекции после версии локальной копии";
+  }
+}
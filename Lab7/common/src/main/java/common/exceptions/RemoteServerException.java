@@ -0,0 +1,37 @@
+package common.exceptions;
+
+/**
+ * Класс, обеспечивающий исключение, полученное от сервера в компактном бинарном формате.
+ *
+ * <p>Хранит имя класса исходного исключения и его сообщение без изменений.
+ *
+ * @author Alvas
+ * @since 3.0
+ */
+public class RemoteServerException extends Exception {
+  private final String type;
+
+  /**
+   * Конструктор исключения.
+   *
+   * @param type полное имя класса исключения на сервере.
+   * @param message сообщение исключения на сервере.
+   * @author Alvas
+   * @since 3.0
+   */
+  public RemoteServerException(String type, String message) {
+    super(message);
+    this.type = type;
+  }
+
+  /**
+   * Возвращает полное имя класса исключения, возникшего на сервере.
+   *
+   * @return Имя класса исключения.
+   * @author Alvas
+   * @since 3.0
+   */
+  public String getType() {
+    return type;
+  }
+}
@@ -0,0 +1,13 @@
+package common.exceptions;
+
+/**
+ * Исключение, которым сервер отвечает на запрос, если очереди обработки переполнены.
+ *
+ * @author Alvas
+ * @since 3.0
+ */
+public class ServerBusyException extends Exception {
+  public ServerBusyException() {
+    super("Сервер перегружен, повторите запрос позже.");
+  }
+}
@@ -0,0 +1,22 @@
+package common.managers;
+
+import common.data.Ticket;
+import java.util.List;
+
+/**
+ * Изменения коллекции после версии, известной клиенту.
+ *
+ * <p>Если {@code snapshot} равен {@code true}, журнал изменений не содержит всех изменений после
+ * этой версии, и {@code tickets} - вся коллекция, заменяющая копию клиента. Иначе {@code tickets} -
+ * добавленные и измененные элементы в текущем состоянии, а {@code removedIds} - id удаленных.
+ *
+ * @param epoch идентификатор журнала изменений; меняется при перезапуске сервера.
+ * @param version версия коллекции, которой соответствует копия после применения изменений.
+ * @param snapshot содержат ли изменения всю коллекцию.
+ * @param tickets добавленные и измененные элементы или вся коллекция.
+ * @param removedIds id удаленных элементов.
+ * @author Alvas
+ * @since 3.0
+ */
+public record CollectionChanges(
+    long epoch, long version, boolean snapshot, List<Ticket> tickets, List<Integer> removedIds) {}
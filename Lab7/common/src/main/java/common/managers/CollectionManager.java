@@ -17,8 +17,30 @@ public interface CollectionManager {
 
   LocalDateTime getLastUpdateTime();
 
+  /**
+   * Отмечает изменение коллекции: обновляет время последнего изменения и увеличивает версию
+   * коллекции. Вызывается после того, как изменение применено.
+   */
   void updateLastModifiedTime();
 
+  /**
+   * Возвращает версию коллекции, которая увеличивается при каждом изменении. Если версия до и после
+   * чтения коллекции одинакова, прочитанные данные соответствуют этой версии.
+   *
+   * @return Номер версии коллекции.
+   */
+  long getVersion();
+
+  /**
+   * Возвращает изменения коллекции после версии, известной клиенту, или всю коллекцию, если эти
+   * изменения уже не хранятся.
+   *
+   * @param epoch идентификатор журнала изменений из предыдущего ответа клиенту.
+   * @param version версия коллекции из предыдущего ответа клиенту.
+   * @return Изменения коллекции.
+   */
+  CollectionChanges getChangesSince(long epoch, long version);
+
   int getCollectionSize();
 
   int clearCollection(String username) throws SQLException;
@@ -40,6 +62,8 @@ public interface CollectionManager {
 
   List<Ticket> getFilteredByType(TicketType type);
 
+  List<Ticket> getPage(int afterId, int limit, TicketType type);
+
   Ticket getMaxTicket();
 
   void removeLower(Ticket ticket, String username) throws RemoveException, SQLException;
@@ -4,11 +4,16 @@ import common.commands.*;
 import common.data.auth.AuthCredentials;
 import common.exceptions.CommandExecuteException;
 import common.exceptions.UnknownCommandException;
+import common.network.BatchRequest;
+import common.network.BatchResponse;
 import common.network.Request;
 import common.network.RequestBody;
 import common.network.Response;
+import common.network.ResponseWithException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 
 /**
  * Класс, отвечающий за связь между командами и {@link CollectionManager}.
@@ -55,6 +60,8 @@ public class CommandManager {
     commandList.put(
         "add_if_max", new AddIfMaxCommand(collectionManager, scriptManager, scannerManager));
     commandList.put("average_of_price", new AverageOfPriceCommand(collectionManager));
+    commandList.put("sync", new SyncCommand(collectionManager));
+    commandList.put("subscribe", new SubscribeCommand());
   }
 
   public Request convertInputToCommandRequest(String line, AuthCredentials auth)
@@ -72,10 +79,44 @@ public class CommandManager {
   }
 
   public Response executeRequest(Request request) {
+    if (request instanceof BatchRequest batch) {
+      return executeBatch(batch);
+    }
     Command command = commandList.get(request.getCommandName());
     return command.execute(request);
   }
 
+  // команды пакета выполняются по порядку, ошибка одной команды не отменяет остальные
+  private Response executeBatch(BatchRequest batch) {
+    List<Response> responses = new ArrayList<>(batch.getRequests().size());
+    for (Request request : batch.getRequests()) {
+      if (!commandList.containsKey(request.getCommandName())) {
+        responses.add(
+            new ResponseWithException(new UnknownCommandException(request.getCommandName())));
+      } else {
+        responses.add(executeRequest(request));
+      }
+    }
+    return new BatchResponse(responses);
+  }
+
+  /**
+   * Показывает, что запрос только читает данные и его можно выполнить повторно.
+   *
+   * @param request запрос или пакет запросов.
+   * @return {@code true} - если все команды запроса известны и только читают данные.
+   * @see Command#isReadOnly()
+   * @author Alvas
+   * @since 3.0
+   */
+  public boolean isReadOnly(Request request) {
+    if (request instanceof BatchRequest batch) {
+      return batch.getRequests().stream().allMatch(this::isReadOnly);
+    }
+    Command command = commandList.get(request.getCommandName());
+    return command != null && command.isReadOnly();
+  }
+
   /**
    * Возвращает все существующие команды в виде {@link LinkedHashMap}.
    *
@@ -76,6 +76,20 @@ public class ScriptManager {
     scanners.push(new Scanner(new File(fileName)));
   }
 
+  /**
+   * Добавляет источник ввода, не связанный с файлом, - например, заранее подготовленные значения
+   * полей. Читается так же, как скрипт; вместе с ним нужно включить режим выполнения скрипта.
+   *
+   * @param name имя источника, по которому проверяется рекурсия.
+   * @param scanner сканер источника.
+   * @author Alvas
+   * @since 3.0
+   */
+  public void addInput(String name, Scanner scanner) {
+    fileNames.push(name);
+    scanners.push(scanner);
+  }
+
   /**
    * Удаляет последний путь к файлу со скриптом из {@link Stack}.
    *
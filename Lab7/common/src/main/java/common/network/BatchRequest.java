@@ -0,0 +1,37 @@
+package common.network;
+
+import common.data.auth.AuthCredentials;
+import java.io.Serial;
+import java.util.List;
+
+/**
+ * Запрос, содержащий несколько команд.
+ *
+ * <p>Сервер выполняет команды по порядку и возвращает {@link BatchResponse} с ответом на каждую из
+ * них. Используется при выполнении скрипта, чтобы подряд идущие независимые команды отправлялись
+ * одним сообщением.
+ *
+ * @author Alvas
+ * @since 3.0
+ */
+public class BatchRequest extends Request {
+  @Serial private static final long serialVersionUID = 5128390472395723611L;
+  public static final String COMMAND_NAME = "batch";
+
+  private final List<Request> requests;
+
+  /**
+   * Создает пакет запросов.
+   *
+   * @param requests запросы в порядке выполнения.
+   * @param auth данные пользователя, отправившего пакет.
+   */
+  public BatchRequest(List<Request> requests, AuthCredentials auth) {
+    super(COMMAND_NAME, null, auth);
+    this.requests = List.copyOf(requests);
+  }
+
+  public List<Request> getRequests() {
+    return requests;
+  }
+}
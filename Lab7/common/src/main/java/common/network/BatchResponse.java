@@ -0,0 +1,24 @@
+package common.network;
+
+import java.io.Serial;
+import java.util.List;
+
+/**
+ * Ответ на {@link BatchRequest}: ответы на команды пакета в порядке их выполнения.
+ *
+ * @author Alvas
+ * @since 3.0
+ */
+public class BatchResponse extends Response {
+  @Serial private static final long serialVersionUID = 8835710294857230184L;
+  private final List<Response> responses;
+
+  public BatchResponse(List<Response> responses) {
+    super("Выполнено команд: " + responses.size());
+    this.responses = List.copyOf(responses);
+  }
+
+  public List<Response> getResponses() {
+    return responses;
+  }
+}
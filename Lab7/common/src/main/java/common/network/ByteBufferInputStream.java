@@ -0,0 +1,61 @@
+package common.network;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Поток ввода, читающий данные из {@link ByteBuffer} без промежуточного копирования.
+ *
+ * <p>Читает область буфера от текущей позиции до {@code limit}; буфер может быть как в куче, так и
+ * прямым. Позиция исходного буфера не изменяется.
+ *
+ * @see ByteBufferOutputStream
+ * @author Alvas
+ * @since 3.0
+ */
+public class ByteBufferInputStream extends InputStream {
+  private final ByteBuffer buffer;
+
+  public ByteBufferInputStream(ByteBuffer buffer) {
+    this.buffer = buffer.slice();
+  }
+
+  @Override
+  public int read() {
+    return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) {
+    if (len == 0) {
+      return 0;
+    }
+    if (!buffer.hasRemaining()) {
+      return -1;
+    }
+    int count = Math.min(len, buffer.remaining());
+    buffer.get(b, off, count);
+    return count;
+  }
+
+  @Override
+  public long skip(long n) {
+    int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+    buffer.position(buffer.position() + count);
+    return count;
+  }
+
+  @Override
+  public int available() {
+    return buffer.remaining();
+  }
+
+  /**
+   * Возвращает количество прочитанных байт.
+   *
+   * @return Количество байт от начала области.
+   */
+  public int getBytesRead() {
+    return buffer.position();
+  }
+}
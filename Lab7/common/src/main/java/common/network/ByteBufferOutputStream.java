@@ -0,0 +1,57 @@
+package common.network;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Поток вывода, записывающий данные в {@link ByteBuffer}.
+ *
+ * <p>Сначала заполняет переданный буфер; если места не хватает, переносит данные в буфер в куче
+ * вдвое большего размера.
+ *
+ * @author Alvas
+ * @since 3.0
+ */
+public class ByteBufferOutputStream extends OutputStream {
+  private ByteBuffer buffer;
+
+  public ByteBufferOutputStream(ByteBuffer buffer) {
+    this.buffer = buffer;
+  }
+
+  public ByteBufferOutputStream(int initialCapacity) {
+    this(ByteBuffer.allocate(initialCapacity));
+  }
+
+  @Override
+  public void write(int b) {
+    ensureCapacity(1);
+    buffer.put((byte) b);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) {
+    ensureCapacity(len);
+    buffer.put(b, off, len);
+  }
+
+  /**
+   * Возвращает записанные данные, готовые к чтению.
+   *
+   * @return Исходный буфер или увеличенная копия, если исходного не хватило.
+   */
+  public ByteBuffer toByteBuffer() {
+    ByteBuffer result = buffer.duplicate();
+    result.flip();
+    return result;
+  }
+
+  private void ensureCapacity(int bytes) {
+    if (buffer.remaining() >= bytes) return;
+    int capacity = Math.max(buffer.capacity() * 2, buffer.position() + bytes);
+    ByteBuffer grown = ByteBuffer.allocate(capacity);
+    buffer.flip();
+    grown.put(buffer);
+    buffer = grown;
+  }
+}
@@ -0,0 +1,273 @@
+package common.network;
+
+import common.data.*;
+import common.network.codec.Codec;
+import common.network.codec.Codecs;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Adler32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Класс, отвечающий за сжатие закодированных сообщений.
+ *
+ * <p>Сжатое сообщение (конверт) начинается с маркера {@link #MARKER} и байта флагов, поэтому не
+ * путается с сообщениями кодеков. Флаг {@link #FLAG_ACCEPTS_COMPRESSION} в запросе означает, что
+ * клиент умеет распаковывать ответы; сервер сжимает ответ только такому клиенту и только если его
+ * размер не меньше порога. Флаг {@link #FLAG_COMPRESSED} означает, что за заголовком следует размер
+ * исходного сообщения и поток Deflate.
+ *
+ * <p>Deflate использует словарь, составленный из типичного ответа с билетами, закодированного тем
+ * же кодеком: имена классов и полей, названия {@link TicketType} и заголовки команд встречаются в
+ * словаре, и даже небольшие ответы сжимаются заметно. Получатель выбирает словарь по контрольной
+ * сумме, записанной в потоке. Объекты {@link Deflater} и {@link Inflater} переиспользуются.
+ *
+ * @author Alvas
+ * @since 3.0
+ */
+public final class Compression {
+  public static final byte MARKER = (byte) 0xDF;
+  public static final int FLAG_COMPRESSED = 1;
+  public static final int FLAG_ACCEPTS_COMPRESSION = 1 << 1;
+  public static final int DEFAULT_THRESHOLD = 512;
+  public static final int MAX_DECOMPRESSED_SIZE = 16 * 1024 * 1024;
+
+  private static final int HEADER_SIZE = 2;
+  // Deflate не сжимает сильнее, чем примерно в 1032 раза
+  private static final int MAX_RATIO = 1032;
+  private static final int INITIAL_OUTPUT_SIZE = 4096;
+  private static final int POOL_SIZE = 64;
+  // ответы сжимаются на каждом запросе, поэтому скорость важнее степени сжатия
+  private static final int LEVEL = Deflater.BEST_SPEED;
+
+  private static final BlockingQueue<Deflater> deflaters = new ArrayBlockingQueue<>(POOL_SIZE);
+  private static final BlockingQueue<Inflater> inflaters = new ArrayBlockingQueue<>(POOL_SIZE);
+
+  /** Содержимое конверта вместе с флагом, разрешающим сжимать ответ. */
+  public record Payload(ByteBuffer payload, boolean acceptsCompression) {}
+
+  private Compression() {}
+
+  /**
+   * Показывает, является ли сообщение конвертом.
+   *
+   * @param payload сообщение.
+   * @return {@code true} - если сообщение начинается с {@link #MARKER}, {@code false} - если нет.
+   */
+  public static boolean isEnvelope(ByteBuffer payload) {
+    return payload.remaining() >= HEADER_SIZE && payload.get(payload.position()) == MARKER;
+  }
+
+  /**
+   * Упаковывает запрос в конверт с флагом {@link #FLAG_ACCEPTS_COMPRESSION}.
+   *
+   * @param payload закодированный запрос.
+   * @param codec кодек, которым закодирован запрос.
+   * @param threshold минимальный размер запроса, начиная с которого он сжимается.
+   * @return Конверт.
+   */
+  public static ByteBuffer wrap(ByteBuffer payload, Codec codec, int threshold) {
+    if (payload.remaining() >= threshold) {
+      ByteBuffer compressed = compress(payload, codec, FLAG_COMPRESSED | FLAG_ACCEPTS_COMPRESSION);
+      if (compressed != null) {
+        return compressed;
+      }
+    }
+    ByteBuffer envelope = ByteBuffer.allocate(HEADER_SIZE + payload.remaining());
+    envelope.put(MARKER).put((byte) FLAG_ACCEPTS_COMPRESSION).put(payload.duplicate()).flip();
+    return envelope;
+  }
+
+  /**
+   * Сжимает сообщение.
+   *
+   * @param payload закодированное сообщение (читается от {@code position} до {@code limit}).
+   * @param codec кодек, которым закодировано сообщение.
+   * @return Конверт со сжатым сообщением или {@code null}, если сжатие не уменьшает размер.
+   */
+  public static ByteBuffer compress(ByteBuffer payload, Codec codec) {
+    return compress(payload, codec, FLAG_COMPRESSED);
+  }
+
+  private static ByteBuffer compress(ByteBuffer payload, Codec codec, int flags) {
+    int size = payload.remaining();
+    // конверт не должен быть больше исходного сообщения
+    ByteBuffer envelope = ByteBuffer.allocate(size);
+    if (envelope.remaining() <= HEADER_SIZE + Integer.BYTES) {
+      return null;
+    }
+    envelope.put(MARKER).put((byte) flags).putInt(size);
+
+    Deflater deflater = deflaters.poll();
+    if (deflater == null) {
+      deflater = new Deflater(LEVEL);
+    }
+    try {
+      byte[] dictionary = Dictionaries.forCodec(codec);
+      if (dictionary != null) {
+        deflater.setDictionary(dictionary);
+      }
+      deflater.setInput(payload.duplicate());
+      deflater.finish();
+      while (!deflater.finished()) {
+        if (!envelope.hasRemaining()) {
+          return null;
+        }
+        deflater.deflate(envelope);
+      }
+      return envelope.flip();
+    } finally {
+      deflater.reset();
+      if (!deflaters.offer(deflater)) {
+        deflater.end();
+      }
+    }
+  }
+
+  /**
+   * Распаковывает конверт, допуская исходное сообщение размером до {@link #MAX_DECOMPRESSED_SIZE}.
+   *
+   * @param envelope конверт (читается от {@code position} до {@code limit}).
+   * @return Исходное сообщение и флаг, разрешающий сжимать ответ.
+   * @throws IOException если конверт поврежден или исходное сообщение слишком велико.
+   */
+  public static Payload unwrap(ByteBuffer envelope) throws IOException {
+    return unwrap(envelope, MAX_DECOMPRESSED_SIZE);
+  }
+
+  /**
+   * Распаковывает конверт.
+   *
+   * <p>Размер из заголовка конверта не проверен отправителем, поэтому память под исходное сообщение
+   * выделяется по мере распаковки: буфер растет, пока распакованные данные в него не помещаются, и
+   * распаковка прерывается, как только они превышают {@code maxSize} или заявленный размер.
+   *
+   * @param envelope конверт (читается от {@code position} до {@code limit}).
+   * @param maxSize наибольший допустимый размер исходного сообщения.
+   * @return Исходное сообщение и флаг, разрешающий сжимать ответ.
+   * @throws IOException если конверт поврежден или исходное сообщение слишком велико.
+   */
+  public static Payload unwrap(ByteBuffer envelope, int maxSize) throws IOException {
+    ByteBuffer in = envelope.duplicate();
+    in.get();
+    int flags = in.get();
+    boolean acceptsCompression = (flags & FLAG_ACCEPTS_COMPRESSION) != 0;
+    if ((flags & FLAG_COMPRESSED) == 0) {
+      return new Payload(in.slice(), acceptsCompression);
+    }
+
+    if (in.remaining() < Integer.BYTES) {
+      throw new IOException("Сжатое сообщение повреждено.");
+    }
+    int size = in.getInt();
+    if (size < 0 || size > maxSize || size > (long) in.remaining() * MAX_RATIO) {
+      throw new IOException("Некорректный размер сжатого сообщения: " + size);
+    }
+
+    ByteBuffer payload = ByteBuffer.allocate(Math.min(size, INITIAL_OUTPUT_SIZE));
+    Inflater inflater = inflaters.poll();
+    if (inflater == null) {
+      inflater = new Inflater();
+    }
+    try {
+      inflater.setInput(in);
+      while (!inflater.finished()) {
+        if (!payload.hasRemaining()) {
+          if (payload.capacity() >= size) {
+            throw new IOException("Размер распакованного сообщения не совпадает с заголовком.");
+          }
+          int capacity = (int) Math.min(size, payload.capacity() * 2L);
+          payload = ByteBuffer.allocate(capacity).put(payload.flip());
+        }
+        if (inflater.inflate(payload) > 0) {
+          continue;
+        }
+        if (inflater.needsDictionary()) {
+          inflater.setDictionary(Dictionaries.forChecksum(inflater.getAdler()));
+        } else if (inflater.needsInput()) {
+          throw new IOException("Сжатое сообщение повреждено.");
+        }
+      }
+    } catch (DataFormatException e) {
+      throw new IOException("Сжатое сообщение повреждено: " + e.getMessage());
+    } finally {
+      inflater.reset();
+      if (!inflaters.offer(inflater)) {
+        inflater.end();
+      }
+    }
+
+    if (payload.position() != size) {
+      throw new IOException("Размер распакованного сообщения не совпадает с заголовком.");
+    }
+    return new Payload(payload.flip(), acceptsCompression);
+  }
+
+  // словари строятся один раз и одинаково на клиенте и на сервере
+  private static final class Dictionaries {
+    private static final Map<String, byte[]> byCodec = new HashMap<>();
+    private static final Map<Integer, byte[]> byChecksum = new HashMap<>();
+
+    static {
+      for (Codec codec : List.of(Codecs.BINARY, Codecs.SERIALIZATION)) {
+        try {
+          ByteBuffer sample = codec.encode(sampleResponse());
+          byte[] dictionary = new byte[sample.remaining()];
+          sample.get(dictionary);
+
+          Adler32 checksum = new Adler32();
+          checksum.update(dictionary);
+          byCodec.put(codec.getName(), dictionary);
+          byChecksum.put((int) checksum.getValue(), dictionary);
+        } catch (IOException e) {
+          throw new ExceptionInInitializerError(e);
+        }
+      }
+    }
+
+    static byte[] forCodec(Codec codec) {
+      return byCodec.get(codec.getName());
+    }
+
+    static byte[] forChecksum(int checksum) throws IOException {
+      byte[] dictionary = byChecksum.get(checksum);
+      if (dictionary == null) {
+        throw new IOException("Неизвестный словарь сжатия.");
+      }
+      return dictionary;
+    }
+
+    private static Response sampleResponse() {
+      List<Ticket> tickets = new ArrayList<>();
+      int id = 1;
+      for (TicketType type : TicketType.values()) {
+        Location location = new Location(100L, 200L, 300);
+        location.setId(id);
+        Person person = new Person(180f, 75, "passport", location);
+        person.setId(id);
+        Ticket ticket =
+            new Ticket(
+                id,
+                "name",
+                new Coordinates(1.5f, 100L),
+                LocalDate.of(2025, 1, 1),
+                100f,
+                type,
+                person);
+        ticket.setOwnerUsername("username");
+        tickets.add(ticket);
+        id++;
+      }
+      return new ResponseWithCursor("ЭЛЕМЕНТЫ КОЛЛЕКЦИИ:", tickets, null);
+    }
+  }
+}
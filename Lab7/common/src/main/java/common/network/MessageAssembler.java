@@ -0,0 +1,252 @@
+package common.network;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Класс, отвечающий за сборку сообщений из фрагментов, созданных {@link MessageFragmenter}.
+ *
+ * <p>Фрагменты могут приходить в любом порядке и повторяться. Незавершенные сообщения хранятся
+ * отдельно для каждой пары (адрес отправителя, идентификатор сообщения) и удаляются методом {@link
+ * #evictExpired(long)}, если оставшиеся фрагменты так и не пришли.
+ *
+ * <p>Память под фрагменты выделяется по мере их получения, а не по количеству фрагментов из
+ * заголовка. Сборщик ограничивает размер сообщения, количество незавершенных сообщений всего и от
+ * одного хоста, а также общий объем хранимых фрагментов, поэтому поддельные заголовки не позволяют
+ * занять память сверх этих пределов.
+ *
+ * @see MessageFragmenter
+ * @author Alvas
+ * @since 3.0
+ */
+public class MessageAssembler {
+  /**
+   * Наибольшее количество фрагментов одного сообщения, которое принимает сборщик.
+   *
+   * <p>Формат заголовка хранит номер и количество фрагментов в {@code int}; этот предел выбран
+   * сборщиком, чтобы ограничить память под сообщение и отсеять заведомо некорректные заголовки.
+   * {@link MessageFragmenter} не разбивает сообщения на большее количество фрагментов.
+   */
+  public static final int MAX_FRAGMENTS = 1 << 16;
+
+  private static final int INITIAL_PARTS = 16;
+
+  /** Собранное сообщение вместе с идентификатором, под которым оно было отправлено. */
+  public record Message(long messageId, ByteBuffer payload) {}
+
+  private record MessageKey(SocketAddress source, long messageId) {}
+
+  private static final class PartialMessage {
+    private final Object host;
+    private final int count;
+    // растет по мере получения фрагментов, а не выделяется по заголовку
+    private byte[][] parts;
+    private int received;
+    private int size;
+    private volatile long updatedAt = System.currentTimeMillis();
+
+    private PartialMessage(Object host, int count) {
+      this.host = host;
+      this.count = count;
+      this.parts = new byte[Math.min(count, INITIAL_PARTS)][];
+    }
+  }
+
+  private final ConcurrentHashMap<MessageKey, PartialMessage> pending = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<Object, Integer> pendingByHost = new ConcurrentHashMap<>();
+  private final AtomicLong pendingBytes = new AtomicLong();
+  private final int maxMessageSize;
+  private final int maxFragments;
+  private final int maxPendingMessages;
+  private final int maxPendingPerHost;
+  private final long maxPendingBytes;
+
+  /**
+   * Создает сборщик с ограничениями.
+   *
+   * @param maxMessageSize наибольший размер собранного сообщения в байтах.
+   * @param maxPendingMessages наибольшее количество незавершенных сообщений.
+   * @param maxPendingPerHost наибольшее количество незавершенных сообщений от одного хоста.
+   * @param maxPendingBytes наибольший общий объем фрагментов незавершенных сообщений в байтах.
+   */
+  public MessageAssembler(
+      int maxMessageSize, int maxPendingMessages, int maxPendingPerHost, long maxPendingBytes) {
+    this.maxMessageSize = maxMessageSize;
+    this.maxFragments = Math.min(MAX_FRAGMENTS, MessageFragmenter.fragmentCount(maxMessageSize));
+    this.maxPendingMessages = maxPendingMessages;
+    this.maxPendingPerHost = maxPendingPerHost;
+    this.maxPendingBytes = maxPendingBytes;
+  }
+
+  /**
+   * Создает сборщик, принимающий сообщения из любого количества фрагментов до {@link
+   * #MAX_FRAGMENTS}. Подходит для получения ответов от сервера, которому клиент доверяет.
+   */
+  public MessageAssembler() {
+    this(
+        MAX_FRAGMENTS * MessageFragmenter.MAX_PAYLOAD_SIZE,
+        4096,
+        4096,
+        (long) MAX_FRAGMENTS * MessageFragmenter.MAX_PAYLOAD_SIZE);
+  }
+
+  /**
+   * Принимает очередной фрагмент.
+   *
+   * @param source адрес отправителя.
+   * @param datagram полученная датаграмма (читается от {@code position} до {@code limit}).
+   * @return Собранное сообщение, если получен последний недостающий фрагмент, иначе {@code null}.
+   *     Сообщение из одного фрагмента не копируется и ссылается на память датаграммы.
+   * @throws IOException если заголовок фрагмента некорректен или превышено одно из ограничений.
+   */
+  public Message accept(SocketAddress source, ByteBuffer datagram) throws IOException {
+    if (!MessageFragmenter.isFragment(datagram)) {
+      throw new IOException("Датаграмма не содержит заголовка фрагмента.");
+    }
+
+    ByteBuffer buffer = datagram.duplicate();
+    buffer.get();
+    long messageId = buffer.getLong();
+    int index = buffer.getInt();
+    int count = buffer.getInt();
+    if (count <= 0 || count > maxFragments || index < 0 || index >= count) {
+      throw new IOException("Некорректный заголовок фрагмента: " + index + "/" + count);
+    }
+
+    if (count == 1) {
+      if (buffer.remaining() > maxMessageSize) {
+        throw new IOException("Сообщение превышает допустимый размер.");
+      }
+      return new Message(messageId, buffer.slice());
+    }
+
+    MessageKey key = new MessageKey(source, messageId);
+    PartialMessage partial = pending.get(key);
+    if (partial == null) {
+      partial = register(key, count);
+    }
+
+    synchronized (partial) {
+      // сообщение уже собрано или удалено другим потоком
+      if (pending.get(key) != partial) {
+        return null;
+      }
+      if (partial.count != count) {
+        throw new IOException("Количество фрагментов сообщения " + messageId + " не совпадает.");
+      }
+      if (index < partial.parts.length && partial.parts[index] != null) {
+        return null;
+      }
+      int length = buffer.remaining();
+      if (partial.size + length > maxMessageSize) {
+        discard(key, partial);
+        throw new IOException("Сообщение " + messageId + " превышает допустимый размер.");
+      }
+      if (pendingBytes.addAndGet(length) > maxPendingBytes) {
+        pendingBytes.addAndGet(-length);
+        throw new IOException("Превышен объем незавершенных сообщений.");
+      }
+      if (index >= partial.parts.length) {
+        partial.parts =
+            Arrays.copyOf(
+                partial.parts, Math.min(count, Math.max(index + 1, partial.parts.length * 2)));
+      }
+      byte[] part = new byte[length];
+      buffer.get(part);
+      partial.parts[index] = part;
+      partial.received++;
+      partial.size += length;
+      partial.updatedAt = System.currentTimeMillis();
+
+      if (partial.received < count) {
+        return null;
+      }
+      discard(key, partial);
+    }
+
+    ByteBuffer payload = ByteBuffer.allocate(partial.size);
+    for (byte[] part : partial.parts) {
+      payload.put(part);
+    }
+    payload.flip();
+    return new Message(messageId, payload);
+  }
+
+  // учитывает новое незавершенное сообщение в общем пределе и в пределе хоста
+  private PartialMessage register(MessageKey key, int count) throws IOException {
+    if (pending.size() >= maxPendingMessages) {
+      throw new IOException("Превышено количество незавершенных сообщений.");
+    }
+    Object host = hostOf(key.source());
+    if (pendingByHost.merge(host, 1, Integer::sum) > maxPendingPerHost) {
+      releaseHost(host);
+      throw new IOException("Превышено количество незавершенных сообщений от " + host + ".");
+    }
+
+    PartialMessage created = new PartialMessage(host, count);
+    PartialMessage existing = pending.putIfAbsent(key, created);
+    if (existing != null) {
+      releaseHost(host);
+      return existing;
+    }
+    return created;
+  }
+
+  // освобождает место, занятое сообщением, если его еще не удалил другой поток
+  private void discard(MessageKey key, PartialMessage partial) {
+    if (!pending.remove(key, partial)) {
+      return;
+    }
+    pendingBytes.addAndGet(-partial.size);
+    releaseHost(partial.host);
+  }
+
+  private void releaseHost(Object host) {
+    pendingByHost.computeIfPresent(host, (ignored, count) -> count > 1 ? count - 1 : null);
+  }
+
+  // хост без порта: поддельные датаграммы с разных портов одного адреса учитываются вместе
+  private static Object hostOf(SocketAddress source) {
+    return source instanceof InetSocketAddress address && address.getAddress() != null
+        ? address.getAddress()
+        : source;
+  }
+
+  /**
+   * Удаляет незавершенные сообщения, фрагменты которых не приходили дольше заданного времени.
+   *
+   * @param timeoutMillis время ожидания фрагментов в миллисекундах.
+   * @return Количество удаленных сообщений.
+   */
+  public int evictExpired(long timeoutMillis) {
+    long threshold = System.currentTimeMillis() - timeoutMillis;
+    int evicted = 0;
+    for (Map.Entry<MessageKey, PartialMessage> entry : pending.entrySet()) {
+      PartialMessage partial = entry.getValue();
+      if (partial.updatedAt >= threshold) {
+        continue;
+      }
+      synchronized (partial) {
+        if (pending.get(entry.getKey()) == partial) {
+          discard(entry.getKey(), partial);
+          evicted++;
+        }
+      }
+    }
+    return evicted;
+  }
+
+  public int getPendingCount() {
+    return pending.size();
+  }
+
+  public long getPendingBytes() {
+    return pendingBytes.get();
+  }
+}
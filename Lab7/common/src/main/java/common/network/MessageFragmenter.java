@@ -0,0 +1,133 @@
+package common.network;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Класс, отвечающий за разбиение закодированного сообщения на датаграммы.
+ *
+ * <p>Каждая датаграмма начинается с заголовка: маркер {@link #MAGIC}, идентификатор сообщения
+ * ({@code long}), номер фрагмента и общее количество фрагментов ({@code int}). Размер датаграммы не
+ * превышает {@link #MAX_DATAGRAM_SIZE}, поэтому она помещается в один IP-пакет.
+ *
+ * @see MessageAssembler
+ * @author Alvas
+ * @since 3.0
+ */
+public final class MessageFragmenter {
+  public static final byte MAGIC = (byte) 0xF7;
+  public static final int HEADER_SIZE = 1 + Long.BYTES + Integer.BYTES + Integer.BYTES;
+  public static final int MAX_DATAGRAM_SIZE = 1400;
+  public static final int MAX_PAYLOAD_SIZE = MAX_DATAGRAM_SIZE - HEADER_SIZE;
+  // идентификатор сообщений, которые сервер отправляет без запроса (уведомлений подписки)
+  public static final long NOTIFICATION_ID = Long.MIN_VALUE;
+
+  private MessageFragmenter() {}
+
+  /**
+   * Разбивает сообщение на фрагменты.
+   *
+   * @param messageId идентификатор сообщения.
+   * @param message закодированное сообщение (читается от {@code position} до {@code limit}).
+   * @return Список готовых к отправке датаграмм.
+   * @throws IOException если сообщение не помещается в {@link MessageAssembler#MAX_FRAGMENTS}
+   *     фрагментов.
+   */
+  public static List<ByteBuffer> split(long messageId, ByteBuffer message) throws IOException {
+    int count = checkedFragmentCount(message.remaining());
+    List<ByteBuffer> datagrams = new ArrayList<>(count);
+
+    for (int index = 0; index < count; index++) {
+      ByteBuffer datagram = ByteBuffer.allocate(MAX_DATAGRAM_SIZE);
+      writeFragment(messageId, message, index, count, datagram);
+      datagrams.add(datagram);
+    }
+    return datagrams;
+  }
+
+  /**
+   * Возвращает количество фрагментов, на которое будет разбито сообщение.
+   *
+   * @param length длина сообщения в байтах.
+   * @return Количество фрагментов.
+   */
+  public static int fragmentCount(int length) {
+    return Math.max(1, (length + MAX_PAYLOAD_SIZE - 1) / MAX_PAYLOAD_SIZE);
+  }
+
+  /**
+   * Возвращает количество фрагментов, на которое будет разбито сообщение, если получатель сможет их
+   * собрать.
+   *
+   * @param length длина сообщения в байтах.
+   * @return Количество фрагментов.
+   * @throws IOException если фрагментов больше {@link MessageAssembler#MAX_FRAGMENTS}.
+   */
+  public static int checkedFragmentCount(int length) throws IOException {
+    int count = fragmentCount(length);
+    if (count > MessageAssembler.MAX_FRAGMENTS) {
+      throw new IOException(
+          "Сообщение размером "
+              + length
+              + " байт не помещается в "
+              + MessageAssembler.MAX_FRAGMENTS
+              + " фрагментов.");
+    }
+    return count;
+  }
+
+  /**
+   * Записывает один фрагмент сообщения в буфер, не изменяя позицию сообщения.
+   *
+   * <p>Позволяет отправлять фрагменты по очереди через один и тот же буфер без выделения памяти.
+   *
+   * @param messageId идентификатор сообщения.
+   * @param message закодированное сообщение (читается от {@code position} до {@code limit}).
+   * @param index номер фрагмента.
+   * @param count общее количество фрагментов.
+   * @param datagram буфер размером не меньше {@link #MAX_DATAGRAM_SIZE}; после вызова готов к
+   *     отправке.
+   */
+  public static void writeFragment(
+      long messageId, ByteBuffer message, int index, int count, ByteBuffer datagram) {
+    int offset = message.position() + index * MAX_PAYLOAD_SIZE;
+    int length = Math.min(MAX_PAYLOAD_SIZE, message.limit() - offset);
+
+    datagram.clear();
+    writeHeader(datagram, messageId, index, count);
+    ByteBuffer chunk = message.duplicate();
+    chunk.position(offset).limit(offset + length);
+    datagram.put(chunk);
+    datagram.flip();
+  }
+
+  /**
+   * Показывает, является ли датаграмма фрагментом сообщения.
+   *
+   * <p>Датаграммы старых клиентов содержат сериализованный объект целиком и начинаются с {@code
+   * 0xACED}, поэтому не совпадают с {@link #MAGIC}.
+   *
+   * @param datagram полученная датаграмма.
+   * @return {@code true} - если датаграмма содержит заголовок фрагмента, {@code false} - если нет.
+   */
+  public static boolean isFragment(ByteBuffer datagram) {
+    return datagram.remaining() >= HEADER_SIZE && datagram.get(datagram.position()) == MAGIC;
+  }
+
+  /**
+   * Записывает заголовок фрагмента в текущую позицию буфера.
+   *
+   * @param datagram буфер датаграммы.
+   * @param messageId идентификатор сообщения.
+   * @param index номер фрагмента.
+   * @param count общее количество фрагментов.
+   */
+  public static void writeHeader(ByteBuffer datagram, long messageId, int index, int count) {
+    datagram.put(MAGIC);
+    datagram.putLong(messageId);
+    datagram.putInt(index);
+    datagram.putInt(count);
+  }
+}
@@ -1,17 +1,102 @@
 package common.network;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.ObjectInputFilter;
 import java.io.ObjectInputStream;
+import java.io.ObjectStreamConstants;
+import java.io.StreamCorruptedException;
 import java.nio.ByteBuffer;
 
+/**
+ * Класс, восстанавливающий объекты из сообщений стандартной сериализации Java.
+ *
+ * <p>Сообщение читается прямо из буфера через {@link ByteBufferInputStream}, поэтому прямые буферы
+ * и области больших буферов декодируются без копирования. До создания {@link ObjectInputStream} за
+ * постоянное время проверяются размер сообщения, заголовок потока и тип первого объекта, так что
+ * мусорные и обрезанные датаграммы отбрасываются без выделения памяти под граф объектов.
+ *
+ * <p>Во время чтения действует {@link ObjectInputFilter}: разрешены только классы приложения и
+ * стандартной библиотеки, а количество ссылок и длина массивов не могут превышать длину сообщения
+ * (каждый элемент занимает в потоке хотя бы один байт), так что сообщение не может заставить
+ * выделить больше памяти, чем заявлено в нем самом.
+ *
+ * @see ObjectEncoder
+ * @author Alvas
+ * @since 3.0
+ */
 public class ObjectDecoder {
-  public static Object decodeObject(ByteBuffer receiveBuffer)
-      throws IOException, ClassNotFoundException {
-    receiveBuffer.flip();
-    ByteArrayInputStream bais =
-        new ByteArrayInputStream(receiveBuffer.array(), 0, receiveBuffer.capacity());
-    ObjectInputStream ois = new ObjectInputStream(bais);
-    return ois.readObject();
+  public static final int MAX_MESSAGE_SIZE = 16 * 1024 * 1024;
+  public static final int MAX_DEPTH = 64;
+
+  // заголовок потока (магическое число и версия) и тип первого объекта
+  private static final int MIN_MESSAGE_SIZE = 2 * Short.BYTES + 1;
+
+  private static final ObjectInputFilter CLASS_FILTER =
+      ObjectInputFilter.Config.createFilter(
+          "common.**;java.lang.*;java.util.*;java.time.*;java.io.*;java.sql.*;!*");
+
+  /**
+   * Восстанавливает объект из сообщения.
+   *
+   * @param buffer буфер с сообщением, готовый к чтению (от {@code position} до {@code limit});
+   *     после успешного чтения позиция переносится на {@code limit}.
+   * @return Восстановленный объект.
+   * @throws IOException если сообщение некорректно, обрезано или нарушает ограничения фильтра.
+   * @throws ClassNotFoundException если класс объекта не найден.
+   */
+  public static Object decodeObject(ByteBuffer buffer) throws IOException, ClassNotFoundException {
+    checkHeader(buffer);
+
+    int size = buffer.remaining();
+    ByteBufferInputStream in = new ByteBufferInputStream(buffer);
+    try (ObjectInputStream ois = new ObjectInputStream(in)) {
+      ois.setObjectInputFilter(limits(size));
+      Object object = ois.readObject();
+      buffer.position(buffer.limit());
+      return object;
+    }
+  }
+
+  private static void checkHeader(ByteBuffer buffer) throws IOException {
+    int size = buffer.remaining();
+    if (size < MIN_MESSAGE_SIZE) {
+      throw new StreamCorruptedException("Сообщение обрезано: " + size + " байт.");
+    }
+    if (size > MAX_MESSAGE_SIZE) {
+      throw new StreamCorruptedException("Сообщение слишком большое: " + size + " байт.");
+    }
+    int position = buffer.position();
+    if (buffer.getShort(position) != ObjectStreamConstants.STREAM_MAGIC
+        || buffer.getShort(position + Short.BYTES) != ObjectStreamConstants.STREAM_VERSION) {
+      throw new StreamCorruptedException("Некорректный заголовок сообщения.");
+    }
+    if (buffer.get(position + 2 * Short.BYTES) != ObjectStreamConstants.TC_OBJECT) {
+      throw new StreamCorruptedException("Сообщение не содержит объекта.");
+    }
+  }
+
+  private static ObjectInputFilter limits(int size) {
+    return info -> {
+      if (info.depth() > MAX_DEPTH
+          || info.references() > size
+          || info.streamBytes() > size
+          || info.arrayLength() > size) {
+        return ObjectInputFilter.Status.REJECTED;
+      }
+      Class<?> type = info.serialClass();
+      if (type == null) {
+        return ObjectInputFilter.Status.UNDECIDED;
+      }
+      while (type.isArray()) {
+        type = type.getComponentType();
+      }
+      if (type.isPrimitive()) {
+        return ObjectInputFilter.Status.ALLOWED;
+      }
+      ObjectInputFilter.Status status = CLASS_FILTER.checkInput(info);
+      return status == ObjectInputFilter.Status.UNDECIDED
+          ? ObjectInputFilter.Status.REJECTED
+          : status;
+    };
   }
 }
@@ -1,19 +1,20 @@
 package common.network;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.ObjectOutputStream;
 import java.nio.ByteBuffer;
 
 public final class ObjectEncoder {
   public static ByteBuffer encodeObject(Object object) throws IOException {
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
-    ObjectOutputStream oos = new ObjectOutputStream(baos);
+    return encodeObject(object, ByteBuffer.allocate(512));
+  }
+
+  public static ByteBuffer encodeObject(Object object, ByteBuffer target) throws IOException {
+    ByteBufferOutputStream bbos = new ByteBufferOutputStream(target);
+    ObjectOutputStream oos = new ObjectOutputStream(bbos);
     oos.writeObject(object);
     oos.flush();
 
-    ByteBuffer buffer = ByteBuffer.wrap(baos.toByteArray());
-
-    return buffer;
+    return bbos.toByteBuffer();
   }
 }
@@ -0,0 +1,41 @@
+package common.network;
+
+import java.io.Serial;
+
+public class RequestBodyWithPage extends RequestBody {
+  @Serial private static final long serialVersionUID = 731548296104857361L;
+  private final int pageSize;
+  private final String cursor;
+
+  /**
+   * Создает тело запроса одной страницы элементов.
+   *
+   * @param args аргументы команды.
+   * @param pageSize максимальное количество элементов на странице.
+   * @param cursor курсор, полученный вместе с предыдущей страницей, или {@code null} для первой
+   *     страницы.
+   */
+  public RequestBodyWithPage(String[] args, int pageSize, String cursor) {
+    super(args);
+    this.pageSize = pageSize;
+    this.cursor = cursor;
+  }
+
+  public int getPageSize() {
+    return pageSize;
+  }
+
+  public String getCursor() {
+    return cursor;
+  }
+
+  /**
+   * Возвращает тело запроса следующей страницы с теми же аргументами.
+   *
+   * @param nextCursor курсор из {@link ResponseWithCursor#getNextCursor()}.
+   * @return Тело запроса следующей страницы.
+   */
+  public RequestBodyWithPage withCursor(String nextCursor) {
+    return new RequestBodyWithPage(getArgs(), pageSize, nextCursor);
+  }
+}
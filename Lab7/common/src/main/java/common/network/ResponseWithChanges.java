@@ -0,0 +1,61 @@
+package common.network;
+
+import common.data.Ticket;
+import java.io.Serial;
+import java.util.List;
+
+public class ResponseWithChanges extends Response {
+  @Serial private static final long serialVersionUID = 7201938475610293847L;
+  private final long epoch;
+  private final long sinceVersion;
+  private final long version;
+  private final boolean snapshot;
+  private final List<Integer> removedIds;
+
+  /**
+   * Создает ответ с изменениями коллекции.
+   *
+   * @param message сообщение.
+   * @param tickets добавленные и измененные элементы или, если {@code snapshot}, вся коллекция.
+   * @param epoch идентификатор журнала изменений сервера.
+   * @param sinceVersion версия, после которой произошли изменения; для всей коллекции не важна.
+   * @param version версия коллекции, которой соответствует копия после применения изменений.
+   * @param snapshot заменяет ли ответ всю копию коллекции.
+   * @param removedIds id удаленных элементов.
+   */
+  public ResponseWithChanges(
+      String message,
+      List<Ticket> tickets,
+      long epoch,
+      long sinceVersion,
+      long version,
+      boolean snapshot,
+      List<Integer> removedIds) {
+    super(message, tickets);
+    this.epoch = epoch;
+    this.sinceVersion = sinceVersion;
+    this.version = version;
+    this.snapshot = snapshot;
+    this.removedIds = removedIds != null ? removedIds : List.of();
+  }
+
+  public long getEpoch() {
+    return epoch;
+  }
+
+  public long getSinceVersion() {
+    return sinceVersion;
+  }
+
+  public long getVersion() {
+    return version;
+  }
+
+  public boolean isSnapshot() {
+    return snapshot;
+  }
+
+  public List<Integer> getRemovedIds() {
+    return removedIds;
+  }
+}
@@ -0,0 +1,26 @@
+package common.network;
+
+import common.data.Ticket;
+import java.io.Serial;
+import java.util.List;
+
+public class ResponseWithCursor extends Response {
+  @Serial private static final long serialVersionUID = 410385720581935726L;
+  private final String nextCursor;
+
+  /**
+   * Создает ответ, содержащий одну страницу элементов.
+   *
+   * @param message сообщение.
+   * @param tickets элементы страницы.
+   * @param nextCursor курсор следующей страницы или {@code null}, если страница последняя.
+   */
+  public ResponseWithCursor(String message, List<Ticket> tickets, String nextCursor) {
+    super(message, tickets);
+    this.nextCursor = nextCursor;
+  }
+
+  public String getNextCursor() {
+    return nextCursor;
+  }
+}
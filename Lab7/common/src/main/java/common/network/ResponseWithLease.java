@@ -0,0 +1,26 @@
+package common.network;
+
+import java.io.Serial;
+
+public class ResponseWithLease extends Response {
+  @Serial private static final long serialVersionUID = 3318870926519274412L;
+  private final long leaseMillis;
+
+  /**
+   * Создает ответ на команду подписки.
+   *
+   * <p>Сервер, получив такой ответ от команды, регистрирует (или, если срок равен нулю, отменяет)
+   * подписку клиента, отправившего запрос.
+   *
+   * @param message сообщение.
+   * @param leaseMillis срок подписки в миллисекундах; {@code 0} - подписка отменена.
+   */
+  public ResponseWithLease(String message, long leaseMillis) {
+    super(message);
+    this.leaseMillis = leaseMillis;
+  }
+
+  public long getLeaseMillis() {
+    return leaseMillis;
+  }
+}
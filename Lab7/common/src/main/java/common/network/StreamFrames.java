@@ -0,0 +1,144 @@
+package common.network;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Класс, отвечающий за разбиение потока TCP на кадры.
+ *
+ * <p>Кадр состоит из длины (int, без учета самого поля длины), идентификатора сообщения (long),
+ * байта флагов и сообщения - того же, что передается по UDP (конверт {@link Compression} или
+ * сообщение кодека). Идентификатор позволяет отправлять запросы, не дожидаясь ответов, и получать
+ * ответы в любом порядке.
+ *
+ * <p>Флаги:
+ *
+ * <ul>
+ *   <li>{@link #FLAG_STREAM} - в запросе: клиент готов получить все страницы ответа подряд;
+ *   <li>{@link #FLAG_MORE} - в ответе: за этой страницей последуют следующие с тем же
+ *       идентификатором;
+ *   <li>{@link #FLAG_CANCEL} - в кадре без сообщения от клиента: следующие страницы не нужны;
+ *   <li>{@link #FLAG_CREDIT} - в кадре от клиента: сообщение - количество (int) страниц, которые
+ *       сервер может дополнительно отправить по этому запросу.
+ * </ul>
+ *
+ * <p>Потоковый ответ ограничен кредитом: кроме первой страницы, сервер отправляет не больше {@link
+ * #STREAM_CREDIT} страниц, которые клиент еще не забрал, и каждую следующую - только после кадра
+ * {@link #FLAG_CREDIT}. Так клиент сдерживает отдельный поток, не переставая читать соединение.
+ *
+ * @author Alvas
+ * @since 3.0
+ */
+public final class StreamFrames {
+  public static final int FLAG_MORE = 1;
+  public static final int FLAG_CANCEL = 1 << 1;
+  public static final int FLAG_STREAM = 1 << 2;
+  public static final int FLAG_CREDIT = 1 << 3;
+  // страниц потокового ответа, которые сервер может отправить сверх первой до получения кредита
+  public static final int STREAM_CREDIT = 4;
+
+  public static final int LENGTH_SIZE = Integer.BYTES;
+  public static final int HEADER_SIZE = LENGTH_SIZE + Long.BYTES + 1;
+  public static final int MAX_FRAME_SIZE = 16 * 1024 * 1024;
+  // идентификатор кадров, которые сервер отправляет без запроса (уведомлений подписки)
+  public static final long NOTIFICATION_ID = MessageFragmenter.NOTIFICATION_ID;
+
+  /**
+   * Кадр потока.
+   *
+   * @param messageId идентификатор сообщения.
+   * @param flags флаги кадра.
+   * @param payload сообщение (может быть пустым).
+   */
+  public record Frame(long messageId, int flags, ByteBuffer payload) {
+    public boolean has(int flag) {
+      return (flags & flag) != 0;
+    }
+  }
+
+  private StreamFrames() {}
+
+  /**
+   * Записывает кадр в новый буфер.
+   *
+   * @param messageId идентификатор сообщения.
+   * @param flags флаги кадра.
+   * @param payload сообщение (читается от {@code position} до {@code limit}, не изменяется).
+   * @return Кадр, готовый к записи в канал.
+   */
+  public static ByteBuffer encode(long messageId, int flags, ByteBuffer payload) {
+    ByteBuffer frame = ByteBuffer.allocate(HEADER_SIZE + payload.remaining());
+    frame.putInt(frame.capacity() - LENGTH_SIZE);
+    frame.putLong(messageId);
+    frame.put((byte) flags);
+    frame.put(payload.duplicate());
+    return frame.flip();
+  }
+
+  /**
+   * Записывает кадр, разрешающий серверу отправить еще несколько страниц потокового ответа.
+   *
+   * @param messageId идентификатор запроса.
+   * @param pages количество страниц.
+   * @return Кадр, готовый к записи в канал.
+   */
+  public static ByteBuffer encodeCredit(long messageId, int pages) {
+    return encode(messageId, FLAG_CREDIT, ByteBuffer.allocate(Integer.BYTES).putInt(0, pages));
+  }
+
+  /**
+   * Читает очередной кадр из буфера, допуская кадры длиной до {@link #MAX_FRAME_SIZE}.
+   *
+   * @param in буфер с принятыми данными, готовый к чтению.
+   * @return Кадр или {@code null}, если кадр получен не полностью.
+   * @throws IOException если длина кадра некорректна.
+   * @see #read(ByteBuffer, int)
+   */
+  public static Frame read(ByteBuffer in) throws IOException {
+    return read(in, MAX_FRAME_SIZE);
+  }
+
+  /**
+   * Читает очередной кадр из буфера.
+   *
+   * <p>Если кадр получен целиком, он копируется, а позиция буфера сдвигается за него; иначе буфер
+   * не изменяется.
+   *
+   * @param in буфер с принятыми данными, готовый к чтению.
+   * @param maxFrameSize наибольшая допустимая длина кадра (без поля длины).
+   * @return Кадр или {@code null}, если кадр получен не полностью.
+   * @throws IOException если длина кадра некорректна.
+   */
+  public static Frame read(ByteBuffer in, int maxFrameSize) throws IOException {
+    if (in.remaining() < LENGTH_SIZE) {
+      return null;
+    }
+    int length = in.getInt(in.position());
+    if (length < HEADER_SIZE - LENGTH_SIZE || length > maxFrameSize) {
+      throw new IOException("Некорректная длина кадра: " + length);
+    }
+    if (in.remaining() < LENGTH_SIZE + length) {
+      return null;
+    }
+
+    in.position(in.position() + LENGTH_SIZE);
+    long messageId = in.getLong();
+    int flags = in.get() & 0xFF;
+    byte[] payload = new byte[length - (HEADER_SIZE - LENGTH_SIZE)];
+    in.get(payload);
+    return new Frame(messageId, flags, ByteBuffer.wrap(payload));
+  }
+
+  /**
+   * Возвращает размер буфера, необходимый, чтобы принять кадр, начало которого уже получено.
+   *
+   * @param in буфер с принятыми данными, готовый к чтению.
+   * @return Полный размер кадра или {@code 0}, если длина кадра еще не получена.
+   */
+  public static int pendingFrameSize(ByteBuffer in) {
+    if (in.remaining() < LENGTH_SIZE) {
+      return 0;
+    }
+    return LENGTH_SIZE + in.getInt(in.position());
+  }
+}
@@ -0,0 +1,428 @@
+package common.network.codec;
+
+import common.data.*;
+import common.data.auth.AuthCredentials;
+import common.exceptions.RemoteServerException;
+import common.network.*;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Компактный бинарный кодек для {@link Request} и {@link Response}.
+ *
+ * <p>Сообщение начинается с маркера {@link #MARKER} и версии схемы {@link #SCHEMA_VERSION}, за
+ * которыми следует тег типа сообщения. Целые числа записываются как varint (знаковые - в zigzag),
+ * {@link TicketType} - порядковым номером, даты - номером дня от эпохи. Наличие необязательных
+ * полей объекта кодируется одной битовой маской. Пакеты {@link BatchRequest} и {@link
+ * BatchResponse} записываются как количество сообщений и сами сообщения со своими тегами.
+ *
+ * @see Codec
+ * @author Alvas
+ * @since 3.0
+ */
+public class BinaryCodec implements Codec {
+  public static final byte MARKER = (byte) 0xB1;
+  public static final int SCHEMA_VERSION = 1;
+
+  private static final int INITIAL_CAPACITY = 256;
+
+  private static final int TAG_REQUEST = 1;
+  private static final int TAG_RESPONSE = 2;
+  private static final int TAG_RESPONSE_WITH_EXCEPTION = 3;
+  private static final int TAG_RESPONSE_WITH_AUTH = 4;
+  private static final int TAG_RESPONSE_WITH_CURSOR = 5;
+  private static final int TAG_BATCH_REQUEST = 6;
+  private static final int TAG_BATCH_RESPONSE = 7;
+  private static final int TAG_RESPONSE_WITH_CHANGES = 8;
+  private static final int TAG_RESPONSE_WITH_LEASE = 9;
+
+  private static final int BODY_NONE = 0;
+  private static final int BODY_PLAIN = 1;
+  private static final int BODY_WITH_TICKET = 2;
+  private static final int BODY_WITH_PAGE = 3;
+
+  private static final TicketType[] TICKET_TYPES = TicketType.values();
+
+  @Override
+  public String getName() {
+    return "binary";
+  }
+
+  @Override
+  public boolean accepts(byte firstByte) {
+    return firstByte == MARKER;
+  }
+
+  @Override
+  public ByteBuffer encode(Object object) throws IOException {
+    return encode(object, ByteBuffer.allocate(INITIAL_CAPACITY));
+  }
+
+  @Override
+  public ByteBuffer encode(Object object, ByteBuffer target) throws IOException {
+    BinaryWriter out = new BinaryWriter(target.slice());
+    out.writeByte(MARKER);
+    out.writeByte(SCHEMA_VERSION);
+    writeMessage(out, object, true);
+    return out.toByteBuffer();
+  }
+
+  // сообщения внутри пакета записываются так же, как отдельные, но сами пакетами быть не могут
+  private void writeMessage(BinaryWriter out, Object object, boolean allowBatch)
+      throws IOException {
+    if (!allowBatch && (object instanceof BatchRequest || object instanceof BatchResponse)) {
+      throw new IOException("Пакет не может содержать вложенный пакет.");
+    }
+
+    if (object instanceof BatchRequest batch) {
+      out.writeByte(TAG_BATCH_REQUEST);
+      writeAuth(out, batch.getAuth());
+      out.writeVarInt(batch.getRequests().size());
+      for (Request request : batch.getRequests()) {
+        writeMessage(out, request, false);
+      }
+    } else if (object instanceof BatchResponse batch) {
+      out.writeByte(TAG_BATCH_RESPONSE);
+      out.writeVarInt(batch.getResponses().size());
+      for (Response response : batch.getResponses()) {
+        writeMessage(out, response, false);
+      }
+    } else if (object instanceof Request request) {
+      out.writeByte(TAG_REQUEST);
+      writeRequest(out, request);
+    } else if (object instanceof ResponseWithException response) {
+      out.writeByte(TAG_RESPONSE_WITH_EXCEPTION);
+      writeResponse(out, response);
+      Exception exception = response.getException();
+      String type =
+          exception instanceof RemoteServerException remote
+              ? remote.getType()
+              : exception.getClass().getName();
+      out.writeString(type);
+      writeNullableString(out, exception.getMessage());
+    } else if (object instanceof ResponseWithAuthCredentials response) {
+      out.writeByte(TAG_RESPONSE_WITH_AUTH);
+      writeResponse(out, response);
+      writeAuth(out, response.getAuth());
+    } else if (object instanceof ResponseWithChanges response) {
+      out.writeByte(TAG_RESPONSE_WITH_CHANGES);
+      writeResponse(out, response);
+      out.writeSignedVarLong(response.getEpoch());
+      out.writeSignedVarLong(response.getSinceVersion());
+      out.writeSignedVarLong(response.getVersion());
+      out.writeByte(response.isSnapshot() ? 1 : 0);
+      out.writeVarInt(response.getRemovedIds().size());
+      for (int id : response.getRemovedIds()) {
+        out.writeSignedVarInt(id);
+      }
+    } else if (object instanceof ResponseWithLease response) {
+      out.writeByte(TAG_RESPONSE_WITH_LEASE);
+      writeResponse(out, response);
+      out.writeSignedVarLong(response.getLeaseMillis());
+    } else if (object instanceof ResponseWithCursor response) {
+      out.writeByte(TAG_RESPONSE_WITH_CURSOR);
+      writeResponse(out, response);
+      writeNullableString(out, response.getNextCursor());
+    } else if (object instanceof Response response) {
+      out.writeByte(TAG_RESPONSE);
+      writeResponse(out, response);
+    } else {
+      throw new IOException("Объект не поддерживается бинарным кодеком: " + object);
+    }
+  }
+
+  @Override
+  public Object decode(ByteBuffer buffer) throws IOException {
+    BinaryReader in = new BinaryReader(buffer);
+    if ((byte) in.readByte() != MARKER) {
+      throw new IOException("Сообщение закодировано не бинарным кодеком.");
+    }
+    int version = in.readByte();
+    if (version != SCHEMA_VERSION) {
+      throw new IOException("Неподдерживаемая версия схемы: " + version);
+    }
+    return readMessage(in, true);
+  }
+
+  private Object readMessage(BinaryReader in, boolean allowBatch) throws IOException {
+    int tag = in.readByte();
+    if (!allowBatch && (tag == TAG_BATCH_REQUEST || tag == TAG_BATCH_RESPONSE)) {
+      throw new IOException("Пакет не может содержать вложенный пакет.");
+    }
+    return switch (tag) {
+      case TAG_BATCH_REQUEST -> {
+        AuthCredentials auth = readAuth(in);
+        int size = in.readLength(2);
+        List<Request> requests = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+          if (!(readMessage(in, false) instanceof Request request)) {
+            throw new IOException("Пакет запросов содержит сообщение, не являющееся запросом.");
+          }
+          requests.add(request);
+        }
+        yield new BatchRequest(requests, auth);
+      }
+      case TAG_BATCH_RESPONSE -> {
+        int size = in.readLength(2);
+        List<Response> responses = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+          if (!(readMessage(in, false) instanceof Response response)) {
+            throw new IOException("Пакет ответов содержит сообщение, не являющееся ответом.");
+          }
+          responses.add(response);
+        }
+        yield new BatchResponse(responses);
+      }
+      case TAG_REQUEST -> readRequest(in);
+      case TAG_RESPONSE -> new Response(readNullableString(in), readTickets(in));
+      case TAG_RESPONSE_WITH_EXCEPTION -> {
+        readNullableString(in);
+        readTickets(in);
+        String type = in.readString();
+        yield new ResponseWithException(new RemoteServerException(type, readNullableString(in)));
+      }
+      case TAG_RESPONSE_WITH_AUTH -> {
+        String message = readNullableString(in);
+        readTickets(in);
+        yield new ResponseWithAuthCredentials(readAuth(in), message);
+      }
+      case TAG_RESPONSE_WITH_CURSOR ->
+          new ResponseWithCursor(readNullableString(in), readTickets(in), readNullableString(in));
+      case TAG_RESPONSE_WITH_LEASE -> {
+        String message = readNullableString(in);
+        readTickets(in);
+        yield new ResponseWithLease(message, in.readSignedVarLong());
+      }
+      case TAG_RESPONSE_WITH_CHANGES -> {
+        String message = readNullableString(in);
+        List<Ticket> tickets = readTickets(in);
+        long epoch = in.readSignedVarLong();
+        long sinceVersion = in.readSignedVarLong();
+        long version = in.readSignedVarLong();
+        boolean snapshot = in.readByte() != 0;
+        int size = in.readLength(1);
+        List<Integer> removedIds = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+          removedIds.add(in.readSignedVarInt());
+        }
+        yield new ResponseWithChanges(
+            message, tickets, epoch, sinceVersion, version, snapshot, removedIds);
+      }
+      default -> throw new IOException("Неизвестный тип сообщения: " + tag);
+    };
+  }
+
+  private void writeRequest(BinaryWriter out, Request request) {
+    out.writeString(request.getCommandName());
+
+    RequestBody body = request.getRequestBody();
+    if (body == null) {
+      out.writeByte(BODY_NONE);
+    } else {
+      out.writeByte(
+          body instanceof RequestBodyWithTicket
+              ? BODY_WITH_TICKET
+              : body instanceof RequestBodyWithPage ? BODY_WITH_PAGE : BODY_PLAIN);
+      String[] args = body.getArgs();
+      out.writeVarInt(args.length);
+      for (String arg : args) {
+        out.writeString(arg);
+      }
+      if (body instanceof RequestBodyWithTicket bodyWithTicket) {
+        writeNullableTicket(out, bodyWithTicket.getTicket());
+      }
+      if (body instanceof RequestBodyWithPage bodyWithPage) {
+        out.writeVarInt(bodyWithPage.getPageSize());
+        writeNullableString(out, bodyWithPage.getCursor());
+      }
+    }
+
+    writeAuth(out, request.getAuth());
+  }
+
+  private Request readRequest(BinaryReader in) throws IOException {
+    String commandName = in.readString();
+
+    RequestBody body = null;
+    int bodyType = in.readByte();
+    if (bodyType != BODY_NONE) {
+      String[] args = new String[in.readLength(1)];
+      for (int i = 0; i < args.length; i++) {
+        args[i] = in.readString();
+      }
+      body =
+          switch (bodyType) {
+            case BODY_PLAIN -> new RequestBody(args);
+            case BODY_WITH_TICKET -> new RequestBodyWithTicket(args, readNullableTicket(in));
+            case BODY_WITH_PAGE ->
+                new RequestBodyWithPage(args, in.readVarInt(), readNullableString(in));
+            default -> throw new IOException("Неизвестный тип тела запроса: " + bodyType);
+          };
+    }
+
+    return new Request(commandName, body, readAuth(in));
+  }
+
+  private void writeResponse(BinaryWriter out, Response response) {
+    writeNullableString(out, response.getMessage());
+    List<Ticket> tickets = response.getTickets();
+    out.writeVarInt(tickets.size());
+    for (Ticket ticket : tickets) {
+      writeTicket(out, ticket);
+    }
+  }
+
+  private List<Ticket> readTickets(BinaryReader in) throws IOException {
+    int size = in.readLength(4);
+    List<Ticket> tickets = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      tickets.add(readTicket(in));
+    }
+    return tickets;
+  }
+
+  private void writeAuth(BinaryWriter out, AuthCredentials auth) {
+    if (auth == null) {
+      out.writeByte(0);
+    } else {
+      out.writeByte(1);
+      writeNullableString(out, auth.username());
+      writeNullableString(out, auth.password());
+    }
+  }
+
+  private AuthCredentials readAuth(BinaryReader in) throws IOException {
+    if (in.readByte() == 0) {
+      return null;
+    }
+    return new AuthCredentials(readNullableString(in), readNullableString(in));
+  }
+
+  private void writeNullableTicket(BinaryWriter out, Ticket ticket) {
+    out.writeByte(ticket == null ? 0 : 1);
+    if (ticket != null) {
+      writeTicket(out, ticket);
+    }
+  }
+
+  private Ticket readNullableTicket(BinaryReader in) throws IOException {
+    return in.readByte() == 0 ? null : readTicket(in);
+  }
+
+  private void writeTicket(BinaryWriter out, Ticket ticket) {
+    Coordinates coordinates = ticket.getCoordinates();
+    int mask =
+        (ticket.getName() != null ? 1 : 0)
+            | (coordinates != null ? 1 << 1 : 0)
+            | (coordinates != null && coordinates.getY() != null ? 1 << 2 : 0)
+            | (ticket.getCreationDate() != null ? 1 << 3 : 0)
+            | (ticket.getType() != null ? 1 << 4 : 0)
+            | (ticket.getPerson() != null ? 1 << 5 : 0)
+            | (ticket.getOwnerUsername() != null ? 1 << 6 : 0);
+    out.writeByte(mask);
+
+    out.writeSignedVarInt(ticket.getId());
+    if (ticket.getName() != null) out.writeString(ticket.getName());
+    if (coordinates != null) {
+      out.writeFloat(coordinates.getX());
+      if (coordinates.getY() != null) out.writeSignedVarLong(coordinates.getY());
+    }
+    if (ticket.getCreationDate() != null) {
+      out.writeSignedVarLong(ticket.getCreationDate().toEpochDay());
+    }
+    out.writeFloat(ticket.getPrice());
+    if (ticket.getType() != null) out.writeByte(ticket.getType().ordinal());
+    if (ticket.getPerson() != null) writePerson(out, ticket.getPerson());
+    if (ticket.getOwnerUsername() != null) out.writeString(ticket.getOwnerUsername());
+  }
+
+  private Ticket readTicket(BinaryReader in) throws IOException {
+    int mask = in.readByte();
+    Ticket ticket = new Ticket();
+
+    ticket.setId(in.readSignedVarInt());
+    if ((mask & 1) != 0) ticket.setName(in.readString());
+    if ((mask & (1 << 1)) != 0) {
+      Coordinates coordinates = new Coordinates();
+      coordinates.setX(in.readFloat());
+      if ((mask & (1 << 2)) != 0) coordinates.setY(in.readSignedVarLong());
+      ticket.setCoordinates(coordinates);
+    }
+    if ((mask & (1 << 3)) != 0) {
+      ticket.setCreationDate(LocalDate.ofEpochDay(in.readSignedVarLong()));
+    }
+    ticket.setPrice(in.readFloat());
+    if ((mask & (1 << 4)) != 0) {
+      int ordinal = in.readByte();
+      if (ordinal >= TICKET_TYPES.length) {
+        throw new IOException("Неизвестный тип билета: " + ordinal);
+      }
+      ticket.setType(TICKET_TYPES[ordinal]);
+    }
+    if ((mask & (1 << 5)) != 0) ticket.setPerson(readPerson(in));
+    if ((mask & (1 << 6)) != 0) ticket.setOwnerUsername(in.readString());
+    return ticket;
+  }
+
+  private void writePerson(BinaryWriter out, Person person) {
+    int mask =
+        (person.getHeight() != null ? 1 : 0)
+            | (person.getPassportID() != null ? 1 << 1 : 0)
+            | (person.getLocation() != null ? 1 << 2 : 0);
+    out.writeByte(mask);
+
+    out.writeSignedVarInt(person.getId());
+    if (person.getHeight() != null) out.writeFloat(person.getHeight());
+    out.writeSignedVarInt(person.getWeight());
+    if (person.getPassportID() != null) out.writeString(person.getPassportID());
+    if (person.getLocation() != null) writeLocation(out, person.getLocation());
+  }
+
+  private Person readPerson(BinaryReader in) throws IOException {
+    int mask = in.readByte();
+    Person person = new Person();
+
+    person.setId(in.readSignedVarInt());
+    if ((mask & 1) != 0) person.setHeight(in.readFloat());
+    person.setWeight(in.readSignedVarInt());
+    if ((mask & (1 << 1)) != 0) person.setPassportID(in.readString());
+    if ((mask & (1 << 2)) != 0) person.setLocation(readLocation(in));
+    return person;
+  }
+
+  private void writeLocation(BinaryWriter out, Location location) {
+    int mask =
+        (location.getX() != null ? 1 : 0)
+            | (location.getY() != null ? 1 << 1 : 0)
+            | (location.getZ() != null ? 1 << 2 : 0);
+    out.writeByte(mask);
+
+    out.writeSignedVarInt(location.getId());
+    if (location.getX() != null) out.writeSignedVarLong(location.getX());
+    if (location.getY() != null) out.writeSignedVarLong(location.getY());
+    if (location.getZ() != null) out.writeSignedVarInt(location.getZ());
+  }
+
+  private Location readLocation(BinaryReader in) throws IOException {
+    int mask = in.readByte();
+    Location location = new Location();
+
+    location.setId(in.readSignedVarInt());
+    if ((mask & 1) != 0) location.setX(in.readSignedVarLong());
+    if ((mask & (1 << 1)) != 0) location.setY(in.readSignedVarLong());
+    if ((mask & (1 << 2)) != 0) location.setZ(in.readSignedVarInt());
+    return location;
+  }
+
+  private void writeNullableString(BinaryWriter out, String value) {
+    out.writeByte(value == null ? 0 : 1);
+    if (value != null) out.writeString(value);
+  }
+
+  private String readNullableString(BinaryReader in) throws IOException {
+    return in.readByte() == 0 ? null : in.readString();
+  }
+}
@@ -0,0 +1,112 @@
+package common.network.codec;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Буфер для чтения примитивов бинарного формата, записанных {@link BinaryWriter}.
+ *
+ * <p>Все длины проверяются по числу оставшихся байт до выделения памяти, поэтому поврежденное
+ * сообщение приводит к {@link IOException}, а не к большой аллокации.
+ *
+ * @see BinaryWriter
+ * @author Alvas
+ * @since 3.0
+ */
+final class BinaryReader {
+  private final ByteBuffer buffer;
+
+  BinaryReader(ByteBuffer buffer) {
+    this.buffer = buffer;
+  }
+
+  int readByte() throws IOException {
+    try {
+      return buffer.get() & 0xFF;
+    } catch (BufferUnderflowException e) {
+      throw truncated();
+    }
+  }
+
+  long readVarLong() throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      int b = readByte();
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Некорректное значение varint.");
+  }
+
+  int readVarInt() throws IOException {
+    long value = readVarLong();
+    if ((value >>> 32) != 0) {
+      throw new IOException("Значение varint не помещается в int.");
+    }
+    return (int) value;
+  }
+
+  long readSignedVarLong() throws IOException {
+    long value = readVarLong();
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  int readSignedVarInt() throws IOException {
+    int value = readVarInt();
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  float readFloat() throws IOException {
+    try {
+      return buffer.getFloat();
+    } catch (BufferUnderflowException e) {
+      throw truncated();
+    }
+  }
+
+  String readString() throws IOException {
+    int length = readLength(1);
+    String value;
+    if (buffer.hasArray()) {
+      value =
+          new String(
+              buffer.array(),
+              buffer.arrayOffset() + buffer.position(),
+              length,
+              StandardCharsets.UTF_8);
+      buffer.position(buffer.position() + length);
+    } else {
+      byte[] bytes = new byte[length];
+      buffer.get(bytes);
+      value = new String(bytes, StandardCharsets.UTF_8);
+    }
+    return value;
+  }
+
+  /**
+   * Читает длину последовательности и проверяет, что в буфере хватает байт на ее элементы.
+   *
+   * @param minElementSize минимальный размер одного элемента в байтах.
+   * @return Длина последовательности.
+   * @throws IOException если длина больше, чем может поместиться в оставшихся байтах.
+   */
+  int readLength(int minElementSize) throws IOException {
+    int length = readVarInt();
+    if (length < 0 || (long) length * minElementSize > buffer.remaining()) {
+      throw truncated();
+    }
+    return length;
+  }
+
+  boolean hasRemaining() {
+    return buffer.hasRemaining();
+  }
+
+  private static IOException truncated() {
+    return new IOException("Сообщение обрезано или повреждено.");
+  }
+}
@@ -0,0 +1,122 @@
+package common.network.codec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Буфер для записи примитивов бинарного формата: varint, строк UTF-8 и чисел с плавающей точкой.
+ *
+ * <p>Запись ведется в переданный буфер, начиная с его позиции. При нехватке места данные
+ * переносятся в буфер в куче вдвое большего размера.
+ *
+ * @see BinaryReader
+ * @author Alvas
+ * @since 3.0
+ */
+final class BinaryWriter {
+  private ByteBuffer buffer;
+
+  BinaryWriter(int initialCapacity) {
+    this(ByteBuffer.allocate(initialCapacity));
+  }
+
+  BinaryWriter(ByteBuffer buffer) {
+    this.buffer = buffer;
+  }
+
+  void writeByte(int value) {
+    ensureCapacity(1);
+    buffer.put((byte) value);
+  }
+
+  void writeVarLong(long value) {
+    ensureCapacity(10);
+    while ((value & ~0x7FL) != 0) {
+      buffer.put((byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    buffer.put((byte) value);
+  }
+
+  void writeVarInt(int value) {
+    writeVarLong(value & 0xFFFFFFFFL);
+  }
+
+  void writeSignedVarLong(long value) {
+    writeVarLong((value << 1) ^ (value >> 63));
+  }
+
+  void writeSignedVarInt(int value) {
+    writeVarInt((value << 1) ^ (value >> 31));
+  }
+
+  void writeFloat(float value) {
+    ensureCapacity(Float.BYTES);
+    buffer.putFloat(value);
+  }
+
+  void writeString(String value) {
+    int length = utf8Length(value);
+    writeVarInt(length);
+    ensureCapacity(length);
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c < 0x80) {
+        buffer.put((byte) c);
+      } else if (c < 0x800) {
+        buffer.put((byte) (0xC0 | (c >> 6)));
+        buffer.put((byte) (0x80 | (c & 0x3F)));
+      } else if (Character.isHighSurrogate(c)
+          && i + 1 < value.length()
+          && Character.isLowSurrogate(value.charAt(i + 1))) {
+        int codePoint = Character.toCodePoint(c, value.charAt(++i));
+        buffer.put((byte) (0xF0 | (codePoint >> 18)));
+        buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+        buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+        buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+      } else if (Character.isSurrogate(c)) {
+        buffer.put((byte) '?');
+      } else {
+        buffer.put((byte) (0xE0 | (c >> 12)));
+        buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+        buffer.put((byte) (0x80 | (c & 0x3F)));
+      }
+    }
+  }
+
+  ByteBuffer toByteBuffer() {
+    ByteBuffer result = buffer.duplicate();
+    result.flip();
+    return result;
+  }
+
+  private static int utf8Length(String value) {
+    int length = 0;
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c < 0x80) {
+        length += 1;
+      } else if (c < 0x800) {
+        length += 2;
+      } else if (Character.isHighSurrogate(c)
+          && i + 1 < value.length()
+          && Character.isLowSurrogate(value.charAt(i + 1))) {
+        length += 4;
+        i++;
+      } else if (Character.isSurrogate(c)) {
+        length += 1;
+      } else {
+        length += 3;
+      }
+    }
+    return length;
+  }
+
+  private void ensureCapacity(int bytes) {
+    if (buffer.remaining() >= bytes) return;
+    int capacity = Math.max(buffer.capacity() * 2, buffer.position() + bytes);
+    ByteBuffer grown = ByteBuffer.allocate(capacity);
+    buffer.flip();
+    grown.put(buffer);
+    buffer = grown;
+  }
+}
@@ -0,0 +1,48 @@
+package common.network.codec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Базовый интерфейс для кодеков сообщений, передаваемых между клиентом и сервером.
+ *
+ * <p>Первый байт закодированного сообщения однозначно определяет кодек, поэтому сервер может
+ * отвечать каждому клиенту в том формате, в котором тот прислал запрос.
+ *
+ * @see Codecs
+ * @author Alvas
+ * @since 3.0
+ */
+public interface Codec {
+  /**
+   * Возвращает название кодека.
+   *
+   * @return Название кодека.
+   */
+  String getName();
+
+  /**
+   * Показывает, закодировано ли сообщение этим кодеком.
+   *
+   * @param firstByte первый байт сообщения.
+   * @return {@code true} - если сообщение закодировано этим кодеком, {@code false} - если нет.
+   */
+  boolean accepts(byte firstByte);
+
+  ByteBuffer encode(Object object) throws IOException;
+
+  /**
+   * Кодирует объект в заданный буфер, начиная с его текущей позиции.
+   *
+   * @param object кодируемый объект.
+   * @param target буфер для записи.
+   * @return Закодированное сообщение, готовое к чтению: область {@code target}, если сообщение в
+   *     нем поместилось, иначе новый буфер.
+   * @throws IOException если объект не может быть закодирован.
+   */
+  default ByteBuffer encode(Object object, ByteBuffer target) throws IOException {
+    return encode(object);
+  }
+
+  Object decode(ByteBuffer buffer) throws IOException;
+}
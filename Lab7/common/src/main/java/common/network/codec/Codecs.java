@@ -0,0 +1,57 @@
+package common.network.codec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Класс, предоставляющий доступ к поддерживаемым кодекам.
+ *
+ * @see Codec
+ * @author Alvas
+ * @since 3.0
+ */
+public final class Codecs {
+  public static final Codec BINARY = new BinaryCodec();
+  public static final Codec SERIALIZATION = new SerializationCodec();
+
+  private static final List<Codec> CODECS = List.of(BINARY, SERIALIZATION);
+
+  private Codecs() {}
+
+  /**
+   * Определяет кодек по первому байту сообщения.
+   *
+   * @param message закодированное сообщение.
+   * @return Кодек, которым закодировано сообщение.
+   * @throws IOException если сообщение пустое или кодек не поддерживается.
+   */
+  public static Codec detect(ByteBuffer message) throws IOException {
+    if (!message.hasRemaining()) {
+      throw new IOException("Получено пустое сообщение.");
+    }
+    byte firstByte = message.get(message.position());
+    for (Codec codec : CODECS) {
+      if (codec.accepts(firstByte)) {
+        return codec;
+      }
+    }
+    throw new IOException("Неизвестный формат сообщения: " + firstByte);
+  }
+
+  /**
+   * Возвращает кодек по названию.
+   *
+   * @param name название кодека.
+   * @return Кодек с заданным названием.
+   * @throws IllegalArgumentException если кодека с таким названием нет.
+   */
+  public static Codec byName(String name) {
+    for (Codec codec : CODECS) {
+      if (codec.getName().equalsIgnoreCase(name)) {
+        return codec;
+      }
+    }
+    throw new IllegalArgumentException("Неизвестный кодек: " + name);
+  }
+}
@@ -0,0 +1,48 @@
+package common.network.codec;
+
+import common.network.ObjectDecoder;
+import common.network.ObjectEncoder;
+import java.io.IOException;
+import java.io.ObjectStreamConstants;
+import java.nio.ByteBuffer;
+
+/**
+ * Кодек, использующий стандартную сериализацию Java.
+ *
+ * <p>Поддерживается для совместимости с клиентами, не знающими о {@link BinaryCodec}.
+ *
+ * @see ObjectEncoder
+ * @see ObjectDecoder
+ * @author Alvas
+ * @since 3.0
+ */
+public class SerializationCodec implements Codec {
+  @Override
+  public String getName() {
+    return "serial";
+  }
+
+  @Override
+  public boolean accepts(byte firstByte) {
+    return firstByte == (byte) (ObjectStreamConstants.STREAM_MAGIC >> 8);
+  }
+
+  @Override
+  public ByteBuffer encode(Object object) throws IOException {
+    return ObjectEncoder.encodeObject(object);
+  }
+
+  @Override
+  public ByteBuffer encode(Object object, ByteBuffer target) throws IOException {
+    return ObjectEncoder.encodeObject(object, target.slice());
+  }
+
+  @Override
+  public Object decode(ByteBuffer buffer) throws IOException {
+    try {
+      return ObjectDecoder.decodeObject(buffer);
+    } catch (ClassNotFoundException e) {
+      throw new IOException("Неизвестный класс в сообщении: " + e.getMessage());
+    }
+  }
+}
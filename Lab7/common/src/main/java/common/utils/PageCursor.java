@@ -0,0 +1,62 @@
+package common.utils;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+/**
+ * Класс, кодирующий курсоры постраничного вывода коллекции.
+ *
+ * <p>Элементы выдаются в порядке возрастания id, а курсор хранит id последнего выданного элемента.
+ * Поэтому следующая страница продолжается с того же места, даже если между запросами элементы
+ * добавлялись или удалялись. Для клиента курсор непрозрачен: это строка, которую нужно вернуть
+ * серверу без изменений.
+ *
+ * @author Alvas
+ * @since 3.0
+ */
+public class PageCursor {
+  public static final int DEFAULT_PAGE_SIZE = 50;
+  public static final int MAX_PAGE_SIZE = 1000;
+
+  // курсор первой страницы: id элементов всегда положительны
+  public static final int START = 0;
+
+  private static final byte VERSION = 1;
+
+  /**
+   * Кодирует курсор, указывающий на элемент с заданным id.
+   *
+   * @param lastId id последнего элемента выданной страницы.
+   * @return Курсор следующей страницы.
+   * @author Alvas
+   * @since 3.0
+   */
+  public static String encode(int lastId) {
+    ByteBuffer buffer = ByteBuffer.allocate(1 + Integer.BYTES);
+    buffer.put(VERSION).putInt(lastId);
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+  }
+
+  /**
+   * Декодирует курсор.
+   *
+   * @param cursor курсор или {@code null}.
+   * @return id последнего выданного элемента или {@link #START}, если курсор не задан.
+   * @throws IllegalArgumentException если курсор некорректен.
+   * @author Alvas
+   * @since 3.0
+   */
+  public static int decode(String cursor) {
+    if (cursor == null) {
+      return START;
+    }
+    try {
+      byte[] bytes = Base64.getUrlDecoder().decode(cursor);
+      if (bytes.length == 1 + Integer.BYTES && bytes[0] == VERSION) {
+        return ByteBuffer.wrap(bytes, 1, Integer.BYTES).getInt();
+      }
+    } catch (IllegalArgumentException ignored) {
+    }
+    throw new IllegalArgumentException("Некорректный курсор страницы.");
+  }
+}
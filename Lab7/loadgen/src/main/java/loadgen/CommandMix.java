@@ -0,0 +1,126 @@
+package loadgen;
+
+import common.exceptions.CommandExecuteException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Состав нагрузки: какие команды отправляются и в каком соотношении.
+ *
+ * <p>Задается строкой вида {@code show=20,add=10}: команда выбирается случайно с вероятностью,
+ * пропорциональной весу. Для каждой команды заранее формируется {@value #VARIANTS} запросов со
+ * случайными аргументами и полями, поэтому во время нагрузки запросы не создаются.
+ *
+ * @author Alvas
+ * @since 3.0
+ */
+public class CommandMix {
+  private static final int VARIANTS = 64;
+
+  private final List<String> commandNames;
+  private final int[] cumulativeWeights;
+  private final List<List<SyntheticRequests.Template>> variants;
+
+  private CommandMix(
+      List<String> commandNames,
+      int[] cumulativeWeights,
+      List<List<SyntheticRequests.Template>> variants) {
+    this.commandNames = commandNames;
+    this.cumulativeWeights = cumulativeWeights;
+    this.variants = variants;
+  }
+
+  /**
+   * Разбирает состав нагрузки и формирует запросы.
+   *
+   * @param spec команды и веса через запятую.
+   * @param requests генератор запросов.
+   * @return Состав нагрузки.
+   * @throws IllegalArgumentException если строка некорректна или команда не поддерживается.
+   * @throws CommandExecuteException если команда не приняла сформированные аргументы.
+   */
+  public static CommandMix parse(String spec, SyntheticRequests requests)
+      throws CommandExecuteException {
+    Map<String, Integer> weights = new LinkedHashMap<>();
+    for (String part : spec.split(",")) {
+      String[] pair = part.trim().split("=");
+      int weight;
+      try {
+        weight = pair.length == 2 ? Integer.parseInt(pair[1].trim()) : -1;
+      } catch (NumberFormatException e) {
+        weight = -1;
+      }
+      if (weight < 0) {
+        throw new IllegalArgumentException(
+            "Состав нагрузки задается в виде команда=вес через запятую: " + part.trim());
+      }
+      String commandName = pair[0].trim();
+      requests.checkSupported(commandName);
+      if (weight > 0) {
+        weights.merge(commandName, weight, Integer::sum);
+      }
+    }
+    if (weights.isEmpty()) {
+      throw new IllegalArgumentException("В составе нагрузки нет ни одной команды.");
+    }
+
+    List<String> commandNames = new ArrayList<>(weights.keySet());
+    int[] cumulativeWeights = new int[commandNames.size()];
+    List<List<SyntheticRequests.Template>> variants = new ArrayList<>();
+    int total = 0;
+    for (int i = 0; i < commandNames.size(); i++) {
+      total += weights.get(commandNames.get(i));
+      cumulativeWeights[i] = total;
+      List<SyntheticRequests.Template> templates = new ArrayList<>(VARIANTS);
+      for (int j = 0; j < VARIANTS; j++) {
+        templates.add(requests.create(commandNames.get(i)));
+      }
+      variants.add(templates);
+    }
+    return new CommandMix(
+        Collections.unmodifiableList(commandNames), cumulativeWeights, List.copyOf(variants));
+  }
+
+  /**
+   * Выбирает следующий запрос.
+   *
+   * @param random источник случайности вызывающего потока.
+   * @return Запрос без данных авторизации.
+   */
+  public SyntheticRequests.Template next(Random random) {
+    int point = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+    int index = 0;
+    while (cumulativeWeights[index] <= point) {
+      index++;
+    }
+    List<SyntheticRequests.Template> templates = variants.get(index);
+    return templates.get(random.nextInt(templates.size()));
+  }
+
+  public List<String> getCommandNames() {
+    return commandNames;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    int previous = 0;
+    int total = cumulativeWeights[cumulativeWeights.length - 1];
+    for (int i = 0; i < commandNames.size(); i++) {
+      if (i > 0) {
+        builder.append(", ");
+      }
+      builder
+          .append(commandNames.get(i))
+          .append(' ')
+          .append(Math.round(100.0 * (cumulativeWeights[i] - previous) / total))
+          .append('%');
+      previous = cumulativeWeights[i];
+    }
+    return builder.toString();
+  }
+}
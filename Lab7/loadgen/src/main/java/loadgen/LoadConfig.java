@@ -0,0 +1,203 @@
+package loadgen;
+
+import java.util.Map;
+
+/**
+ * Класс, хранящий настройки генератора нагрузки.
+ *
+ * <p>Настройки читаются из переменных окружения с префиксом {@code LOADGEN_}; для отсутствующих
+ * переменных используются значения по умолчанию. Кодек, транспорт, окно и повторы задаются
+ * переменными клиента {@code CLIENT_}.
+ *
+ * @author Alvas
+ * @since 3.0
+ */
+public class LoadConfig {
+  private int rate = 500;
+  private int durationSeconds = 30;
+  private int warmupSeconds = 5;
+  private int users = 1000;
+  private int connections = 8;
+  private String mix =
+      "average_of_price=30,show=20,info=20,filter_by_type=10,add=10,update=5,remove_by_id=5";
+  private int tickets = 1000;
+  private int timeoutMillis = 5000;
+  private int reportIntervalSeconds = 5;
+
+  /**
+   * Создает настройки по переменным окружения.
+   *
+   * @param env переменные окружения.
+   * @return Настройки генератора нагрузки.
+   * @throws IllegalArgumentException если значение переменной некорректно.
+   * @author Alvas
+   * @since 3.0
+   */
+  public static LoadConfig fromEnvironment(Map<String, String> env) {
+    LoadConfig config = new LoadConfig();
+    config.rate = parsePositiveInt(env, "LOADGEN_RATE", config.rate);
+    config.durationSeconds = parsePositiveInt(env, "LOADGEN_DURATION_SEC", config.durationSeconds);
+    config.warmupSeconds = parseNonNegativeInt(env, "LOADGEN_WARMUP_SEC", config.warmupSeconds);
+    config.users = parsePositiveInt(env, "LOADGEN_USERS", config.users);
+    config.connections = parsePositiveInt(env, "LOADGEN_CONNECTIONS", config.connections);
+    String mix = env.get("LOADGEN_MIX");
+    if (mix != null && !mix.isBlank()) {
+      config.mix = mix.trim();
+    }
+    config.tickets = parseNonNegativeInt(env, "LOADGEN_TICKETS", config.tickets);
+    config.timeoutMillis = parsePositiveInt(env, "LOADGEN_TIMEOUT_MS", config.timeoutMillis);
+    config.reportIntervalSeconds =
+        parsePositiveInt(env, "LOADGEN_REPORT_SEC", config.reportIntervalSeconds);
+    return config;
+  }
+
+  private static int parsePositiveInt(Map<String, String> env, String name, int defaultValue) {
+    String value = env.get(name);
+    if (value == null || value.isBlank()) {
+      return defaultValue;
+    }
+    try {
+      int parsed = Integer.parseInt(value.trim());
+      if (parsed > 0) {
+        return parsed;
+      }
+    } catch (NumberFormatException ignored) {
+    }
+    throw new IllegalArgumentException(
+        "Переменная окружения " + name + " должна быть положительным целым числом.");
+  }
+
+  private static int parseNonNegativeInt(Map<String, String> env, String name, int defaultValue) {
+    String value = env.get(name);
+    if (value == null || value.isBlank()) {
+      return defaultValue;
+    }
+    try {
+      int parsed = Integer.parseInt(value.trim());
+      if (parsed >= 0) {
+        return parsed;
+      }
+    } catch (NumberFormatException ignored) {
+    }
+    throw new IllegalArgumentException(
+        "Переменная окружения " + name + " должна быть неотрицательным целым числом.");
+  }
+
+  /**
+   * Возвращает среднюю интенсивность поступления запросов.
+   *
+   * @return Запросов в секунду.
+   */
+  public int getRate() {
+    return rate;
+  }
+
+  public void setRate(int rate) {
+    this.rate = rate;
+  }
+
+  /**
+   * Возвращает длительность измерения без учета разогрева.
+   *
+   * @return Длительность в секундах.
+   */
+  public int getDurationSeconds() {
+    return durationSeconds;
+  }
+
+  public void setDurationSeconds(int durationSeconds) {
+    this.durationSeconds = durationSeconds;
+  }
+
+  /**
+   * Возвращает длительность разогрева: запросы отправляются, но в итоги не попадают.
+   *
+   * @return Длительность в секундах.
+   */
+  public int getWarmupSeconds() {
+    return warmupSeconds;
+  }
+
+  public void setWarmupSeconds(int warmupSeconds) {
+    this.warmupSeconds = warmupSeconds;
+  }
+
+  /**
+   * Возвращает количество имитируемых пользователей.
+   *
+   * @return Количество пользователей.
+   */
+  public int getUsers() {
+    return users;
+  }
+
+  public void setUsers(int users) {
+    this.users = users;
+  }
+
+  /**
+   * Возвращает количество сокетов (или TCP-соединений), между которыми распределяются запросы.
+   *
+   * @return Количество соединений.
+   */
+  public int getConnections() {
+    return connections;
+  }
+
+  public void setConnections(int connections) {
+    this.connections = connections;
+  }
+
+  /**
+   * Возвращает состав нагрузки: команды и их веса через запятую, например {@code show=20,add=10}.
+   *
+   * @return Состав нагрузки.
+   */
+  public String getMix() {
+    return mix;
+  }
+
+  public void setMix(String mix) {
+    this.mix = mix;
+  }
+
+  /**
+   * Возвращает количество билетов, которыми заполняется коллекция локального сервера; от него же
+   * зависят id в командах {@code update} и {@code remove_by_id}.
+   *
+   * @return Количество билетов.
+   */
+  public int getTickets() {
+    return tickets;
+  }
+
+  public void setTickets(int tickets) {
+    this.tickets = tickets;
+  }
+
+  /**
+   * Возвращает время ожидания ответа; запрос без ответа за это время считается потерянным.
+   *
+   * @return Время в миллисекундах.
+   */
+  public int getTimeoutMillis() {
+    return timeoutMillis;
+  }
+
+  public void setTimeoutMillis(int timeoutMillis) {
+    this.timeoutMillis = timeoutMillis;
+  }
+
+  /**
+   * Возвращает период вывода промежуточных результатов.
+   *
+   * @return Период в секундах.
+   */
+  public int getReportIntervalSeconds() {
+    return reportIntervalSeconds;
+  }
+
+  public void setReportIntervalSeconds(int reportIntervalSeconds) {
+    this.reportIntervalSeconds = reportIntervalSeconds;
+  }
+}
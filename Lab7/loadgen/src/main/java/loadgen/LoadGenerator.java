@@ -0,0 +1,384 @@
+package loadgen;
+
+import client.network.RequestPipeline;
+import client.network.RequestTransport;
+import client.network.StreamPipeline;
+import client.system.ClientConfig;
+import client.system.Transport;
+import common.data.Ticket;
+import common.data.auth.AuthCredentials;
+import common.exceptions.CommandExecuteException;
+import common.exceptions.ObjectCreationException;
+import common.exceptions.RemoteServerException;
+import common.exceptions.ServerBusyException;
+import common.exceptions.WrongArgumentException;
+import common.managers.CommandManager;
+import common.network.Request;
+import common.network.RequestBody;
+import common.network.Response;
+import common.network.ResponseWithCursor;
+import common.network.ResponseWithException;
+import java.io.IOException;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import server.UDPServer;
+import server.managers.InMemoryCollectionManager;
+import server.system.ServerConfig;
+
+/**
+ * Генератор нагрузки на сервер.
+ *
+ * <p>Имитирует {@code LOADGEN_USERS} пользователей, которые отправляют команды по протоколу клиента
+ * через {@code LOADGEN_CONNECTIONS} сокетов. Нагрузка открытая: запросы поступают в случайные
+ * моменты (пуассоновский поток) со средней интенсивностью {@code LOADGEN_RATE} запросов в секунду
+ * независимо от того, успевает ли сервер отвечать, - так перегрузка видна по росту задержек и
+ * потерь, а не скрывается замедлением самого генератора. Каждый запрос ожидает ответа в собственном
+ * виртуальном потоке.
+ *
+ * <p>Без аргументов генератор запускает в том же процессе сервер с коллекцией в памяти ({@link
+ * InMemoryCollectionManager}), заполненной {@code LOADGEN_TICKETS} билетами; с аргументами {@code
+ * <host> <port>} нагружает уже запущенный сервер. Пароли сервер при выполнении команд не проверяет,
+ * поэтому пользователи не регистрируются.
+ *
+ * <p>Запуск: {@code java -jar loadgen/target/loadgen.jar [<host> <port>]}
+ *
+ * @see LoadConfig
+ * @author Alvas
+ * @since 3.0
+ */
+public class LoadGenerator {
+  private static final String USER_PREFIX = "loadgen-";
+  private static final String PASSWORD = "loadgen";
+  private static final int RECEIVE_BUFFER_SIZE = 4 * 1024 * 1024;
+  private static final int STARTUP_ATTEMPTS = 50;
+  private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  private final LoadConfig config;
+  private final ClientConfig clientConfig;
+  private final AuthCredentials[] users;
+  private final List<RequestTransport> transports = new ArrayList<>();
+  private CommandMix mix;
+  private LoadStats stats;
+
+  /**
+   * Создает генератор нагрузки.
+   *
+   * @param config настройки нагрузки.
+   * @param clientConfig настройки клиента: транспорт, кодек, окно и повторы.
+   */
+  public LoadGenerator(LoadConfig config, ClientConfig clientConfig) {
+    this.config = config;
+    this.clientConfig = clientConfig;
+    this.users = new AuthCredentials[config.getUsers()];
+    for (int i = 0; i < users.length; i++) {
+      users[i] = new AuthCredentials(USER_PREFIX + i, PASSWORD);
+    }
+  }
+
+  public static void main(String[] args) {
+    if (args.length != 0 && args.length != 2) {
+      System.err.println("Неверное количество аргументов для запуска генератора нагрузки.");
+      System.err.println("Используйте: java -jar loadgen.jar [<host> <port>]");
+      return;
+    }
+    if (args.length == 0 && System.getProperty("log4j.configurationFile") == null) {
+      // журнал локального сервера по каждому запросу исказил бы измерение
+      System.setProperty("log4j.configurationFile", "log4j2-loadgen.xml");
+    }
+
+    UDPServer server = null;
+    try {
+      LoadConfig config = LoadConfig.fromEnvironment(System.getenv());
+      ClientConfig clientConfig = ClientConfig.fromEnvironment(System.getenv());
+      LoadGenerator generator = new LoadGenerator(config, clientConfig);
+      generator.prepare();
+
+      InetSocketAddress address;
+      if (args.length == 0) {
+        InMemoryCollectionManager collectionManager = new InMemoryCollectionManager();
+        generator.fill(collectionManager);
+        int udpPort;
+        try (DatagramSocket probe = new DatagramSocket(0)) {
+          udpPort = probe.getLocalPort();
+        }
+        int tcpPort;
+        try (ServerSocket probe = new ServerSocket(0)) {
+          tcpPort = probe.getLocalPort();
+        }
+        ServerConfig serverConfig = ServerConfig.fromEnvironment(System.getenv());
+        serverConfig.setTcpPort(tcpPort);
+        // все пользователи приходят с нескольких адресов генератора
+        serverConfig.setClientRate(0);
+        serverConfig.setUserRate(0);
+        server = startServer(collectionManager, serverConfig, udpPort);
+        InetAddress loopback = InetAddress.getLoopbackAddress();
+        address =
+            new InetSocketAddress(
+                loopback, clientConfig.getTransport() == Transport.TCP ? tcpPort : udpPort);
+        System.out.println(
+            "[LOADGEN] Запущен локальный сервер: "
+                + collectionManager.getCollection().size()
+                + " билетов.");
+      } else {
+        address = new InetSocketAddress(args[0], Integer.parseInt(args[1]));
+      }
+
+      generator.connect(address);
+      try {
+        generator.run();
+      } finally {
+        generator.close();
+      }
+    } catch (NumberFormatException e) {
+      System.err.println("Порт должен быть целым числом.");
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+    } catch (IOException | CommandExecuteException | ObjectCreationException e) {
+      System.err.println("[LOADGEN] Ошибка при подготовке нагрузки: " + e.getMessage());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      if (server != null) {
+        server.stop();
+      }
+    }
+  }
+
+  private static UDPServer startServer(
+      InMemoryCollectionManager collectionManager, ServerConfig serverConfig, int port)
+      throws IOException {
+    CommandManager commandManager = new CommandManager(collectionManager, null, null, null);
+    UDPServer server = new UDPServer(commandManager, collectionManager, serverConfig);
+    Thread thread =
+        new Thread(
+            () -> {
+              try {
+                server.runServer(port);
+              } catch (IOException e) {
+                System.err.println("[LOADGEN] Ошибка при запуске сервера: " + e.getMessage());
+              }
+            },
+            "loadgen-server");
+    thread.setDaemon(true);
+    thread.start();
+    return server;
+  }
+
+  /**
+   * Формирует запросы по составу нагрузки.
+   *
+   * @throws CommandExecuteException если команда не приняла сформированные аргументы.
+   */
+  public void prepare() throws CommandExecuteException {
+    SyntheticRequests requests = new SyntheticRequests(new Random(), config.getTickets());
+    mix = CommandMix.parse(config.getMix(), requests);
+    stats = new LoadStats(mix.getCommandNames());
+  }
+
+  /**
+   * Заполняет коллекцию локального сервера; билет с id {@code i} принадлежит пользователю, которому
+   * генератор отправляет команды {@code update} и {@code remove_by_id} для этого id.
+   *
+   * @param collectionManager коллекция сервера.
+   * @throws ObjectCreationException если генератор не смог создать билет.
+   */
+  public void fill(InMemoryCollectionManager collectionManager) throws ObjectCreationException {
+    SyntheticRequests requests = new SyntheticRequests(new Random(), config.getTickets());
+    for (int id = 1; id <= config.getTickets(); id++) {
+      Ticket ticket = requests.createTicket();
+      ticket.setOwnerUsername(ownerOf(id).username());
+      try {
+        collectionManager.addTicket(ticket);
+      } catch (WrongArgumentException e) {
+        throw new ObjectCreationException(e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Открывает соединения с сервером и ждет, пока сервер ответит на пробный запрос.
+   *
+   * @param address адрес сервера.
+   * @throws IOException если соединение не удалось открыть или сервер не ответил.
+   * @throws InterruptedException если поток был прерван в ожидании.
+   */
+  public void connect(InetSocketAddress address) throws IOException, InterruptedException {
+    Request probe = new Request("info", new RequestBody(new String[0]), users[0]);
+    for (int attempt = 0; ; attempt++) {
+      RequestTransport transport = null;
+      try {
+        transport = open(address);
+        transport.submit(probe).get(config.getTimeoutMillis(), TimeUnit.MILLISECONDS);
+        transports.add(transport);
+        break;
+      } catch (Exception e) {
+        if (transport != null) {
+          transport.close();
+        }
+        if (attempt + 1 >= STARTUP_ATTEMPTS) {
+          throw new IOException("сервер " + address + " не отвечает.");
+        }
+        Thread.sleep(100);
+      }
+    }
+    while (transports.size() < config.getConnections()) {
+      transports.add(open(address));
+    }
+  }
+
+  private RequestTransport open(InetSocketAddress address) throws IOException {
+    if (clientConfig.getTransport() == Transport.TCP) {
+      return StreamPipeline.connect(address, clientConfig, config.getTimeoutMillis());
+    }
+    DatagramSocket socket = new DatagramSocket();
+    try {
+      socket.setReceiveBufferSize(RECEIVE_BUFFER_SIZE);
+      return new RequestPipeline(socket, address, clientConfig, config.getTimeoutMillis());
+    } catch (IOException | RuntimeException e) {
+      socket.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Подает нагрузку: разогрев, затем измерение, и выводит результаты.
+   *
+   * @throws InterruptedException если поток был прерван.
+   */
+  public void run() throws InterruptedException {
+    System.out.println(
+        String.format(
+            Locale.ROOT,
+            "[LOADGEN] %d запр/с, %d пользователей, %d соединений (%s), разогрев %d с, измерение %d"
+                + " с. Состав: %s.",
+            config.getRate(),
+            users.length,
+            transports.size(),
+            clientConfig.getTransport().name().toLowerCase(),
+            config.getWarmupSeconds(),
+            config.getDurationSeconds(),
+            mix));
+
+    // разогрев учитывается отдельно и в итоги не попадает
+    LoadStats warmup = new LoadStats(mix.getCommandNames());
+    Random random = new Random();
+    double meanGapNanos = (double) NANOS_PER_SECOND / config.getRate();
+    long start = System.nanoTime();
+    long measureStart = start + config.getWarmupSeconds() * NANOS_PER_SECOND;
+    long end = measureStart + config.getDurationSeconds() * NANOS_PER_SECOND;
+    long reportInterval = config.getReportIntervalSeconds() * NANOS_PER_SECOND;
+    long nextReport = measureStart + reportInterval;
+    long reportedAnswers = 0;
+
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      long scheduled = start;
+      while (scheduled < end) {
+        long now = System.nanoTime();
+        if (scheduled > now) {
+          LockSupport.parkNanos(scheduled - now);
+          continue;
+        }
+        long intended = scheduled;
+        LoadStats target = intended < measureStart ? warmup : stats;
+        SyntheticRequests.Template template = mix.next(random);
+        executor.execute(() -> issue(template, intended, target));
+        // промежутки между запросами пуассоновского потока распределены экспоненциально
+        scheduled += (long) (-Math.log(1 - random.nextDouble()) * meanGapNanos);
+
+        if (now >= nextReport) {
+          long answered = stats.getAnswered();
+          System.out.println(
+              String.format(
+                  Locale.ROOT,
+                  "[LOADGEN] %d с: отправлено %d, ответов %d, %.1f запр/с, потеряно %d.",
+                  (now - measureStart) / NANOS_PER_SECOND,
+                  stats.getSent(),
+                  answered,
+                  (double) (answered - reportedAnswers) * NANOS_PER_SECOND / reportInterval,
+                  stats.getCount(LoadStats.Outcome.LOST)));
+          reportedAnswers = answered;
+          nextReport += reportInterval;
+        }
+      }
+      System.out.println("[LOADGEN] Ожидание ответов на отправленные запросы...");
+    }
+
+    double seconds = (double) (end - measureStart) / NANOS_PER_SECOND;
+    System.out.println(
+        String.format(
+            Locale.ROOT,
+            "[LOADGEN] Итоги за %.0f с при %d запр/с:%n%s",
+            seconds,
+            config.getRate(),
+            stats.report(seconds)));
+  }
+
+  private void issue(SyntheticRequests.Template template, long intended, LoadStats target) {
+    Request request = template.request();
+    AuthCredentials auth =
+        template.ticketId() > 0
+            ? ownerOf(template.ticketId())
+            : users[ThreadLocalRandom.current().nextInt(users.length)];
+    request = new Request(request.getCommandName(), request.getRequestBody(), auth);
+    RequestTransport transport =
+        transports.get(ThreadLocalRandom.current().nextInt(transports.size()));
+
+    LoadStats.Outcome outcome;
+    try {
+      target.recordSent();
+      Response response = transport.submit(request).get();
+      if (response instanceof ResponseWithCursor page && page.getNextCursor() != null) {
+        // нагрузка измеряет первую страницу; остальные страницы не нужны
+        transport.cancelPages(page);
+      }
+      outcome = classify(response);
+    } catch (ExecutionException e) {
+      outcome =
+          e.getCause() instanceof SocketTimeoutException
+              ? LoadStats.Outcome.LOST
+              : LoadStats.Outcome.FAILED;
+    } catch (IOException e) {
+      outcome = LoadStats.Outcome.FAILED;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return;
+    }
+    target.record(request.getCommandName(), outcome, System.nanoTime() - intended);
+  }
+
+  private static LoadStats.Outcome classify(Response response) {
+    if (!(response instanceof ResponseWithException withException)) {
+      return LoadStats.Outcome.OK;
+    }
+    Exception exception = withException.getException();
+    boolean busy =
+        exception instanceof ServerBusyException
+            || exception instanceof RemoteServerException remote
+                && ServerBusyException.class.getName().equals(remote.getType());
+    return busy ? LoadStats.Outcome.BUSY : LoadStats.Outcome.COMMAND_ERROR;
+  }
+
+  // владелец билета с этим id в коллекции, заполненной методом fill()
+  private AuthCredentials ownerOf(int ticketId) {
+    return users[(ticketId - 1) % users.length];
+  }
+
+  /** Закрывает соединения с сервером. */
+  public void close() {
+    transports.forEach(RequestTransport::close);
+    transports.clear();
+  }
+}
@@ -0,0 +1,143 @@
+package loadgen;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import server.network.LatencyHistogram;
+
+/**
+ * Результаты нагрузки: количество запросов по исходам и задержки.
+ *
+ * <p>Задержка отсчитывается от момента, когда запрос должен был быть отправлен по расписанию, а не
+ * от фактической отправки: если генератор или окно клиента задержали отправку, это время тоже
+ * входит в задержку.
+ *
+ * @author Alvas
+ * @since 3.0
+ */
+public class LoadStats {
+  /** Исход запроса. */
+  public enum Outcome {
+    /** Команда выполнена. */
+    OK,
+    /** Команда выполнена с ошибкой, например, билет не найден или принадлежит другому. */
+    COMMAND_ERROR,
+    /** Сервер отказал из-за перегрузки или ограничения частоты и после всех повторов. */
+    BUSY,
+    /** Ответ не пришел за время ожидания: запрос или ответ потерян. */
+    LOST,
+    /** Запрос не удалось отправить или ответ не удалось разобрать. */
+    FAILED
+  }
+
+  private final LongAdder sent = new LongAdder();
+  private final Map<Outcome, LongAdder> outcomes = new LinkedHashMap<>();
+  private final LatencyHistogram latency = new LatencyHistogram();
+  private final Map<String, LatencyHistogram> commandLatency = new LinkedHashMap<>();
+
+  /**
+   * Создает пустые результаты.
+   *
+   * @param commandNames команды, задержки которых учитываются отдельно.
+   */
+  public LoadStats(List<String> commandNames) {
+    for (Outcome outcome : Outcome.values()) {
+      outcomes.put(outcome, new LongAdder());
+    }
+    for (String commandName : commandNames) {
+      commandLatency.put(commandName, new LatencyHistogram());
+    }
+  }
+
+  public void recordSent() {
+    sent.increment();
+  }
+
+  /**
+   * Записывает исход запроса.
+   *
+   * @param commandName команда запроса.
+   * @param outcome исход.
+   * @param nanos время от запланированной отправки до ответа; для потерянных запросов не
+   *     учитывается.
+   */
+  public void record(String commandName, Outcome outcome, long nanos) {
+    outcomes.get(outcome).increment();
+    if (outcome == Outcome.LOST || outcome == Outcome.FAILED) {
+      return;
+    }
+    latency.record(nanos);
+    commandLatency.get(commandName).record(nanos);
+  }
+
+  public long getSent() {
+    return sent.sum();
+  }
+
+  public long getCount(Outcome outcome) {
+    return outcomes.get(outcome).sum();
+  }
+
+  /**
+   * Возвращает количество запросов, на которые пришел ответ.
+   *
+   * @return Количество ответов.
+   */
+  public long getAnswered() {
+    return getCount(Outcome.OK) + getCount(Outcome.COMMAND_ERROR) + getCount(Outcome.BUSY);
+  }
+
+  /**
+   * Формирует итоговый отчет.
+   *
+   * @param seconds длительность измерения.
+   * @return Текст отчета.
+   */
+  public String report(double seconds) {
+    long sent = getSent();
+    StringBuilder builder = new StringBuilder();
+    builder.append(
+        String.format(
+            Locale.ROOT,
+            "  отправлено: %d, получено ответов: %d, пропускная способность: %.1f запр/с%n",
+            sent,
+            getAnswered(),
+            getAnswered() / seconds));
+    builder.append(
+        String.format(
+            Locale.ROOT,
+            "  выполнено: %d, ошибки команд: %d, отказы сервера: %d, потеряно: %d (%.2f%%),"
+                + " ошибки передачи: %d%n",
+            getCount(Outcome.OK),
+            getCount(Outcome.COMMAND_ERROR),
+            getCount(Outcome.BUSY),
+            getCount(Outcome.LOST),
+            sent == 0 ? 0.0 : 100.0 * getCount(Outcome.LOST) / sent,
+            getCount(Outcome.FAILED)));
+    builder.append("  задержка, мс: ").append(format(latency)).append(System.lineSeparator());
+    for (Map.Entry<String, LatencyHistogram> entry : commandLatency.entrySet()) {
+      builder
+          .append("    ")
+          .append(entry.getKey())
+          .append(" (")
+          .append(entry.getValue().getCount())
+          .append("): ")
+          .append(format(entry.getValue()))
+          .append(System.lineSeparator());
+    }
+    return builder.toString();
+  }
+
+  private static String format(LatencyHistogram histogram) {
+    return String.format(
+        Locale.ROOT,
+        "p50=%.2f p90=%.2f p99=%.2f p99.9=%.2f max=%.2f",
+        histogram.getPercentile(50) / 1000.0,
+        histogram.getPercentile(90) / 1000.0,
+        histogram.getPercentile(99) / 1000.0,
+        histogram.getPercentile(99.9) / 1000.0,
+        histogram.getMax() / 1000.0);
+  }
+}
@@ -0,0 +1,176 @@
+package loadgen;
+
+import common.commands.Command;
+import common.data.Ticket;
+import common.data.TicketType;
+import common.exceptions.CommandExecuteException;
+import common.exceptions.ObjectCreationException;
+import common.exceptions.UnknownCommandException;
+import common.managers.CommandManager;
+import common.managers.ScannerManager;
+import common.managers.ScriptManager;
+import common.network.Request;
+import common.utils.generators.TicketGenerator;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.Set;
+
+/**
+ * Класс, формирующий запросы так же, как клиент, но без участия пользователя.
+ *
+ * <p>Строка команды разбирается {@link CommandManager#convertInputToCommandRequest}, а значения
+ * полей билета, которые клиент спрашивает у пользователя, генераторы из {@code
+ * common.utils.generators} читают из подготовленного ввода, как из скрипта. Подсказки генераторов
+ * при этом не выводятся.
+ *
+ * <p>Объект не потокобезопасен: запросы формируются заранее, до начала нагрузки.
+ *
+ * @author Alvas
+ * @since 3.0
+ */
+public class SyntheticRequests {
+  // команды, для которых клиент спрашивает значения полей билета
+  private static final Set<String> TICKET_COMMANDS =
+      Set.of("add", "add_if_max", "remove_lower", "update");
+  // команды, которые спрашивают пароль у консоли
+  private static final Set<String> UNSUPPORTED_COMMANDS = Set.of("login", "register");
+  private static final String INPUT_NAME = "loadgen";
+
+  /**
+   * Сформированный запрос.
+   *
+   * @param request запрос без данных авторизации.
+   * @param ticketId id билета, к которому относится команда; {@code 0} - ни к какому.
+   */
+  public record Template(Request request, int ticketId) {}
+
+  private interface InputAction<T, E extends Exception> {
+    T run() throws E;
+  }
+
+  private final ScannerManager scannerManager = new ScannerManager(new Scanner(""));
+  private final ScriptManager scriptManager = new ScriptManager(scannerManager);
+  private final CommandManager commandManager =
+      new CommandManager(null, scriptManager, scannerManager, null);
+  private final Random random;
+  private final int tickets;
+
+  /**
+   * Создает генератор запросов.
+   *
+   * @param random источник случайных значений полей.
+   * @param tickets количество билетов в коллекции: id в командах выбираются от 1 до него.
+   */
+  public SyntheticRequests(Random random, int tickets) {
+    this.random = random;
+    this.tickets = tickets;
+  }
+
+  /**
+   * Проверяет, что команду можно сформировать без участия пользователя.
+   *
+   * @param commandName название команды.
+   * @throws IllegalArgumentException если команда неизвестна или требует ввода с консоли.
+   */
+  public void checkSupported(String commandName) {
+    Command command = commandManager.getCommandList().get(commandName);
+    if (command == null) {
+      throw new IllegalArgumentException("Неизвестная команда в составе нагрузки: " + commandName);
+    }
+    if (UNSUPPORTED_COMMANDS.contains(commandName)) {
+      throw new IllegalArgumentException(
+          "Команда " + commandName + " не поддерживается генератором нагрузки.");
+    }
+  }
+
+  /**
+   * Формирует запрос команды со случайными аргументами и полями билета.
+   *
+   * @param commandName название команды.
+   * @return Запрос и id билета, к которому он относится.
+   * @throws CommandExecuteException если команда не приняла сформированные аргументы.
+   */
+  public Template create(String commandName) throws CommandExecuteException {
+    int id = 0;
+    String args = "";
+    switch (commandName) {
+      case "update", "remove_by_id" -> {
+        id = 1 + random.nextInt(Math.max(tickets, 1));
+        args = " " + id;
+      }
+      case "filter_by_type" -> args = " " + randomType();
+      default -> {}
+    }
+    String line = commandName + args;
+    List<String> input = TICKET_COMMANDS.contains(commandName) ? ticketInput() : List.of();
+    Request request =
+        withInput(
+            input,
+            () -> {
+              try {
+                return commandManager.convertInputToCommandRequest(line, null);
+              } catch (UnknownCommandException e) {
+                throw new CommandExecuteException(e.getMessage());
+              }
+            });
+    return new Template(request, id);
+  }
+
+  /**
+   * Создает случайный билет тем же генератором, что и команда {@code add}.
+   *
+   * @return Билет без id и владельца.
+   * @throws ObjectCreationException если генератор не смог создать билет.
+   */
+  public Ticket createTicket() throws ObjectCreationException {
+    return withInput(
+        ticketInput(), () -> new TicketGenerator(scriptManager, scannerManager).create());
+  }
+
+  // генераторы читают поля, как при выполнении скрипта; их подсказки не выводятся
+  private <T, E extends Exception> T withInput(List<String> input, InputAction<T, E> action)
+      throws E {
+    PrintStream out = System.out;
+    scriptManager.addInput(INPUT_NAME, new Scanner(String.join("\n", input)));
+    scriptManager.activateFileMode();
+    System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    try {
+      return action.run();
+    } finally {
+      System.setOut(out);
+      while (!scriptManager.getAllScanners().isEmpty()) {
+        scriptManager.removePath();
+      }
+      scriptManager.deactivateFileMode();
+    }
+  }
+
+  // значения в том порядке, в котором их спрашивает TicketGenerator
+  private List<String> ticketInput() {
+    List<String> input = new ArrayList<>();
+    input.add("ticket-" + Integer.toHexString(random.nextInt()));
+    input.add(String.valueOf(random.nextFloat() * 1000));
+    input.add(String.valueOf(random.nextInt(333)));
+    input.add(String.valueOf(1 + random.nextInt(10_000)));
+    input.add(randomType());
+    if (random.nextInt(4) == 0) {
+      input.add("1");
+      input.add(String.valueOf(150 + random.nextInt(50)));
+      input.add(String.valueOf(50 + random.nextInt(50)));
+      input.add("P" + Long.toHexString(random.nextLong()));
+      input.add("3");
+    } else {
+      input.add("3");
+    }
+    return input;
+  }
+
+  private String randomType() {
+    TicketType[] types = TicketType.values();
+    return types[random.nextInt(types.length)].name();
+  }
+}
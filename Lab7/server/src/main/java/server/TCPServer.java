@@ -0,0 +1,651 @@
+package server;
+
+import common.exceptions.ServerBusyException;
+import common.managers.CollectionManager;
+import common.managers.CommandManager;
+import common.network.BatchRequest;
+import common.network.Compression;
+import common.network.Request;
+import common.network.RequestBodyWithPage;
+import common.network.Response;
+import common.network.ResponseWithCursor;
+import common.network.ResponseWithException;
+import common.network.ResponseWithLease;
+import common.network.StreamFrames;
+import common.network.codec.Codec;
+import common.network.codec.Codecs;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import server.network.BoundedStage;
+import server.network.RequestLog;
+import server.network.RequestMetrics;
+import server.network.RequestThrottle;
+import server.network.ResponseCache;
+import server.network.ResponseCompressor;
+import server.network.StreamConnection;
+import server.network.SubscriptionHub;
+import server.system.ServerConfig;
+
+/**
+ * TCP-транспорт сервера.
+ *
+ * <p>Работает рядом с {@link UDPServer}: принимает соединения неблокирующим {@link
+ * ServerSocketChannel}, разбирает поток на кадры {@link StreamFrames} и выполняет запросы через тот
+ * же {@link CommandManager} и тот же этап обработки, что и UDP. Доставку и порядок байт
+ * обеспечивает TCP, поэтому повторов и кэша повторных запросов здесь нет; кэш ответов на команды
+ * чтения общий с UDP.
+ *
+ * <p>Если запрос с телом {@link RequestBodyWithPage} отправлен с флагом {@link
+ * StreamFrames#FLAG_STREAM}, сервер отправляет все страницы ответа подряд с флагом {@link
+ * StreamFrames#FLAG_MORE}. Следующая страница формируется, только когда у потока есть кредит
+ * клиента ({@link StreamFrames#FLAG_CREDIT}) и очередь записи соединения освободилась, поэтому
+ * клиент, не забирающий страницы, сдерживает сервер, а не копит ответы в его памяти.
+ *
+ * <p>Размер запроса ограничен {@link ServerConfig#getMaxRequestSize()}, количество соединений -
+ * {@link ServerConfig#getTcpMaxConnections()}; соединения, простаивающие дольше {@link
+ * ServerConfig#getTcpIdleTimeoutMillis()}, закрываются.
+ *
+ * @author Alvas
+ * @since 3.0
+ */
+public class TCPServer implements Runnable {
+  private static final Logger logger = LogManager.getLogger();
+
+  // получатель уведомлений подписки по соединению
+  private record ConnectionSink(StreamConnection connection) implements SubscriptionHub.Sink {
+    @Override
+    public void send(ByteBuffer encoded) {
+      connection.send(StreamFrames.encode(StreamFrames.NOTIFICATION_ID, 0, encoded));
+    }
+
+    @Override
+    public boolean isOpen() {
+      return !connection.isClosed();
+    }
+  }
+
+  private final int SELECTOR_TIMEOUT = 100;
+  private final int HIGH_WATERMARK = 256 * 1024;
+  private final int LOW_WATERMARK = 64 * 1024;
+  private final long IDLE_CHECK_INTERVAL_MS = 1000;
+
+  private final CommandManager commandManager;
+  private final CollectionManager collectionManager;
+  private final BoundedStage stage;
+  private final ResponseCompressor compressor;
+  private final RequestThrottle throttle;
+  private final ResponseCache responseCache;
+  private final SubscriptionHub subscriptions;
+  private final RequestMetrics requestMetrics;
+  private final RequestLog requestLog;
+  private final int maxRequestSize;
+  private final int maxFrameSize;
+  private final int maxConnections;
+  private final long idleTimeoutMillis;
+  private final Selector selector;
+  private final ServerSocketChannel serverChannel;
+  private final Queue<StreamConnection> pendingWrites = new ConcurrentLinkedQueue<>();
+  private final Set<StreamConnection> connections = ConcurrentHashMap.newKeySet();
+  private volatile boolean isRunning = true;
+  private volatile boolean isDraining;
+
+  private final LongAdder accepted = new LongAdder();
+  private final LongAdder closed = new LongAdder();
+  private final LongAdder framesIn = new LongAdder();
+  private final LongAdder framesOut = new LongAdder();
+  private final LongAdder bytesIn = new LongAdder();
+  private final LongAdder bytesOut = new LongAdder();
+  private final LongAdder readPauses = new LongAdder();
+  private final LongAdder streamsCancelled = new LongAdder();
+  // задачи этапа: принятые и завершенные
+  private final LongAdder tasksSubmitted = new LongAdder();
+  private final LongAdder tasksFinished = new LongAdder();
+  private final LongAdder answered = new LongAdder();
+  private final LongAdder rejectedWhileDraining = new LongAdder();
+  private final LongAdder connectionsRejected = new LongAdder();
+  private final LongAdder idleClosed = new LongAdder();
+
+  /**
+   * Открывает порт TCP-транспорта.
+   *
+   * @param config настройки сервера: порт, размер запроса, количество и время простоя соединений.
+   * @param commandManager менеджер команд.
+   * @param collectionManager менеджер коллекции, по версии которой проверяются ответы из кэша.
+   * @param stage этап, на котором декодируются и выполняются запросы.
+   * @param compressor сжатие ответов.
+   * @param throttle ограничение частоты запросов, общее с UDP.
+   * @param responseCache кэш ответов на команды чтения, общий с UDP.
+   * @param subscriptions подписки на изменения коллекции, общие с UDP.
+   * @param requestMetrics статистика задержек запросов, общая с UDP.
+   * @param requestLog журнал запросов, общий с UDP.
+   * @throws IOException если порт не удалось открыть.
+   */
+  public TCPServer(
+      ServerConfig config,
+      CommandManager commandManager,
+      CollectionManager collectionManager,
+      BoundedStage stage,
+      ResponseCompressor compressor,
+      RequestThrottle throttle,
+      ResponseCache responseCache,
+      SubscriptionHub subscriptions,
+      RequestMetrics requestMetrics,
+      RequestLog requestLog)
+      throws IOException {
+    this.commandManager = commandManager;
+    this.collectionManager = collectionManager;
+    this.stage = stage;
+    this.compressor = compressor;
+    this.throttle = throttle;
+    this.responseCache = responseCache;
+    this.subscriptions = subscriptions;
+    this.requestMetrics = requestMetrics;
+    this.requestLog = requestLog;
+    this.maxRequestSize = config.getMaxRequestSize();
+    this.maxFrameSize = maxRequestSize + StreamFrames.HEADER_SIZE - StreamFrames.LENGTH_SIZE;
+    this.maxConnections = config.getTcpMaxConnections();
+    this.idleTimeoutMillis = config.getTcpIdleTimeoutMillis();
+    this.selector = Selector.open();
+    this.serverChannel = ServerSocketChannel.open();
+    try {
+      serverChannel.bind(new InetSocketAddress(config.getTcpPort()));
+      serverChannel.configureBlocking(false);
+      serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    } catch (IOException e) {
+      serverChannel.close();
+      selector.close();
+      throw e;
+    }
+  }
+
+  @Override
+  public void run() {
+    long lastIdleCheck = System.currentTimeMillis();
+    try {
+      while (isRunning) {
+        selector.select(SELECTOR_TIMEOUT);
+        if (idleTimeoutMillis > 0
+            && System.currentTimeMillis() - lastIdleCheck > IDLE_CHECK_INTERVAL_MS) {
+          closeIdle();
+          lastIdleCheck = System.currentTimeMillis();
+        }
+        StreamConnection pending;
+        while ((pending = pendingWrites.poll()) != null) {
+          if (!pending.isClosed()) {
+            updateInterest(pending);
+          }
+        }
+
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+          SelectionKey key = keys.next();
+          keys.remove();
+          if (!key.isValid()) {
+            continue;
+          }
+          if (key.isAcceptable()) {
+            accept();
+            continue;
+          }
+
+          StreamConnection connection = (StreamConnection) key.attachment();
+          try {
+            if (key.isWritable()) {
+              bytesOut.add(connection.flush());
+            }
+            if (key.isValid() && key.isReadable()) {
+              read(connection);
+            }
+            if (!connection.isClosed()) {
+              updateInterest(connection);
+            }
+          } catch (IOException e) {
+            logger.warn(
+                "Соединение с " + connection.getRemoteAddress() + " разорвано: " + e.getMessage());
+            close(connection);
+          }
+        }
+      }
+    } catch (IOException e) {
+      logger.error("Ошибка селектора TCP-транспорта: " + e.getMessage());
+    } finally {
+      for (SelectionKey key : selector.keys()) {
+        if (key.attachment() instanceof StreamConnection connection) {
+          close(connection);
+        }
+      }
+      try {
+        serverChannel.close();
+        selector.close();
+      } catch (IOException ignored) {
+      }
+    }
+  }
+
+  /**
+   * Перестает принимать соединения и запросы; на новые запросы отвечает отказом из-за перегрузки.
+   * Принятые запросы, в том числе потоковые ответы, дорабатываются до вызова {@link #stop()}.
+   */
+  public void drain() {
+    isDraining = true;
+    try {
+      serverChannel.close();
+    } catch (IOException e) {
+      logger.error("Не удалось закрыть порт TCP-транспорта: " + e.getMessage());
+    }
+  }
+
+  /** Останавливает транспорт и закрывает все соединения. */
+  public void stop() {
+    isRunning = false;
+    selector.wakeup();
+  }
+
+  private void accept() throws IOException {
+    SocketChannel channel = serverChannel.accept();
+    if (channel == null) {
+      return;
+    }
+    if (connections.size() >= maxConnections) {
+      connectionsRejected.increment();
+      channel.close();
+      return;
+    }
+    channel.configureBlocking(false);
+    channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+    SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+    StreamConnection connection =
+        new StreamConnection(
+            channel, key, HIGH_WATERMARK, LOW_WATERMARK, maxFrameSize, this::requestWrite);
+    key.attach(connection);
+    connections.add(connection);
+    accepted.increment();
+    logger.info("Установлено TCP-соединение с " + connection.getRemoteAddress());
+  }
+
+  // закрывает соединения, по которым дольше idleTimeoutMillis ничего не передавалось
+  private void closeIdle() {
+    long now = System.currentTimeMillis();
+    for (StreamConnection connection : connections) {
+      if (connection.isIdle(now, idleTimeoutMillis)) {
+        logger.info("TCP-соединение с " + connection.getRemoteAddress() + " закрыто по простою");
+        idleClosed.increment();
+        close(connection);
+      }
+    }
+  }
+
+  private void read(StreamConnection connection) throws IOException {
+    ByteBuffer buffer = connection.readBuffer();
+    int read = connection.getChannel().read(buffer);
+    if (read < 0) {
+      logger.info("TCP-соединение с " + connection.getRemoteAddress() + " закрыто клиентом");
+      close(connection);
+      return;
+    }
+    bytesIn.add(read);
+    connection.markActive();
+
+    buffer.flip();
+    try {
+      StreamFrames.Frame frame;
+      while ((frame = StreamFrames.read(buffer, maxFrameSize)) != null) {
+        framesIn.increment();
+        handleFrame(connection, frame);
+      }
+    } finally {
+      buffer.compact();
+    }
+  }
+
+  private void handleFrame(StreamConnection connection, StreamFrames.Frame frame) {
+    if (frame.has(StreamFrames.FLAG_CANCEL)) {
+      if (connection.closeStream(frame.messageId())) {
+        streamsCancelled.increment();
+      }
+      return;
+    }
+    if (frame.has(StreamFrames.FLAG_CREDIT)) {
+      ByteBuffer payload = frame.payload();
+      connection.grantCredit(
+          frame.messageId(), payload.remaining() >= Integer.BYTES ? payload.getInt(0) : 1);
+      return;
+    }
+    if (isDraining) {
+      rejectedWhileDraining.increment();
+      sendBusy(connection, frame.messageId(), frame.payload());
+      return;
+    }
+    if (!throttle.allowAddress(connection.getRemoteAddress())) {
+      sendBusy(connection, frame.messageId(), frame.payload());
+      return;
+    }
+    long receivedAt = System.nanoTime();
+    submit(
+        () -> handleRequest(connection, frame, receivedAt),
+        () -> {},
+        () -> sendBusy(connection, frame.messageId(), frame.payload()));
+  }
+
+  // ставит задачу на этап и учитывает ее, пока она не выполнена или не отброшена
+  private void submit(Runnable action, Runnable onDrop, Runnable onReject) {
+    tasksSubmitted.increment();
+    stage.submit(
+        new BoundedStage.Task(
+            () -> {
+              try {
+                action.run();
+              } finally {
+                tasksFinished.increment();
+              }
+            },
+            () -> {
+              onDrop.run();
+              tasksFinished.increment();
+            },
+            () -> {
+              onReject.run();
+              tasksFinished.increment();
+            }));
+  }
+
+  private void handleRequest(
+      StreamConnection connection, StreamFrames.Frame frame, long receivedAt) {
+    long start = System.nanoTime();
+    Request request;
+    Codec codec;
+    boolean acceptsCompression = false;
+    try {
+      ByteBuffer payload = frame.payload();
+      if (Compression.isEnvelope(payload)) {
+        Compression.Payload unwrapped = Compression.unwrap(payload, maxRequestSize);
+        payload = unwrapped.payload();
+        acceptsCompression = unwrapped.acceptsCompression();
+      }
+      codec = Codecs.detect(payload);
+      if (!(codec.decode(payload) instanceof Request decoded)) {
+        throw new IOException("Получено сообщение, не являющееся запросом.");
+      }
+      request = decoded;
+    } catch (IOException | RuntimeException e) {
+      // поток кадров больше нельзя считать согласованным
+      logger.error(
+          "Некорректный запрос от " + connection.getRemoteAddress() + ": " + e.getMessage());
+      close(connection);
+      return;
+    }
+    String commandName = request.getCommandName();
+    requestMetrics.recordRequest(commandName);
+    requestMetrics.record(commandName, RequestMetrics.Stage.QUEUE, start - receivedAt);
+    requestMetrics.record(commandName, RequestMetrics.Stage.DECODE, System.nanoTime() - start);
+    if (requestLog.sample()) {
+      requestLog.getLogger().info("Получен запрос по TCP с командой {}", commandName);
+    }
+    if (!throttle.allowUser(request)) {
+      sendBusy(connection, frame.messageId(), codec);
+      return;
+    }
+
+    boolean streaming =
+        frame.has(StreamFrames.FLAG_STREAM)
+            && request.getRequestBody() instanceof RequestBodyWithPage;
+    if (streaming) {
+      connection.openStream(frame.messageId());
+    }
+    respond(
+        connection, frame.messageId(), request, codec, acceptsCompression, streaming, receivedAt);
+  }
+
+  // выполняет запрос и, если ответ потоковый, планирует следующую страницу; receivedAt - время
+  // получения кадра, а для следующих страниц - время постановки страницы в очередь этапа
+  private void respond(
+      StreamConnection connection,
+      long messageId,
+      Request request,
+      Codec codec,
+      boolean acceptsCompression,
+      boolean streaming,
+      long receivedAt) {
+    if (streaming && !connection.isStreamActive(messageId)) {
+      return;
+    }
+    String commandName = request.getCommandName();
+
+    ResponseCache.Key key = null;
+    long version = 0;
+    ResponseCache.Entry entry = null;
+    if (isResponseCacheable(request)) {
+      key = ResponseCache.Key.of(request, codec, acceptsCompression);
+      version = collectionManager.getVersion();
+      entry = responseCache.get(key, version);
+    }
+
+    Response response = null;
+    String cursor;
+    if (entry != null) {
+      cursor = entry.nextCursor();
+    } else {
+      try {
+        long start = System.nanoTime();
+        response = commandManager.executeRequest(request);
+        requestMetrics.record(commandName, RequestMetrics.Stage.EXECUTE, System.nanoTime() - start);
+        if (response instanceof ResponseWithException) {
+          requestMetrics.recordError(commandName);
+        }
+        if (response instanceof ResponseWithLease lease) {
+          response =
+              subscriptions.subscribe(
+                  lease, connection, new ConnectionSink(connection), codec, acceptsCompression);
+        }
+      } catch (RuntimeException e) {
+        requestMetrics.recordError(commandName);
+        logger.error("Возникла ошибка при выполнении запроса: " + e.getMessage());
+        connection.closeStream(messageId);
+        return;
+      }
+      cursor = response instanceof ResponseWithCursor page ? page.getNextCursor() : null;
+    }
+
+    String nextCursor = streaming ? cursor : null;
+    boolean more = nextCursor != null && connection.isStreamActive(messageId);
+    if (!more) {
+      connection.closeStream(messageId);
+    }
+
+    try {
+      long start = System.nanoTime();
+      ByteBuffer encoded;
+      if (entry != null) {
+        encoded = entry.encoded();
+      } else {
+        encoded =
+            compressor.compress(commandName, codec.encode(response), codec, acceptsCompression);
+        long encodeEnd = System.nanoTime();
+        requestMetrics.record(commandName, RequestMetrics.Stage.ENCODE, encodeEnd - start);
+        start = encodeEnd;
+        // коллекция могла измениться во время выполнения, тогда ответ не соответствует версии
+        if (key != null && collectionManager.getVersion() == version) {
+          responseCache.put(key, version, encoded, cursor);
+        }
+      }
+      connection.send(StreamFrames.encode(messageId, more ? StreamFrames.FLAG_MORE : 0, encoded));
+      framesOut.increment();
+      if (!more) {
+        answered.increment();
+      }
+      // кадр только поставлен в очередь соединения, запись в сокет выполняет цикл селектора
+      long end = System.nanoTime();
+      requestMetrics.record(commandName, RequestMetrics.Stage.SEND, end - start);
+      requestMetrics.record(commandName, RequestMetrics.Stage.TOTAL, end - receivedAt);
+    } catch (IOException | RuntimeException e) {
+      requestMetrics.recordError(commandName);
+      logger.error("Возникла ошибка при отправке ответа по TCP: " + e.getMessage());
+      connection.closeStream(messageId);
+      return;
+    }
+
+    if (more) {
+      RequestBodyWithPage body = (RequestBodyWithPage) request.getRequestBody();
+      Request next = new Request(commandName, body.withCursor(nextCursor), request.getAuth());
+      Runnable busy =
+          () -> {
+            connection.closeStream(messageId);
+            sendBusy(connection, messageId, codec);
+          };
+      connection.whenCredited(
+          messageId,
+          () ->
+              connection.whenWritable(
+                  () -> {
+                    long queuedAt = System.nanoTime();
+                    submit(
+                        () ->
+                            respond(
+                                connection,
+                                messageId,
+                                next,
+                                codec,
+                                acceptsCompression,
+                                true,
+                                queuedAt),
+                        busy,
+                        busy);
+                  }));
+    }
+  }
+
+  private boolean isResponseCacheable(Request request) {
+    return responseCache.isEnabled()
+        && !(request instanceof BatchRequest)
+        && request.getAuth() != null
+        && commandManager.isReadOnly(request);
+  }
+
+  private void sendBusy(StreamConnection connection, long messageId, ByteBuffer requestPayload) {
+    ByteBuffer payload = requestPayload.duplicate();
+    if (Compression.isEnvelope(payload)
+        && (payload.get(payload.position() + 1) & Compression.FLAG_COMPRESSED) == 0) {
+      payload.position(payload.position() + 2);
+    }
+    try {
+      sendBusy(connection, messageId, Codecs.detect(payload));
+    } catch (IOException e) {
+      // сжатый запрос: кодек неизвестен без распаковки
+      sendBusy(connection, messageId, Codecs.BINARY);
+    }
+  }
+
+  private void sendBusy(StreamConnection connection, long messageId, Codec codec) {
+    try {
+      ByteBuffer encoded = codec.encode(new ResponseWithException(new ServerBusyException()));
+      connection.send(StreamFrames.encode(messageId, 0, encoded));
+      framesOut.increment();
+    } catch (IOException e) {
+      logger.error("Не удалось отправить ответ о перегрузке: " + e.getMessage());
+    }
+  }
+
+  // вызывается из любого потока после постановки кадра в очередь соединения
+  private void requestWrite(StreamConnection connection) {
+    pendingWrites.add(connection);
+    selector.wakeup();
+  }
+
+  private void updateInterest(StreamConnection connection) {
+    if (connection.updateInterest()) {
+      readPauses.increment();
+    }
+  }
+
+  private void close(StreamConnection connection) {
+    connections.remove(connection);
+    if (!connection.isClosed()) {
+      connection.close();
+      closed.increment();
+    }
+  }
+
+  public long getAccepted() {
+    return accepted.sum();
+  }
+
+  public long getOpenConnections() {
+    return accepted.sum() - closed.sum();
+  }
+
+  /**
+   * Возвращает количество запросов в обработке: задач на этапе и незавершенных потоковых ответов.
+   *
+   * @return Количество запросов в обработке.
+   */
+  public long getInFlight() {
+    // завершенные читаются первыми, чтобы разность не стала отрицательной
+    long done = tasksFinished.sum();
+    long inFlight = tasksSubmitted.sum() - done;
+    for (StreamConnection connection : connections) {
+      inFlight += connection.getActiveStreams();
+    }
+    return inFlight;
+  }
+
+  /**
+   * Возвращает объем данных, поставленных в очереди записи соединений и еще не записанных.
+   *
+   * @return Количество байт.
+   */
+  public long getPendingBytes() {
+    long pending = 0;
+    for (StreamConnection connection : connections) {
+      pending += connection.getOutboundBytes();
+    }
+    return pending;
+  }
+
+  public long getAnswered() {
+    return answered.sum();
+  }
+
+  public long getRejectedWhileDraining() {
+    return rejectedWhileDraining.sum();
+  }
+
+  @Override
+  public String toString() {
+    return "TCPServer{"
+        + "accepted="
+        + accepted.sum()
+        + ", open="
+        + getOpenConnections()
+        + ", framesIn="
+        + framesIn.sum()
+        + ", framesOut="
+        + framesOut.sum()
+        + ", bytesIn="
+        + bytesIn.sum()
+        + ", bytesOut="
+        + bytesOut.sum()
+        + ", readPauses="
+        + readPauses.sum()
+        + ", streamsCancelled="
+        + streamsCancelled.sum()
+        + ", connectionsRejected="
+        + connectionsRejected.sum()
+        + ", idleClosed="
+        + idleClosed.sum()
+        + '}';
+  }
+}
@@ -1,37 +1,169 @@
 package server;
 
+import common.exceptions.ServerBusyException;
 import common.managers.CollectionManager;
 import common.managers.CommandManager;
-import common.network.ObjectDecoder;
-import common.network.ObjectEncoder;
+import common.network.BatchRequest;
+import common.network.Compression;
+import common.network.MessageAssembler;
+import common.network.MessageFragmenter;
 import common.network.Request;
 import common.network.Response;
+import common.network.ResponseWithCursor;
+import common.network.ResponseWithException;
+import common.network.ResponseWithLease;
+import common.network.codec.Codec;
+import common.network.codec.Codecs;
 import java.io.*;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
-import java.nio.channels.DatagramChannel;
-import java.nio.channels.SelectionKey;
-import java.nio.channels.Selector;
-import java.util.Iterator;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.util.Unbox;
+import server.network.BoundedStage;
+import server.network.BufferPool;
+import server.network.CompressionMetrics;
+import server.network.DatagramSender;
+import server.network.PooledBuffer;
+import server.network.ReceiveLoop;
+import server.network.ReplyCache;
+import server.network.RequestLog;
+import server.network.RequestMetrics;
+import server.network.RequestThrottle;
+import server.network.ResponseCache;
+import server.network.ResponseCompressor;
+import server.network.RingPipeline;
+import server.network.SubscriptionHub;
+import server.system.ExecutionMode;
+import server.system.OverloadPolicy;
+import server.system.ServerConfig;
 
 public class UDPServer {
-  private record RequestTask(Request request, InetSocketAddress clientAddress) {}
+  // идентификатор ответа старому клиенту, не поддерживающему фрагментацию
+  private static final long LEGACY_MESSAGE_ID = -1;
 
-  private record ResponseTask(Response response, InetSocketAddress clientAddress) {}
+  // получатель уведомлений подписки по адресу клиента
+  private record DatagramSink(DatagramSender sender, InetSocketAddress clientAddress)
+      implements SubscriptionHub.Sink {
+    @Override
+    public void send(ByteBuffer encoded) throws IOException {
+      for (ByteBuffer datagram :
+          MessageFragmenter.split(MessageFragmenter.NOTIFICATION_ID, encoded)) {
+        sender.send(datagram, clientAddress);
+      }
+    }
+
+    @Override
+    public boolean isOpen() {
+      return true;
+    }
+  }
+
+  /**
+   * Запрос на пути от приема датаграммы до отправки ответа. Заполняется этапами по очереди; в
+   * режиме {@link ExecutionMode#RING} используется повторно как элемент кольца.
+   */
+  private static final class Exchange {
+    private PooledBuffer buffer;
+    private InetSocketAddress clientAddress;
+    private ReceiveLoop loop;
+    private Request request;
+    private long messageId;
+    private Codec codec;
+    private boolean acceptsCompression;
+    private Response response;
+    // ключ и версия коллекции для кэша ответов на команды чтения
+    private ResponseCache.Key responseKey;
+    private long version;
+    // готовый ответ из кэша; response в этом случае не заполняется
+    private ByteBuffer cached;
+    // время приема датаграммы и окончания предыдущего этапа по System.nanoTime()
+    private long receivedAt;
+    private long stageEnd;
+    // суммарное ожидание в очередях этапов
+    private long queued;
+    // запрос попал в выборку журнала запросов
+    private boolean logged;
+
+    private Exchange reset(PooledBuffer buffer, InetSocketAddress clientAddress, ReceiveLoop loop) {
+      this.buffer = buffer;
+      this.clientAddress = clientAddress;
+      this.loop = loop;
+      this.request = null;
+      this.messageId = LEGACY_MESSAGE_ID;
+      this.codec = null;
+      this.acceptsCompression = false;
+      this.response = null;
+      this.responseKey = null;
+      this.version = 0;
+      this.cached = null;
+      this.receivedAt = System.nanoTime();
+      this.stageEnd = receivedAt;
+      this.queued = 0;
+      this.logged = false;
+      return this;
+    }
+
+    // чтобы элемент кольца не удерживал запрос и ответ до следующего круга
+    private void clear() {
+      reset(null, null, null);
+    }
+  }
 
   private final int BUFFER_SIZE = 65535;
   private final int SELECTOR_TIMEOUT = 100;
+  private final long FRAGMENT_TIMEOUT_MS = 10000;
+  private final int BUFFER_POOL_CAPACITY = 256;
+  private final long SCRATCH_BUFFER_TIMEOUT_MS = 100;
+  private final int MAX_QUEUED_DATAGRAMS = 16384;
+  private final long OVERLOAD_REPORT_INTERVAL_MS = 10000;
+  private final long RATE_LIMIT_IDLE_MS = 60000;
+  private final long DRAIN_POLL_MS = 10;
+  private final int MAX_PENDING_MESSAGES = 4096;
+  private final int MAX_PENDING_MESSAGES_PER_HOST = 64;
+  private final long MAX_PENDING_FRAGMENT_BYTES = 64L * 1024 * 1024;
   private final CommandManager commandManager;
   private final CollectionManager collectionManager;
+  private final ServerConfig config;
   private static final Logger logger = LogManager.getLogger();
   private final BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
   private final AtomicBoolean isRunning = new AtomicBoolean(true);
-  private final ReentrantLock selectorLock = new ReentrantLock();
+  // после остановки новые запросы отклоняются, а принятые дорабатываются
+  private volatile boolean isDraining;
+  private final CountDownLatch terminated = new CountDownLatch(1);
+  // принятые в обработку и завершенные запросы; разность - запросы в работе
+  private final LongAdder accepted = new LongAdder();
+  private final LongAdder finished = new LongAdder();
+  private final LongAdder answered = new LongAdder();
+  private final LongAdder rejectedWhileDraining = new LongAdder();
+  private final MessageAssembler assembler;
+  private final List<ReceiveLoop> receiveLoops = new ArrayList<>();
+  private final CompressionMetrics compressionMetrics = new CompressionMetrics();
+  private final RequestMetrics requestMetrics;
+  // у консольной команды stats и файла статистики свои окна пропускной способности
+  private final RequestMetrics.Window consoleStatsWindow;
+  private final RequestMetrics.Window fileStatsWindow;
+  private final RequestLog requestLog;
+  private final Logger requestLogger;
+  private final ResponseCompressor compressor;
+  private final ReplyCache replyCache;
+  private final ResponseCache responseCache;
+  private final RequestThrottle throttle;
+  private final SubscriptionHub subscriptions;
+  private TCPServer tcpServer;
 
   // чтение запросов
   private final ExecutorService readPool = Executors.newCachedThreadPool();
@@ -39,117 +171,919 @@ public class UDPServer {
   private final ForkJoinPool processPool = new ForkJoinPool();
   // отправка ответов
   private final ExecutorService sendPool = Executors.newCachedThreadPool();
+  // полный путь запроса в виртуальном потоке (ExecutionMode.VIRTUAL)
+  private final ExecutorService virtualPool =
+      Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("request-", 0).factory());
+
+  // ограниченные очереди перед пулами
+  private final BoundedStage decodeStage;
+  private final BoundedStage processStage;
+  private final BoundedStage sendStage;
+  private final BoundedStage requestStage;
+  // заранее закодированные ответы о перегрузке по названию кодека
+  private final Map<String, ByteBuffer> busyResponses = new HashMap<>();
+  // кольцевые конвейеры по номеру цикла приема (ExecutionMode.RING)
+  private final List<RingPipeline<Exchange>> rings = new ArrayList<>();
 
   public UDPServer(CommandManager commandManager, CollectionManager collectionManager) {
+    this(commandManager, collectionManager, new ServerConfig());
+  }
+
+  public UDPServer(
+      CommandManager commandManager, CollectionManager collectionManager, ServerConfig config) {
     this.commandManager = commandManager;
     this.collectionManager = collectionManager;
+    this.config = config;
+    this.replyCache = new ReplyCache(config.getReplyCacheSize());
+    this.responseCache =
+        new ResponseCache(config.getResponseCacheSize(), config.getResponseCacheBytes());
+    this.throttle =
+        new RequestThrottle(
+            config.getClientRate(),
+            config.getClientBurst(),
+            config.getUserRate(),
+            config.getUserBurst(),
+            RATE_LIMIT_IDLE_MS);
+    List<String> commandNames = new ArrayList<>(commandManager.getCommandList().keySet());
+    commandNames.add(BatchRequest.COMMAND_NAME);
+    this.requestMetrics = new RequestMetrics(commandNames);
+    this.assembler =
+        new MessageAssembler(
+            config.getMaxRequestSize(),
+            MAX_PENDING_MESSAGES,
+            MAX_PENDING_MESSAGES_PER_HOST,
+            MAX_PENDING_FRAGMENT_BYTES);
+    this.consoleStatsWindow = requestMetrics.newWindow();
+    this.fileStatsWindow = requestMetrics.newWindow();
+    this.requestLog = new RequestLog(config.getLogSampleRate());
+    this.requestLogger = requestLog.getLogger();
+    this.compressor = new ResponseCompressor(config.getCompressionThreshold(), compressionMetrics);
+    this.subscriptions =
+        new SubscriptionHub(collectionManager, compressor, config.getMaxSubscribers());
+
+    int capacity = config.getQueueCapacity();
+    OverloadPolicy policy = config.getOverloadPolicy();
+    this.decodeStage =
+        new BoundedStage("decode", readPool, config.getStageThreads(), capacity, policy);
+    this.processStage =
+        new BoundedStage("process", processPool, processPool.getParallelism(), capacity, policy);
+    this.sendStage = new BoundedStage("send", sendPool, config.getStageThreads(), capacity, policy);
+    this.requestStage =
+        new BoundedStage("request", virtualPool, config.getVirtualConcurrency(), capacity, policy);
+
+    for (Codec codec : List.of(Codecs.BINARY, Codecs.SERIALIZATION)) {
+      try {
+        ByteBuffer encoded = codec.encode(new ResponseWithException(new ServerBusyException()));
+        busyResponses.put(codec.getName(), encoded.asReadOnlyBuffer());
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
   }
 
   public void runServer(int port) throws IOException {
-    try (Selector selector = Selector.open();
-        DatagramChannel channel = DatagramChannel.open()) {
-      channel.configureBlocking(false);
-      channel.bind(new InetSocketAddress(port));
-      channel.register(selector, SelectionKey.OP_READ);
+    try {
+      serve(port);
+    } finally {
+      terminated.countDown();
+    }
+  }
 
-      logger.info("Сервер запущен на порту " + port);
+  private void serve(int port) throws IOException {
+    int loopCount = config.getReceiveLoops();
+    if (loopCount > 1 && !ReceiveLoop.isReusePortSupported()) {
+      logger.warn("SO_REUSEPORT не поддерживается, будет запущен один цикл приема.");
+      loopCount = 1;
+    }
 
-      ByteBuffer receiveBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+    try {
+      for (int i = 0; i < loopCount; i++) {
+        BufferPool bufferPool =
+            new BufferPool(BUFFER_SIZE, BUFFER_POOL_CAPACITY, config.isBufferLeakTracking());
+        receiveLoops.add(
+            new ReceiveLoop(
+                i, port, loopCount > 1, bufferPool, MAX_QUEUED_DATAGRAMS, this::handleData));
+      }
+    } catch (IOException e) {
+      receiveLoops.forEach(ReceiveLoop::stop);
+      throw e;
+    }
 
-      while (isRunning.get()) {
-        if (isConsoleInput()) {
-          shutdown();
-          return;
+    if (config.getTcpPort() > 0) {
+      try {
+        // TCP-транспорт выполняет запросы на том же этапе, что и UDP
+        BoundedStage stage =
+            config.getExecutionMode() == ExecutionMode.VIRTUAL ? requestStage : processStage;
+        tcpServer =
+            new TCPServer(
+                config,
+                commandManager,
+                collectionManager,
+                stage,
+                compressor,
+                throttle,
+                responseCache,
+                subscriptions,
+                requestMetrics,
+                requestLog);
+      } catch (IOException e) {
+        receiveLoops.forEach(ReceiveLoop::stop);
+        throw e;
+      }
+    }
+
+    if (config.getExecutionMode() == ExecutionMode.RING) {
+      for (ReceiveLoop loop : receiveLoops) {
+        RingPipeline<Exchange> ring = createRing("ring-" + loop.getId());
+        ring.start();
+        rings.add(ring);
+      }
+    }
+
+    List<Thread> threads = new ArrayList<>();
+    for (ReceiveLoop loop : receiveLoops) {
+      Thread thread = new Thread(loop, "receive-loop-" + loop.getId());
+      thread.start();
+      threads.add(thread);
+    }
+    if (tcpServer != null) {
+      Thread thread = new Thread(tcpServer, "tcp-loop");
+      thread.start();
+      threads.add(thread);
+      logger.info("TCP-транспорт запущен на порту " + config.getTcpPort());
+    }
+
+    logger.info(
+        "Сервер запущен на порту "
+            + port
+            + ", циклов приема: "
+            + loopCount
+            + ", режим выполнения: "
+            + config.getExecutionMode()
+            + ", политика перегрузки: "
+            + config.getOverloadPolicy()
+            + ", емкость очередей: "
+            + (config.getExecutionMode() == ExecutionMode.RING
+                ? config.getRingSize()
+                : config.getQueueCapacity()));
+
+    long lastEviction = System.currentTimeMillis();
+    long lastNotification = System.currentTimeMillis();
+    long lastOverloadReport = System.currentTimeMillis();
+    long lastStatsDump = System.currentTimeMillis();
+    long lastShed = 0;
+    long lastThrottled = 0;
+
+    while (isRunning.get()) {
+      if (isConsoleInput()) {
+        break;
+      }
+
+      if (System.currentTimeMillis() - lastEviction > FRAGMENT_TIMEOUT_MS) {
+        int evicted = assembler.evictExpired(FRAGMENT_TIMEOUT_MS);
+        if (evicted > 0) {
+          logger.warn("Удалено незавершенных сообщений: " + evicted);
         }
+        throttle.evictIdle();
+        lastEviction = System.currentTimeMillis();
+      }
+
+      if (System.currentTimeMillis() - lastNotification >= config.getNotifyIntervalMillis()) {
+        subscriptions.tick();
+        lastNotification = System.currentTimeMillis();
+      }
 
-        if (selector.select(SELECTOR_TIMEOUT) == 0) continue;
+      if (System.currentTimeMillis() - lastOverloadReport > OVERLOAD_REPORT_INTERVAL_MS) {
+        long shed = getShedCount();
+        if (shed > lastShed) {
+          logger.warn("Сервер перегружен, отброшено запросов: " + (shed - lastShed));
+          getStages().forEach(stage -> logger.warn("Очередь этапа: " + stage));
+          rings.forEach(ring -> logger.warn("Кольцевой конвейер: " + ring));
+          lastShed = shed;
+        }
+        long throttled = throttle.getThrottled();
+        if (throttled > lastThrottled) {
+          logger.warn(
+              "Отклонено запросов сверх ограничения частоты: " + (throttled - lastThrottled));
+          logger.warn("Ограничение частоты: " + throttle);
+          lastThrottled = throttled;
+        }
+        lastOverloadReport = System.currentTimeMillis();
+      }
 
-        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
-        while (keys.hasNext()) {
-          SelectionKey key = keys.next();
-          keys.remove();
+      if (config.getStatsFile() != null
+          && System.currentTimeMillis() - lastStatsDump >= config.getStatsIntervalMillis()) {
+        dumpStats();
+        lastStatsDump = System.currentTimeMillis();
+      }
 
-          try {
-            if (key.isReadable()) {
-              receiveBuffer.clear();
-              DatagramChannel clientChannel = (DatagramChannel) key.channel();
-              InetSocketAddress clientAddress =
-                  (InetSocketAddress) clientChannel.receive(receiveBuffer);
+      try {
+        Thread.sleep(Math.min(SELECTOR_TIMEOUT, config.getNotifyIntervalMillis()));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+    }
+    shutdown();
 
-              if (clientAddress != null) {
-                receiveBuffer.flip();
-                byte[] data = new byte[receiveBuffer.remaining()];
-                receiveBuffer.get(data);
-                receiveBuffer.clear();
+    for (Thread thread : threads) {
+      try {
+        thread.join(SELECTOR_TIMEOUT * 10L);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
 
-                readPool.execute(() -> handleData(data, clientAddress, selector));
+  /**
+   * Останавливает сервер, запущенный методом {@link #runServer(int)}, из другого потока. Сервер
+   * перестает принимать запросы и дорабатывает принятые, но не дольше {@link
+   * ServerConfig#getShutdownTimeoutMillis()}.
+   */
+  public void stop() {
+    isRunning.set(false);
+  }
+
+  /**
+   * Ожидает, пока метод {@link #runServer(int)} завершится.
+   *
+   * @param timeoutMillis наибольшее время ожидания в миллисекундах.
+   * @return {@code true} - если сервер завершил работу за это время.
+   * @throws InterruptedException если ожидающий поток прерван.
+   */
+  public boolean awaitTermination(long timeoutMillis) throws InterruptedException {
+    return terminated.await(timeoutMillis, TimeUnit.MILLISECONDS);
+  }
+
+  private void handleData(PooledBuffer buffer, InetSocketAddress clientAddress, ReceiveLoop loop) {
+    if (isDraining) {
+      rejectedWhileDraining.increment();
+      rejectDatagram(buffer.buffer(), clientAddress, loop);
+      buffer.release();
+      return;
+    }
+    // клиент, превысивший ограничение, не занимает место в очередях этапов; отвечать на каждую
+    // такую датаграмму - лишняя работа под нагрузкой и отражение трафика на поддельный адрес
+    if (!throttle.allowAddress(clientAddress)) {
+      if (throttle.allowBusyReply(clientAddress)) {
+        rejectDatagram(buffer.buffer(), clientAddress, loop);
+      }
+      buffer.release();
+      loop.recordDrop();
+      return;
+    }
+
+    if (config.getExecutionMode() == ExecutionMode.RING) {
+      publishToRing(buffer, clientAddress, loop);
+      return;
+    }
+
+    Exchange exchange = new Exchange().reset(buffer, clientAddress, loop);
+    accepted.increment();
+    Runnable drop =
+        () -> {
+          finish(exchange);
+          loop.recordDrop();
+        };
+    Runnable reject =
+        () -> {
+          rejectDatagram(buffer.buffer(), clientAddress, loop);
+          drop.run();
+        };
+
+    if (config.getExecutionMode() == ExecutionMode.VIRTUAL) {
+      requestStage.submit(new BoundedStage.Task(() -> handleRequest(exchange), drop, reject));
+    } else {
+      decodeStage.submit(new BoundedStage.Task(() -> dispatchRequest(exchange), drop, reject));
+    }
+  }
+
+  // ExecutionMode.VIRTUAL: все этапы последовательно в одном виртуальном потоке
+  private void handleRequest(Exchange exchange) {
+    if (decodeRequest(exchange) && processRequest(exchange)) {
+      sendResponse(exchange);
+    }
+  }
+
+  // ExecutionMode.PLATFORM: каждый этап передается в свой пул
+  private void dispatchRequest(Exchange exchange) {
+    if (!decodeRequest(exchange)) {
+      return;
+    }
+    Runnable release = () -> finish(exchange);
+    processStage.submit(
+        new BoundedStage.Task(
+            () -> {
+              if (processRequest(exchange)) {
+                // готовый ответ дешевле отправить, чем заменять ответом о перегрузке
+                sendStage.submit(
+                    new BoundedStage.Task(() -> sendResponse(exchange), release, release));
               }
-            }
-          } catch (IOException e) {
-            logger.error("Возникла ошибка на сервере: " + e.getMessage());
-          }
+            },
+            release,
+            () -> {
+              sendBusy(exchange.clientAddress, exchange.messageId, exchange.codec, exchange.loop);
+              release.run();
+            }));
+  }
+
+  // ExecutionMode.RING: вызывается только потоком цикла приема - единственным производителем кольца
+  private void publishToRing(
+      PooledBuffer buffer, InetSocketAddress clientAddress, ReceiveLoop loop) {
+    RingPipeline<Exchange> ring = rings.get(loop.getId());
+    long sequence =
+        config.getOverloadPolicy() == OverloadPolicy.BLOCK ? ring.claim() : ring.tryClaim();
+    if (sequence < 0) {
+      // опубликованный элемент вытеснить нельзя, поэтому DROP_OLDEST отбрасывает новую датаграмму
+      if (config.getOverloadPolicy() == OverloadPolicy.REJECT) {
+        rejectDatagram(buffer.buffer(), clientAddress, loop);
+      }
+      buffer.release();
+      loop.recordDrop();
+      return;
+    }
+    ring.get(sequence).reset(buffer, clientAddress, loop);
+    accepted.increment();
+    ring.publish(sequence);
+  }
+
+  private RingPipeline<Exchange> createRing(String name) {
+    int workers = config.getRingWorkers();
+    return new RingPipeline<>(
+        name,
+        config.getRingSize(),
+        Exchange::new,
+        List.of(
+            new RingPipeline.Stage<>("decode", 1, this::decodeRequest),
+            new RingPipeline.Stage<>("process", workers, this::processRequest),
+            new RingPipeline.Stage<>(
+                "send",
+                workers,
+                exchange -> {
+                  sendResponse(exchange);
+                  exchange.clear();
+                  return true;
+                })),
+        config.getWaitStrategy());
+  }
+
+  // отвечает на запрос, не принятый к декодированию, если для этого не нужно собирать фрагменты
+  // или распаковывать сообщение
+  private void rejectDatagram(
+      ByteBuffer datagram, InetSocketAddress clientAddress, ReceiveLoop loop) {
+    int payloadStart = datagram.position();
+    long messageId = LEGACY_MESSAGE_ID;
+    if (MessageFragmenter.isFragment(datagram)) {
+      if (datagram.getInt(payloadStart + MessageFragmenter.HEADER_SIZE - Integer.BYTES) != 1) {
+        return;
+      }
+      messageId = datagram.getLong(payloadStart + 1);
+      payloadStart += MessageFragmenter.HEADER_SIZE;
+    }
+
+    ByteBuffer payload = datagram.duplicate().position(Math.min(payloadStart, datagram.limit()));
+    if (Compression.isEnvelope(payload)) {
+      if ((payload.get(payload.position() + 1) & Compression.FLAG_COMPRESSED) != 0) {
+        return;
+      }
+      payload.position(payload.position() + 2);
+    }
+    try {
+      sendBusy(clientAddress, messageId, Codecs.detect(payload), loop);
+    } catch (IOException ignored) {
+      // неизвестный формат, отвечать нечем
+    }
+  }
+
+  private void sendBusy(
+      InetSocketAddress clientAddress, long messageId, Codec codec, ReceiveLoop loop) {
+    ByteBuffer encoded = busyResponses.get(codec.getName()).duplicate();
+    try {
+      if (messageId == LEGACY_MESSAGE_ID) {
+        loop.getSender().send(encoded, clientAddress);
+      } else {
+        for (ByteBuffer datagram : MessageFragmenter.split(messageId, encoded)) {
+          loop.getSender().send(datagram, clientAddress);
         }
       }
+    } catch (IOException | RuntimeException e) {
+      logger.error("Не удалось отправить ответ о перегрузке: " + e.getMessage());
     }
   }
 
-  private void handleData(byte[] data, InetSocketAddress clientAddress, Selector selector) {
+  // false - запрос не получен целиком или некорректен; буфер уже возвращен в пул
+  private boolean decodeRequest(Exchange exchange) {
+    long start = startStage(exchange);
     try {
-      Request request = (Request) ObjectDecoder.decodeObject(ByteBuffer.wrap(data));
-      logger.info("Получен запрос с командой " + request.getCommandName());
+      ByteBuffer datagram = exchange.buffer.buffer();
+      ByteBuffer payload = datagram;
+
+      if (MessageFragmenter.isFragment(datagram)) {
+        MessageAssembler.Message message = assembler.accept(exchange.clientAddress, datagram);
+        if (message == null) {
+          finish(exchange);
+          return false;
+        }
+        payload = message.payload();
+        exchange.messageId = message.messageId();
+      }
+
+      if (Compression.isEnvelope(payload)) {
+        Compression.Payload unwrapped = Compression.unwrap(payload, config.getMaxRequestSize());
+        payload = unwrapped.payload();
+        exchange.acceptsCompression = unwrapped.acceptsCompression();
+      }
 
-      processPool.execute(() -> processRequest(new RequestTask(request, clientAddress)));
-    } catch (IOException | ClassNotFoundException e) {
+      exchange.codec = Codecs.detect(payload);
+      if (!(exchange.codec.decode(payload) instanceof Request request)) {
+        throw new IOException("Получено сообщение, не являющееся запросом.");
+      }
+      exchange.stageEnd = System.nanoTime();
+      requestMetrics.recordRequest(request.getCommandName());
+      requestMetrics.record(
+          request.getCommandName(), RequestMetrics.Stage.DECODE, exchange.stageEnd - start);
+      exchange.logged = requestLog.sample();
+      if (exchange.logged) {
+        requestLogger.info("Получен запрос с командой {}", request.getCommandName());
+      }
+      if (!throttle.allowUser(request)) {
+        sendBusy(exchange.clientAddress, exchange.messageId, exchange.codec, exchange.loop);
+        finish(exchange);
+        return false;
+      }
+      exchange.request = request;
+      return true;
+    } catch (IOException | RuntimeException e) {
+      finish(exchange);
+      exchange.loop.recordDrop();
       logger.error("Возникла ошибка при обработке данных на сервере: " + e.getMessage());
+      return false;
+    }
+  }
+
+  // false - ответ отправлять не нужно; буфер уже возвращен в пул
+  private boolean processRequest(Exchange exchange) {
+    startStage(exchange);
+    String commandName = exchange.request.getCommandName();
+    ReplyCache.Key key = null;
+    try {
+      if (isResponseCacheable(exchange.request)) {
+        exchange.responseKey =
+            ResponseCache.Key.of(exchange.request, exchange.codec, exchange.acceptsCompression);
+        exchange.version = collectionManager.getVersion();
+        ResponseCache.Entry entry = responseCache.get(exchange.responseKey, exchange.version);
+        if (entry != null) {
+          if (exchange.logged) {
+            requestLogger.info("Ответ на команду {} взят из кэша", commandName);
+          }
+          exchange.cached = entry.encoded();
+          return true;
+        }
+      }
+
+      if (isCacheable(exchange)) {
+        ReplyCache.Key candidate = new ReplyCache.Key(exchange.clientAddress, exchange.messageId);
+        ReplyCache.Lookup lookup = replyCache.begin(candidate);
+        switch (lookup.status()) {
+          case IN_PROGRESS -> {
+            if (exchange.logged) {
+              requestLogger.info(
+                  "Повтор запроса {} отброшен: запрос еще выполняется",
+                  Unbox.box(exchange.messageId));
+            }
+            finish(exchange);
+            return false;
+          }
+          case DONE -> {
+            if (exchange.logged) {
+              requestLogger.info(
+                  "Ответ на повтор запроса {} взят из кэша", Unbox.box(exchange.messageId));
+            }
+            exchange.response = lookup.response();
+            return true;
+          }
+          case NEW -> key = candidate;
+        }
+      }
+
+      if (exchange.logged) {
+        requestLogger.info("Обработка запроса с командой {}", commandName);
+      }
+      long start = System.nanoTime();
+      exchange.response = commandManager.executeRequest(exchange.request);
+      requestMetrics.record(commandName, RequestMetrics.Stage.EXECUTE, System.nanoTime() - start);
+      if (exchange.response instanceof ResponseWithException) {
+        requestMetrics.recordError(commandName);
+      }
+      if (exchange.response instanceof ResponseWithLease lease) {
+        exchange.response =
+            subscriptions.subscribe(
+                lease,
+                exchange.clientAddress,
+                new DatagramSink(exchange.loop.getSender(), exchange.clientAddress),
+                exchange.codec,
+                exchange.acceptsCompression);
+      }
+      if (key != null) {
+        replyCache.complete(key, exchange.response);
+      }
+      if (exchange.responseKey != null && collectionManager.getVersion() != exchange.version) {
+        // коллекция изменилась во время выполнения, ответ может не соответствовать версии
+        exchange.responseKey = null;
+      }
+      return true;
+    } catch (RuntimeException e) {
+      if (key != null) {
+        replyCache.abort(key);
+      }
+      finish(exchange);
+      requestMetrics.recordError(commandName);
+      logger.error("Возникла ошибка при выполнении запроса: " + e.getMessage());
+      return false;
+    } finally {
+      exchange.stageEnd = System.nanoTime();
     }
   }
 
-  private void processRequest(RequestTask task) {
-    logger.info("Обработка запроса с командой " + task.request().getCommandName());
-    Response response = commandManager.executeRequest(task.request());
-    sendPool.execute(() -> sendResponse(new ResponseTask(response, task.clientAddress())));
+  // повтор команды, только читающей данные, дешевле выполнить заново, чем хранить ответ
+  private boolean isCacheable(Exchange exchange) {
+    if (exchange.messageId == LEGACY_MESSAGE_ID) {
+      return false;
+    }
+    return !commandManager.isReadOnly(exchange.request);
   }
 
-  private void sendResponse(ResponseTask task) {
-    try (DatagramChannel channel = DatagramChannel.open()) {
-      ByteBuffer sendBuffer = ObjectEncoder.encodeObject(task.response());
-      channel.send(sendBuffer, task.clientAddress());
-      logger.info("Сервер отправил ответ клиенту: " + task.response().getMessage());
-    } catch (IOException e) {
+  // ответ команды чтения одинаков для всех авторизованных клиентов при одной версии коллекции
+  private boolean isResponseCacheable(Request request) {
+    return responseCache.isEnabled()
+        && !(request instanceof BatchRequest)
+        && request.getAuth() != null
+        && commandManager.isReadOnly(request);
+  }
+
+  private void sendResponse(Exchange exchange) {
+    long start = startStage(exchange);
+    String commandName = exchange.request.getCommandName();
+    PooledBuffer scratch = null;
+    DatagramSender sender = exchange.loop.getSender();
+    try {
+      ByteBuffer buffer = exchange.buffer.buffer();
+      ByteBuffer encoded;
+      boolean inPlace;
+      if (exchange.cached != null) {
+        encoded = exchange.cached;
+        inPlace = false;
+      } else {
+        // ответ кодируется в буфер запроса сразу после места под заголовок фрагмента
+        buffer.clear().position(MessageFragmenter.HEADER_SIZE);
+        ByteBuffer body = buffer.slice();
+        encoded =
+            compressor.compress(
+                commandName,
+                exchange.codec.encode(exchange.response, body),
+                exchange.codec,
+                exchange.acceptsCompression);
+        inPlace = isSameMemory(encoded, body);
+        long encodeEnd = System.nanoTime();
+        requestMetrics.record(commandName, RequestMetrics.Stage.ENCODE, encodeEnd - start);
+        start = encodeEnd;
+        if (exchange.responseKey != null) {
+          // копия сохраняется до того, как заголовки фрагментов перезапишут буфер
+          responseCache.put(
+              exchange.responseKey,
+              exchange.version,
+              encoded,
+              exchange.response instanceof ResponseWithCursor page ? page.getNextCursor() : null);
+        }
+      }
+
+      if (exchange.messageId == LEGACY_MESSAGE_ID) {
+        sender.send(encoded, exchange.clientAddress);
+      } else {
+        int count = MessageFragmenter.checkedFragmentCount(encoded.remaining());
+        if (count == 1 && inPlace) {
+          buffer.clear();
+          MessageFragmenter.writeHeader(buffer, exchange.messageId, 0, 1);
+          buffer.position(0).limit(MessageFragmenter.HEADER_SIZE + encoded.remaining());
+          sender.send(buffer, exchange.clientAddress);
+        } else {
+          ByteBuffer datagram = buffer;
+          if (inPlace) {
+            scratch = exchange.loop.getBufferPool().acquire(SCRATCH_BUFFER_TIMEOUT_MS);
+            if (scratch == null) {
+              throw new IOException("Нет свободного буфера для отправки ответа.");
+            }
+            datagram = scratch.buffer();
+          }
+          for (int index = 0; index < count; index++) {
+            MessageFragmenter.writeFragment(exchange.messageId, encoded, index, count, datagram);
+            sender.send(datagram, exchange.clientAddress);
+          }
+        }
+      }
+      long end = System.nanoTime();
+      requestMetrics.record(commandName, RequestMetrics.Stage.SEND, end - start);
+      requestMetrics.record(commandName, RequestMetrics.Stage.QUEUE, exchange.queued);
+      requestMetrics.record(commandName, RequestMetrics.Stage.TOTAL, end - exchange.receivedAt);
+      answered.increment();
+      if (exchange.logged && exchange.cached != null) {
+        requestLogger.info("Сервер отправил клиенту ответ из кэша");
+      } else if (exchange.logged) {
+        requestLogger.info("Сервер отправил ответ клиенту: {}", exchange.response.getMessage());
+      }
+    } catch (IOException | RuntimeException e) {
+      requestMetrics.recordError(commandName);
       logger.error("Возникла ошибка при отправке ответа клиенту: " + e.getMessage());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      requestMetrics.recordError(commandName);
+    } finally {
+      if (scratch != null) {
+        scratch.release();
+      }
+      finish(exchange);
     }
   }
 
+  // завершает запрос: возвращает буфер в пул; вызывается ровно один раз на каждый принятый запрос
+  private void finish(Exchange exchange) {
+    exchange.buffer.release();
+    finished.increment();
+  }
+
+  // учитывает ожидание запроса в очереди перед этапом; возвращает время начала этапа
+  private static long startStage(Exchange exchange) {
+    long now = System.nanoTime();
+    exchange.queued += now - exchange.stageEnd;
+    return now;
+  }
+
+  public CompressionMetrics getCompressionMetrics() {
+    return compressionMetrics;
+  }
+
+  public RequestMetrics getRequestMetrics() {
+    return requestMetrics;
+  }
+
+  public RequestLog getRequestLog() {
+    return requestLog;
+  }
+
+  public ReplyCache getReplyCache() {
+    return replyCache;
+  }
+
+  public ResponseCache getResponseCache() {
+    return responseCache;
+  }
+
+  public SubscriptionHub getSubscriptions() {
+    return subscriptions;
+  }
+
+  public RequestThrottle getThrottle() {
+    return throttle;
+  }
+
+  /**
+   * Возвращает этапы обработки запросов, используемые в текущем режиме выполнения.
+   *
+   * @return Этапы обработки запросов.
+   */
+  public List<BoundedStage> getStages() {
+    return switch (config.getExecutionMode()) {
+      case VIRTUAL -> List.of(requestStage);
+      case PLATFORM -> List.of(decodeStage, processStage, sendStage);
+      case RING -> List.of();
+    };
+  }
+
+  /**
+   * Возвращает кольцевые конвейеры циклов приема в режиме {@link ExecutionMode#RING}.
+   *
+   * @return Кольцевые конвейеры или пустой список в других режимах.
+   */
+  public List<RingPipeline<?>> getRings() {
+    return List.copyOf(rings);
+  }
+
+  private long getShedCount() {
+    long shed = 0;
+    for (BoundedStage stage : getStages()) {
+      shed += stage.getRejected() + stage.getDropped();
+    }
+    for (RingPipeline<?> ring : rings) {
+      shed += ring.getRejected();
+    }
+    return shed;
+  }
+
+  private static boolean isSameMemory(ByteBuffer encoded, ByteBuffer target) {
+    // кодеки при нехватке места переходят на буфер в куче
+    if (target.isDirect()) {
+      return encoded.isDirect();
+    }
+    return encoded.hasArray() && encoded.array() == target.array();
+  }
+
   private boolean isConsoleInput() throws IOException {
     if (System.in.available() > 0) {
-      String commandName = in.readLine();
-      if (commandName == null) {
-        commandName = "shutdown";
+      String line = in.readLine();
+      if (line == null) {
+        line = "shutdown";
       }
-      switch (commandName) {
+      String[] tokens = line.trim().split("\\s+", 2);
+      String argument = tokens.length > 1 ? tokens[1] : null;
+      switch (tokens[0]) {
         case "shutdown" -> {
           logger.warn("Введена команда 'shutdown'.");
           System.out.println("Завершение работы сервера...");
           logger.info("Сервер завершил свою работу.");
           return true;
         }
+        case "stats" -> System.out.println(requestMetrics.report(consoleStatsWindow));
+        case "loglevel" -> setLogLevel(argument);
+        case "logsample" -> setLogSampleRate(argument);
         case "" -> {}
-        default -> System.out.println("Неизвестное имя команды. Доступна только команда shutdown.");
+        default ->
+            System.out.println(
+                "Неизвестное имя команды. Доступны команды stats, loglevel, logsample и shutdown.");
       }
     }
     return false;
   }
 
+  private void setLogLevel(String argument) {
+    if (argument != null) {
+      Level level = Level.toLevel(argument, null);
+      if (level == null) {
+        System.out.println("Неизвестный уровень журнала: " + argument);
+        return;
+      }
+      requestLog.setLevel(level);
+      logger.warn("Уровень журнала запросов изменен на {}", level);
+    }
+    System.out.println("Уровень журнала запросов: " + requestLog.getLevel());
+  }
+
+  private void setLogSampleRate(String argument) {
+    if (argument != null) {
+      try {
+        requestLog.setSampleRate(Integer.parseInt(argument));
+        logger.warn("Частота выборки журнала запросов изменена на {}", argument);
+      } catch (IllegalArgumentException e) {
+        System.out.println("Частота выборки должна быть положительным целым числом.");
+        return;
+      }
+    }
+    System.out.println(
+        "В журнал запросов записывается один запрос из " + requestLog.getSampleRate());
+  }
+
   private void shutdown() {
     isRunning.set(false);
+    drain();
 
     shutdownPool(readPool, "ReadPool");
     shutdownPool(processPool, "ProcessPool");
     shutdownPool(sendPool, "SendPool");
+    shutdownPool(virtualPool, "VirtualPool");
 
+    for (ReceiveLoop loop : receiveLoops) {
+      loop.stop();
+      logger.info("Статистика цикла приема: " + loop);
+    }
+    for (RingPipeline<Exchange> ring : rings) {
+      ring.stop();
+      logger.info("Статистика кольцевого конвейера: " + ring);
+    }
+    if (tcpServer != null) {
+      tcpServer.stop();
+      logger.info("Статистика TCP-транспорта: " + tcpServer);
+    }
+    getStages().forEach(stage -> logger.info("Статистика очереди этапа: " + stage));
+    logger.info("Статистика сжатия ответов: " + compressionMetrics);
+    logger.info("Статистика кэша ответов: " + replyCache);
+    logger.info("Статистика кэша ответов на команды чтения: " + responseCache);
+    logger.info("Статистика ограничения частоты: " + throttle);
+    logger.info("Статистика подписок: " + subscriptions);
+    logger.info("Журнал запросов: " + requestLog);
+    logger.info(requestMetrics.report(requestMetrics.newWindow()));
+    if (config.getStatsFile() != null) {
+      dumpStats();
+    }
     logger.info("Сервер завершил работу.");
   }
 
+  // ждет, пока принятые запросы будут обработаны, а ответы отправлены
+  private void drain() {
+    isDraining = true;
+    if (tcpServer != null) {
+      tcpServer.drain();
+    }
+    long started = System.nanoTime();
+    long deadline = started + TimeUnit.MILLISECONDS.toNanos(config.getShutdownTimeoutMillis());
+    long inFlight = getInFlight();
+    long answeredBefore = getAnswered();
+    logger.info("Прием запросов остановлен, запросов в обработке: {}", Unbox.box(inFlight));
+
+    while (!isDrained() && System.nanoTime() < deadline) {
+      try {
+        Thread.sleep(DRAIN_POLL_MS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+    }
+
+    long abandoned = getInFlight();
+    long unsent = getUnsentDatagrams();
+    long unsentBytes = tcpServer != null ? tcpServer.getPendingBytes() : 0;
+    String message =
+        "Обработка запросов остановлена за "
+            + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started)
+            + " мс: было в обработке "
+            + inFlight
+            + ", отправлено ответов "
+            + (getAnswered() - answeredBefore)
+            + ", брошено запросов "
+            + abandoned
+            + ", отклонено новых "
+            + getRejectedWhileDraining()
+            + ", не отправлено датаграмм "
+            + unsent
+            + " и байт TCP "
+            + unsentBytes;
+    if (abandoned > 0 || unsent > 0 || unsentBytes > 0) {
+      logger.warn(message);
+    } else {
+      logger.info(message);
+    }
+  }
+
+  private boolean isDrained() {
+    if (getInFlight() > 0 || getUnsentDatagrams() > 0) {
+      return false;
+    }
+    return tcpServer == null || tcpServer.getPendingBytes() == 0;
+  }
+
+  private long getUnsentDatagrams() {
+    long unsent = 0;
+    for (ReceiveLoop loop : receiveLoops) {
+      unsent += loop.getSender().getQueueSize();
+    }
+    return unsent;
+  }
+
+  /**
+   * Возвращает количество запросов, принятых в обработку и еще не завершенных, по UDP и TCP.
+   *
+   * @return Количество запросов в обработке.
+   */
+  public long getInFlight() {
+    // завершенные читаются первыми, чтобы разность не стала отрицательной
+    long done = finished.sum();
+    long inFlight = accepted.sum() - done;
+    return inFlight + (tcpServer != null ? tcpServer.getInFlight() : 0);
+  }
+
+  /**
+   * Возвращает количество отправленных ответов на запросы по UDP и TCP.
+   *
+   * @return Количество ответов.
+   */
+  public long getAnswered() {
+    return answered.sum() + (tcpServer != null ? tcpServer.getAnswered() : 0);
+  }
+
+  /**
+   * Возвращает количество запросов, отклоненных после начала остановки сервера.
+   *
+   * @return Количество отклоненных запросов.
+   */
+  public long getRejectedWhileDraining() {
+    return rejectedWhileDraining.sum()
+        + (tcpServer != null ? tcpServer.getRejectedWhileDraining() : 0);
+  }
+
+  // дописывает отчет в конец файла, чтобы по нему можно было проследить изменения
+  private void dumpStats() {
+    String report =
+        LocalDateTime.now() + " " + requestMetrics.report(fileStatsWindow) + System.lineSeparator();
+    try {
+      Files.writeString(
+          Path.of(config.getStatsFile()),
+          report,
+          StandardCharsets.UTF_8,
+          StandardOpenOption.CREATE,
+          StandardOpenOption.APPEND);
+    } catch (IOException | RuntimeException e) {
+      logger.error("Не удалось записать статистику запросов в файл: " + e.getMessage());
+    }
+  }
+
   private void shutdownPool(ExecutorService pool, String poolName) {
     pool.shutdown();
     try {
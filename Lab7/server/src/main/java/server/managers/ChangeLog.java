@@ -0,0 +1,139 @@
+package server.managers;
+
+import common.data.Ticket;
+import common.managers.CollectionChanges;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Ограниченный журнал изменений коллекции.
+ *
+ * <p>Каждое изменение получает следующую версию коллекции и хранит id измененного элемента: что
+ * именно изменилось (добавление, изменение или удаление), определяется по текущему состоянию
+ * коллекции при чтении журнала. Журнал хранит не больше {@code capacity} последних изменений;
+ * клиент, отставший сильнее, получает всю коллекцию. Изменение записывается после того, как оно
+ * применено к коллекции.
+ *
+ * @author Alvas
+ * @since 3.0
+ */
+public class ChangeLog {
+  private final long epoch = System.currentTimeMillis();
+  private final long[] versions;
+  private final int[] ids;
+  // индекс самой старой записи и количество записей
+  private int head;
+  private int size;
+  // все изменения после этой версии есть в журнале
+  private long horizon;
+  private volatile long version;
+
+  public ChangeLog(int capacity) {
+    this.versions = new long[capacity];
+    this.ids = new int[capacity];
+  }
+
+  /**
+   * Записывает изменение элемента.
+   *
+   * @param id id добавленного, измененного или удаленного элемента.
+   * @return Новая версия коллекции.
+   */
+  public synchronized long record(int id) {
+    if (size == versions.length) {
+      horizon = versions[head];
+      head = (head + 1) % versions.length;
+      size--;
+    }
+    int tail = (head + size) % versions.length;
+    versions[tail] = version + 1;
+    ids[tail] = id;
+    size++;
+    version++;
+    return version;
+  }
+
+  /**
+   * Записывает изменение, затронувшее неизвестные элементы: все клиенты получат всю коллекцию.
+   *
+   * @return Новая версия коллекции.
+   */
+  public synchronized long recordUnknown() {
+    version++;
+    horizon = version;
+    head = 0;
+    size = 0;
+    return version;
+  }
+
+  public long getVersion() {
+    return version;
+  }
+
+  public long getEpoch() {
+    return epoch;
+  }
+
+  /**
+   * Возвращает изменения после версии клиента.
+   *
+   * <p>Версия читается до текущего состояния элементов, поэтому изменения могут содержать и более
+   * поздние изменения; повторное применение изменений к копии ничего не меняет.
+   *
+   * @param epoch идентификатор журнала, от которого получена версия клиента.
+   * @param since версия копии клиента.
+   * @param tickets текущие элементы коллекции по id.
+   * @return Изменения или вся коллекция.
+   */
+  public CollectionChanges changesSince(long epoch, long since, Map<Integer, Ticket> tickets) {
+    long current;
+    Set<Integer> changed = null;
+    synchronized (this) {
+      current = version;
+      if (epoch == this.epoch && since >= horizon && since <= current) {
+        changed = new LinkedHashSet<>();
+        for (int i = 0; i < size; i++) {
+          int index = (head + i) % versions.length;
+          if (versions[index] > since) {
+            changed.add(ids[index]);
+          }
+        }
+      }
+    }
+
+    if (changed == null) {
+      return new CollectionChanges(
+          this.epoch, current, true, new ArrayList<>(tickets.values()), List.of());
+    }
+    List<Ticket> updated = new ArrayList<>();
+    List<Integer> removed = new ArrayList<>();
+    for (int id : changed) {
+      Ticket ticket = tickets.get(id);
+      if (ticket != null) {
+        updated.add(ticket);
+      } else {
+        removed.add(id);
+      }
+    }
+    return new CollectionChanges(this.epoch, current, false, updated, removed);
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "ChangeLog{"
+        + "epoch="
+        + epoch
+        + ", version="
+        + version
+        + ", horizon="
+        + horizon
+        + ", size="
+        + size
+        + ", capacity="
+        + versions.length
+        + '}';
+  }
+}
@@ -0,0 +1,231 @@
+package server.managers;
+
+import common.data.*;
+import common.exceptions.EmptyCollectionException;
+import common.exceptions.RemoveException;
+import common.exceptions.WrongArgumentException;
+import common.managers.CollectionChanges;
+import common.managers.CollectionManager;
+import common.utils.DateTimeUtils;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.util.Unbox;
+
+/**
+ * Менеджер коллекции, хранящий билеты только в памяти.
+ *
+ * <p>Повторяет поведение {@link SqlCollectionManager} (проверки владельца, сообщения об ошибках),
+ * но не обращается к базе данных. Используется в бенчмарках и нагрузочных тестах, где PostgreSQL
+ * недоступен.
+ *
+ * @author Alvas
+ * @since 3.0
+ */
+public class InMemoryCollectionManager implements CollectionManager {
+  private final Deque<Ticket> collection = new ConcurrentLinkedDeque<>();
+  // индекс по id для постраничного вывода и поиска
+  private final ConcurrentSkipListMap<Integer, Ticket> ticketsById = new ConcurrentSkipListMap<>();
+  private final AtomicInteger nextId = new AtomicInteger(1);
+  private static final Logger logger = LogManager.getLogger();
+  private static final int CHANGE_LOG_CAPACITY = 4096;
+  private final LocalDateTime initializationTime;
+  private volatile LocalDateTime lastUpdateTime;
+  // версия коллекции и id элементов, измененных в последних версиях
+  private final ChangeLog changeLog = new ChangeLog(CHANGE_LOG_CAPACITY);
+
+  public InMemoryCollectionManager() {
+    this.initializationTime = DateTimeUtils.getStartTime();
+    this.lastUpdateTime = DateTimeUtils.getStartTime();
+  }
+
+  @Override
+  public Deque<Ticket> getCollection() {
+    return new ArrayDeque<>(collection);
+  }
+
+  @Override
+  public LocalDateTime getInitializationTime() {
+    return initializationTime;
+  }
+
+  @Override
+  public LocalDateTime getLastUpdateTime() {
+    return lastUpdateTime;
+  }
+
+  @Override
+  public void updateLastModifiedTime() {
+    lastUpdateTime = DateTimeUtils.getCurrentTime();
+    changeLog.recordUnknown();
+  }
+
+  // отмечает изменение одного элемента, уже примененное к коллекции
+  private void updateLastModifiedTime(int id) {
+    lastUpdateTime = DateTimeUtils.getCurrentTime();
+    changeLog.record(id);
+  }
+
+  @Override
+  public long getVersion() {
+    return changeLog.getVersion();
+  }
+
+  @Override
+  public CollectionChanges getChangesSince(long epoch, long version) {
+    return changeLog.changesSince(epoch, version, ticketsById);
+  }
+
+  @Override
+  public int getCollectionSize() {
+    return collection.size();
+  }
+
+  @Override
+  public int clearCollection(String username) {
+    List<Integer> removed = new ArrayList<>();
+    collection.removeIf(
+        ticket -> username.equals(ticket.getOwnerUsername()) && removed.add(ticket.getId()));
+    ticketsById.values().removeIf(ticket -> username.equals(ticket.getOwnerUsername()));
+    removed.forEach(this::updateLastModifiedTime);
+    return removed.size();
+  }
+
+  @Override
+  public void addTicket(Ticket ticket) throws WrongArgumentException {
+    if (ticket == null) {
+      throw new WrongArgumentException("Билет не может быть null.");
+    }
+
+    ticket.setId(nextId.getAndIncrement());
+    collection.addLast(ticket);
+    ticketsById.put(ticket.getId(), ticket);
+    updateLastModifiedTime(ticket.getId());
+    logger.info("Успешно добавлен билет с id={}", Unbox.box(ticket.getId()));
+  }
+
+  @Override
+  public Ticket getById(int id) throws WrongArgumentException {
+    Ticket ticket = ticketsById.get(id);
+    if (ticket == null) {
+      throw new WrongArgumentException("Билета с таким id нет в коллекции.");
+    }
+    return ticket;
+  }
+
+  @Override
+  public boolean updateTicket(int id, Ticket newTicket, String username)
+      throws WrongArgumentException {
+    Ticket oldTicket = ticketsById.get(id);
+    if (oldTicket == null) {
+      return false;
+    }
+    if (!username.equals(oldTicket.getOwnerUsername())) {
+      throw new WrongArgumentException("Невозможно изменить билет, который не принадлежит вам.");
+    }
+
+    synchronized (oldTicket) {
+      oldTicket.setName(newTicket.getName());
+      oldTicket.setCoordinates(newTicket.getCoordinates());
+      oldTicket.setPrice(newTicket.getPrice());
+      oldTicket.setType(newTicket.getType());
+      oldTicket.setPerson(newTicket.getPerson());
+    }
+    updateLastModifiedTime(id);
+    return true;
+  }
+
+  @Override
+  public boolean removeTicket(Ticket ticket, String username) throws RemoveException {
+    if (ticket == null) {
+      throw new RemoveException("Удаляемый элемент не может быть null.");
+    }
+
+    if (!username.equals(ticket.getOwnerUsername())) {
+      throw new RemoveException("Невозможно удалить билет, который не принадлежит вам.");
+    }
+
+    if (collection.remove(ticket)) {
+      ticketsById.remove(ticket.getId(), ticket);
+      updateLastModifiedTime(ticket.getId());
+      return true;
+    }
+    return false;
+  }
+
+  @Override
+  public Ticket removeHead(String username) throws RemoveException {
+    Ticket ticket = collection.peekFirst();
+    if (removeTicket(ticket, username)) {
+      return ticket;
+    }
+    return null;
+  }
+
+  @Override
+  public float getAveragePrice() {
+    if (collection.isEmpty()) {
+      return (float) 0;
+    }
+
+    float sumPrice = 0;
+    for (Ticket ticket : collection) {
+      sumPrice += ticket.getPrice();
+    }
+    return sumPrice / getCollectionSize();
+  }
+
+  @Override
+  public Ticket getMaxByDate() throws EmptyCollectionException {
+    if (collection.isEmpty()) {
+      throw new EmptyCollectionException("Невозможно найти максимальный элемент.");
+    }
+
+    return collection.stream().max(Ticket::compareToByDate).orElse(null);
+  }
+
+  @Override
+  public List<Ticket> getFilteredByType(TicketType type) {
+    return collection.stream().filter(t -> t.getType().equals(type)).toList();
+  }
+
+  @Override
+  public List<Ticket> getPage(int afterId, int limit, TicketType type) {
+    List<Ticket> page = new ArrayList<>();
+    for (Ticket ticket : ticketsById.tailMap(afterId, false).values()) {
+      if (type == null || type.equals(ticket.getType())) {
+        page.add(ticket);
+        if (page.size() == limit) {
+          break;
+        }
+      }
+    }
+    return page;
+  }
+
+  @Override
+  public Ticket getMaxTicket() {
+    return collection.stream().max(Ticket::compareTo).orElse(null);
+  }
+
+  @Override
+  public void removeLower(Ticket ticket, String username) throws RemoveException {
+    if (ticket == null) {
+      throw new RemoveException("Не может быть элементов меньше null.");
+    }
+    for (Ticket t : collection) {
+      if (t.compareTo(ticket) < 0) {
+        removeTicket(t, username);
+      }
+    }
+  }
+
+  @Override
+  public List<Ticket> getTicketsList() {
+    return new ArrayList<>(collection);
+  }
+}
@@ -4,6 +4,7 @@ import common.data.*;
 import common.exceptions.EmptyCollectionException;
 import common.exceptions.RemoveException;
 import common.exceptions.WrongArgumentException;
+import common.managers.CollectionChanges;
 import common.managers.CollectionManager;
 import common.utils.DateTimeUtils;
 import common.utils.Validator;
@@ -13,15 +14,22 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentSkipListMap;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.util.Unbox;
 
 public class SqlCollectionManager implements CollectionManager {
   private final Connection connection;
   private Deque<Ticket> collection = new ConcurrentLinkedDeque<>();
+  // индекс по id для постраничного вывода и поиска
+  private final ConcurrentSkipListMap<Integer, Ticket> ticketsById = new ConcurrentSkipListMap<>();
   private static final Logger logger = LogManager.getLogger();
+  private static final int CHANGE_LOG_CAPACITY = 4096;
   private final LocalDateTime initializationTime;
   private LocalDateTime lastUpdateTime;
+  // версия коллекции и id элементов, измененных в последних версиях
+  private final ChangeLog changeLog = new ChangeLog(CHANGE_LOG_CAPACITY);
 
   private static final String CREATE_TABLE_QUERY =
       "CREATE TABLE IF NOT EXISTS locations ("
@@ -100,6 +108,7 @@ public class SqlCollectionManager implements CollectionManager {
         Ticket ticket = convertSqlRowToTicket(resultSet);
         if (ticket != null) {
           collection.addLast(ticket);
+          ticketsById.put(ticket.getId(), ticket);
         } else {
           invalidTickets++;
         }
@@ -365,6 +374,23 @@ public class SqlCollectionManager implements CollectionManager {
   @Override
   public void updateLastModifiedTime() {
     lastUpdateTime = DateTimeUtils.getCurrentTime();
+    changeLog.recordUnknown();
+  }
+
+  // отмечает изменение одного элемента, уже примененное к коллекции
+  private void updateLastModifiedTime(int id) {
+    lastUpdateTime = DateTimeUtils.getCurrentTime();
+    changeLog.record(id);
+  }
+
+  @Override
+  public long getVersion() {
+    return changeLog.getVersion();
+  }
+
+  @Override
+  public CollectionChanges getChangesSince(long epoch, long version) {
+    return changeLog.changesSince(epoch, version, ticketsById);
   }
 
   @Override
@@ -375,12 +401,15 @@ public class SqlCollectionManager implements CollectionManager {
   @Override
   public int clearCollection(String username) throws SQLException {
     int deletedTickets = 0;
+    List<Integer> removed = new ArrayList<>();
 
     try (PreparedStatement statement = connection.prepareStatement(DELETE_TICKETS_QUERY)) {
       statement.setString(1, username);
       deletedTickets = statement.executeUpdate();
 
-      collection.removeIf(ticket -> username.equals(ticket.getOwnerUsername()));
+      collection.removeIf(
+          ticket -> username.equals(ticket.getOwnerUsername()) && removed.add(ticket.getId()));
+      ticketsById.values().removeIf(ticket -> username.equals(ticket.getOwnerUsername()));
     } catch (SQLException e) {
       logger.error(
           "Возникла ошибка при удалении билетов, принадлежащих пользователю "
@@ -394,7 +423,7 @@ public class SqlCollectionManager implements CollectionManager {
               + e.getMessage());
     }
 
-    updateLastModifiedTime();
+    removed.forEach(this::updateLastModifiedTime);
     return deletedTickets;
   }
 
@@ -423,14 +452,15 @@ public class SqlCollectionManager implements CollectionManager {
       throw new SQLException("Возникла ошибка при добавлении билета: " + e.getMessage());
     }
 
-    updateLastModifiedTime();
     collection.addLast(ticket);
-    logger.info("Успешно добавлен билет с id=" + ticket.getId());
+    ticketsById.put(ticket.getId(), ticket);
+    updateLastModifiedTime(ticket.getId());
+    logger.info("Успешно добавлен билет с id={}", Unbox.box(ticket.getId()));
   }
 
   @Override
   public Ticket getById(int id) throws WrongArgumentException {
-    Ticket ticket = collection.stream().filter(t -> t.getId() == id).findFirst().orElse(null);
+    Ticket ticket = ticketsById.get(id);
     if (ticket == null) {
       throw new WrongArgumentException("Билета с таким id нет в коллекции.");
     }
@@ -484,7 +514,7 @@ public class SqlCollectionManager implements CollectionManager {
           oldTicket.setPrice(newTicket.getPrice());
           oldTicket.setType(newTicket.getType());
           oldTicket.setPerson(newTicket.getPerson());
-          updateLastModifiedTime();
+          updateLastModifiedTime(id);
           return true;
         } else {
           return false;
@@ -513,8 +543,10 @@ public class SqlCollectionManager implements CollectionManager {
       int removedRows = statement.executeUpdate();
 
       if (removedRows > 0) {
-        updateLastModifiedTime();
-        return collection.remove(ticket);
+        ticketsById.remove(ticket.getId(), ticket);
+        boolean removed = collection.remove(ticket);
+        updateLastModifiedTime(ticket.getId());
+        return removed;
       }
       return false;
     } catch (SQLException e) {
@@ -527,7 +559,6 @@ public class SqlCollectionManager implements CollectionManager {
   public Ticket removeHead(String username) throws RemoveException, SQLException {
     Ticket ticket = collection.getFirst();
     if (removeTicket(ticket, username)) {
-      updateLastModifiedTime();
       return ticket;
     }
     return null;
@@ -560,6 +591,20 @@ public class SqlCollectionManager implements CollectionManager {
     return collection.stream().filter(t -> t.getType().equals(type)).toList();
   }
 
+  @Override
+  public List<Ticket> getPage(int afterId, int limit, TicketType type) {
+    List<Ticket> page = new ArrayList<>();
+    for (Ticket ticket : ticketsById.tailMap(afterId, false).values()) {
+      if (type == null || type.equals(ticket.getType())) {
+        page.add(ticket);
+        if (page.size() == limit) {
+          break;
+        }
+      }
+    }
+    return page;
+  }
+
   @Override
   public Ticket getMaxTicket() {
     return collection.stream().max(Ticket::compareTo).orElse(null);
@@ -572,9 +617,7 @@ public class SqlCollectionManager implements CollectionManager {
     }
     for (Ticket t : collection) {
       if (t.compareTo(ticket) < 0) {
-        if (removeTicket(t, username)) {
-          updateLastModifiedTime();
-        }
+        removeTicket(t, username);
       }
     }
   }
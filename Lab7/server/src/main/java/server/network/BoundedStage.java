@@ -0,0 +1,243 @@
+package server.network;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import server.system.OverloadPolicy;
+
+/**
+ * Этап обработки запросов с ограниченной очередью.
+ *
+ * <p>Задачи складываются в очередь не больше {@code capacity} элементов и выполняются в пуле
+ * потоков, причем одновременно в пуле находится не больше {@code concurrency} задач этапа. Поэтому
+ * ни очередь, ни число потоков кэшированного пула не растут при всплеске нагрузки. При переполнении
+ * очереди поступает так, как задано {@link OverloadPolicy}.
+ *
+ * @author Alvas
+ * @since 3.0
+ */
+public class BoundedStage {
+  private static final Logger logger = LogManager.getLogger();
+
+  /**
+   * Задача этапа.
+   *
+   * @param action действие.
+   * @param onDrop вызывается вместо действия, если задача вытеснена из очереди; должен освободить
+   *     ресурсы задачи.
+   * @param onReject вызывается вместо действия, если задача отклонена; должен освободить ресурсы
+   *     задачи и, если возможно, сообщить клиенту о перегрузке.
+   */
+  public record Task(Runnable action, Runnable onDrop, Runnable onReject) {}
+
+  private final String name;
+  private final Executor executor;
+  private final int concurrency;
+  private final int capacity;
+  private final OverloadPolicy policy;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition notFull = lock.newCondition();
+  private final ArrayDeque<Task> queue;
+  private int activeWorkers;
+  private int maxQueueDepth;
+
+  private final LongAdder accepted = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+  private final LongAdder dropped = new LongAdder();
+  private final LongAdder blocked = new LongAdder();
+
+  public BoundedStage(
+      String name, Executor executor, int concurrency, int capacity, OverloadPolicy policy) {
+    this.name = name;
+    this.executor = executor;
+    this.concurrency = concurrency;
+    this.capacity = capacity;
+    this.policy = policy;
+    this.queue = new ArrayDeque<>(capacity);
+  }
+
+  /**
+   * Ставит задачу в очередь этапа.
+   *
+   * <p>При политике {@link OverloadPolicy#BLOCK} метод ждет освобождения места в очереди; если
+   * ожидание прервано, задача вытесняется.
+   *
+   * @param task задача.
+   */
+  public void submit(Task task) {
+    Task evicted = null;
+    boolean isRejected = false;
+    boolean startWorker = false;
+
+    lock.lock();
+    try {
+      while (queue.size() >= capacity && !isRejected) {
+        switch (policy) {
+          case DROP_OLDEST -> evicted = queue.pollFirst();
+          case REJECT -> isRejected = true;
+          case BLOCK -> {
+            blocked.increment();
+            try {
+              notFull.await();
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+              evicted = task;
+              isRejected = true;
+            }
+          }
+        }
+      }
+      if (!isRejected) {
+        queue.addLast(task);
+        maxQueueDepth = Math.max(maxQueueDepth, queue.size());
+        if (activeWorkers < concurrency) {
+          activeWorkers++;
+          startWorker = true;
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+
+    if (evicted != null) {
+      dropped.increment();
+      evicted.onDrop().run();
+    } else if (isRejected) {
+      rejected.increment();
+      task.onReject().run();
+    }
+    if (isRejected) {
+      return;
+    }
+
+    accepted.increment();
+    if (startWorker) {
+      try {
+        executor.execute(this::drain);
+      } catch (RejectedExecutionException e) {
+        // пул уже остановлен, задачи останутся в очереди до завершения сервера
+        lock.lock();
+        try {
+          activeWorkers--;
+        } finally {
+          lock.unlock();
+        }
+      }
+    }
+  }
+
+  // выполняет задачи, пока очередь не опустеет
+  private void drain() {
+    while (true) {
+      Task task;
+      lock.lock();
+      try {
+        task = queue.pollFirst();
+        if (task == null) {
+          activeWorkers--;
+          return;
+        }
+        notFull.signal();
+      } finally {
+        lock.unlock();
+      }
+
+      try {
+        task.action().run();
+      } catch (RuntimeException e) {
+        logger.error("Необработанная ошибка на этапе " + name + ": " + e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Возвращает текущее количество задач в очереди.
+   *
+   * @return Глубина очереди.
+   */
+  public int getQueueDepth() {
+    lock.lock();
+    try {
+      return queue.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Возвращает наибольшую глубину очереди с момента запуска.
+   *
+   * @return Наибольшая глубина очереди.
+   */
+  public int getMaxQueueDepth() {
+    lock.lock();
+    try {
+      return maxQueueDepth;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public int getActiveWorkers() {
+    lock.lock();
+    try {
+      return activeWorkers;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public long getAccepted() {
+    return accepted.sum();
+  }
+
+  public long getRejected() {
+    return rejected.sum();
+  }
+
+  public long getDropped() {
+    return dropped.sum();
+  }
+
+  public long getBlocked() {
+    return blocked.sum();
+  }
+
+  @Override
+  public String toString() {
+    return "BoundedStage{"
+        + "name="
+        + name
+        + ", policy="
+        + policy
+        + ", capacity="
+        + capacity
+        + ", concurrency="
+        + concurrency
+        + ", queueDepth="
+        + getQueueDepth()
+        + ", maxQueueDepth="
+        + getMaxQueueDepth()
+        + ", activeWorkers="
+        + getActiveWorkers()
+        + ", accepted="
+        + accepted.sum()
+        + ", rejected="
+        + rejected.sum()
+        + ", dropped="
+        + dropped.sum()
+        + ", blocked="
+        + blocked.sum()
+        + '}';
+  }
+}
@@ -0,0 +1,210 @@
+package server.network;
+
+import java.nio.ByteBuffer;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Ограниченный пул прямых (direct) буферов для приема датаграмм и отправки ответов.
+ *
+ * <p>Буферы вместе с их обертками {@link PooledBuffer} создаются по требованию, пока их число не
+ * достигнет {@code capacity}, и затем используются повторно, поэтому выдача буфера ничего не
+ * выделяет. Если все буферы заняты, пул не создает новых: {@link #acquire()} возвращает {@code
+ * null} (промах), и вызывающий код отбрасывает датаграмму, а {@link #acquire(long)} ждет возврата
+ * буфера.
+ *
+ * <p>Отслеживание утечек включается параметром {@code trackLeaks}: только тогда пул запоминает
+ * выданные буферы, время и поток получения, а метод {@link #detectLeaks(long)} находит буферы, не
+ * возвращенные дольше заданного времени, и освобождает для них место в пуле.
+ *
+ * @see PooledBuffer
+ * @author Alvas
+ * @since 3.0
+ */
+public class BufferPool {
+  private static final Logger logger = LogManager.getLogger();
+
+  private final int bufferSize;
+  private final int capacity;
+  private final boolean trackLeaks;
+  private final ArrayBlockingQueue<PooledBuffer> free;
+  // заполняется только при отслеживании утечек
+  private final Set<PooledBuffer> leased;
+  private final AtomicInteger allocated = new AtomicInteger();
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder leaks = new LongAdder();
+  private final LongAdder doubleReleases = new LongAdder();
+
+  /**
+   * Создает пул.
+   *
+   * @param bufferSize размер буфера в байтах.
+   * @param capacity наибольшее количество буферов.
+   * @param trackLeaks {@code true} - отслеживать выданные буферы для поиска утечек.
+   */
+  public BufferPool(int bufferSize, int capacity, boolean trackLeaks) {
+    this.bufferSize = bufferSize;
+    this.capacity = capacity;
+    this.trackLeaks = trackLeaks;
+    this.free = new ArrayBlockingQueue<>(capacity);
+    this.leased = trackLeaks ? ConcurrentHashMap.newKeySet() : Set.of();
+  }
+
+  /**
+   * Выдает очищенный буфер, не ожидая.
+   *
+   * @return Буфер из пула или {@code null}, если все буферы заняты.
+   * @author Alvas
+   * @since 3.0
+   */
+  public PooledBuffer acquire() {
+    PooledBuffer pooledBuffer = poll();
+    if (pooledBuffer == null) {
+      misses.increment();
+      return null;
+    }
+    return lease(pooledBuffer);
+  }
+
+  /**
+   * Выдает очищенный буфер, ожидая его возврата в пул, если все буферы заняты.
+   *
+   * @param timeoutMillis наибольшее время ожидания в миллисекундах.
+   * @return Буфер из пула или {@code null}, если буфер не освободился за это время.
+   * @throws InterruptedException если поток был прерван во время ожидания.
+   */
+  public PooledBuffer acquire(long timeoutMillis) throws InterruptedException {
+    PooledBuffer pooledBuffer = poll();
+    if (pooledBuffer == null) {
+      pooledBuffer = free.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+    if (pooledBuffer == null) {
+      misses.increment();
+      return null;
+    }
+    return lease(pooledBuffer);
+  }
+
+  private PooledBuffer poll() {
+    PooledBuffer pooledBuffer = free.poll();
+    if (pooledBuffer != null) {
+      return pooledBuffer;
+    }
+    if (allocated.incrementAndGet() <= capacity) {
+      return new PooledBuffer(this, ByteBuffer.allocateDirect(bufferSize));
+    }
+    allocated.decrementAndGet();
+    return null;
+  }
+
+  private PooledBuffer lease(PooledBuffer pooledBuffer) {
+    hits.increment();
+    pooledBuffer.reset(trackLeaks);
+    if (trackLeaks) {
+      leased.add(pooledBuffer);
+    }
+    return pooledBuffer;
+  }
+
+  void release(PooledBuffer pooledBuffer) {
+    if (trackLeaks) {
+      leased.remove(pooledBuffer);
+    }
+    if (!pooledBuffer.isLeaked()) {
+      free.offer(pooledBuffer);
+    }
+  }
+
+  void onDoubleRelease(PooledBuffer pooledBuffer) {
+    doubleReleases.increment();
+    logger.error(
+        "Повторный возврат буфера в пул"
+            + (trackLeaks ? ", буфер получен потоком " + pooledBuffer.getOwner() : ""));
+  }
+
+  /**
+   * Находит буферы, которые не возвращены в пул дольше заданного времени. Если отслеживание утечек
+   * выключено, ничего не делает.
+   *
+   * <p>Такие буферы считаются утекшими: пул перестает их ожидать и может создать вместо них новые.
+   *
+   * @param maxAgeMillis максимальное время владения буфером в миллисекундах.
+   * @return Количество найденных утечек.
+   * @author Alvas
+   * @since 3.0
+   */
+  public int detectLeaks(long maxAgeMillis) {
+    if (!trackLeaks) {
+      return 0;
+    }
+    long threshold = System.currentTimeMillis() - maxAgeMillis;
+    int found = 0;
+    for (PooledBuffer pooledBuffer : leased) {
+      if (pooledBuffer.getAcquiredAt() < threshold && leased.remove(pooledBuffer)) {
+        pooledBuffer.markLeaked();
+        allocated.decrementAndGet();
+        found++;
+        logger.warn(
+            "Утечка буфера: буфер получен потоком "
+                + pooledBuffer.getOwner()
+                + " и не возвращен в пул.");
+      }
+    }
+    leaks.add(found);
+    return found;
+  }
+
+  public long getHits() {
+    return hits.sum();
+  }
+
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  public long getLeaks() {
+    return leaks.sum();
+  }
+
+  public long getDoubleReleases() {
+    return doubleReleases.sum();
+  }
+
+  public int getLeasedCount() {
+    return allocated.get() - free.size();
+  }
+
+  public int getFreeCount() {
+    return free.size();
+  }
+
+  @Override
+  public String toString() {
+    return "BufferPool{"
+        + "capacity="
+        + capacity
+        + ", allocated="
+        + allocated.get()
+        + ", free="
+        + free.size()
+        + ", leased="
+        + getLeasedCount()
+        + ", hits="
+        + hits.sum()
+        + ", misses="
+        + misses.sum()
+        + ", leaks="
+        + leaks.sum()
+        + ", doubleReleases="
+        + doubleReleases.sum()
+        + '}';
+  }
+}
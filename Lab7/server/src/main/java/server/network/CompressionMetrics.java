@@ -0,0 +1,98 @@
+package server.network;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Статистика сжатия ответов по командам.
+ *
+ * <p>Для каждой команды учитываются ответы меньше порога (не сжимались), попытки сжатия, удачные
+ * попытки, размер до и после сжатия и время, потраченное на сжатие. По ней подбирается порог
+ * сжатия: если у команды низкий коэффициент сжатия при заметном времени, порог стоит поднять.
+ *
+ * @author Alvas
+ * @since 3.0
+ */
+public class CompressionMetrics {
+  private static final class CommandStats {
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder skippedBytes = new LongAdder();
+    private final LongAdder attempts = new LongAdder();
+    private final LongAdder compressed = new LongAdder();
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+  }
+
+  private final Map<String, CommandStats> stats = new ConcurrentHashMap<>();
+
+  private CommandStats statsFor(String commandName) {
+    return stats.computeIfAbsent(commandName, name -> new CommandStats());
+  }
+
+  /**
+   * Учитывает ответ, размер которого меньше порога сжатия.
+   *
+   * @param commandName имя команды.
+   * @param size размер ответа в байтах.
+   */
+  public void recordSkipped(String commandName, int size) {
+    CommandStats commandStats = statsFor(commandName);
+    commandStats.skipped.increment();
+    commandStats.skippedBytes.add(size);
+  }
+
+  /**
+   * Учитывает попытку сжатия ответа.
+   *
+   * @param commandName имя команды.
+   * @param originalSize размер ответа до сжатия.
+   * @param sentSize размер отправленного ответа (равен {@code originalSize}, если сжатие не
+   *     уменьшило размер).
+   * @param nanos время сжатия в наносекундах.
+   */
+  public void recordAttempt(String commandName, int originalSize, int sentSize, long nanos) {
+    CommandStats commandStats = statsFor(commandName);
+    commandStats.attempts.increment();
+    if (sentSize < originalSize) {
+      commandStats.compressed.increment();
+    }
+    commandStats.bytesIn.add(originalSize);
+    commandStats.bytesOut.add(sentSize);
+    commandStats.nanos.add(nanos);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("CompressionMetrics{");
+    Map<String, CommandStats> sorted = new TreeMap<>(stats);
+    for (Map.Entry<String, CommandStats> entry : sorted.entrySet()) {
+      CommandStats commandStats = entry.getValue();
+      long attempts = commandStats.attempts.sum();
+      long bytesIn = commandStats.bytesIn.sum();
+      long bytesOut = commandStats.bytesOut.sum();
+      long nanos = commandStats.nanos.sum();
+
+      sb.append("\n  ")
+          .append(entry.getKey())
+          .append(": skipped=")
+          .append(commandStats.skipped.sum())
+          .append(" (")
+          .append(commandStats.skippedBytes.sum())
+          .append(" B), attempts=")
+          .append(attempts)
+          .append(", compressed=")
+          .append(commandStats.compressed.sum())
+          .append(", bytes=")
+          .append(bytesIn)
+          .append(" -> ")
+          .append(bytesOut)
+          .append(String.format(", ratio=%.2f", bytesOut == 0 ? 0.0 : (double) bytesIn / bytesOut))
+          .append(String.format(", us/response=%.1f", attempts == 0 ? 0.0 : nanos / 1e3 / attempts))
+          .append(String.format(", ns/KB=%.0f", bytesIn == 0 ? 0.0 : nanos * 1024.0 / bytesIn));
+    }
+    return sb.append(stats.isEmpty() ? "}" : "\n}").toString();
+  }
+}
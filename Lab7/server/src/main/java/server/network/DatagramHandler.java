@@ -0,0 +1,22 @@
+package server.network;
+
+import java.net.InetSocketAddress;
+
+/**
+ * Обработчик датаграмм, полученных {@link ReceiveLoop}.
+ *
+ * @author Alvas
+ * @since 3.0
+ */
+@FunctionalInterface
+public interface DatagramHandler {
+  /**
+   * Принимает полученную датаграмму. Обработчик становится владельцем буфера и обязан вернуть его в
+   * пул.
+   *
+   * @param buffer буфер с датаграммой, готовый к чтению.
+   * @param clientAddress адрес отправителя.
+   * @param loop цикл приема, через который следует отправить ответ.
+   */
+  void handle(PooledBuffer buffer, InetSocketAddress clientAddress, ReceiveLoop loop);
+}
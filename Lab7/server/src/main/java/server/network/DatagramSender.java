@@ -0,0 +1,132 @@
+package server.network;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Класс, отвечающий за отправку датаграмм через канал, на котором сервер принимает запросы.
+ *
+ * <p>Благодаря этому клиент получает ответ с того же порта, на который отправил запрос. Канал
+ * неблокирующий: если буфер сокета заполнен, датаграмма копируется в очередь, а у ключа селектора
+ * включается {@link SelectionKey#OP_WRITE}. Очередь отправляется методом {@link #flush()} из цикла
+ * селектора, когда канал снова готов к записи, поэтому поток отправки никогда не блокируется.
+ *
+ * @author Alvas
+ * @since 3.0
+ */
+public class DatagramSender {
+  private record PendingDatagram(ByteBuffer data, InetSocketAddress target) {}
+
+  private final DatagramChannel channel;
+  private final SelectionKey key;
+  private final int maxQueued;
+  private final ArrayDeque<PendingDatagram> queue = new ArrayDeque<>();
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private final LongAdder sent = new LongAdder();
+  private final LongAdder queued = new LongAdder();
+  private final LongAdder dropped = new LongAdder();
+
+  public DatagramSender(DatagramChannel channel, SelectionKey key, int maxQueued) {
+    this.channel = channel;
+    this.key = key;
+    this.maxQueued = maxQueued;
+  }
+
+  /**
+   * Отправляет датаграмму или ставит ее копию в очередь, если канал не готов к записи.
+   *
+   * <p>После возврата буфер {@code datagram} можно переиспользовать.
+   *
+   * @param datagram датаграмма (читается от {@code position} до {@code limit}).
+   * @param target адрес получателя.
+   * @return {@code true} - если датаграмма отправлена или поставлена в очередь, {@code false} -
+   *     если очередь переполнена и датаграмма отброшена.
+   * @throws IOException если возникла ошибка ввода-вывода.
+   * @author Alvas
+   * @since 3.0
+   */
+  public boolean send(ByteBuffer datagram, InetSocketAddress target) throws IOException {
+    lock.lock();
+    try {
+      if (queue.isEmpty() && channel.send(datagram, target) > 0) {
+        sent.increment();
+        return true;
+      }
+
+      if (queue.size() >= maxQueued) {
+        dropped.increment();
+        return false;
+      }
+
+      ByteBuffer copy = ByteBuffer.allocate(datagram.remaining());
+      copy.put(datagram).flip();
+      queue.addLast(new PendingDatagram(copy, target));
+      queued.increment();
+      if (queue.size() == 1) {
+        key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+        key.selector().wakeup();
+      }
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Отправляет датаграммы из очереди, пока канал принимает данные.
+   *
+   * <p>Вызывается из цикла селектора, когда ключ готов к записи. Когда очередь опустошается,
+   * интерес к записи снимается. Датаграммы, при отправке которых возникла ошибка, отбрасываются.
+   *
+   * @author Alvas
+   * @since 3.0
+   */
+  public void flush() {
+    lock.lock();
+    try {
+      while (!queue.isEmpty()) {
+        PendingDatagram pending = queue.peekFirst();
+        try {
+          if (channel.send(pending.data(), pending.target()) == 0) {
+            return;
+          }
+          sent.increment();
+        } catch (IOException e) {
+          dropped.increment();
+        }
+        queue.pollFirst();
+      }
+      key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public int getQueueSize() {
+    lock.lock();
+    try {
+      return queue.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public long getSent() {
+    return sent.sum();
+  }
+
+  public long getQueued() {
+    return queued.sum();
+  }
+
+  public long getDropped() {
+    return dropped.sum();
+  }
+}
@@ -0,0 +1,91 @@
+package server.network;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Гистограмма задержек для вычисления перцентилей.
+ *
+ * <p>Задержки хранятся в микросекундах в логарифмических интервалах: значения до {@value
+ * #LINEAR_LIMIT} мкс - точно, дальше каждая степень двойки делится на {@value #SUB_BUCKETS} равных
+ * частей, поэтому погрешность перцентиля не больше 3%. Запись не блокирует и не выделяет память.
+ *
+ * @author Alvas
+ * @since 3.0
+ */
+public class LatencyHistogram {
+  private static final int SUB_BUCKET_BITS = 5;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int LINEAR_LIMIT = 2 * SUB_BUCKETS;
+  private static final int LINEAR_BITS = SUB_BUCKET_BITS + 1;
+
+  private final AtomicLongArray counts =
+      new AtomicLongArray(LINEAR_LIMIT + (Long.SIZE - LINEAR_BITS) * SUB_BUCKETS);
+  private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+  /**
+   * Записывает задержку.
+   *
+   * @param nanos задержка в наносекундах.
+   */
+  public void record(long nanos) {
+    long micros = Math.max(nanos / 1000, 0);
+    counts.incrementAndGet(indexOf(micros));
+    max.accumulate(micros);
+  }
+
+  public long getCount() {
+    long count = 0;
+    for (int i = 0; i < counts.length(); i++) {
+      count += counts.get(i);
+    }
+    return count;
+  }
+
+  /**
+   * Возвращает перцентиль задержки.
+   *
+   * @param percentile перцентиль от 0 до 100.
+   * @return Верхняя граница интервала, в который попал перцентиль, в микросекундах; {@code 0} -
+   *     если задержек нет.
+   */
+  public long getPercentile(double percentile) {
+    long count = getCount();
+    if (count == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+    long seen = 0;
+    for (int i = 0; i < counts.length(); i++) {
+      seen += counts.get(i);
+      if (seen >= rank) {
+        return Math.min(upperBoundOf(i), getMax());
+      }
+    }
+    return getMax();
+  }
+
+  public long getMax() {
+    return max.get();
+  }
+
+  private static int indexOf(long micros) {
+    if (micros < LINEAR_LIMIT) {
+      return (int) micros;
+    }
+    int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(micros);
+    int shift = exponent - SUB_BUCKET_BITS;
+    int subBucket = (int) (micros >>> shift) - SUB_BUCKETS;
+    return LINEAR_LIMIT + (exponent - LINEAR_BITS) * SUB_BUCKETS + subBucket;
+  }
+
+  private static long upperBoundOf(int index) {
+    if (index < LINEAR_LIMIT) {
+      return index;
+    }
+    int exponent = (index - LINEAR_LIMIT) / SUB_BUCKETS + LINEAR_BITS;
+    int subBucket = (index - LINEAR_LIMIT) % SUB_BUCKETS;
+    int shift = exponent - SUB_BUCKET_BITS;
+    return ((long) (SUB_BUCKETS + subBucket + 1) << shift) - 1;
+  }
+}
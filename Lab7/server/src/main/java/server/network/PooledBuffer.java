@@ -0,0 +1,74 @@
+package server.network;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Буфер, выданный {@link BufferPool}.
+ *
+ * <p>Сопровождает запрос от получения датаграммы до отправки ответа и должен быть возвращен в пул
+ * ровно один раз методом {@link #release()}. Обертка принадлежит пулу и выдается повторно вместе со
+ * своим буфером, поэтому после возврата ее нельзя использовать.
+ *
+ * @see BufferPool
+ * @author Alvas
+ * @since 3.0
+ */
+public final class PooledBuffer {
+  private final BufferPool pool;
+  private final ByteBuffer buffer;
+  private final AtomicBoolean released = new AtomicBoolean(true);
+  private volatile boolean leaked = false;
+  // заполняются только при отслеживании утечек
+  private volatile long acquiredAt;
+  private volatile String owner;
+
+  PooledBuffer(BufferPool pool, ByteBuffer buffer) {
+    this.pool = pool;
+    this.buffer = buffer;
+  }
+
+  // готовит обертку к очередной выдаче
+  void reset(boolean trackOwner) {
+    buffer.clear();
+    if (trackOwner) {
+      acquiredAt = System.currentTimeMillis();
+      owner = Thread.currentThread().getName();
+    }
+    released.set(false);
+  }
+
+  public ByteBuffer buffer() {
+    return buffer;
+  }
+
+  /**
+   * Возвращает буфер в пул. Повторный вызов игнорируется и учитывается как ошибка.
+   *
+   * @author Alvas
+   * @since 3.0
+   */
+  public void release() {
+    if (released.compareAndSet(false, true)) {
+      pool.release(this);
+    } else {
+      pool.onDoubleRelease(this);
+    }
+  }
+
+  boolean isLeaked() {
+    return leaked;
+  }
+
+  void markLeaked() {
+    leaked = true;
+  }
+
+  long getAcquiredAt() {
+    return acquiredAt;
+  }
+
+  String getOwner() {
+    return owner;
+  }
+}
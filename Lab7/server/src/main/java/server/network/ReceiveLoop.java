@@ -0,0 +1,245 @@
+package server.network;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Цикл приема датаграмм в отдельном потоке.
+ *
+ * <p>Каждый цикл владеет собственным {@link DatagramChannel}, селектором, пулом буферов и {@link
+ * DatagramSender}. Если циклов несколько, каналы привязываются к одному порту с {@code
+ * SO_REUSEPORT}, и ядро распределяет датаграммы между ними по адресу отправителя.
+ *
+ * <p>Если все буферы пула заняты запросами в обработке, новые датаграммы отбрасываются и
+ * учитываются как потерянные: клиент повторит запрос.
+ *
+ * @see DatagramHandler
+ * @author Alvas
+ * @since 3.0
+ */
+public class ReceiveLoop implements Runnable {
+  private static final Logger logger = LogManager.getLogger();
+
+  private final int SELECTOR_TIMEOUT = 100;
+  private final int MAX_RECEIVES_PER_WAKEUP = 64;
+  private final int DISCARD_BUFFER_SIZE = 1;
+  private final long BUFFER_LEAK_TIMEOUT_MS = 30000;
+
+  private final int id;
+  private final DatagramChannel channel;
+  private final Selector selector;
+  private final SelectionKey key;
+  private final BufferPool bufferPool;
+  private final DatagramSender sender;
+  private final DatagramHandler handler;
+  private volatile boolean isRunning = true;
+  // буфер, оставшийся пустым после последнего вызова receive
+  private PooledBuffer spareBuffer;
+  // принимает датаграммы, для которых в пуле не нашлось буфера: они отбрасываются
+  private final ByteBuffer discardBuffer = ByteBuffer.allocate(DISCARD_BUFFER_SIZE);
+
+  private final LongAdder datagrams = new LongAdder();
+  private final LongAdder bytes = new LongAdder();
+  private final LongAdder drops = new LongAdder();
+
+  public ReceiveLoop(
+      int id,
+      int port,
+      boolean reusePort,
+      BufferPool bufferPool,
+      int maxQueuedDatagrams,
+      DatagramHandler handler)
+      throws IOException {
+    this.id = id;
+    this.bufferPool = bufferPool;
+    this.handler = handler;
+    this.channel = DatagramChannel.open();
+    try {
+      if (reusePort) {
+        channel.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+      }
+      channel.configureBlocking(false);
+      channel.bind(new InetSocketAddress(port));
+      this.selector = Selector.open();
+    } catch (IOException | UnsupportedOperationException e) {
+      channel.close();
+      throw e;
+    }
+    this.key = channel.register(selector, SelectionKey.OP_READ);
+    this.sender = new DatagramSender(channel, key, maxQueuedDatagrams);
+  }
+
+  /**
+   * Показывает, поддерживает ли платформа {@code SO_REUSEPORT} для UDP.
+   *
+   * @return {@code true} - если несколько каналов могут быть привязаны к одному порту.
+   */
+  public static boolean isReusePortSupported() {
+    try (DatagramChannel probe = DatagramChannel.open()) {
+      return probe.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT);
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  @Override
+  public void run() {
+    long lastLeakCheck = System.currentTimeMillis();
+
+    try {
+      while (isRunning) {
+        if (System.currentTimeMillis() - lastLeakCheck > BUFFER_LEAK_TIMEOUT_MS) {
+          bufferPool.detectLeaks(BUFFER_LEAK_TIMEOUT_MS);
+          lastLeakCheck = System.currentTimeMillis();
+        }
+
+        if (selector.select(SELECTOR_TIMEOUT) == 0) continue;
+
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+          SelectionKey selectedKey = keys.next();
+          keys.remove();
+
+          if (selectedKey.isValid() && selectedKey.isWritable()) {
+            sender.flush();
+          }
+          if (selectedKey.isValid() && selectedKey.isReadable()) {
+            receiveAll();
+          }
+        }
+      }
+    } catch (IOException e) {
+      if (isRunning) {
+        logger.error("Возникла ошибка в цикле приема " + id + ": " + e.getMessage());
+      }
+    } finally {
+      close();
+    }
+  }
+
+  private void receiveAll() {
+    for (int i = 0; i < MAX_RECEIVES_PER_WAKEUP; i++) {
+      PooledBuffer receiveBuffer = spareBuffer != null ? spareBuffer : bufferPool.acquire();
+      spareBuffer = null;
+      if (receiveBuffer == null) {
+        if (!discard()) {
+          return;
+        }
+        continue;
+      }
+      InetSocketAddress clientAddress;
+      try {
+        clientAddress = (InetSocketAddress) channel.receive(receiveBuffer.buffer());
+      } catch (IOException e) {
+        receiveBuffer.release();
+        drops.increment();
+        logger.error("Возникла ошибка на сервере: " + e.getMessage());
+        return;
+      }
+
+      if (clientAddress == null) {
+        spareBuffer = receiveBuffer;
+        return;
+      }
+
+      receiveBuffer.buffer().flip();
+      datagrams.increment();
+      bytes.add(receiveBuffer.buffer().remaining());
+      handler.handle(receiveBuffer, clientAddress, this);
+    }
+  }
+
+  // пул исчерпан: датаграмма вычитывается из сокета и отбрасывается, чтобы не копить нагрузку
+  private boolean discard() {
+    try {
+      discardBuffer.clear();
+      if (channel.receive(discardBuffer) == null) {
+        return false;
+      }
+      drops.increment();
+      return true;
+    } catch (IOException e) {
+      drops.increment();
+      logger.error("Возникла ошибка на сервере: " + e.getMessage());
+      return false;
+    }
+  }
+
+  public void stop() {
+    isRunning = false;
+    selector.wakeup();
+  }
+
+  private void close() {
+    if (spareBuffer != null) {
+      spareBuffer.release();
+      spareBuffer = null;
+    }
+    try {
+      selector.close();
+      channel.close();
+    } catch (IOException e) {
+      logger.error("Возникла ошибка при закрытии цикла приема " + id + ": " + e.getMessage());
+    }
+  }
+
+  /** Учитывает датаграмму, отброшенную при обработке. */
+  public void recordDrop() {
+    drops.increment();
+  }
+
+  public int getId() {
+    return id;
+  }
+
+  public DatagramSender getSender() {
+    return sender;
+  }
+
+  public BufferPool getBufferPool() {
+    return bufferPool;
+  }
+
+  public long getDatagrams() {
+    return datagrams.sum();
+  }
+
+  public long getBytes() {
+    return bytes.sum();
+  }
+
+  public long getDrops() {
+    return drops.sum();
+  }
+
+  @Override
+  public String toString() {
+    return "ReceiveLoop{"
+        + "id="
+        + id
+        + ", datagrams="
+        + datagrams.sum()
+        + ", bytes="
+        + bytes.sum()
+        + ", drops="
+        + drops.sum()
+        + ", sent="
+        + sender.getSent()
+        + ", sendQueued="
+        + sender.getQueued()
+        + ", sendDropped="
+        + sender.getDropped()
+        + ", pool="
+        + bufferPool
+        + '}';
+  }
+}
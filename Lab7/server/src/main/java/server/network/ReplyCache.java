@@ -0,0 +1,154 @@
+package server.network;
+
+import common.network.Response;
+import java.net.InetSocketAddress;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Кэш последних ответов по адресу клиента и идентификатору запроса.
+ *
+ * <p>Клиент повторяет запрос с тем же идентификатором, если не получил ответа. Повторный запрос,
+ * ответ на который уже есть в кэше, получает этот ответ без повторного выполнения команды; повтор
+ * запроса, который еще выполняется, отбрасывается. Кэш хранит не больше {@code capacity} ответов и
+ * вытесняет те, к которым дольше всего не обращались.
+ *
+ * @author Alvas
+ * @since 3.0
+ */
+public class ReplyCache {
+  /** Ключ кэша: адрес клиента и идентификатор запроса. */
+  public record Key(InetSocketAddress clientAddress, long messageId) {}
+
+  /** Состояние запроса в кэше. */
+  public enum Status {
+    /** Запрос получен впервые и должен быть выполнен. */
+    NEW,
+    /** Запрос с тем же ключом еще выполняется. */
+    IN_PROGRESS,
+    /** Ответ на запрос уже есть в кэше. */
+    DONE
+  }
+
+  /**
+   * Результат поиска запроса в кэше.
+   *
+   * @param status состояние запроса.
+   * @param response сохраненный ответ, если состояние {@link Status#DONE}.
+   */
+  public record Lookup(Status status, Response response) {}
+
+  private static final Lookup NEW = new Lookup(Status.NEW, null);
+  private static final Lookup IN_PROGRESS = new Lookup(Status.IN_PROGRESS, null);
+
+  // null - запрос выполняется
+  private final Map<Key, Response> replies;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder duplicatesInProgress = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  public ReplyCache(int capacity) {
+    this.replies =
+        new LinkedHashMap<>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<Key, Response> eldest) {
+            if (size() > capacity) {
+              evictions.increment();
+              return true;
+            }
+            return false;
+          }
+        };
+  }
+
+  /**
+   * Ищет запрос в кэше. Если запрос получен впервые, отмечает его как выполняющийся.
+   *
+   * @param key ключ запроса.
+   * @return Состояние запроса и сохраненный ответ.
+   */
+  public synchronized Lookup begin(Key key) {
+    if (!replies.containsKey(key)) {
+      replies.put(key, null);
+      misses.increment();
+      return NEW;
+    }
+    Response response = replies.get(key);
+    if (response == null) {
+      duplicatesInProgress.increment();
+      return IN_PROGRESS;
+    }
+    hits.increment();
+    return new Lookup(Status.DONE, response);
+  }
+
+  /**
+   * Сохраняет ответ на выполненный запрос.
+   *
+   * @param key ключ запроса.
+   * @param response ответ.
+   */
+  public synchronized void complete(Key key, Response response) {
+    replies.put(key, response);
+  }
+
+  /**
+   * Удаляет запрос, выполнение которого завершилось ошибкой, чтобы повтор выполнил его заново.
+   *
+   * @param key ключ запроса.
+   */
+  public synchronized void abort(Key key) {
+    replies.remove(key);
+  }
+
+  public synchronized int size() {
+    return replies.size();
+  }
+
+  public long getHits() {
+    return hits.sum();
+  }
+
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  public long getDuplicatesInProgress() {
+    return duplicatesInProgress.sum();
+  }
+
+  public long getEvictions() {
+    return evictions.sum();
+  }
+
+  /**
+   * Возвращает долю повторных запросов, ответ на которые взят из кэша.
+   *
+   * @return Доля попаданий от 0 до 1.
+   */
+  public double getHitRate() {
+    long hits = this.hits.sum();
+    long total = hits + misses.sum();
+    return total == 0 ? 0.0 : (double) hits / total;
+  }
+
+  @Override
+  public String toString() {
+    return "ReplyCache{"
+        + "size="
+        + size()
+        + ", hits="
+        + hits.sum()
+        + ", misses="
+        + misses.sum()
+        + ", duplicatesInProgress="
+        + duplicatesInProgress.sum()
+        + ", evictions="
+        + evictions.sum()
+        + String.format(", hitRate=%.4f", getHitRate())
+        + '}';
+  }
+}
@@ -0,0 +1,94 @@
+package server.network;
+
+import java.util.concurrent.ThreadLocalRandom;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.core.config.Configurator;
+
+/**
+ * Журнал обработки отдельных запросов.
+ *
+ * <p>Сообщения о каждом запросе пишутся в логгер {@value #LOGGER_NAME}, уровень которого можно
+ * менять во время работы сервера независимо от остальных логгеров. Чтобы журнал не ограничивал
+ * пропускную способность, запись ведется только для выборки запросов: при частоте выборки {@code n}
+ * в журнал попадает в среднем один запрос из {@code n}, причем все его сообщения сразу. Сообщения
+ * передаются с параметрами, поэтому для запросов вне выборки строки не формируются.
+ *
+ * @author Alvas
+ * @since 3.0
+ */
+public class RequestLog {
+  /** Имя логгера сообщений об отдельных запросах. */
+  public static final String LOGGER_NAME = "server.requests";
+
+  private final Logger logger = LogManager.getLogger(LOGGER_NAME);
+  private volatile int sampleRate;
+
+  /**
+   * Создает журнал запросов.
+   *
+   * @param sampleRate частота выборки: {@code 1} - записываются все запросы, {@code n} - один
+   *     запрос из {@code n}.
+   * @throws IllegalArgumentException если частота не положительна.
+   */
+  public RequestLog(int sampleRate) {
+    this.sampleRate = checkSampleRate(sampleRate);
+  }
+
+  /**
+   * Решает, попадет ли запрос в журнал. Вызывается один раз на запрос до первого сообщения о нем.
+   *
+   * @return {@code true} - если сообщения о запросе нужно записать.
+   */
+  public boolean sample() {
+    if (!logger.isInfoEnabled()) {
+      return false;
+    }
+    int rate = sampleRate;
+    return rate == 1 || ThreadLocalRandom.current().nextInt(rate) == 0;
+  }
+
+  public Logger getLogger() {
+    return logger;
+  }
+
+  public Level getLevel() {
+    return logger.getLevel();
+  }
+
+  /**
+   * Меняет уровень логгера запросов во время работы.
+   *
+   * @param level новый уровень; {@link Level#WARN} и выше отключают сообщения о запросах.
+   */
+  public void setLevel(Level level) {
+    Configurator.setLevel(LOGGER_NAME, level);
+  }
+
+  public int getSampleRate() {
+    return sampleRate;
+  }
+
+  /**
+   * Меняет частоту выборки запросов.
+   *
+   * @param sampleRate частота выборки.
+   * @throws IllegalArgumentException если частота не положительна.
+   */
+  public void setSampleRate(int sampleRate) {
+    this.sampleRate = checkSampleRate(sampleRate);
+  }
+
+  private static int checkSampleRate(int sampleRate) {
+    if (sampleRate <= 0) {
+      throw new IllegalArgumentException("Частота выборки должна быть положительной.");
+    }
+    return sampleRate;
+  }
+
+  @Override
+  public String toString() {
+    return "RequestLog{level=" + getLevel() + ", sampleRate=" + sampleRate + '}';
+  }
+}
@@ -0,0 +1,203 @@
+package server.network;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Задержки обработки запросов по командам и этапам.
+ *
+ * <p>Для каждой команды хранится гистограмма каждого этапа {@link Stage}, количество запросов и
+ * ошибок. Набор команд задается при создании и дальше не меняется, поэтому запись не блокирует и не
+ * выделяет память; запросы с неизвестными командами учитываются под именем {@value
+ * #UNKNOWN_COMMAND}.
+ *
+ * @author Alvas
+ * @since 3.0
+ */
+public class RequestMetrics {
+  /** Имя, под которым учитываются запросы с неизвестными командами. */
+  public static final String UNKNOWN_COMMAND = "unknown";
+
+  /** Этап обработки запроса. */
+  public enum Stage {
+    /** Ожидание в очередях между приемом датаграммы и этапами. */
+    QUEUE("очередь"),
+    /** Сборка фрагментов, распаковка и декодирование запроса. */
+    DECODE("декодирование"),
+    /** Выполнение команды. */
+    EXECUTE("выполнение"),
+    /** Кодирование и сжатие ответа. */
+    ENCODE("кодирование"),
+    /** Отправка ответа. */
+    SEND("отправка"),
+    /** Весь путь от приема датаграммы до отправки ответа. */
+    TOTAL("всего");
+
+    private final String title;
+
+    Stage(String title) {
+      this.title = title;
+    }
+  }
+
+  private static final class CommandStats {
+    private final LatencyHistogram[] stages = new LatencyHistogram[Stage.values().length];
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    private CommandStats() {
+      for (int i = 0; i < stages.length; i++) {
+        stages[i] = new LatencyHistogram();
+      }
+    }
+  }
+
+  /**
+   * Состояние получателя отчетов: время предыдущего отчета и количество запросов на тот момент.
+   *
+   * <p>У каждого получателя (консоль, файл статистики) свое окно, поэтому отчет одному получателю
+   * не сбрасывает пропускную способность "за последние секунды" для другого.
+   */
+  public final class Window {
+    private final Map<String, Long> reported = new HashMap<>();
+    private long reportedAt = startedAt;
+
+    private Window() {}
+  }
+
+  private final Map<String, CommandStats> stats = new TreeMap<>();
+  private final long startedAt = System.nanoTime();
+
+  /**
+   * Создает пустую статистику.
+   *
+   * @param commandNames имена команд, которые может выполнить сервер.
+   */
+  public RequestMetrics(Collection<String> commandNames) {
+    for (String commandName : commandNames) {
+      stats.put(commandName, new CommandStats());
+    }
+    stats.putIfAbsent(UNKNOWN_COMMAND, new CommandStats());
+  }
+
+  private CommandStats statsFor(String commandName) {
+    CommandStats commandStats = stats.get(commandName);
+    return commandStats != null ? commandStats : stats.get(UNKNOWN_COMMAND);
+  }
+
+  /**
+   * Учитывает полученный запрос.
+   *
+   * @param commandName имя команды.
+   */
+  public void recordRequest(String commandName) {
+    statsFor(commandName).requests.increment();
+  }
+
+  /**
+   * Учитывает время этапа обработки запроса.
+   *
+   * @param commandName имя команды.
+   * @param stage этап.
+   * @param nanos время этапа в наносекундах.
+   */
+  public void record(String commandName, Stage stage, long nanos) {
+    statsFor(commandName).stages[stage.ordinal()].record(nanos);
+  }
+
+  /**
+   * Учитывает запрос, выполненный с ошибкой или оставшийся без ответа.
+   *
+   * @param commandName имя команды.
+   */
+  public void recordError(String commandName) {
+    statsFor(commandName).errors.increment();
+  }
+
+  public long getRequests(String commandName) {
+    return statsFor(commandName).requests.sum();
+  }
+
+  public long getErrors(String commandName) {
+    return statsFor(commandName).errors.sum();
+  }
+
+  /**
+   * Создает окно для нового получателя отчетов.
+   *
+   * @return Окно, начинающееся с момента запуска сервера.
+   */
+  public Window newWindow() {
+    return new Window();
+  }
+
+  /**
+   * Формирует отчет по командам, которые выполнялись хотя бы раз.
+   *
+   * <p>Пропускная способность указывается за все время работы и за время с предыдущего отчета в том
+   * же окне. Задержки указываются в микросекундах с начала работы сервера.
+   *
+   * @param window окно получателя отчета; сдвигается на момент этого отчета.
+   * @return Текст отчета.
+   */
+  public String report(Window window) {
+    synchronized (window) {
+      return report(window, System.nanoTime());
+    }
+  }
+
+  private String report(Window window, long now) {
+    double uptime = Math.max(now - startedAt, 1) / 1e9;
+    double interval = Math.max(now - window.reportedAt, 1) / 1e9;
+    window.reportedAt = now;
+
+    StringBuilder sb = new StringBuilder();
+    sb.append(String.format(Locale.ROOT, "Статистика запросов за %.1f с:", uptime));
+    boolean empty = true;
+    for (Map.Entry<String, CommandStats> entry : stats.entrySet()) {
+      CommandStats commandStats = entry.getValue();
+      long requests = commandStats.requests.sum();
+      Long previous = window.reported.put(entry.getKey(), requests);
+      long recent = requests - (previous != null ? previous : 0);
+      if (requests == 0) {
+        continue;
+      }
+      empty = false;
+      sb.append(System.lineSeparator())
+          .append(
+              String.format(
+                  Locale.ROOT,
+                  "  %s: запросов %d, ошибок %d, %.1f запр/с (за последние %.1f с: %.1f запр/с)",
+                  entry.getKey(),
+                  requests,
+                  commandStats.errors.sum(),
+                  requests / uptime,
+                  interval,
+                  recent / interval));
+      for (Stage stage : Stage.values()) {
+        LatencyHistogram histogram = commandStats.stages[stage.ordinal()];
+        if (histogram.getCount() == 0) {
+          continue;
+        }
+        sb.append(System.lineSeparator())
+            .append(
+                String.format(
+                    Locale.ROOT,
+                    "    %-14s p50=%d p99=%d p99.9=%d max=%d мкс",
+                    stage.title,
+                    histogram.getPercentile(50),
+                    histogram.getPercentile(99),
+                    histogram.getPercentile(99.9),
+                    histogram.getMax()));
+      }
+    }
+    if (empty) {
+      sb.append(" запросов не было");
+    }
+    return sb.toString();
+  }
+}
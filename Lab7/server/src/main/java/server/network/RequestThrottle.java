@@ -0,0 +1,145 @@
+package server.network;
+
+import common.data.auth.AuthCredentials;
+import common.network.BatchRequest;
+import common.network.Request;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Ограничение частоты запросов по адресу клиента и по имени пользователя.
+ *
+ * <p>Ограничение по адресу проверяется потоком цикла приема (или селектора TCP-транспорта) до
+ * декодирования, поэтому датаграммы клиента, превысившего ограничение, не попадают в очереди
+ * этапов. Имя пользователя известно только после декодирования, поэтому ограничение по нему
+ * проверяется сразу после декодирования, до выполнения запроса; пакет команд расходует по маркеру
+ * на каждую команду у ее пользователя. Каждое ограничение выключается нулевой скоростью.
+ *
+ * <p>Ответы о перегрузке на отклоненные датаграммы тоже ограничены: не больше {@value
+ * #BUSY_REPLIES_PER_SECOND} в секунду на хост, чтобы клиент, заваливающий сервер датаграммами, или
+ * чужой поддельный адрес отправителя не получали по ответу на каждую датаграмму.
+ *
+ * @see TokenBucketLimiter
+ * @author Alvas
+ * @since 3.0
+ */
+public class RequestThrottle {
+  /** Наибольшее количество ответов о перегрузке в секунду на один хост. */
+  public static final int BUSY_REPLIES_PER_SECOND = 1;
+
+  private final TokenBucketLimiter<InetSocketAddress> byAddress;
+  private final TokenBucketLimiter<String> byUser;
+  private final TokenBucketLimiter<InetAddress> busyReplies;
+
+  /**
+   * Создает ограничения.
+   *
+   * @param clientRate запросов в секунду с одного адреса или {@code 0}, если без ограничения.
+   * @param clientBurst запросов подряд с одного адреса.
+   * @param userRate запросов в секунду от одного пользователя или {@code 0}, если без ограничения.
+   * @param userBurst запросов подряд от одного пользователя.
+   * @param idleMillis время простоя, после которого корзина клиента удаляется.
+   */
+  public RequestThrottle(
+      int clientRate, int clientBurst, int userRate, int userBurst, long idleMillis) {
+    this.byAddress =
+        clientRate > 0 ? new TokenBucketLimiter<>(clientRate, clientBurst, idleMillis) : null;
+    this.byUser = userRate > 0 ? new TokenBucketLimiter<>(userRate, userBurst, idleMillis) : null;
+    this.busyReplies = new TokenBucketLimiter<>(BUSY_REPLIES_PER_SECOND, 1, idleMillis);
+  }
+
+  /**
+   * Проверяет ограничение по адресу для полученной датаграммы или кадра.
+   *
+   * @param clientAddress адрес клиента.
+   * @return {@code true} - если датаграмму можно обрабатывать.
+   */
+  public boolean allowAddress(InetSocketAddress clientAddress) {
+    return byAddress == null || byAddress.tryAcquire(clientAddress);
+  }
+
+  /**
+   * Проверяет, можно ли ответить о перегрузке на датаграмму, отклоненную по ограничению адреса.
+   *
+   * @param clientAddress адрес отправителя датаграммы.
+   * @return {@code true} - если хосту еще не отвечали в текущую секунду.
+   */
+  public boolean allowBusyReply(InetSocketAddress clientAddress) {
+    return busyReplies.tryAcquire(clientAddress.getAddress());
+  }
+
+  /**
+   * Проверяет ограничение по имени пользователя для декодированного запроса. Запросы без данных
+   * авторизации (регистрация, вход) ограничиваются только по адресу.
+   *
+   * <p>Каждая команда пакета {@link BatchRequest} расходует маркер у пользователя из своих данных
+   * авторизации, а если их нет - у отправителя пакета. Пакет выполняется, только если маркеров
+   * хватило всем его пользователям.
+   *
+   * @param request запрос.
+   * @return {@code true} - если запрос можно выполнять.
+   */
+  public boolean allowUser(Request request) {
+    if (byUser == null) {
+      return true;
+    }
+    if (!(request instanceof BatchRequest batch)) {
+      return request.getAuth() == null || byUser.tryAcquire(request.getAuth().username());
+    }
+
+    Map<String, Integer> permits = new HashMap<>();
+    for (Request inner : batch.getRequests()) {
+      AuthCredentials auth = inner.getAuth() != null ? inner.getAuth() : batch.getAuth();
+      if (auth != null) {
+        permits.merge(auth.username(), 1, Integer::sum);
+      }
+    }
+    for (Map.Entry<String, Integer> entry : permits.entrySet()) {
+      if (!byUser.tryAcquire(entry.getKey(), entry.getValue())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Удаляет корзины простаивающих клиентов.
+   *
+   * @return Количество удаленных корзин.
+   */
+  public int evictIdle() {
+    int evicted = 0;
+    if (byAddress != null) {
+      evicted += byAddress.evictIdle();
+    }
+    if (byUser != null) {
+      evicted += byUser.evictIdle();
+    }
+    evicted += busyReplies.evictIdle();
+    return evicted;
+  }
+
+  /**
+   * Возвращает количество отклоненных запросов.
+   *
+   * @return Сумма отклонений по адресу и по имени пользователя.
+   */
+  public long getThrottled() {
+    return (byAddress != null ? byAddress.getThrottled() : 0)
+        + (byUser != null ? byUser.getThrottled() : 0);
+  }
+
+  @Override
+  public String toString() {
+    return "RequestThrottle{"
+        + "byAddress="
+        + byAddress
+        + ", byUser="
+        + byUser
+        + ", busyReplies="
+        + busyReplies
+        + '}';
+  }
+}
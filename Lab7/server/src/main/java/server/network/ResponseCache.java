@@ -0,0 +1,222 @@
+package server.network;
+
+import common.network.Request;
+import common.network.RequestBody;
+import common.network.RequestBodyWithPage;
+import common.network.codec.Codec;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Кэш закодированных ответов на команды, только читающие коллекцию.
+ *
+ * <p>Ответ такой команды зависит только от ее аргументов и состояния коллекции, поэтому между двумя
+ * изменениями коллекции одинаковые запросы разных клиентов получают одни и те же байты. Запись
+ * хранит версию коллекции ({@link common.managers.CollectionManager#getVersion()}), при которой
+ * ответ был сформирован; запись другой версии считается устаревшей и не используется. Ответ
+ * сохраняется, только если версия не изменилась за время выполнения команды.
+ *
+ * <p>Кэш хранит не больше {@code capacity} ответов общим объемом не больше {@code maxBytes} байт и
+ * вытесняет те, к которым дольше всего не обращались.
+ *
+ * @author Alvas
+ * @since 3.0
+ */
+public class ResponseCache {
+  /**
+   * Ключ кэша: все, от чего зависят байты ответа, кроме состояния коллекции.
+   *
+   * @param commandName название команды.
+   * @param args аргументы команды.
+   * @param pageSize размер страницы или {@code 0}, если ответ не постраничный.
+   * @param cursor курсор страницы.
+   * @param codecName название кодека ответа.
+   * @param acceptsCompression может ли клиент принять сжатый ответ.
+   */
+  public record Key(
+      String commandName,
+      List<String> args,
+      int pageSize,
+      String cursor,
+      String codecName,
+      boolean acceptsCompression) {
+
+    /**
+     * Создает ключ для запроса.
+     *
+     * @param request запрос.
+     * @param codec кодек ответа.
+     * @param acceptsCompression может ли клиент принять сжатый ответ.
+     * @return Ключ кэша.
+     */
+    public static Key of(Request request, Codec codec, boolean acceptsCompression) {
+      RequestBody body = request.getRequestBody();
+      List<String> args =
+          body == null || body.getArgs() == null
+              ? List.of()
+              : Arrays.asList(body.getArgs().clone());
+      int pageSize = 0;
+      String cursor = null;
+      if (body instanceof RequestBodyWithPage page) {
+        pageSize = page.getPageSize();
+        cursor = page.getCursor();
+      }
+      return new Key(
+          request.getCommandName(), args, pageSize, cursor, codec.getName(), acceptsCompression);
+    }
+  }
+
+  /**
+   * Сохраненный ответ.
+   *
+   * @param version версия коллекции, при которой сформирован ответ.
+   * @param encoded закодированный (и, возможно, сжатый) ответ; буфер только для чтения.
+   * @param nextCursor курсор следующей страницы или {@code null}.
+   */
+  public record Entry(long version, ByteBuffer encoded, String nextCursor) {}
+
+  private final int capacity;
+  private final long maxBytes;
+  private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private long bytes;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder stale = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  /**
+   * Создает кэш.
+   *
+   * @param capacity наибольшее количество ответов; {@code 0} отключает кэш.
+   * @param maxBytes наибольший общий объем ответов в байтах.
+   */
+  public ResponseCache(int capacity, long maxBytes) {
+    this.capacity = capacity;
+    this.maxBytes = maxBytes;
+  }
+
+  public boolean isEnabled() {
+    return capacity > 0;
+  }
+
+  /**
+   * Ищет ответ, сформированный при текущей версии коллекции.
+   *
+   * @param key ключ запроса.
+   * @param version текущая версия коллекции.
+   * @return Сохраненный ответ с собственной позицией буфера или {@code null}.
+   */
+  public Entry get(Key key, long version) {
+    Entry entry;
+    synchronized (this) {
+      entry = entries.get(key);
+    }
+    if (entry == null) {
+      misses.increment();
+      return null;
+    }
+    if (entry.version() != version) {
+      stale.increment();
+      misses.increment();
+      return null;
+    }
+    hits.increment();
+    return new Entry(entry.version(), entry.encoded().duplicate(), entry.nextCursor());
+  }
+
+  /**
+   * Сохраняет копию ответа, если в кэше нет ответа для более новой версии коллекции.
+   *
+   * @param key ключ запроса.
+   * @param version версия коллекции, прочитанная до выполнения команды и не изменившаяся после.
+   * @param encoded закодированный ответ от позиции до границы; позиция не меняется.
+   * @param nextCursor курсор следующей страницы или {@code null}.
+   */
+  public void put(Key key, long version, ByteBuffer encoded, String nextCursor) {
+    int size = encoded.remaining();
+    if (!isEnabled() || size > maxBytes) {
+      return;
+    }
+    ByteBuffer copy = ByteBuffer.allocate(size).put(encoded.duplicate()).flip();
+    Entry entry = new Entry(version, copy.asReadOnlyBuffer(), nextCursor);
+
+    synchronized (this) {
+      Entry previous = entries.get(key);
+      if (previous != null) {
+        if (previous.version() > version) {
+          return;
+        }
+        bytes -= previous.encoded().capacity();
+      }
+      entries.put(key, entry);
+      bytes += size;
+
+      Iterator<Entry> eldest = entries.values().iterator();
+      while ((entries.size() > capacity || bytes > maxBytes) && eldest.hasNext()) {
+        bytes -= eldest.next().encoded().capacity();
+        eldest.remove();
+        evictions.increment();
+      }
+    }
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  public synchronized long getBytes() {
+    return bytes;
+  }
+
+  public long getHits() {
+    return hits.sum();
+  }
+
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  public long getStale() {
+    return stale.sum();
+  }
+
+  public long getEvictions() {
+    return evictions.sum();
+  }
+
+  /**
+   * Возвращает долю запросов, ответ на которые взят из кэша.
+   *
+   * @return Доля попаданий от 0 до 1.
+   */
+  public double getHitRate() {
+    long hits = this.hits.sum();
+    long total = hits + misses.sum();
+    return total == 0 ? 0.0 : (double) hits / total;
+  }
+
+  @Override
+  public String toString() {
+    return "ResponseCache{"
+        + "size="
+        + size()
+        + ", bytes="
+        + getBytes()
+        + ", hits="
+        + hits.sum()
+        + ", misses="
+        + misses.sum()
+        + ", stale="
+        + stale.sum()
+        + ", evictions="
+        + evictions.sum()
+        + String.format(", hitRate=%.4f", getHitRate())
+        + '}';
+  }
+}
@@ -0,0 +1,59 @@
+package server.network;
+
+import common.network.Compression;
+import common.network.codec.Codec;
+import java.nio.ByteBuffer;
+
+/**
+ * Сжимает закодированные ответы клиентам, которые умеют их распаковывать.
+ *
+ * <p>Ответ сжимается, только если его размер не меньше порога; результат каждой попытки учитывается
+ * в {@link CompressionMetrics}.
+ *
+ * @author Alvas
+ * @since 3.0
+ */
+public class ResponseCompressor {
+  private final int threshold;
+  private final CompressionMetrics metrics;
+
+  public ResponseCompressor(int threshold, CompressionMetrics metrics) {
+    this.threshold = threshold;
+    this.metrics = metrics;
+  }
+
+  /**
+   * Сжимает ответ, если это разрешено и выгодно.
+   *
+   * @param commandName имя команды, на которую дан ответ.
+   * @param encoded закодированный ответ.
+   * @param codec кодек ответа.
+   * @param acceptsCompression умеет ли клиент распаковывать ответы.
+   * @return Конверт со сжатым ответом или исходный ответ.
+   */
+  public ByteBuffer compress(
+      String commandName, ByteBuffer encoded, Codec codec, boolean acceptsCompression) {
+    if (!acceptsCompression) {
+      return encoded;
+    }
+    int size = encoded.remaining();
+    if (size < threshold) {
+      metrics.recordSkipped(commandName, size);
+      return encoded;
+    }
+
+    long start = System.nanoTime();
+    ByteBuffer compressed = Compression.compress(encoded, codec);
+    long elapsed = System.nanoTime() - start;
+    if (compressed == null) {
+      metrics.recordAttempt(commandName, size, size, elapsed);
+      return encoded;
+    }
+    metrics.recordAttempt(commandName, size, compressed.remaining(), elapsed);
+    return compressed;
+  }
+
+  public CompressionMetrics getMetrics() {
+    return metrics;
+  }
+}
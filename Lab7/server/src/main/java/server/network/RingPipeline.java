@@ -0,0 +1,303 @@
+package server.network;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import server.system.WaitStrategy;
+
+/**
+ * Конвейер обработки на кольцевом буфере с одним производителем.
+ *
+ * <p>Элементы кольца создаются заранее и используются повторно: производитель занимает очередной
+ * номер ({@link #tryClaim()} или {@link #claim()}), заполняет элемент {@link #get(long)} и
+ * публикует его ({@link #publish(long)}). Затем элемент по очереди проходит этапы; этап с
+ * несколькими потоками делит номера между ними по остатку от деления. Каждый поток хранит номер
+ * последнего обработанного элемента, и следующий этап (или производитель, когда кольцо заполнено)
+ * ждет, пока этот номер не станет достаточно большим. Поэтому передача элемента между этапами не
+ * требует ни блокировок, ни выделения памяти.
+ *
+ * <p>Если обработчик вернул {@code false} или выбросил исключение, следующие этапы пропускают
+ * элемент. Элементы проходят каждый этап в порядке публикации, поэтому долгая обработка одного
+ * элемента задерживает следующие за ним на последующих этапах.
+ *
+ * @param <E> тип элемента кольца.
+ * @author Alvas
+ * @since 3.0
+ */
+public class RingPipeline<E> {
+  private static final Logger logger = LogManager.getLogger();
+
+  /**
+   * Обработчик элемента на этапе.
+   *
+   * @param <E> тип элемента кольца.
+   */
+  @FunctionalInterface
+  public interface Handler<E> {
+    /**
+     * Обрабатывает элемент.
+     *
+     * @param entry элемент кольца.
+     * @return {@code true} - если элемент нужно передать следующему этапу.
+     */
+    boolean handle(E entry);
+  }
+
+  /**
+   * Этап конвейера.
+   *
+   * @param name название этапа.
+   * @param workers количество потоков этапа.
+   * @param handler обработчик элементов.
+   */
+  public record Stage<E>(String name, int workers, Handler<E> handler) {}
+
+  private final String name;
+  private final Object[] entries;
+  // элемент пропускается следующими этапами
+  private final boolean[] skipped;
+  private final int mask;
+  private final List<Stage<E>> stages;
+  private final WaitStrategy waitStrategy;
+  // номера последних элементов, обработанных каждым потоком каждого этапа
+  private final AtomicLong[][] sequences;
+  // номер последнего опубликованного элемента
+  private final AtomicLong cursor = new AtomicLong(-1);
+  private final List<Thread> threads = new ArrayList<>();
+  private volatile boolean isRunning = true;
+
+  // поля производителя
+  private long nextSequence;
+  private long cachedGate = -1;
+
+  private final LongAdder rejected = new LongAdder();
+  private final LongAdder producerWaits = new LongAdder();
+
+  /**
+   * Создает конвейер.
+   *
+   * @param name название конвейера (используется в именах потоков).
+   * @param size размер кольца; округляется вверх до степени двойки.
+   * @param factory создает элементы кольца.
+   * @param stages этапы в порядке обработки.
+   * @param waitStrategy способ ожидания работы.
+   */
+  public RingPipeline(
+      String name,
+      int size,
+      Supplier<E> factory,
+      List<Stage<E>> stages,
+      WaitStrategy waitStrategy) {
+    int capacity = Integer.highestOneBit(Math.max(1, size - 1)) << 1;
+    this.name = name;
+    this.entries = new Object[capacity];
+    this.skipped = new boolean[capacity];
+    this.mask = capacity - 1;
+    this.stages = List.copyOf(stages);
+    this.waitStrategy = waitStrategy;
+    for (int i = 0; i < capacity; i++) {
+      entries[i] = factory.get();
+    }
+
+    sequences = new AtomicLong[stages.size()][];
+    for (int stage = 0; stage < sequences.length; stage++) {
+      int workers = stages.get(stage).workers();
+      sequences[stage] = new AtomicLong[workers];
+      for (int worker = 0; worker < workers; worker++) {
+        // до первого элемента поток "обработал" номер, предшествующий своему первому
+        sequences[stage][worker] = new AtomicLong(worker - workers);
+      }
+    }
+  }
+
+  /** Запускает потоки этапов. */
+  public void start() {
+    for (int stage = 0; stage < stages.size(); stage++) {
+      for (int worker = 0; worker < stages.get(stage).workers(); worker++) {
+        int stageIndex = stage;
+        int workerIndex = worker;
+        Thread thread =
+            new Thread(
+                () -> work(stageIndex, workerIndex),
+                name + "-" + stages.get(stage).name() + "-" + worker);
+        thread.setDaemon(true);
+        thread.start();
+        threads.add(thread);
+      }
+    }
+  }
+
+  /**
+   * Занимает номер следующего элемента, если в кольце есть место. Вызывается только потоком
+   * производителя.
+   *
+   * @return Номер элемента или {@code -1}, если кольцо заполнено.
+   */
+  public long tryClaim() {
+    long sequence = nextSequence;
+    long wrapPoint = sequence - entries.length;
+    if (wrapPoint > cachedGate) {
+      cachedGate = barrier(stages.size());
+      if (wrapPoint > cachedGate) {
+        rejected.increment();
+        return -1;
+      }
+    }
+    nextSequence++;
+    return sequence;
+  }
+
+  /**
+   * Занимает номер следующего элемента, ожидая освобождения места в кольце. Вызывается только
+   * потоком производителя.
+   *
+   * @return Номер элемента или {@code -1}, если конвейер остановлен.
+   */
+  public long claim() {
+    long sequence = nextSequence;
+    long wrapPoint = sequence - entries.length;
+    int attempt = 0;
+    while (wrapPoint > cachedGate) {
+      cachedGate = barrier(stages.size());
+      if (wrapPoint <= cachedGate) {
+        break;
+      }
+      if (!isRunning) {
+        return -1;
+      }
+      if (attempt == 0) {
+        producerWaits.increment();
+      }
+      attempt = waitStrategy.idle(attempt);
+    }
+    nextSequence++;
+    return sequence;
+  }
+
+  /**
+   * Возвращает элемент кольца по номеру.
+   *
+   * @param sequence номер, полученный от {@link #tryClaim()} или {@link #claim()}.
+   * @return Элемент кольца.
+   */
+  @SuppressWarnings("unchecked")
+  public E get(long sequence) {
+    return (E) entries[(int) sequence & mask];
+  }
+
+  /**
+   * Передает заполненный элемент первому этапу. Вызывается только потоком производителя.
+   *
+   * @param sequence номер элемента.
+   */
+  public void publish(long sequence) {
+    skipped[(int) sequence & mask] = false;
+    cursor.lazySet(sequence);
+  }
+
+  private void work(int stage, int worker) {
+    Handler<E> handler = stages.get(stage).handler();
+    int workers = stages.get(stage).workers();
+    AtomicLong processed = sequences[stage][worker];
+    long sequence = processed.get() + workers;
+    int attempt = 0;
+
+    while (isRunning) {
+      long available = barrier(stage);
+      if (available < sequence) {
+        attempt = waitStrategy.idle(attempt);
+        continue;
+      }
+      attempt = 0;
+
+      while (sequence <= available) {
+        int index = (int) sequence & mask;
+        if (!skipped[index]) {
+          try {
+            if (!handler.handle(get(sequence))) {
+              skipped[index] = true;
+            }
+          } catch (RuntimeException e) {
+            skipped[index] = true;
+            logger.error("Ошибка на этапе " + stages.get(stage).name() + ": " + e.getMessage());
+          }
+        }
+        processed.lazySet(sequence);
+        sequence += workers;
+      }
+    }
+  }
+
+  // наибольший номер, все элементы до которого прошли этап stage - 1
+  private long barrier(int stage) {
+    if (stage == 0) {
+      return cursor.get();
+    }
+    AtomicLong[] previous = sequences[stage - 1];
+    long min = Long.MAX_VALUE;
+    for (AtomicLong sequence : previous) {
+      // у потока, обработавшего номер n, следующий необработанный номер - n + workers
+      min = Math.min(min, sequence.get() + previous.length);
+    }
+    return min - 1;
+  }
+
+  /** Останавливает потоки этапов; элементы, не прошедшие все этапы, не обрабатываются. */
+  public void stop() {
+    isRunning = false;
+    for (Thread thread : threads) {
+      try {
+        thread.join(100);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+
+  public int getCapacity() {
+    return entries.length;
+  }
+
+  public long getPublished() {
+    return cursor.get() + 1;
+  }
+
+  /**
+   * Возвращает количество опубликованных элементов, еще не прошедших все этапы.
+   *
+   * @return Количество элементов в работе.
+   */
+  public long getBacklog() {
+    return cursor.get() - barrier(stages.size());
+  }
+
+  public long getRejected() {
+    return rejected.sum();
+  }
+
+  @Override
+  public String toString() {
+    return "RingPipeline{"
+        + "name='"
+        + name
+        + '\''
+        + ", capacity="
+        + entries.length
+        + ", published="
+        + getPublished()
+        + ", backlog="
+        + getBacklog()
+        + ", rejected="
+        + rejected.sum()
+        + ", producerWaits="
+        + producerWaits.sum()
+        + ", waitStrategy="
+        + waitStrategy
+        + '}';
+  }
+}
@@ -0,0 +1,332 @@
+package server.network;
+
+import common.network.StreamFrames;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Соединение клиента с TCP-транспортом сервера.
+ *
+ * <p>Кадры ответов ставятся в очередь из любого потока, а записываются в канал только потоком
+ * селектора. Объем очереди ограничивает поток данных: пока в очереди больше {@code highWatermark}
+ * байт, селектор не читает новые запросы, а потоковые ответы не формируют следующие страницы;
+ * чтение и формирование страниц возобновляются, когда очередь становится меньше {@code
+ * lowWatermark}.
+ *
+ * <p>Каждый потоковый ответ дополнительно ограничен кредитом клиента ({@link
+ * StreamFrames#FLAG_CREDIT}): формирование следующей страницы откладывается, пока клиент не
+ * разрешит ее отправку.
+ *
+ * <p>Буфер чтения растет вдвое по мере поступления данных кадра, а не сразу до длины, заявленной в
+ * его начале, и возвращается к исходному размеру после большого кадра.
+ *
+ * @author Alvas
+ * @since 3.0
+ */
+public class StreamConnection {
+  private static final int INITIAL_READ_BUFFER_SIZE = 8192;
+  private static final int MAX_STREAM_CREDIT = 1024;
+
+  // кредит потокового ответа и отложенное формирование следующей страницы
+  private static final class StreamState {
+    private int credit = StreamFrames.STREAM_CREDIT;
+    private Runnable parked;
+  }
+
+  private final SocketChannel channel;
+  private final SelectionKey key;
+  private final InetSocketAddress remoteAddress;
+  private final int highWatermark;
+  private final int lowWatermark;
+  private final int maxFrameSize;
+  private final Consumer<StreamConnection> writeRequester;
+
+  private ByteBuffer readBuffer = ByteBuffer.allocate(INITIAL_READ_BUFFER_SIZE);
+  // очередь записи и ожидающие ее освобождения задачи защищены монитором соединения
+  private final Deque<ByteBuffer> outbound = new ArrayDeque<>();
+  private final List<Runnable> drainListeners = new ArrayList<>();
+  private long outboundBytes;
+  private boolean readPaused;
+  private volatile boolean closed;
+  private volatile long lastActivity = System.currentTimeMillis();
+
+  private final Map<Long, StreamState> activeStreams = new ConcurrentHashMap<>();
+
+  /**
+   * Создает соединение.
+   *
+   * @param channel канал клиента в неблокирующем режиме.
+   * @param key ключ канала в селекторе.
+   * @param highWatermark объем очереди записи, при котором чтение приостанавливается.
+   * @param lowWatermark объем очереди записи, при котором чтение возобновляется.
+   * @param maxFrameSize наибольшая длина кадра от клиента (без поля длины).
+   * @param writeRequester вызывается после постановки кадра в очередь, чтобы селектор его записал.
+   * @throws IOException если не удалось получить адрес клиента.
+   */
+  public StreamConnection(
+      SocketChannel channel,
+      SelectionKey key,
+      int highWatermark,
+      int lowWatermark,
+      int maxFrameSize,
+      Consumer<StreamConnection> writeRequester)
+      throws IOException {
+    this.channel = channel;
+    this.key = key;
+    this.remoteAddress = (InetSocketAddress) channel.getRemoteAddress();
+    this.highWatermark = highWatermark;
+    this.lowWatermark = lowWatermark;
+    this.maxFrameSize = maxFrameSize;
+    this.writeRequester = writeRequester;
+  }
+
+  /**
+   * Ставит кадр в очередь записи. Может вызываться из любого потока.
+   *
+   * @param frame кадр, готовый к записи.
+   */
+  public void send(ByteBuffer frame) {
+    if (closed) {
+      return;
+    }
+    synchronized (this) {
+      outbound.addLast(frame);
+      outboundBytes += frame.remaining();
+    }
+    writeRequester.accept(this);
+  }
+
+  /**
+   * Выполняет задачу, когда очередь записи станет меньше {@code lowWatermark}; если очередь уже
+   * достаточно мала, задача выполняется сразу в вызывающем потоке.
+   *
+   * @param task задача.
+   */
+  public void whenWritable(Runnable task) {
+    synchronized (this) {
+      if (outboundBytes >= highWatermark) {
+        drainListeners.add(task);
+        return;
+      }
+    }
+    task.run();
+  }
+
+  /**
+   * Записывает очередь в канал, пока канал принимает данные. Вызывается потоком селектора.
+   *
+   * @return Количество записанных байт.
+   * @throws IOException если запись не удалась.
+   */
+  public long flush() throws IOException {
+    long written = 0;
+    List<Runnable> ready = List.of();
+    synchronized (this) {
+      while (!outbound.isEmpty()) {
+        ByteBuffer frame = outbound.peekFirst();
+        written += channel.write(frame);
+        if (frame.hasRemaining()) {
+          break;
+        }
+        outbound.pollFirst();
+      }
+      outboundBytes -= written;
+      if (written > 0) {
+        lastActivity = System.currentTimeMillis();
+      }
+      if (outboundBytes < lowWatermark && !drainListeners.isEmpty()) {
+        ready = new ArrayList<>(drainListeners);
+        drainListeners.clear();
+      }
+    }
+    ready.forEach(Runnable::run);
+    return written;
+  }
+
+  /**
+   * Обновляет интересующие селектор события: запись - если очередь не пуста, чтение - если очередь
+   * не переполнена. Вызывается потоком селектора.
+   *
+   * @return {@code true} - если чтение было приостановлено этим вызовом.
+   */
+  public boolean updateInterest() {
+    if (!key.isValid()) {
+      return false;
+    }
+    boolean paused;
+    boolean hasOutbound;
+    synchronized (this) {
+      paused = readPaused ? outboundBytes >= lowWatermark : outboundBytes >= highWatermark;
+      hasOutbound = !outbound.isEmpty();
+    }
+    boolean newlyPaused = paused && !readPaused;
+    readPaused = paused;
+    key.interestOps(
+        (paused ? 0 : SelectionKey.OP_READ) | (hasOutbound ? SelectionKey.OP_WRITE : 0));
+    return newlyPaused;
+  }
+
+  /**
+   * Возвращает буфер чтения для следующего чтения из канала. Вызывается потоком селектора.
+   *
+   * <p>Если буфер заполнен началом кадра, который в нем не помещается, буфер увеличивается вдвое,
+   * но не больше длины кадра; кадры длиннее {@code maxFrameSize} буфер не увеличивают. Если после
+   * большого кадра в буфере осталось мало данных, он заменяется буфером исходного размера.
+   *
+   * @return Буфер чтения в режиме записи.
+   */
+  public ByteBuffer readBuffer() {
+    readBuffer.flip();
+    int needed = StreamFrames.pendingFrameSize(readBuffer);
+    int capacity = readBuffer.capacity();
+    if (readBuffer.remaining() == capacity
+        && needed > capacity
+        && needed <= maxFrameSize + StreamFrames.LENGTH_SIZE) {
+      capacity = (int) Math.min(needed, capacity * 2L);
+    } else if (capacity > INITIAL_READ_BUFFER_SIZE
+        && Math.max(readBuffer.remaining(), needed) <= INITIAL_READ_BUFFER_SIZE) {
+      capacity = INITIAL_READ_BUFFER_SIZE;
+    }
+
+    if (capacity != readBuffer.capacity()) {
+      ByteBuffer resized = ByteBuffer.allocate(capacity);
+      resized.put(readBuffer);
+      readBuffer = resized;
+    } else {
+      readBuffer.compact();
+    }
+    return readBuffer;
+  }
+
+  /** Отмечает получение данных от клиента. Вызывается потоком селектора. */
+  public void markActive() {
+    lastActivity = System.currentTimeMillis();
+  }
+
+  /**
+   * Показывает, простаивает ли соединение: клиент ничего не присылал, сервер ничего не записывал и
+   * не формирует потоковых ответов дольше заданного времени.
+   *
+   * @param now текущее время в миллисекундах.
+   * @param idleMillis время простоя.
+   * @return {@code true} - если соединение можно закрыть как простаивающее.
+   */
+  public boolean isIdle(long now, long idleMillis) {
+    return now - lastActivity > idleMillis && activeStreams.isEmpty() && getOutboundBytes() == 0;
+  }
+
+  /**
+   * Отмечает начало потокового ответа на запрос.
+   *
+   * @param messageId идентификатор запроса.
+   */
+  public void openStream(long messageId) {
+    activeStreams.put(messageId, new StreamState());
+  }
+
+  /**
+   * Выполняет задачу, расходуя единицу кредита потока; если кредита нет, задача откладывается до
+   * {@link #grantCredit(long, int)}. Если поток уже завершен или отменен, задача не выполняется.
+   *
+   * @param messageId идентификатор запроса.
+   * @param task формирование следующей страницы.
+   */
+  public void whenCredited(long messageId, Runnable task) {
+    StreamState stream = activeStreams.get(messageId);
+    if (stream == null) {
+      return;
+    }
+    synchronized (stream) {
+      if (stream.credit <= 0) {
+        stream.parked = task;
+        return;
+      }
+      stream.credit--;
+    }
+    task.run();
+  }
+
+  /**
+   * Увеличивает кредит потока и выполняет отложенную задачу, если она была.
+   *
+   * @param messageId идентификатор запроса.
+   * @param pages количество страниц, которые клиент разрешает отправить.
+   */
+  public void grantCredit(long messageId, int pages) {
+    StreamState stream = activeStreams.get(messageId);
+    if (stream == null || pages <= 0) {
+      return;
+    }
+    Runnable task;
+    synchronized (stream) {
+      stream.credit = Math.min(MAX_STREAM_CREDIT, stream.credit + pages);
+      task = stream.parked;
+      if (task == null) {
+        return;
+      }
+      stream.parked = null;
+      stream.credit--;
+    }
+    task.run();
+  }
+
+  /**
+   * Завершает или отменяет потоковый ответ.
+   *
+   * @param messageId идентификатор запроса.
+   * @return {@code true} - если поток был активен.
+   */
+  public boolean closeStream(long messageId) {
+    return activeStreams.remove(messageId) != null;
+  }
+
+  public boolean isStreamActive(long messageId) {
+    return !closed && activeStreams.containsKey(messageId);
+  }
+
+  public int getActiveStreams() {
+    return activeStreams.size();
+  }
+
+  public synchronized long getOutboundBytes() {
+    return outboundBytes;
+  }
+
+  public InetSocketAddress getRemoteAddress() {
+    return remoteAddress;
+  }
+
+  public SocketChannel getChannel() {
+    return channel;
+  }
+
+  public boolean isClosed() {
+    return closed;
+  }
+
+  /** Закрывает соединение и отменяет все потоковые ответы. */
+  public void close() {
+    closed = true;
+    activeStreams.clear();
+    key.cancel();
+    try {
+      channel.close();
+    } catch (IOException ignored) {
+    }
+    synchronized (this) {
+      outbound.clear();
+      outboundBytes = 0;
+      drainListeners.clear();
+    }
+  }
+}
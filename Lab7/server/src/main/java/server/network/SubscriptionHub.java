@@ -0,0 +1,228 @@
+package server.network;
+
+import common.managers.CollectionChanges;
+import common.managers.CollectionManager;
+import common.network.Response;
+import common.network.ResponseWithChanges;
+import common.network.ResponseWithException;
+import common.network.ResponseWithLease;
+import common.network.codec.Codec;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Подписки клиентов на изменения коллекции.
+ *
+ * <p>Клиент подписывается командой {@code subscribe}; транспорт, получивший от команды {@link
+ * ResponseWithLease}, регистрирует подписку по адресу клиента или соединению на указанный срок.
+ * Вместо того чтобы каждый клиент опрашивал сервер, метод {@link #tick()} раз в период собирает
+ * изменения коллекции из журнала, кодирует одно уведомление {@link ResponseWithChanges} для каждого
+ * кодека и рассылает его всем подписчикам. Подписка, не продленная до окончания срока, удаляется.
+ *
+ * <p>Уведомления по UDP могут теряться; уведомление содержит версию, после которой произошли
+ * изменения, поэтому клиент обнаруживает пропуск и запрашивает недостающие изменения командой
+ * {@code sync}.
+ *
+ * @author Alvas
+ * @since 3.0
+ */
+public class SubscriptionHub {
+  private static final Logger logger = LogManager.getLogger();
+
+  /** Получатель уведомлений одного подписчика. */
+  public interface Sink {
+    /**
+     * Отправляет закодированное уведомление.
+     *
+     * @param encoded уведомление (читается от {@code position} до {@code limit}).
+     * @throws IOException если отправить не удалось.
+     */
+    void send(ByteBuffer encoded) throws IOException;
+
+    /**
+     * Показывает, что подписчику еще можно отправлять уведомления.
+     *
+     * @return {@code false} - если соединение с подписчиком закрыто.
+     */
+    boolean isOpen();
+  }
+
+  private record Subscription(Sink sink, Codec codec, boolean acceptsCompression, long expiresAt) {}
+
+  private final CollectionManager collectionManager;
+  private final ResponseCompressor compressor;
+  private final int maxSubscribers;
+  private final Map<Object, Subscription> subscriptions = new ConcurrentHashMap<>();
+
+  // изменения после этой версии еще не разосланы; меняются только в tick()
+  private long epoch;
+  private long version;
+
+  private final LongAdder subscribed = new LongAdder();
+  private final LongAdder renewed = new LongAdder();
+  private final LongAdder expired = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+  private final LongAdder notifications = new LongAdder();
+  private final LongAdder messagesSent = new LongAdder();
+  private final LongAdder sendErrors = new LongAdder();
+
+  /**
+   * Создает реестр подписок.
+   *
+   * @param collectionManager менеджер коллекции, журнал изменений которого рассылается.
+   * @param compressor сжатие уведомлений для клиентов, которые его поддерживают.
+   * @param maxSubscribers наибольшее количество подписчиков.
+   */
+  public SubscriptionHub(
+      CollectionManager collectionManager, ResponseCompressor compressor, int maxSubscribers) {
+    this.collectionManager = collectionManager;
+    this.compressor = compressor;
+    this.maxSubscribers = maxSubscribers;
+    CollectionChanges current = collectionManager.getChangesSince(-1, -1);
+    this.epoch = current.epoch();
+    this.version = current.version();
+  }
+
+  /**
+   * Регистрирует, продлевает или отменяет подписку по ответу команды {@code subscribe}.
+   *
+   * @param lease ответ команды.
+   * @param key адрес клиента или соединение.
+   * @param sink получатель уведомлений.
+   * @param codec кодек, которым закодирован запрос клиента.
+   * @param acceptsCompression может ли клиент принять сжатое уведомление.
+   * @return Ответ клиенту: тот же или ошибка, если подписчиков слишком много.
+   */
+  public Response subscribe(
+      ResponseWithLease lease, Object key, Sink sink, Codec codec, boolean acceptsCompression) {
+    if (lease.getLeaseMillis() <= 0) {
+      subscriptions.remove(key);
+      return lease;
+    }
+    Subscription subscription =
+        new Subscription(
+            sink, codec, acceptsCompression, System.currentTimeMillis() + lease.getLeaseMillis());
+    if (subscriptions.replace(key, subscription) != null) {
+      renewed.increment();
+      return lease;
+    }
+    if (subscriptions.size() >= maxSubscribers) {
+      rejected.increment();
+      return new ResponseWithException(
+          new IllegalStateException("Достигнуто наибольшее количество подписчиков."));
+    }
+    subscriptions.put(key, subscription);
+    subscribed.increment();
+    logger.info("Оформлена подписка на изменения коллекции: {}", key);
+    return lease;
+  }
+
+  /**
+   * Удаляет истекшие подписки и рассылает изменения коллекции, накопленные с предыдущего вызова.
+   * Вызывается периодически одним потоком.
+   */
+  public void tick() {
+    long now = System.currentTimeMillis();
+    subscriptions
+        .entrySet()
+        .removeIf(
+            entry -> {
+              Subscription subscription = entry.getValue();
+              if (subscription.expiresAt() < now || !subscription.sink().isOpen()) {
+                expired.increment();
+                logger.info("Подписка на изменения коллекции истекла: {}", entry.getKey());
+                return true;
+              }
+              return false;
+            });
+
+    long current = collectionManager.getVersion();
+    if (current == version) {
+      return;
+    }
+    if (subscriptions.isEmpty()) {
+      version = current;
+      return;
+    }
+
+    long since = version;
+    CollectionChanges changes = collectionManager.getChangesSince(epoch, since);
+    epoch = changes.epoch();
+    version = changes.version();
+    ResponseWithChanges notification =
+        new ResponseWithChanges(
+            changes.snapshot()
+                ? "Коллекция изменена, получена вся коллекция."
+                : "Коллекция изменена: добавлено или изменено "
+                    + changes.tickets().size()
+                    + ", удалено "
+                    + changes.removedIds().size(),
+            changes.tickets(),
+            changes.epoch(),
+            since,
+            changes.version(),
+            changes.snapshot(),
+            changes.removedIds());
+    notifications.increment();
+
+    // уведомление кодируется один раз для каждого сочетания кодека и сжатия
+    Map<String, ByteBuffer> encoded = new HashMap<>();
+    for (Subscription subscription : subscriptions.values()) {
+      try {
+        String format =
+            subscription.codec().getName() + (subscription.acceptsCompression() ? "+z" : "");
+        ByteBuffer message = encoded.get(format);
+        if (message == null) {
+          message =
+              compressor.compress(
+                  "subscribe",
+                  subscription.codec().encode(notification),
+                  subscription.codec(),
+                  subscription.acceptsCompression());
+          encoded.put(format, message);
+        }
+        subscription.sink().send(message.duplicate());
+        messagesSent.increment();
+      } catch (IOException | RuntimeException e) {
+        sendErrors.increment();
+        logger.error("Не удалось отправить уведомление подписчику: " + e.getMessage());
+      }
+    }
+  }
+
+  public int size() {
+    return subscriptions.size();
+  }
+
+  public long getMessagesSent() {
+    return messagesSent.sum();
+  }
+
+  @Override
+  public String toString() {
+    return "SubscriptionHub{"
+        + "subscribers="
+        + subscriptions.size()
+        + ", subscribed="
+        + subscribed.sum()
+        + ", renewed="
+        + renewed.sum()
+        + ", expired="
+        + expired.sum()
+        + ", rejected="
+        + rejected.sum()
+        + ", notifications="
+        + notifications.sum()
+        + ", messagesSent="
+        + messagesSent.sum()
+        + ", sendErrors="
+        + sendErrors.sum()
+        + '}';
+  }
+}
@@ -0,0 +1,135 @@
+package server.network;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ограничитель частоты запросов с отдельной корзиной маркеров для каждого ключа.
+ *
+ * <p>Корзина вмещает {@code burst} маркеров и пополняется со скоростью {@code ratePerSecond}
+ * маркеров в секунду; каждый запрос забирает один маркер. Состояние корзины хранится в одном числе
+ * - времени, к которому корзина снова станет полной (алгоритм GCRA), - и обновляется без
+ * блокировок. Корзины ключей, не присылавших запросов дольше {@code idleMillis}, удаляет {@link
+ * #evictIdle()}: к этому времени они все равно полны.
+ *
+ * @param <K> тип ключа.
+ * @author Alvas
+ * @since 3.0
+ */
+public class TokenBucketLimiter<K> {
+  private final long intervalNanos;
+  private final long toleranceNanos;
+  private final long idleNanos;
+  private final Map<K, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+  private final LongAdder allowed = new LongAdder();
+  private final LongAdder throttled = new LongAdder();
+  private final LongAdder expired = new LongAdder();
+
+  /**
+   * Создает ограничитель.
+   *
+   * @param ratePerSecond скорость пополнения корзины.
+   * @param burst емкость корзины - количество запросов, которые можно отправить подряд.
+   * @param idleMillis время простоя, после которого корзина удаляется.
+   */
+  public TokenBucketLimiter(double ratePerSecond, int burst, long idleMillis) {
+    this.intervalNanos = Math.max(1, (long) (1_000_000_000L / ratePerSecond));
+    this.toleranceNanos = intervalNanos * (Math.max(1, burst) - 1);
+    this.idleNanos = idleMillis * 1_000_000L;
+  }
+
+  /**
+   * Забирает маркер из корзины ключа.
+   *
+   * @param key ключ.
+   * @return {@code true} - если маркер был, {@code false} - если запрос превышает ограничение.
+   */
+  public boolean tryAcquire(K key) {
+    return tryAcquire(key, 1);
+  }
+
+  /**
+   * Забирает из корзины ключа несколько маркеров сразу: либо все, либо ни одного.
+   *
+   * <p>Запрос на большее число маркеров, чем вмещает корзина, выдается только при полной корзине и
+   * уходит в долг: следующие маркеры ключ получит, когда долг будет погашен пополнением.
+   *
+   * @param key ключ.
+   * @param permits количество маркеров.
+   * @return {@code true} - если маркеров хватило, {@code false} - если запрос превышает
+   *     ограничение.
+   */
+  public boolean tryAcquire(K key, int permits) {
+    long cost = intervalNanos * Math.max(1, permits);
+    // без долга запрос больше емкости корзины не был бы выдан никогда
+    long required = Math.min(cost - intervalNanos, toleranceNanos);
+    long now = System.nanoTime();
+    AtomicLong bucket = buckets.get(key);
+    if (bucket == null) {
+      bucket = buckets.computeIfAbsent(key, ignored -> new AtomicLong(now));
+    }
+
+    while (true) {
+      // время, к которому будет выдан маркер, предшествующий этим
+      long current = bucket.get();
+      long start = Math.max(current, now);
+      if (start + required - now > toleranceNanos) {
+        throttled.increment();
+        return false;
+      }
+      if (bucket.compareAndSet(current, start + cost)) {
+        allowed.increment();
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Удаляет корзины ключей, простаивающих дольше заданного времени.
+   *
+   * @return Количество удаленных корзин.
+   */
+  public int evictIdle() {
+    long threshold = System.nanoTime() - idleNanos;
+    int evicted = 0;
+    Iterator<AtomicLong> iterator = buckets.values().iterator();
+    while (iterator.hasNext()) {
+      if (iterator.next().get() < threshold) {
+        iterator.remove();
+        evicted++;
+      }
+    }
+    expired.add(evicted);
+    return evicted;
+  }
+
+  public int getTrackedKeys() {
+    return buckets.size();
+  }
+
+  public long getAllowed() {
+    return allowed.sum();
+  }
+
+  public long getThrottled() {
+    return throttled.sum();
+  }
+
+  @Override
+  public String toString() {
+    return "TokenBucketLimiter{"
+        + "tracked="
+        + buckets.size()
+        + ", allowed="
+        + allowed.sum()
+        + ", throttled="
+        + throttled.sum()
+        + ", expired="
+        + expired.sum()
+        + '}';
+  }
+}
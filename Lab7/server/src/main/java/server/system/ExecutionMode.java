@@ -0,0 +1,28 @@
+package server.system;
+
+/**
+ * Способ выполнения запросов на сервере.
+ *
+ * @author Alvas
+ * @since 3.0
+ */
+public enum ExecutionMode {
+  /**
+   * Декодирование, выполнение и отправка выполняются в разных пулах платформенных потоков
+   * (кэшированный пул, {@link java.util.concurrent.ForkJoinPool}, кэшированный пул).
+   */
+  PLATFORM,
+  /**
+   * Весь путь запроса (декодирование, выполнение, кодирование, отправка) выполняется в одном
+   * виртуальном потоке, поэтому блокирующие обращения к базе данных не занимают потоки-носители.
+   */
+  VIRTUAL,
+  /**
+   * Декодирование, выполнение и отправка - этапы кольцевого конвейера {@link
+   * server.network.RingPipeline} для каждого цикла приема. Запрос передается между этапами в
+   * заранее созданном элементе кольца, без очередей, блокировок и выделения памяти на передачу;
+   * ожидание работы задается {@link WaitStrategy}. Подходит для коротких запросов: долгое
+   * выполнение одного запроса задерживает отправку ответов на следующие за ним.
+   */
+  RING
+}
@@ -0,0 +1,22 @@
+package server.system;
+
+/**
+ * Поведение сервера при переполнении очереди между этапами обработки запросов.
+ *
+ * @author Alvas
+ * @since 3.0
+ */
+public enum OverloadPolicy {
+  /** Из очереди удаляется самая старая задача, новая ставится в конец. Клиент не уведомляется. */
+  DROP_OLDEST,
+  /**
+   * Новая задача отклоняется, клиенту сразу отправляется ответ с {@link
+   * common.exceptions.ServerBusyException}, если его можно отправить без декодирования запроса.
+   */
+  REJECT,
+  /**
+   * Поток, передающий задачу, ждет освобождения места в очереди. На первом этапе это цикл приема,
+   * поэтому датаграммы копятся в буфере сокета и отбрасываются операционной системой.
+   */
+  BLOCK
+}
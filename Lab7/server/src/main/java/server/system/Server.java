@@ -7,11 +7,15 @@ import java.io.IOException;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import org.apache.logging.log4j.LogManager;
 import server.UDPServer;
 import server.managers.SqlCollectionManager;
 import server.managers.SqlUserManager;
 
 public class Server {
+  // запас времени сверх ожидания запросов на остановку пулов и запись статистики
+  private static final long SHUTDOWN_MARGIN_MS = 2000;
+
   public static void main(String[] args) {
     if (args.length != 1) {
       System.err.println("Неверное количество аргументов для запуска сервера.");
@@ -31,6 +35,7 @@ public class Server {
 
     try {
       int port = Integer.parseInt(args[0]);
+      ServerConfig config = ServerConfig.fromEnvironment(System.getenv());
       Connection connection =
           DriverManager.getConnection(
               "jdbc:postgresql://" + dbHost + "/" + dbName, dbUser, dbPassword);
@@ -38,10 +43,28 @@ public class Server {
       CollectionManager collectionManager = new SqlCollectionManager(connection);
       CommandManager commandManager =
           new CommandManager(collectionManager, null, null, userManager);
-      UDPServer udpServer = new UDPServer(commandManager, collectionManager);
+      UDPServer udpServer = new UDPServer(commandManager, collectionManager, config);
+      // SIGTERM останавливает сервер так же, как команда shutdown: принятые запросы дорабатываются;
+      // журнал закрывается последним, поэтому собственный хук log4j отключен в log4j2.xml
+      Runtime.getRuntime()
+          .addShutdownHook(
+              new Thread(
+                  () -> {
+                    udpServer.stop();
+                    try {
+                      udpServer.awaitTermination(
+                          config.getShutdownTimeoutMillis() + SHUTDOWN_MARGIN_MS);
+                    } catch (InterruptedException e) {
+                      Thread.currentThread().interrupt();
+                    }
+                    LogManager.shutdown();
+                  },
+                  "shutdown-hook"));
       udpServer.runServer(port);
     } catch (NumberFormatException e) {
       System.err.println("Порт должен быть целым числом.");
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
     } catch (IOException e) {
       System.err.println("Ошибка при запуске сервера: " + e.getMessage());
     } catch (SQLException e) {
@@ -0,0 +1,543 @@
+package server.system;
+
+import common.network.Compression;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Класс, хранящий настройки сервера.
+ *
+ * <p>Настройки читаются из переменных окружения с префиксом {@code SERVER_}; для отсутствующих
+ * переменных используются значения по умолчанию.
+ *
+ * @author Alvas
+ * @since 3.0
+ */
+public class ServerConfig {
+  private int receiveLoops = 1;
+  private ExecutionMode executionMode = ExecutionMode.PLATFORM;
+  private int compressionThreshold = Compression.DEFAULT_THRESHOLD;
+  private int maxRequestSize = 1024 * 1024;
+  private int queueCapacity = 1024;
+  private OverloadPolicy overloadPolicy = OverloadPolicy.REJECT;
+  private int stageThreads = 16;
+  private int virtualConcurrency = 1024;
+  private int replyCacheSize = 4096;
+  // 0 - кэш ответов на команды чтения выключен
+  private int responseCacheSize = 1024;
+  private int responseCacheBytes = 64 * 1024 * 1024;
+  private int notifyIntervalMillis = 100;
+  private int maxSubscribers = 1024;
+  // 0 - TCP-транспорт выключен
+  private int tcpPort = 0;
+  private int tcpMaxConnections = 1024;
+  // 0 - простаивающие TCP-соединения не закрываются
+  private int tcpIdleTimeoutMillis = 300000;
+  private int ringSize = 1024;
+  private int ringWorkers = Runtime.getRuntime().availableProcessors();
+  private WaitStrategy waitStrategy = WaitStrategy.PARK;
+  // 0 - ограничение выключено
+  private int clientRate = 1000;
+  private int clientBurst = 2000;
+  private int userRate = 500;
+  private int userBurst = 1000;
+  // null - статистика запросов в файл не записывается
+  private String statsFile = null;
+  private int statsIntervalMillis = 60000;
+  // 1 - в журнал запросов записывается каждый запрос
+  private int logSampleRate = 1;
+  // 0 - запросы в обработке при остановке не ожидаются
+  private int shutdownTimeoutMillis = 10000;
+  private boolean bufferLeakTracking = false;
+
+  /**
+   * Создает настройки по переменным окружения.
+   *
+   * @param env переменные окружения.
+   * @return Настройки сервера.
+   * @throws IllegalArgumentException если значение переменной некорректно.
+   * @author Alvas
+   * @since 3.0
+   */
+  public static ServerConfig fromEnvironment(Map<String, String> env) {
+    ServerConfig config = new ServerConfig();
+    config.receiveLoops = parsePositiveInt(env, "SERVER_RECEIVE_LOOPS", config.receiveLoops);
+    config.executionMode =
+        parseEnum(env, "SERVER_EXECUTION_MODE", ExecutionMode.class, config.executionMode);
+    config.compressionThreshold =
+        parsePositiveInt(env, "SERVER_COMPRESSION_THRESHOLD", config.compressionThreshold);
+    config.maxRequestSize = parsePositiveInt(env, "SERVER_MAX_REQUEST_SIZE", config.maxRequestSize);
+    config.queueCapacity = parsePositiveInt(env, "SERVER_QUEUE_CAPACITY", config.queueCapacity);
+    config.overloadPolicy =
+        parseEnum(env, "SERVER_OVERLOAD_POLICY", OverloadPolicy.class, config.overloadPolicy);
+    config.stageThreads = parsePositiveInt(env, "SERVER_STAGE_THREADS", config.stageThreads);
+    config.virtualConcurrency =
+        parsePositiveInt(env, "SERVER_VIRTUAL_CONCURRENCY", config.virtualConcurrency);
+    config.replyCacheSize = parsePositiveInt(env, "SERVER_REPLY_CACHE_SIZE", config.replyCacheSize);
+    config.responseCacheSize =
+        parseNonNegativeInt(env, "SERVER_RESPONSE_CACHE_SIZE", config.responseCacheSize);
+    config.responseCacheBytes =
+        parsePositiveInt(env, "SERVER_RESPONSE_CACHE_BYTES", config.responseCacheBytes);
+    config.notifyIntervalMillis =
+        parsePositiveInt(env, "SERVER_NOTIFY_INTERVAL_MS", config.notifyIntervalMillis);
+    config.maxSubscribers = parsePositiveInt(env, "SERVER_MAX_SUBSCRIBERS", config.maxSubscribers);
+    config.tcpPort = parseNonNegativeInt(env, "SERVER_TCP_PORT", config.tcpPort);
+    config.tcpMaxConnections =
+        parsePositiveInt(env, "SERVER_TCP_MAX_CONNECTIONS", config.tcpMaxConnections);
+    config.tcpIdleTimeoutMillis =
+        parseNonNegativeInt(env, "SERVER_TCP_IDLE_TIMEOUT_MS", config.tcpIdleTimeoutMillis);
+    config.ringSize = parsePositiveInt(env, "SERVER_RING_SIZE", config.ringSize);
+    config.ringWorkers = parsePositiveInt(env, "SERVER_RING_WORKERS", config.ringWorkers);
+    config.waitStrategy =
+        parseEnum(env, "SERVER_WAIT_STRATEGY", WaitStrategy.class, config.waitStrategy);
+    config.clientRate = parseNonNegativeInt(env, "SERVER_CLIENT_RATE", config.clientRate);
+    config.clientBurst = parsePositiveInt(env, "SERVER_CLIENT_BURST", config.clientBurst);
+    config.userRate = parseNonNegativeInt(env, "SERVER_USER_RATE", config.userRate);
+    config.userBurst = parsePositiveInt(env, "SERVER_USER_BURST", config.userBurst);
+    String statsFile = env.get("SERVER_STATS_FILE");
+    if (statsFile != null && !statsFile.isBlank()) {
+      config.statsFile = statsFile.trim();
+    }
+    config.statsIntervalMillis =
+        parsePositiveInt(env, "SERVER_STATS_INTERVAL_MS", config.statsIntervalMillis);
+    config.logSampleRate = parsePositiveInt(env, "SERVER_LOG_SAMPLE_RATE", config.logSampleRate);
+    config.shutdownTimeoutMillis =
+        parseNonNegativeInt(env, "SERVER_SHUTDOWN_TIMEOUT_MS", config.shutdownTimeoutMillis);
+    config.bufferLeakTracking =
+        parseBoolean(env, "SERVER_BUFFER_LEAK_TRACKING", config.bufferLeakTracking);
+    return config;
+  }
+
+  private static <E extends Enum<E>> E parseEnum(
+      Map<String, String> env, String name, Class<E> type, E defaultValue) {
+    String value = env.get(name);
+    if (value == null || value.isBlank()) {
+      return defaultValue;
+    }
+    for (E constant : type.getEnumConstants()) {
+      if (constant.name().equalsIgnoreCase(value.trim())) {
+        return constant;
+      }
+    }
+    throw new IllegalArgumentException(
+        "Переменная окружения "
+            + name
+            + " должна принимать одно из значений: "
+            + Arrays.toString(type.getEnumConstants()));
+  }
+
+  private static boolean parseBoolean(Map<String, String> env, String name, boolean defaultValue) {
+    String value = env.get(name);
+    if (value == null || value.isBlank()) {
+      return defaultValue;
+    }
+    if (value.trim().equalsIgnoreCase("true")) {
+      return true;
+    }
+    if (value.trim().equalsIgnoreCase("false")) {
+      return false;
+    }
+    throw new IllegalArgumentException(
+        "Переменная окружения " + name + " должна принимать значение true или false.");
+  }
+
+  private static int parsePositiveInt(Map<String, String> env, String name, int defaultValue) {
+    String value = env.get(name);
+    if (value == null || value.isBlank()) {
+      return defaultValue;
+    }
+    try {
+      int parsed = Integer.parseInt(value.trim());
+      if (parsed > 0) {
+        return parsed;
+      }
+    } catch (NumberFormatException ignored) {
+    }
+    throw new IllegalArgumentException(
+        "Переменная окружения " + name + " должна быть положительным целым числом.");
+  }
+
+  private static int parseNonNegativeInt(Map<String, String> env, String name, int defaultValue) {
+    String value = env.get(name);
+    if (value == null || value.isBlank()) {
+      return defaultValue;
+    }
+    try {
+      int parsed = Integer.parseInt(value.trim());
+      if (parsed >= 0) {
+        return parsed;
+      }
+    } catch (NumberFormatException ignored) {
+    }
+    throw new IllegalArgumentException(
+        "Переменная окружения " + name + " должна быть неотрицательным целым числом.");
+  }
+
+  /**
+   * Возвращает количество циклов приема датаграмм.
+   *
+   * @return Количество циклов приема.
+   */
+  public int getReceiveLoops() {
+    return receiveLoops;
+  }
+
+  public void setReceiveLoops(int receiveLoops) {
+    this.receiveLoops = receiveLoops;
+  }
+
+  /**
+   * Возвращает способ выполнения запросов.
+   *
+   * @return Способ выполнения запросов.
+   */
+  public ExecutionMode getExecutionMode() {
+    return executionMode;
+  }
+
+  public void setExecutionMode(ExecutionMode executionMode) {
+    this.executionMode = executionMode;
+  }
+
+  /**
+   * Возвращает минимальный размер ответа в байтах, начиная с которого ответ сжимается.
+   *
+   * @return Порог сжатия.
+   */
+  public int getCompressionThreshold() {
+    return compressionThreshold;
+  }
+
+  public void setCompressionThreshold(int compressionThreshold) {
+    this.compressionThreshold = compressionThreshold;
+  }
+
+  /**
+   * Возвращает наибольший размер запроса, который сервер собирает из фрагментов.
+   *
+   * @return Размер в байтах.
+   */
+  public int getMaxRequestSize() {
+    return maxRequestSize;
+  }
+
+  public void setMaxRequestSize(int maxRequestSize) {
+    this.maxRequestSize = maxRequestSize;
+  }
+
+  /**
+   * Возвращает емкость очереди каждого этапа обработки запросов.
+   *
+   * @return Емкость очереди.
+   */
+  public int getQueueCapacity() {
+    return queueCapacity;
+  }
+
+  public void setQueueCapacity(int queueCapacity) {
+    this.queueCapacity = queueCapacity;
+  }
+
+  /**
+   * Возвращает поведение сервера при переполнении очереди.
+   *
+   * @return Политика перегрузки.
+   */
+  public OverloadPolicy getOverloadPolicy() {
+    return overloadPolicy;
+  }
+
+  public void setOverloadPolicy(OverloadPolicy overloadPolicy) {
+    this.overloadPolicy = overloadPolicy;
+  }
+
+  /**
+   * Возвращает наибольшее количество потоков этапов декодирования и отправки в режиме {@link
+   * ExecutionMode#PLATFORM}.
+   *
+   * @return Количество потоков этапа.
+   */
+  public int getStageThreads() {
+    return stageThreads;
+  }
+
+  public void setStageThreads(int stageThreads) {
+    this.stageThreads = stageThreads;
+  }
+
+  /**
+   * Возвращает наибольшее количество запросов, одновременно обрабатываемых в режиме {@link
+   * ExecutionMode#VIRTUAL}.
+   *
+   * @return Количество одновременно обрабатываемых запросов.
+   */
+  public int getVirtualConcurrency() {
+    return virtualConcurrency;
+  }
+
+  public void setVirtualConcurrency(int virtualConcurrency) {
+    this.virtualConcurrency = virtualConcurrency;
+  }
+
+  /**
+   * Возвращает количество ответов, хранимых для повторных запросов.
+   *
+   * @return Размер кэша ответов.
+   */
+  public int getReplyCacheSize() {
+    return replyCacheSize;
+  }
+
+  public void setReplyCacheSize(int replyCacheSize) {
+    this.replyCacheSize = replyCacheSize;
+  }
+
+  /**
+   * Возвращает количество закодированных ответов на команды чтения, хранимых до изменения
+   * коллекции.
+   *
+   * @return Размер кэша ответов на команды чтения; {@code 0} - кэш выключен.
+   */
+  public int getResponseCacheSize() {
+    return responseCacheSize;
+  }
+
+  public void setResponseCacheSize(int responseCacheSize) {
+    this.responseCacheSize = responseCacheSize;
+  }
+
+  /**
+   * Возвращает наибольший общий объем ответов в кэше ответов на команды чтения.
+   *
+   * @return Объем в байтах.
+   */
+  public int getResponseCacheBytes() {
+    return responseCacheBytes;
+  }
+
+  public void setResponseCacheBytes(int responseCacheBytes) {
+    this.responseCacheBytes = responseCacheBytes;
+  }
+
+  /**
+   * Возвращает период, с которым подписчикам рассылаются изменения коллекции.
+   *
+   * @return Период в миллисекундах.
+   */
+  public int getNotifyIntervalMillis() {
+    return notifyIntervalMillis;
+  }
+
+  public void setNotifyIntervalMillis(int notifyIntervalMillis) {
+    this.notifyIntervalMillis = notifyIntervalMillis;
+  }
+
+  /**
+   * Возвращает наибольшее количество клиентов, подписанных на изменения коллекции.
+   *
+   * @return Количество подписчиков.
+   */
+  public int getMaxSubscribers() {
+    return maxSubscribers;
+  }
+
+  public void setMaxSubscribers(int maxSubscribers) {
+    this.maxSubscribers = maxSubscribers;
+  }
+
+  /**
+   * Возвращает порт TCP-транспорта.
+   *
+   * @return Порт или {@code 0}, если TCP-транспорт выключен.
+   */
+  public int getTcpPort() {
+    return tcpPort;
+  }
+
+  public void setTcpPort(int tcpPort) {
+    this.tcpPort = tcpPort;
+  }
+
+  /**
+   * Возвращает наибольшее количество одновременно открытых TCP-соединений.
+   *
+   * @return Количество соединений.
+   */
+  public int getTcpMaxConnections() {
+    return tcpMaxConnections;
+  }
+
+  public void setTcpMaxConnections(int tcpMaxConnections) {
+    this.tcpMaxConnections = tcpMaxConnections;
+  }
+
+  /**
+   * Возвращает время простоя, после которого TCP-соединение закрывается.
+   *
+   * @return Время в миллисекундах или {@code 0}, если простаивающие соединения не закрываются.
+   */
+  public int getTcpIdleTimeoutMillis() {
+    return tcpIdleTimeoutMillis;
+  }
+
+  public void setTcpIdleTimeoutMillis(int tcpIdleTimeoutMillis) {
+    this.tcpIdleTimeoutMillis = tcpIdleTimeoutMillis;
+  }
+
+  /**
+   * Возвращает размер кольца конвейера в режиме {@link ExecutionMode#RING}.
+   *
+   * @return Размер кольца (округляется вверх до степени двойки).
+   */
+  public int getRingSize() {
+    return ringSize;
+  }
+
+  public void setRingSize(int ringSize) {
+    this.ringSize = ringSize;
+  }
+
+  /**
+   * Возвращает количество потоков этапов выполнения и отправки в режиме {@link ExecutionMode#RING}.
+   *
+   * @return Количество потоков этапа.
+   */
+  public int getRingWorkers() {
+    return ringWorkers;
+  }
+
+  public void setRingWorkers(int ringWorkers) {
+    this.ringWorkers = ringWorkers;
+  }
+
+  /**
+   * Возвращает способ ожидания работы потоками конвейера в режиме {@link ExecutionMode#RING}.
+   *
+   * @return Стратегия ожидания.
+   */
+  public WaitStrategy getWaitStrategy() {
+    return waitStrategy;
+  }
+
+  public void setWaitStrategy(WaitStrategy waitStrategy) {
+    this.waitStrategy = waitStrategy;
+  }
+
+  /**
+   * Возвращает наибольшую частоту запросов с одного адреса.
+   *
+   * @return Запросов в секунду или {@code 0}, если частота не ограничена.
+   */
+  public int getClientRate() {
+    return clientRate;
+  }
+
+  public void setClientRate(int clientRate) {
+    this.clientRate = clientRate;
+  }
+
+  /**
+   * Возвращает количество запросов, которые можно отправить с одного адреса подряд.
+   *
+   * @return Емкость корзины адреса.
+   */
+  public int getClientBurst() {
+    return clientBurst;
+  }
+
+  public void setClientBurst(int clientBurst) {
+    this.clientBurst = clientBurst;
+  }
+
+  /**
+   * Возвращает наибольшую частоту запросов от одного пользователя.
+   *
+   * @return Запросов в секунду или {@code 0}, если частота не ограничена.
+   */
+  public int getUserRate() {
+    return userRate;
+  }
+
+  public void setUserRate(int userRate) {
+    this.userRate = userRate;
+  }
+
+  /**
+   * Возвращает количество запросов, которые один пользователь может отправить подряд.
+   *
+   * @return Емкость корзины пользователя.
+   */
+  public int getUserBurst() {
+    return userBurst;
+  }
+
+  public void setUserBurst(int userBurst) {
+    this.userBurst = userBurst;
+  }
+
+  /**
+   * Возвращает файл, в который периодически записывается статистика запросов.
+   *
+   * @return Путь к файлу или {@code null}, если статистика в файл не записывается.
+   */
+  public String getStatsFile() {
+    return statsFile;
+  }
+
+  public void setStatsFile(String statsFile) {
+    this.statsFile = statsFile;
+  }
+
+  /**
+   * Возвращает период записи статистики запросов в файл.
+   *
+   * @return Период в миллисекундах.
+   */
+  public int getStatsIntervalMillis() {
+    return statsIntervalMillis;
+  }
+
+  public void setStatsIntervalMillis(int statsIntervalMillis) {
+    this.statsIntervalMillis = statsIntervalMillis;
+  }
+
+  /**
+   * Возвращает частоту выборки запросов для журнала запросов.
+   *
+   * @return Количество запросов, из которых в журнал в среднем попадает один.
+   */
+  public int getLogSampleRate() {
+    return logSampleRate;
+  }
+
+  public void setLogSampleRate(int logSampleRate) {
+    this.logSampleRate = logSampleRate;
+  }
+
+  /**
+   * Возвращает наибольшее время, в течение которого при остановке сервера дорабатываются принятые
+   * запросы и отправляются ответы.
+   *
+   * @return Время в миллисекундах.
+   */
+  public int getShutdownTimeoutMillis() {
+    return shutdownTimeoutMillis;
+  }
+
+  public void setShutdownTimeoutMillis(int shutdownTimeoutMillis) {
+    this.shutdownTimeoutMillis = shutdownTimeoutMillis;
+  }
+
+  /**
+   * Показывает, отслеживают ли пулы буферов выданные буферы для поиска утечек.
+   *
+   * @return {@code true} - если отслеживание утечек включено.
+   */
+  public boolean isBufferLeakTracking() {
+    return bufferLeakTracking;
+  }
+
+  public void setBufferLeakTracking(boolean bufferLeakTracking) {
+    this.bufferLeakTracking = bufferLeakTracking;
+  }
+}
@@ -0,0 +1,68 @@
+package server.system;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Способ ожидания потоков кольцевого конвейера ({@link ExecutionMode#RING}), когда для них нет
+ * работы.
+ *
+ * <p>Метод {@link #idle(int)} вызывается в цикле, пока работа не появится; номер попытки позволяет
+ * стратегии переходить от дешевых способов ожидания к более медленным.
+ *
+ * @author Alvas
+ * @since 3.0
+ */
+public enum WaitStrategy {
+  /**
+   * Активное ожидание: наименьшая задержка, но каждый поток конвейера постоянно занимает ядро.
+   * Подходит, только если ядер больше, чем потоков конвейера.
+   */
+  BUSY_SPIN {
+    @Override
+    public int idle(int attempt) {
+      Thread.onSpinWait();
+      return attempt + 1;
+    }
+  },
+  /** Короткое активное ожидание, затем уступка процессора другим потокам. */
+  YIELD {
+    @Override
+    public int idle(int attempt) {
+      if (attempt < SPIN_TRIES) {
+        Thread.onSpinWait();
+      } else {
+        Thread.yield();
+      }
+      return attempt + 1;
+    }
+  },
+  /**
+   * Активное ожидание, уступка процессора, затем сон по {@value #PARK_NANOS} нс. Простаивающий
+   * конвейер почти не нагружает процессор ценой небольшой задержки первого запроса после простоя.
+   */
+  PARK {
+    @Override
+    public int idle(int attempt) {
+      if (attempt < SPIN_TRIES) {
+        Thread.onSpinWait();
+      } else if (attempt < SPIN_TRIES + YIELD_TRIES) {
+        Thread.yield();
+      } else {
+        LockSupport.parkNanos(PARK_NANOS);
+      }
+      return attempt + 1;
+    }
+  };
+
+  private static final int SPIN_TRIES = 100;
+  private static final int YIELD_TRIES = 100;
+  private static final long PARK_NANOS = 50_000;
+
+  /**
+   * Ждет появления работы.
+   *
+   * @param attempt номер попытки, начиная с {@code 0} после последней выполненной работы.
+   * @return Номер следующей попытки.
+   */
+  public abstract int idle(int attempt);
+}